@@ -17,6 +17,8 @@
  */
 package org.apache.beam.runners.direct;
 
+import org.apache.beam.runners.direct.EnforcementSampler.Check;
+import org.apache.beam.runners.direct.EnforcementSampler.TransformChecks;
 import org.apache.beam.runners.local.StructuralKey;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
@@ -30,21 +32,36 @@ import org.joda.time.Instant;
 /**
  * A {@link BundleFactory} where a created {@link UncommittedBundle} clones all elements added to it
  * using the coder of the {@link PCollection}.
+ *
+ * <p>If an {@link EnforcementSampler} is provided, only the elements selected by the sampler are
+ * cloned and the remaining elements are added as is.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
 class CloningBundleFactory implements BundleFactory {
-  private static final CloningBundleFactory INSTANCE = new CloningBundleFactory();
+  private static final CloningBundleFactory INSTANCE =
+      new CloningBundleFactory(null, EnforcementSampler.checkAll());
 
   public static CloningBundleFactory create() {
     return INSTANCE;
   }
 
+  public static CloningBundleFactory create(DirectGraph graph, EnforcementSampler sampler) {
+    if (sampler.isCheckAll()) {
+      return INSTANCE;
+    }
+    return new CloningBundleFactory(graph, sampler);
+  }
+
   private final ImmutableListBundleFactory underlying;
+  private final DirectGraph graph;
+  private final EnforcementSampler sampler;
 
-  private CloningBundleFactory() {
+  private CloningBundleFactory(DirectGraph graph, EnforcementSampler sampler) {
     this.underlying = ImmutableListBundleFactory.create();
+    this.graph = graph;
+    this.sampler = sampler;
   }
 
   @Override
@@ -55,22 +72,31 @@ class CloningBundleFactory implements BundleFactory {
 
   @Override
   public <T> UncommittedBundle<T> createBundle(PCollection<T> output) {
-    return new CloningBundle<>(underlying.createBundle(output));
+    return new CloningBundle<>(underlying.createBundle(output), checksFor(output));
   }
 
   @Override
   public <K, T> UncommittedBundle<T> createKeyedBundle(
       StructuralKey<K> key, PCollection<T> output) {
-    return new CloningBundle<>(underlying.createKeyedBundle(key, output));
+    return new CloningBundle<>(underlying.createKeyedBundle(key, output), checksFor(output));
+  }
+
+  private TransformChecks checksFor(PCollection<?> output) {
+    if (sampler.isCheckAll()) {
+      return null;
+    }
+    return sampler.forTransform(graph.getProducer(output).getFullName(), Check.ENCODABILITY);
   }
 
   private static class CloningBundle<T> implements UncommittedBundle<T> {
     private final UncommittedBundle<T> underlying;
     private final Coder<T> coder;
+    private final TransformChecks checks;
 
-    private CloningBundle(UncommittedBundle<T> underlying) {
+    private CloningBundle(UncommittedBundle<T> underlying, TransformChecks checks) {
       this.underlying = underlying;
       this.coder = underlying.getPCollection().getCoder();
+      this.checks = checks;
     }
 
     @Override
@@ -80,6 +106,11 @@ class CloningBundleFactory implements BundleFactory {
 
     @Override
     public UncommittedBundle<T> add(WindowedValue<T> element) {
+      if (checks != null && !checks.shouldCheck()) {
+        underlying.add(element);
+        return this;
+      }
+      long startNanos = checks == null ? 0L : checks.startCheck();
       try {
         // Use the cloned value to ensure that if the coder behaves poorly (e.g. a NoOpCoder that
         // does not expect to be used) that is reflected in the values given to downstream
@@ -89,6 +120,9 @@ class CloningBundleFactory implements BundleFactory {
       } catch (CoderException e) {
         throw UserCodeException.wrap(e);
       }
+      if (checks != null) {
+        checks.recordCheck(startNanos);
+      }
       return this;
     }
 
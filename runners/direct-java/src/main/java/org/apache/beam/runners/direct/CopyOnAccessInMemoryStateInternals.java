@@ -19,8 +19,14 @@ package org.apache.beam.runners.direct;
 
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.apache.beam.runners.core.InMemoryStateInternals.InMemoryBag;
@@ -39,6 +45,10 @@ import org.apache.beam.runners.core.StateTable;
 import org.apache.beam.runners.core.StateTag;
 import org.apache.beam.runners.core.StateTag.StateBinder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.InstantCoder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.MapState;
@@ -55,6 +65,9 @@ import org.apache.beam.sdk.transforms.CombineWithContext.CombineFnWithContext;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.CombineFnUtil;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TimestampedValue.TimestampedValueCoder;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
@@ -137,6 +150,168 @@ class CopyOnAccessInMemoryStateInternals<K> implements StateInternals {
     return Iterables.isEmpty(table.values());
   }
 
+  /**
+   * Writes the contents of this committed {@link CopyOnAccessInMemoryStateInternals} to the
+   * provided stream, encoding each {@link State} with the {@link Coder Coders} of its {@link
+   * StateTag}. Cleared state is not written.
+   *
+   * @return the addresses of the written state, which must be provided to {@link #readFrom} to
+   *     restore the state
+   */
+  public List<StateAddress> writeTo(OutputStream out) throws IOException {
+    checkState(
+        table.earliestWatermarkHold.isPresent(),
+        "Can't write a %s before it is committed",
+        getClass().getSimpleName());
+    List<StateAddress> addresses = new ArrayList<>();
+    try {
+      for (StateNamespace namespace : table.getNamespacesInUse()) {
+        for (Map.Entry<StateTag, State> existingState :
+            table.getTagsInUse(namespace).entrySet()) {
+          if (!((InMemoryState<?>) existingState.getValue()).isCleared()) {
+            existingState.getKey().bind(new EncodingBinder(existingState.getValue(), out));
+            addresses.add(new StateAddress(namespace, existingState.getKey()));
+          }
+        }
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return addresses;
+  }
+
+  /**
+   * Reads state written by {@link #writeTo} into a new committed {@link
+   * CopyOnAccessInMemoryStateInternals}.
+   */
+  public static <K> CopyOnAccessInMemoryStateInternals<K> readFrom(
+      K key, List<StateAddress> addresses, InputStream in) throws IOException {
+    CopyOnAccessInMemoryStateInternals<K> internals =
+        new CopyOnAccessInMemoryStateInternals<>(key, null);
+    internals.table.binderFactory = new CopyOnAccessInMemoryStateTable.DecodingBinderFactory(in);
+    try {
+      for (StateAddress address : addresses) {
+        internals.table.get(address.namespace, address.tag, StateContexts.nullContext());
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return internals.commit();
+  }
+
+  /** The {@link StateNamespace} and {@link StateTag} of state written by {@link #writeTo}. */
+  static final class StateAddress {
+    private final StateNamespace namespace;
+    private final StateTag tag;
+
+    private StateAddress(StateNamespace namespace, StateTag tag) {
+      this.namespace = namespace;
+      this.tag = tag;
+    }
+  }
+
+  /**
+   * A {@link StateBinder} which encodes the contents of existing {@link State} using the {@link
+   * Coder Coders} provided when its {@link StateTag} is bound. Always returns {@code null}.
+   */
+  private static class EncodingBinder implements StateBinder {
+    private final State state;
+    private final OutputStream out;
+
+    private EncodingBinder(State state, OutputStream out) {
+      this.state = state;
+      this.out = out;
+    }
+
+    private <T> void encode(Coder<T> coder, T value) {
+      try {
+        coder.encode(value, out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static <K, V> Iterable<KV<K, V>> toKvs(Iterable<Map.Entry<K, V>> entries) {
+      return Iterables.transform(entries, entry -> KV.of(entry.getKey(), entry.getValue()));
+    }
+
+    @Override
+    public WatermarkHoldState bindWatermark(
+        StateTag<WatermarkHoldState> address, TimestampCombiner timestampCombiner) {
+      encode(InstantCoder.of(), ((WatermarkHoldState) state).read());
+      return null;
+    }
+
+    @Override
+    public <T> ValueState<T> bindValue(StateTag<ValueState<T>> address, Coder<T> coder) {
+      encode(NullableCoder.of(coder), ((ValueState<T>) state).read());
+      return null;
+    }
+
+    @Override
+    public <InputT, AccumT, OutputT>
+        CombiningState<InputT, AccumT, OutputT> bindCombiningValue(
+            StateTag<CombiningState<InputT, AccumT, OutputT>> address,
+            Coder<AccumT> accumCoder,
+            CombineFn<InputT, AccumT, OutputT> combineFn) {
+      encode(accumCoder, ((CombiningState<InputT, AccumT, OutputT>) state).getAccum());
+      return null;
+    }
+
+    @Override
+    public <T> BagState<T> bindBag(StateTag<BagState<T>> address, Coder<T> elemCoder) {
+      encode(IterableCoder.of(elemCoder), ((BagState<T>) state).read());
+      return null;
+    }
+
+    @Override
+    public <T> SetState<T> bindSet(StateTag<SetState<T>> address, Coder<T> elemCoder) {
+      encode(IterableCoder.of(elemCoder), ((SetState<T>) state).read());
+      return null;
+    }
+
+    @Override
+    public <KeyT, ValueT> MapState<KeyT, ValueT> bindMap(
+        StateTag<MapState<KeyT, ValueT>> address,
+        Coder<KeyT> mapKeyCoder,
+        Coder<ValueT> mapValueCoder) {
+      encode(
+          IterableCoder.of(KvCoder.of(mapKeyCoder, mapValueCoder)),
+          toKvs(((MapState<KeyT, ValueT>) state).entries().read()));
+      return null;
+    }
+
+    @Override
+    public <KeyT, ValueT> MultimapState<KeyT, ValueT> bindMultimap(
+        StateTag<MultimapState<KeyT, ValueT>> address,
+        Coder<KeyT> keyCoder,
+        Coder<ValueT> valueCoder) {
+      encode(
+          IterableCoder.of(KvCoder.of(keyCoder, valueCoder)),
+          toKvs(((MultimapState<KeyT, ValueT>) state).entries().read()));
+      return null;
+    }
+
+    @Override
+    public <T> OrderedListState<T> bindOrderedList(
+        StateTag<OrderedListState<T>> address, Coder<T> elemCoder) {
+      encode(
+          IterableCoder.of(TimestampedValueCoder.of(elemCoder)),
+          ((OrderedListState<T>) state).read());
+      return null;
+    }
+
+    @Override
+    public <InputT, AccumT, OutputT>
+        CombiningState<InputT, AccumT, OutputT> bindCombiningValueWithContext(
+            StateTag<CombiningState<InputT, AccumT, OutputT>> address,
+            Coder<AccumT> accumCoder,
+            CombineFnWithContext<InputT, AccumT, OutputT> combineFn) {
+      return bindCombiningValue(
+          address, accumCoder, CombineFnUtil.bindContext(combineFn, StateContexts.nullContext()));
+    }
+  }
+
   /**
    * A {@link StateTable} that, when a value is retrieved with {@link StateTable#get(StateNamespace,
    * StateTag, StateContext)}, first attempts to obtain a copy of existing {@link State} from an
@@ -502,6 +677,123 @@ class CopyOnAccessInMemoryStateInternals<K> implements StateInternals {
       }
     }
 
+    /**
+     * {@link StateBinderFactory} that creates state from the contents written by {@link
+     * CopyOnAccessInMemoryStateInternals#writeTo}. Used by {@link
+     * CopyOnAccessInMemoryStateInternals#readFrom} to restore all of the written state.
+     */
+    private static class DecodingBinderFactory implements StateBinderFactory {
+      private final InputStream in;
+
+      public DecodingBinderFactory(InputStream in) {
+        this.in = in;
+      }
+
+      private <T> T decode(Coder<T> coder) {
+        try {
+          return coder.decode(in);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      @Override
+      public StateBinder forNamespace(final StateNamespace namespace, final StateContext<?> c) {
+        return new StateBinder() {
+          @Override
+          public WatermarkHoldState bindWatermark(
+              StateTag<WatermarkHoldState> address, TimestampCombiner timestampCombiner) {
+            InMemoryWatermarkHold<?> hold = new InMemoryWatermarkHold<>(timestampCombiner);
+            hold.add(decode(InstantCoder.of()));
+            return hold;
+          }
+
+          @Override
+          public <T> ValueState<T> bindValue(StateTag<ValueState<T>> address, Coder<T> coder) {
+            InMemoryValue<T> value = new InMemoryValue<>(coder);
+            value.write(decode(NullableCoder.of(coder)));
+            return value;
+          }
+
+          @Override
+          public <InputT, AccumT, OutputT>
+              CombiningState<InputT, AccumT, OutputT> bindCombiningValue(
+                  StateTag<CombiningState<InputT, AccumT, OutputT>> address,
+                  Coder<AccumT> accumCoder,
+                  CombineFn<InputT, AccumT, OutputT> combineFn) {
+            InMemoryCombiningState<InputT, AccumT, OutputT> combining =
+                new InMemoryCombiningState<>(combineFn, accumCoder);
+            combining.addAccum(decode(accumCoder));
+            return combining;
+          }
+
+          @Override
+          public <T> BagState<T> bindBag(StateTag<BagState<T>> address, Coder<T> elemCoder) {
+            InMemoryBag<T> bag = new InMemoryBag<>(elemCoder);
+            for (T element : decode(IterableCoder.of(elemCoder))) {
+              bag.add(element);
+            }
+            return bag;
+          }
+
+          @Override
+          public <T> SetState<T> bindSet(StateTag<SetState<T>> address, Coder<T> elemCoder) {
+            InMemorySet<T> set = new InMemorySet<>(elemCoder);
+            for (T element : decode(IterableCoder.of(elemCoder))) {
+              set.add(element);
+            }
+            return set;
+          }
+
+          @Override
+          public <KeyT, ValueT> MapState<KeyT, ValueT> bindMap(
+              StateTag<MapState<KeyT, ValueT>> address,
+              Coder<KeyT> mapKeyCoder,
+              Coder<ValueT> mapValueCoder) {
+            InMemoryMap<KeyT, ValueT> map = new InMemoryMap<>(mapKeyCoder, mapValueCoder);
+            for (KV<KeyT, ValueT> entry :
+                decode(IterableCoder.of(KvCoder.of(mapKeyCoder, mapValueCoder)))) {
+              map.put(entry.getKey(), entry.getValue());
+            }
+            return map;
+          }
+
+          @Override
+          public <KeyT, ValueT> MultimapState<KeyT, ValueT> bindMultimap(
+              StateTag<MultimapState<KeyT, ValueT>> address,
+              Coder<KeyT> keyCoder,
+              Coder<ValueT> valueCoder) {
+            InMemoryMultimap<KeyT, ValueT> multimap = new InMemoryMultimap<>(keyCoder, valueCoder);
+            for (KV<KeyT, ValueT> entry :
+                decode(IterableCoder.of(KvCoder.of(keyCoder, valueCoder)))) {
+              multimap.put(entry.getKey(), entry.getValue());
+            }
+            return multimap;
+          }
+
+          @Override
+          public <T> OrderedListState<T> bindOrderedList(
+              StateTag<OrderedListState<T>> address, Coder<T> elemCoder) {
+            InMemoryOrderedList<T> orderedList = new InMemoryOrderedList<>(elemCoder);
+            for (TimestampedValue<T> element :
+                decode(IterableCoder.of(TimestampedValueCoder.of(elemCoder)))) {
+              orderedList.add(element);
+            }
+            return orderedList;
+          }
+
+          @Override
+          public <InputT, AccumT, OutputT>
+              CombiningState<InputT, AccumT, OutputT> bindCombiningValueWithContext(
+                  StateTag<CombiningState<InputT, AccumT, OutputT>> address,
+                  Coder<AccumT> accumCoder,
+                  CombineFnWithContext<InputT, AccumT, OutputT> combineFn) {
+            return bindCombiningValue(address, accumCoder, CombineFnUtil.bindContext(combineFn, c));
+          }
+        };
+      }
+    }
+
     private static class InMemoryStateBinderFactory implements StateBinderFactory {
 
       public InMemoryStateBinderFactory() {}
@@ -22,6 +22,7 @@ import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.DefaultValueFactory;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Options that can be used to configure the {@link org.apache.beam.runners.direct.DirectRunner}.
@@ -54,6 +55,34 @@ public interface DirectOptions extends PipelineOptions, ApplicationNameOptions {
 
   void setEnforceEncodability(boolean test);
 
+  @Default.Integer(1)
+  @Description(
+      "Controls how many of the elements of each PTransform the DirectRunner checks when"
+          + " enforcing immutability and encodability. After the first"
+          + " enforcementSamplingWarmupElements elements, one in every enforcementSamplingPeriod"
+          + " elements is checked. Defaults to 1, which checks every element. Must be a value"
+          + " greater than zero.")
+  int getEnforcementSamplingPeriod();
+
+  void setEnforcementSamplingPeriod(int period);
+
+  @Default.Long(1000L)
+  @Description(
+      "The number of elements of each PTransform which the DirectRunner always checks when"
+          + " enforcing immutability and encodability before it starts sampling elements.")
+  long getEnforcementSamplingWarmupElements();
+
+  void setEnforcementSamplingWarmupElements(long warmupElements);
+
+  @Default.Boolean(false)
+  @Description(
+      "If true, the DirectRunner logs how many elements of each PTransform were checked when"
+          + " enforcing immutability and encodability and how long the checks took once the"
+          + " pipeline finishes.")
+  boolean isReportEnforcementCost();
+
+  void setReportEnforcementCost(boolean report);
+
   @Default.InstanceFactory(AvailableParallelismFactory.class)
   @Description(
       "Controls the amount of target parallelism the DirectRunner will use. Defaults to"
@@ -63,6 +92,59 @@ public interface DirectOptions extends PipelineOptions, ApplicationNameOptions {
 
   void setTargetParallelism(int target);
 
+  @Default.Enum("FIXED_THREAD_POOL")
+  @Description(
+      "Controls how the DirectRunner schedules bundles onto threads. FIXED_THREAD_POOL evaluates"
+          + " bundles on a fixed size thread pool with a shared work queue. WORK_STEALING evaluates"
+          + " bundles on a work-stealing ForkJoinPool where follow-up bundles for a key stay on"
+          + " the thread that produced them unless another thread is idle, which scales better for"
+          + " large pipelines on machines with many cores.")
+  ExecutorType getExecutorType();
+
+  void setExecutorType(ExecutorType executorType);
+
+  /** The ways in which the {@link DirectRunner} can schedule bundles onto threads. */
+  enum ExecutorType {
+    /** Evaluate bundles on a fixed size thread pool with a single shared work queue. */
+    FIXED_THREAD_POOL,
+    /** Evaluate bundles on a work-stealing {@link java.util.concurrent.ForkJoinPool}. */
+    WORK_STEALING
+  }
+
+  @Default.Enum("IN_MEMORY")
+  @Description(
+      "Controls where the DirectRunner stores the state of stateful PTransforms. IN_MEMORY keeps"
+          + " all state on the heap. SPILLING keeps the state of the most recently used keys on"
+          + " the heap and writes the state of all other keys to a local file, which allows"
+          + " running stateful pipelines over large key spaces.")
+  StateBackendType getStateBackend();
+
+  void setStateBackend(StateBackendType stateBackend);
+
+  @Default.Integer(10000)
+  @Description(
+      "The maximum number of keys whose state the SPILLING state backend keeps in memory, across"
+          + " all stateful PTransforms. Must be a value greater than zero.")
+  int getMaxInMemoryStateKeys();
+
+  void setMaxInMemoryStateKeys(int maxKeys);
+
+  @Description(
+      "The directory the SPILLING state backend writes state to. Defaults to the directory given"
+          + " by the java.io.tmpdir system property.")
+  @Nullable
+  String getStateSpillDirectory();
+
+  void setStateSpillDirectory(@Nullable String directory);
+
+  /** The ways in which the {@link DirectRunner} can store the state of stateful transforms. */
+  enum StateBackendType {
+    /** Keep all state in memory. */
+    IN_MEMORY,
+    /** Keep the state of recently used keys in memory and spill the remainder to local disk. */
+    SPILLING
+  }
+
   /**
    * A {@link DefaultValueFactory} that returns the result of {@link Runtime#availableProcessors()}
    * from the {@link #create(PipelineOptions)} method. Uses {@link Runtime#getRuntime()} to obtain
@@ -110,25 +110,26 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
       return Collections.unmodifiableSet(enabled);
     }
 
-    static BundleFactory bundleFactoryFor(Set<Enforcement> enforcements, DirectGraph graph) {
+    static BundleFactory bundleFactoryFor(
+        Set<Enforcement> enforcements, DirectGraph graph, EnforcementSampler sampler) {
       BundleFactory bundleFactory =
           enforcements.contains(Enforcement.ENCODABILITY)
-              ? CloningBundleFactory.create()
+              ? CloningBundleFactory.create(graph, sampler)
               : ImmutableListBundleFactory.create();
       if (enforcements.contains(Enforcement.IMMUTABILITY)) {
-        bundleFactory = ImmutabilityCheckingBundleFactory.create(bundleFactory, graph);
+        bundleFactory = ImmutabilityCheckingBundleFactory.create(bundleFactory, graph, sampler);
       }
       return bundleFactory;
     }
 
     private static Map<String, Collection<ModelEnforcementFactory>> defaultModelEnforcements(
-        Set<Enforcement> enabledEnforcements) {
+        Set<Enforcement> enabledEnforcements, EnforcementSampler sampler) {
       ImmutableMap.Builder<String, Collection<ModelEnforcementFactory>> enforcements =
           ImmutableMap.builder();
       ImmutableList.Builder<ModelEnforcementFactory> enabledParDoEnforcements =
           ImmutableList.builder();
       if (enabledEnforcements.contains(Enforcement.IMMUTABILITY)) {
-        enabledParDoEnforcements.add(ImmutabilityEnforcementFactory.create());
+        enabledParDoEnforcements.add(ImmutabilityEnforcementFactory.create(sampler));
       }
       Collection<ModelEnforcementFactory> parDoEnforcements = enabledParDoEnforcements.build();
       enforcements.put(PTransformTranslation.PAR_DO_TRANSFORM_URN, parDoEnforcements);
@@ -198,26 +199,29 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
                   .setNameFormat("direct-metrics-counter-committer")
                   .build());
       DirectGraph graph = graphVisitor.getGraph();
+      EnforcementSampler enforcementSampler = EnforcementSampler.create(options);
       EvaluationContext context =
           EvaluationContext.create(
               clockSupplier.get(),
-              Enforcement.bundleFactoryFor(enabledEnforcements, graph),
+              Enforcement.bundleFactoryFor(enabledEnforcements, graph, enforcementSampler),
               graph,
               keyedPValueVisitor.getKeyedPValues(),
-              metricsPool);
+              metricsPool,
+              StateBackends.create(options));
 
       TransformEvaluatorRegistry registry =
           TransformEvaluatorRegistry.javaSdkNativeRegistry(context, options);
       PipelineExecutor executor =
           ExecutorServiceParallelExecutor.create(
               options.getTargetParallelism(),
+              options.getExecutorType(),
               registry,
-              Enforcement.defaultModelEnforcements(enabledEnforcements),
+              Enforcement.defaultModelEnforcements(enabledEnforcements, enforcementSampler),
               context,
               metricsPool);
       executor.start(graph, RootProviderRegistry.javaNativeRegistry(context, options));
 
-      DirectPipelineResult result = new DirectPipelineResult(executor, context);
+      DirectPipelineResult result = new DirectPipelineResult(executor, context, enforcementSampler);
       if (options.isBlockOnRun()) {
         try {
           result.waitUntilFinish();
@@ -316,11 +320,16 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
   public static class DirectPipelineResult implements PipelineResult {
     private final PipelineExecutor executor;
     private final EvaluationContext evaluationContext;
+    private final EnforcementSampler enforcementSampler;
     private State state;
 
-    private DirectPipelineResult(PipelineExecutor executor, EvaluationContext evaluationContext) {
+    private DirectPipelineResult(
+        PipelineExecutor executor,
+        EvaluationContext evaluationContext,
+        EnforcementSampler enforcementSampler) {
       this.executor = executor;
       this.evaluationContext = evaluationContext;
+      this.enforcementSampler = enforcementSampler;
       // Only ever constructed after the executor has started.
       this.state = State.RUNNING;
     }
@@ -376,11 +385,13 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
       try {
         endState = executor.waitUntilFinish(duration);
       } catch (UserCodeException uce) {
+        logEnforcementCostIfTerminated();
         // Emulates the behavior of Pipeline#run(), where a stack trace caused by a
         // UserCodeException is truncated and replaced with the stack starting at the call to
         // waitToFinish
         throw new Pipeline.PipelineExecutionException(uce.getCause());
       } catch (Exception e) {
+        logEnforcementCostIfTerminated();
         if (e instanceof InterruptedException) {
           Thread.currentThread().interrupt();
         }
@@ -391,9 +402,19 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
       }
       if (endState != null) {
         this.state = endState;
+        if (endState.isTerminal()) {
+          enforcementSampler.logCostReport();
+        }
       }
       return endState;
     }
+
+    /** Logs the enforcement cost report once the pipeline has terminated, including by failing. */
+    private void logEnforcementCostIfTerminated() {
+      if (executor.getPipelineState().isTerminal()) {
+        enforcementSampler.logCostReport();
+      }
+    }
   }
 
   /** A {@link Supplier} that creates a {@link NanosOffsetClock}. */
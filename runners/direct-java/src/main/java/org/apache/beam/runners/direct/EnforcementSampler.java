@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which elements the {@link DirectRunner} checks for immutability and encodability and
+ * tracks the time spent checking them.
+ *
+ * <p>Every transform has the first {@code warmupElements} elements checked and one in every {@code
+ * period} elements after that. Checking only a sample of the elements still catches coders and
+ * {@link org.apache.beam.sdk.transforms.DoFn DoFns} which misbehave for all elements while greatly
+ * reducing the cost of enforcement for large inputs.
+ */
+class EnforcementSampler {
+  private static final Logger LOG = LoggerFactory.getLogger(EnforcementSampler.class);
+
+  /** The checks which are sampled. */
+  enum Check {
+    ENCODABILITY,
+    INPUT_IMMUTABILITY,
+    OUTPUT_IMMUTABILITY
+  }
+
+  private static final EnforcementSampler CHECK_ALL = new EnforcementSampler(1, 0L, false);
+
+  /** Returns an {@link EnforcementSampler} which checks every element without tracking cost. */
+  public static EnforcementSampler checkAll() {
+    return CHECK_ALL;
+  }
+
+  public static EnforcementSampler create(DirectOptions options) {
+    return new EnforcementSampler(
+        options.getEnforcementSamplingPeriod(),
+        options.getEnforcementSamplingWarmupElements(),
+        options.isReportEnforcementCost());
+  }
+
+  @VisibleForTesting
+  static EnforcementSampler create(int period, long warmupElements, boolean trackCost) {
+    return new EnforcementSampler(period, warmupElements, trackCost);
+  }
+
+  private final int period;
+  private final long warmupElements;
+  private final boolean trackCost;
+  private final Map<String, Map<Check, TransformChecks>> transformChecks;
+  private final AtomicBoolean costReported = new AtomicBoolean();
+
+  private EnforcementSampler(int period, long warmupElements, boolean trackCost) {
+    checkArgument(period > 0, "Enforcement sampling period must be positive, got %s", period);
+    checkArgument(
+        warmupElements >= 0,
+        "Enforcement sampling warmup elements must not be negative, got %s",
+        warmupElements);
+    this.period = period;
+    this.warmupElements = warmupElements;
+    this.trackCost = trackCost;
+    this.transformChecks = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns whether every element is checked and no cost is tracked, in which case callers should
+   * check every element without consulting this {@link EnforcementSampler}.
+   */
+  public boolean isCheckAll() {
+    return period == 1 && !trackCost;
+  }
+
+  /** Returns the {@link TransformChecks} for a check performed for the named transform. */
+  public TransformChecks forTransform(String transformName, Check check) {
+    return transformChecks
+        .computeIfAbsent(transformName, name -> new ConcurrentHashMap<>())
+        .computeIfAbsent(check, c -> new TransformChecks(transformName, c));
+  }
+
+  /**
+   * Returns a report of the number of elements seen and checked by each transform and the time
+   * spent checking them, most expensive first.
+   */
+  public String getCostReport() {
+    List<TransformChecks> allChecks = new ArrayList<>();
+    for (Map<Check, TransformChecks> checks : transformChecks.values()) {
+      allChecks.addAll(checks.values());
+    }
+    allChecks.sort(Comparator.comparingLong(TransformChecks::getCheckNanos).reversed());
+    StringBuilder report = new StringBuilder("DirectRunner model enforcement cost:");
+    for (TransformChecks checks : allChecks) {
+      report.append(
+          String.format(
+              "%n  %s [%s]: checked %d of %d elements in %d ms",
+              checks.transformName,
+              checks.check,
+              checks.checked.get(),
+              checks.seen.get(),
+              TimeUnit.NANOSECONDS.toMillis(checks.getCheckNanos())));
+    }
+    return report.toString();
+  }
+
+  /**
+   * Logs the {@link #getCostReport() cost report} if cost is tracked. Only the first call logs the
+   * report.
+   */
+  public void logCostReport() {
+    if (trackCost && !costReported.getAndSet(true)) {
+      LOG.info(getCostReport());
+    }
+  }
+
+  /** The sampling and cost accounting state of one {@link Check} for one transform. */
+  class TransformChecks {
+    private final String transformName;
+    private final Check check;
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong checkNanos = new AtomicLong();
+
+    private TransformChecks(String transformName, Check check) {
+      this.transformName = transformName;
+      this.check = check;
+    }
+
+    /** Returns whether the next element should be checked. */
+    public boolean shouldCheck() {
+      long index = seen.getAndIncrement();
+      if (index < warmupElements || (index - warmupElements) % period == 0) {
+        checked.incrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    /** Returns the time to pass to {@link #recordCheck(long)} once checking has completed. */
+    public long startCheck() {
+      return trackCost ? System.nanoTime() : 0L;
+    }
+
+    /** Records the time spent checking since {@code startNanos}. */
+    public void recordCheck(long startNanos) {
+      if (trackCost) {
+        checkNanos.addAndGet(System.nanoTime() - startNanos);
+      }
+    }
+
+    @VisibleForTesting
+    long getSeen() {
+      return seen.get();
+    }
+
+    @VisibleForTesting
+    long getChecked() {
+      return checked.get();
+    }
+
+    long getCheckNanos() {
+      return checkNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("transformName", transformName)
+          .add("check", check)
+          .add("seen", seen)
+          .add("checked", checked)
+          .toString();
+    }
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.beam.runners.direct;
 
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -26,8 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import org.apache.beam.runners.core.InMemoryBundleFinalizer;
 import org.apache.beam.runners.core.ReadyCheckingSideInputReader;
@@ -94,8 +93,7 @@ class EvaluationContext {
   private final WatermarkCallbackExecutor callbackExecutor;
 
   /** The stateInternals of the world, by applied PTransform and key. */
-  private final ConcurrentMap<StepAndKey, CopyOnAccessInMemoryStateInternals>
-      applicationStateInternals;
+  private final StateBackend applicationStateInternals;
 
   private final SideInputContainer sideInputContainer;
 
@@ -109,7 +107,19 @@ class EvaluationContext {
       DirectGraph graph,
       Set<PValue> keyedPValues,
       ExecutorService executorService) {
-    return new EvaluationContext(clock, bundleFactory, graph, keyedPValues, executorService);
+    return create(
+        clock, bundleFactory, graph, keyedPValues, executorService, StateBackends.inMemory());
+  }
+
+  public static EvaluationContext create(
+      Clock clock,
+      BundleFactory bundleFactory,
+      DirectGraph graph,
+      Set<PValue> keyedPValues,
+      ExecutorService executorService,
+      StateBackend stateBackend) {
+    return new EvaluationContext(
+        clock, bundleFactory, graph, keyedPValues, executorService, stateBackend);
   }
 
   private EvaluationContext(
@@ -117,7 +127,8 @@ class EvaluationContext {
       BundleFactory bundleFactory,
       DirectGraph graph,
       Set<PValue> keyedPValues,
-      ExecutorService executorService) {
+      ExecutorService executorService,
+      StateBackend stateBackend) {
     this.clock = clock;
     this.bundleFactory = checkNotNull(bundleFactory);
     this.graph = checkNotNull(graph);
@@ -126,7 +137,7 @@ class EvaluationContext {
     this.watermarkManager = WatermarkManager.create(clock, graph, AppliedPTransform::getFullName);
     this.sideInputContainer = SideInputContainer.create(this, graph.getViews());
 
-    this.applicationStateInternals = new ConcurrentHashMap<>();
+    this.applicationStateInternals = checkNotNull(stateBackend);
     this.metrics = new DirectMetrics(executorService);
 
     this.callbackExecutor = WatermarkCallbackExecutor.create(MoreExecutors.directExecutor());
@@ -428,4 +439,9 @@ class EvaluationContext {
   Clock getClock() {
     return clock;
   }
+
+  /** Releases the resources held by the state of this {@link EvaluationContext}. */
+  void cleanup() throws IOException {
+    applicationStateInternals.close();
+  }
 }
@@ -27,11 +27,14 @@ import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
+import org.apache.beam.runners.direct.DirectOptions.ExecutorType;
 import org.apache.beam.runners.local.ExecutionDriver;
 import org.apache.beam.runners.local.ExecutionDriver.DriverState;
 import org.apache.beam.runners.local.PipelineMessageReceiver;
@@ -91,27 +94,36 @@ final class ExecutorServiceParallelExecutor
       Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
       EvaluationContext context,
       ExecutorService metricsExecutor) {
+    return create(
+        targetParallelism,
+        ExecutorType.FIXED_THREAD_POOL,
+        registry,
+        transformEnforcements,
+        context,
+        metricsExecutor);
+  }
+
+  public static ExecutorServiceParallelExecutor create(
+      int targetParallelism,
+      ExecutorType executorType,
+      TransformEvaluatorRegistry registry,
+      Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
+      EvaluationContext context,
+      ExecutorService metricsExecutor) {
     return new ExecutorServiceParallelExecutor(
-        targetParallelism, registry, transformEnforcements, context, metricsExecutor);
+        targetParallelism, executorType, registry, transformEnforcements, context, metricsExecutor);
   }
 
   private ExecutorServiceParallelExecutor(
       int targetParallelism,
+      ExecutorType executorType,
       TransformEvaluatorRegistry registry,
       Map<String, Collection<ModelEnforcementFactory>> transformEnforcements,
       EvaluationContext context,
       ExecutorService metricsExecutor) {
     this.targetParallelism = targetParallelism;
     this.metricsExecutor = metricsExecutor;
-    // Don't use Daemon threads for workers. The Pipeline should continue to execute even if there
-    // are no other active threads (for example, because waitUntilFinish was not called)
-    this.executorService =
-        Executors.newFixedThreadPool(
-            targetParallelism,
-            new ThreadFactoryBuilder()
-                .setThreadFactory(MoreExecutors.platformThreadFactory())
-                .setNameFormat("direct-runner-worker")
-                .build());
+    this.executorService = createExecutorService(targetParallelism, executorType);
     this.registry = registry;
     this.evaluationContext = context;
 
@@ -130,6 +142,44 @@ final class ExecutorServiceParallelExecutor
     executorFactory = new DirectTransformExecutor.Factory(context, registry, transformEnforcements);
   }
 
+  private static ExecutorService createExecutorService(
+      int targetParallelism, ExecutorType executorType) {
+    switch (executorType) {
+      case FIXED_THREAD_POOL:
+        // Don't use Daemon threads for workers. The Pipeline should continue to execute even if
+        // there are no other active threads (for example, because waitUntilFinish was not called)
+        return Executors.newFixedThreadPool(
+            targetParallelism,
+            new ThreadFactoryBuilder()
+                .setThreadFactory(MoreExecutors.platformThreadFactory())
+                .setNameFormat("direct-runner-worker")
+                .build());
+      case WORK_STEALING:
+        // Work submitted from a worker thread, such as the next bundle for a key or the bundles
+        // produced by a completed bundle, is pushed onto that thread's own queue and is only taken
+        // by another thread when it runs out of work. Async mode processes each queue in FIFO
+        // order since the submitted work is never joined.
+        // Fork join worker threads use the system class loader as their context class loader
+        // rather than inheriting it like the threads of the other executors.
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return new ForkJoinPool(
+            targetParallelism,
+            pool -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+              thread.setDaemon(false);
+              thread.setContextClassLoader(contextClassLoader);
+              thread.setName("direct-runner-worker-" + thread.getPoolIndex());
+              return thread;
+            },
+            null,
+            true);
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unknown %s %s", ExecutorType.class.getSimpleName(), executorType));
+    }
+  }
+
   private CacheLoader<StepAndKey, TransformExecutorService>
       serialTransformExecutorServiceCacheLoader() {
     return new CacheLoader<StepAndKey, TransformExecutorService>() {
@@ -348,6 +398,11 @@ final class ExecutorServiceParallelExecutor
     } catch (final Exception e) {
       errors.add(e);
     }
+    try {
+      evaluationContext.cleanup();
+    } catch (final Exception e) {
+      errors.add(e);
+    }
     IllegalStateException exception = null;
     try {
       if (!errors.isEmpty()) {
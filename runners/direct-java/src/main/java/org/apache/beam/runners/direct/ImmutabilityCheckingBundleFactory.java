@@ -20,6 +20,8 @@ package org.apache.beam.runners.direct;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkNotNull;
 
 import org.apache.beam.runners.direct.DirectRunner.Enforcement;
+import org.apache.beam.runners.direct.EnforcementSampler.Check;
+import org.apache.beam.runners.direct.EnforcementSampler.TransformChecks;
 import org.apache.beam.runners.local.StructuralKey;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
@@ -42,6 +44,9 @@ import org.joda.time.Instant;
  *
  * <p>This catches errors during the execution of a {@link DoFn} caused by modifying an element
  * after it is added to an output {@link PCollection}.
+ *
+ * <p>If an {@link EnforcementSampler} is provided, only the elements selected by the sampler are
+ * checked.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
@@ -53,15 +58,28 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
    */
   public static ImmutabilityCheckingBundleFactory create(
       BundleFactory underlying, DirectGraph graph) {
-    return new ImmutabilityCheckingBundleFactory(underlying, graph);
+    return create(underlying, graph, EnforcementSampler.checkAll());
+  }
+
+  /**
+   * Create a new {@link ImmutabilityCheckingBundleFactory} that uses the underlying {@link
+   * BundleFactory} to create the output bundle and checks the elements selected by the {@link
+   * EnforcementSampler}.
+   */
+  public static ImmutabilityCheckingBundleFactory create(
+      BundleFactory underlying, DirectGraph graph, EnforcementSampler sampler) {
+    return new ImmutabilityCheckingBundleFactory(underlying, graph, sampler);
   }
 
   private final BundleFactory underlying;
   private final DirectGraph graph;
+  private final EnforcementSampler sampler;
 
-  private ImmutabilityCheckingBundleFactory(BundleFactory underlying, DirectGraph graph) {
+  private ImmutabilityCheckingBundleFactory(
+      BundleFactory underlying, DirectGraph graph, EnforcementSampler sampler) {
     this.underlying = checkNotNull(underlying);
     this.graph = graph;
+    this.sampler = sampler;
   }
 
   /**
@@ -96,11 +114,18 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
     private final UncommittedBundle<T> underlying;
     private final SetMultimap<WindowedValue<T>, MutationDetector> mutationDetectors;
     private Coder<T> coder;
+    private final TransformChecks checks;
 
     public ImmutabilityEnforcingBundle(UncommittedBundle<T> underlying) {
       this.underlying = underlying;
       mutationDetectors = HashMultimap.create();
       coder = getPCollection().getCoder();
+      checks =
+          sampler.isCheckAll()
+              ? null
+              : sampler.forTransform(
+                  graph.getProducer(underlying.getPCollection()).getFullName(),
+                  Check.OUTPUT_IMMUTABILITY);
     }
 
     @Override
@@ -110,11 +135,17 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
 
     @Override
     public UncommittedBundle<T> add(WindowedValue<T> element) {
-      try {
-        mutationDetectors.put(
-            element, MutationDetectors.forValueWithCoder(element.getValue(), coder));
-      } catch (CoderException e) {
-        throw new RuntimeException(e);
+      if (checks == null || checks.shouldCheck()) {
+        long startNanos = checks == null ? 0L : checks.startCheck();
+        try {
+          mutationDetectors.put(
+              element, MutationDetectors.forValueWithCoder(element.getValue(), coder));
+        } catch (CoderException e) {
+          throw new RuntimeException(e);
+        }
+        if (checks != null) {
+          checks.recordCheck(startNanos);
+        }
       }
       underlying.add(element);
       return this;
@@ -122,6 +153,7 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
 
     @Override
     public CommittedBundle<T> commit(Instant synchronizedProcessingTime) {
+      long startNanos = checks == null ? 0L : checks.startCheck();
       for (MutationDetector detector : mutationDetectors.values()) {
         try {
           detector.verifyUnmodified();
@@ -138,6 +170,9 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
               exn);
         }
       }
+      if (checks != null) {
+        checks.recordCheck(startNanos);
+      }
       return underlying.commit(synchronizedProcessingTime);
     }
   }
@@ -18,6 +18,8 @@
 package org.apache.beam.runners.direct;
 
 import java.util.IdentityHashMap;
+import org.apache.beam.runners.direct.EnforcementSampler.Check;
+import org.apache.beam.runners.direct.EnforcementSampler.TransformChecks;
 import org.apache.beam.sdk.Pipeline.PipelineVisitor;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
@@ -34,6 +36,9 @@ import org.apache.beam.sdk.values.WindowedValue;
 /**
  * {@link ModelEnforcement} that enforces elements are not modified over the course of processing an
  * element.
+ *
+ * <p>If an {@link EnforcementSampler} is provided, only the elements selected by the sampler are
+ * checked.
  */
 @SuppressWarnings({
   "rawtypes", // TODO(https://github.com/apache/beam/issues/20447)
@@ -41,7 +46,17 @@ import org.apache.beam.sdk.values.WindowedValue;
 })
 class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
   public static ModelEnforcementFactory create() {
-    return new ImmutabilityEnforcementFactory();
+    return create(EnforcementSampler.checkAll());
+  }
+
+  public static ModelEnforcementFactory create(EnforcementSampler sampler) {
+    return new ImmutabilityEnforcementFactory(sampler);
+  }
+
+  private final EnforcementSampler sampler;
+
+  private ImmutabilityEnforcementFactory(EnforcementSampler sampler) {
+    this.sampler = sampler;
   }
 
   @Override
@@ -50,7 +65,11 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
     if (isReadTransform(consumer)) {
       return NoopReadEnforcement.INSTANCE;
     }
-    return new ImmutabilityCheckingEnforcement<>(input, consumer);
+    TransformChecks checks =
+        sampler.isCheckAll()
+            ? null
+            : sampler.forTransform(consumer.getFullName(), Check.INPUT_IMMUTABILITY);
+    return new ImmutabilityCheckingEnforcement<>(input, consumer, checks);
   }
 
   static boolean isReadTransform(AppliedPTransform<?, ?, ?> consumer) {
@@ -108,27 +127,39 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
     private final AppliedPTransform<?, ?, ?> transform;
     private final IdentityHashMap<WindowedValue<T>, MutationDetector> mutationElements;
     private final Coder<T> coder;
+    private final TransformChecks checks;
 
     private ImmutabilityCheckingEnforcement(
-        CommittedBundle<T> input, AppliedPTransform<?, ?, ?> transform) {
+        CommittedBundle<T> input, AppliedPTransform<?, ?, ?> transform, TransformChecks checks) {
       this.transform = transform;
       coder = input.getPCollection().getCoder();
       mutationElements = new IdentityHashMap<>();
+      this.checks = checks;
     }
 
     @Override
     public void beforeElement(WindowedValue<T> element) {
+      if (checks != null && !checks.shouldCheck()) {
+        return;
+      }
+      long startNanos = checks == null ? 0L : checks.startCheck();
       try {
         mutationElements.put(
             element, MutationDetectors.forValueWithCoder(element.getValue(), coder));
       } catch (CoderException e) {
         throw UserCodeException.wrap(e);
       }
+      recordCheck(startNanos);
     }
 
     @Override
     public void afterElement(WindowedValue<T> element) {
-      verifyUnmodified(mutationElements.get(element));
+      MutationDetector detector = mutationElements.get(element);
+      if (detector != null) {
+        long startNanos = checks == null ? 0L : checks.startCheck();
+        verifyUnmodified(detector);
+        recordCheck(startNanos);
+      }
     }
 
     @Override
@@ -136,9 +167,17 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
         CommittedBundle<T> input,
         TransformResult<T> result,
         Iterable<? extends CommittedBundle<?>> outputs) {
+      long startNanos = checks == null ? 0L : checks.startCheck();
       for (MutationDetector detector : mutationElements.values()) {
         verifyUnmodified(detector);
       }
+      recordCheck(startNanos);
+    }
+
+    private void recordCheck(long startNanos) {
+      if (checks != null) {
+        checks.recordCheck(startNanos);
+      }
     }
 
     private void verifyUnmodified(MutationDetector detector) {
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.runners.direct.CopyOnAccessInMemoryStateInternals.StateAddress;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link StateBackend} which keeps the state of the most recently used steps and keys in memory
+ * and spills the state of the least recently used steps and keys to an append only file.
+ *
+ * <p>Spilled state is read back into memory the next time the step and key is accessed. Only the
+ * contents of the state are spilled, the {@link org.apache.beam.runners.core.StateNamespace
+ * StateNamespaces} and {@link org.apache.beam.runners.core.StateTag StateTags} used to restore it
+ * remain in memory.
+ *
+ * <p>State which is read back, replaced or removed leaves unused bytes in the file. Once the
+ * majority of a sufficiently large file is unused, the state which is still spilled is copied to a
+ * second file. The old file is truncated and reused by the next compaction, so a backend never
+ * creates more than two files.
+ *
+ * <p>The maximum number of keys kept in memory applies to the state of all steps together.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+class SpillingStateBackend implements StateBackend {
+  private static final long MIN_COMPACTION_BYTES = 64L << 20;
+
+  private final File directory;
+  private final int maxInMemoryKeys;
+  private final long minCompactionBytes;
+
+  /** The state kept in memory, in least recently used order. */
+  @GuardedBy("this")
+  private final LinkedHashMap<StepAndKey, CopyOnAccessInMemoryStateInternals<?>> inMemory;
+
+  @GuardedBy("this")
+  private final Map<StepAndKey, SpilledState> spilled;
+
+  @GuardedBy("this")
+  private @Nullable SpillFile spillFile;
+
+  /** The previous, truncated spill file which the next compaction copies the spilled state to. */
+  @GuardedBy("this")
+  private @Nullable SpillFile spareFile;
+
+  /** The number of bytes in the spill file which belong to state which is still spilled. */
+  @GuardedBy("this")
+  private long liveBytes;
+
+  SpillingStateBackend(File directory, int maxInMemoryKeys) {
+    this(directory, maxInMemoryKeys, MIN_COMPACTION_BYTES);
+  }
+
+  @VisibleForTesting
+  SpillingStateBackend(File directory, int maxInMemoryKeys, long minCompactionBytes) {
+    checkArgument(
+        maxInMemoryKeys > 0,
+        "The maximum number of in memory keys must be positive, got %s",
+        maxInMemoryKeys);
+    this.directory = directory;
+    this.maxInMemoryKeys = maxInMemoryKeys;
+    this.minCompactionBytes = minCompactionBytes;
+    this.inMemory = new LinkedHashMap<>(16, 0.75f, true);
+    this.spilled = new HashMap<>();
+  }
+
+  @Override
+  public synchronized @Nullable CopyOnAccessInMemoryStateInternals<?> get(StepAndKey stepAndKey) {
+    CopyOnAccessInMemoryStateInternals<?> state = inMemory.get(stepAndKey);
+    if (state != null) {
+      return state;
+    }
+    SpilledState spilledState = spilled.remove(stepAndKey);
+    if (spilledState == null) {
+      return null;
+    }
+    liveBytes -= spilledState.length;
+    try {
+      state =
+          CopyOnAccessInMemoryStateInternals.readFrom(
+              spilledState.key,
+              spilledState.addresses,
+              new ByteArrayInputStream(spillFile.read(spilledState.position, spilledState.length)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Failed to read spilled state of %s", stepAndKey), e);
+    }
+    inMemory.put(stepAndKey, state);
+    spillIfNecessary();
+    return state;
+  }
+
+  @Override
+  public synchronized void put(
+      StepAndKey stepAndKey, CopyOnAccessInMemoryStateInternals<?> committedState) {
+    removeSpilled(stepAndKey);
+    inMemory.put(stepAndKey, committedState);
+    spillIfNecessary();
+  }
+
+  @Override
+  public synchronized void remove(StepAndKey stepAndKey) {
+    inMemory.remove(stepAndKey);
+    removeSpilled(stepAndKey);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    inMemory.clear();
+    spilled.clear();
+    liveBytes = 0L;
+    try {
+      if (spillFile != null) {
+        spillFile.delete();
+        spillFile = null;
+      }
+    } finally {
+      if (spareFile != null) {
+        spareFile.delete();
+        spareFile = null;
+      }
+    }
+  }
+
+  @GuardedBy("this")
+  private void removeSpilled(StepAndKey stepAndKey) {
+    SpilledState spilledState = spilled.remove(stepAndKey);
+    if (spilledState != null) {
+      liveBytes -= spilledState.length;
+    }
+  }
+
+  @GuardedBy("this")
+  private void spillIfNecessary() {
+    try {
+      Iterator<Map.Entry<StepAndKey, CopyOnAccessInMemoryStateInternals<?>>> leastRecentlyUsed =
+          inMemory.entrySet().iterator();
+      while (inMemory.size() > maxInMemoryKeys) {
+        Map.Entry<StepAndKey, CopyOnAccessInMemoryStateInternals<?>> entry =
+            leastRecentlyUsed.next();
+        leastRecentlyUsed.remove();
+        spill(entry.getKey(), entry.getValue());
+      }
+      if (spillFile != null
+          && spillFile.size() > minCompactionBytes
+          && liveBytes < spillFile.size() / 2) {
+        compact();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to spill state", e);
+    }
+  }
+
+  @GuardedBy("this")
+  private void spill(StepAndKey stepAndKey, CopyOnAccessInMemoryStateInternals<?> state)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    List<StateAddress> addresses = state.writeTo(out);
+    if (spillFile == null) {
+      spillFile = SpillFile.create(directory);
+    }
+    byte[] bytes = out.toByteArray();
+    long position = spillFile.append(bytes);
+    spilled.put(stepAndKey, new SpilledState(state.getKey(), addresses, position, bytes.length));
+    liveBytes += bytes.length;
+  }
+
+  /** Copies all spilled state to the spare file and truncates the current file. */
+  @GuardedBy("this")
+  private void compact() throws IOException {
+    SpillFile compacted = spareFile != null ? spareFile : SpillFile.create(directory);
+    spareFile = null;
+    try {
+      for (Map.Entry<StepAndKey, SpilledState> entry : spilled.entrySet()) {
+        SpilledState spilledState = entry.getValue();
+        long position =
+            compacted.append(spillFile.read(spilledState.position, spilledState.length));
+        entry.setValue(
+            new SpilledState(
+                spilledState.key, spilledState.addresses, position, spilledState.length));
+      }
+    } catch (IOException e) {
+      compacted.delete();
+      throw e;
+    }
+    spillFile.truncate();
+    spareFile = spillFile;
+    spillFile = compacted;
+  }
+
+  /** The location of the spilled state of a step and key. */
+  private static class SpilledState {
+    private final Object key;
+    private final List<StateAddress> addresses;
+    private final long position;
+    private final int length;
+
+    private SpilledState(Object key, List<StateAddress> addresses, long position, int length) {
+      this.key = key;
+      this.addresses = addresses;
+      this.position = position;
+      this.length = length;
+    }
+  }
+
+  /** An append only file which spilled state is written to. */
+  private static class SpillFile {
+    private final File file;
+    private final FileChannel channel;
+    private long size;
+
+    private static SpillFile create(File directory) throws IOException {
+      File file = File.createTempFile("direct-runner-state-", ".spill", directory);
+      file.deleteOnExit();
+      return new SpillFile(
+          file,
+          FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    private SpillFile(File file, FileChannel channel) {
+      this.file = file;
+      this.channel = channel;
+    }
+
+    /** Appends the bytes to this file, returning the position they were written at. */
+    private long append(byte[] bytes) throws IOException {
+      long position = size;
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + buffer.position());
+      }
+      size += bytes.length;
+      return position;
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException(
+              String.format(
+                  "Unexpected end of %s reading %s bytes at position %s", file, length, position));
+        }
+      }
+      return buffer.array();
+    }
+
+    private long size() {
+      return size;
+    }
+
+    /** Discards the contents of this file so that it can be written to again. */
+    private void truncate() throws IOException {
+      channel.truncate(0);
+      size = 0;
+    }
+
+    private void delete() throws IOException {
+      try {
+        channel.close();
+      } finally {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+  }
+}
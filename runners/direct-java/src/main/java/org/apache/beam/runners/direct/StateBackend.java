@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import java.io.IOException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores the committed {@link CopyOnAccessInMemoryStateInternals} of each step and key.
+ *
+ * <p>Calls for the same {@link StepAndKey} are never made concurrently, as each step and key is
+ * processed serially, but calls for different steps and keys may be.
+ */
+interface StateBackend {
+  /** Returns the committed state of the step and key, or {@code null} if there is none. */
+  @Nullable
+  CopyOnAccessInMemoryStateInternals<?> get(StepAndKey stepAndKey);
+
+  /** Replaces the state of the step and key with the provided committed state. */
+  void put(StepAndKey stepAndKey, CopyOnAccessInMemoryStateInternals<?> committedState);
+
+  /** Removes the state of the step and key. */
+  void remove(StepAndKey stepAndKey);
+
+  /** Releases any resources held by this {@link StateBackend}. */
+  void close() throws IOException;
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** Static factory methods for constructing instances of {@link StateBackend}. */
+final class StateBackends {
+  private StateBackends() {
+    // Do not instantiate
+  }
+
+  /** Returns the {@link StateBackend} configured by the provided {@link DirectOptions}. */
+  public static StateBackend create(DirectOptions options) {
+    switch (options.getStateBackend()) {
+      case IN_MEMORY:
+        return inMemory();
+      case SPILLING:
+        String directory = options.getStateSpillDirectory();
+        return spilling(
+            new File(directory == null ? System.getProperty("java.io.tmpdir") : directory),
+            options.getMaxInMemoryStateKeys());
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Unknown %s %s",
+                DirectOptions.StateBackendType.class.getSimpleName(),
+                options.getStateBackend()));
+    }
+  }
+
+  /** Returns a {@link StateBackend} which keeps all state in memory. */
+  public static StateBackend inMemory() {
+    return new InMemoryStateBackend();
+  }
+
+  /**
+   * Returns a {@link StateBackend} which keeps the state of up to {@code maxInMemoryKeys} recently
+   * used steps and keys in memory and writes the state of all other steps and keys to a file in
+   * the provided directory.
+   */
+  public static StateBackend spilling(File directory, int maxInMemoryKeys) {
+    return new SpillingStateBackend(directory, maxInMemoryKeys);
+  }
+
+  /** A {@link StateBackend} which keeps all state in memory. */
+  private static class InMemoryStateBackend implements StateBackend {
+    private final ConcurrentMap<StepAndKey, CopyOnAccessInMemoryStateInternals<?>> states =
+        new ConcurrentHashMap<>();
+
+    @Override
+    public @Nullable CopyOnAccessInMemoryStateInternals<?> get(StepAndKey stepAndKey) {
+      return states.get(stepAndKey);
+    }
+
+    @Override
+    public void put(StepAndKey stepAndKey, CopyOnAccessInMemoryStateInternals<?> committedState) {
+      states.put(stepAndKey, committedState);
+    }
+
+    @Override
+    public void remove(StepAndKey stepAndKey) {
+      states.remove(stepAndKey);
+    }
+
+    @Override
+    public void close() {
+      states.clear();
+    }
+  }
+}
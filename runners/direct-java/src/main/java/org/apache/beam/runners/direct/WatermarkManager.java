@@ -35,6 +35,7 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -62,7 +63,6 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Immuta
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Maps;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Ordering;
-import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Queues;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Sets;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.SortedMultiset;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.TreeMultiset;
@@ -878,7 +878,10 @@ class WatermarkManager<ExecutableT, CollectionT> {
   /** The input and output watermark of each {@link AppliedPTransform}. */
   private final Map<ExecutableT, TransformWatermarks> transformToWatermarks;
 
-  /** A queue of pending updates to the state of this {@link WatermarkManager}. */
+  /**
+   * A queue of pending updates to the state of this {@link WatermarkManager}. Offering an update
+   * never blocks so that completing bundles don't wait for updates to be applied by another thread.
+   */
   private final Queue<PendingWatermarkUpdate<ExecutableT, CollectionT>> pendingUpdates;
 
   /** A lock used to control concurrency for updating pending values. */
@@ -925,7 +928,7 @@ class WatermarkManager<ExecutableT, CollectionT> {
     this.graph = graph;
     this.getName = getName;
 
-    this.pendingUpdates = Queues.newArrayDeque();
+    this.pendingUpdates = new ConcurrentLinkedQueue<>();
 
     this.refreshLock = new ReentrantLock();
     this.pendingRefreshes = new HashSet<>();
@@ -1093,11 +1096,9 @@ class WatermarkManager<ExecutableT, CollectionT> {
       @Nullable Bundle<?, ? extends CollectionT> unprocessedInputs,
       Iterable<? extends Bundle<?, ? extends CollectionT>> outputs,
       Instant earliestHold) {
-    synchronized (pendingUpdates) {
-      pendingUpdates.offer(
-          PendingWatermarkUpdate.create(
-              executable, completed, timerUpdate, unprocessedInputs, outputs, earliestHold));
-    }
+    pendingUpdates.offer(
+        PendingWatermarkUpdate.create(
+            executable, completed, timerUpdate, unprocessedInputs, outputs, earliestHold));
     tryApplyPendingUpdates();
   }
 
@@ -1127,12 +1128,15 @@ class WatermarkManager<ExecutableT, CollectionT> {
   /** Applies up to {@code numUpdates}, or all available updates if numUpdates is non-positive. */
   @GuardedBy("refreshLock")
   private void applyNUpdates(int numUpdates) {
-    synchronized (pendingUpdates) {
-      for (int i = 0; !pendingUpdates.isEmpty() && ((i < numUpdates) || (numUpdates <= 0)); i++) {
-        PendingWatermarkUpdate<ExecutableT, CollectionT> pending = pendingUpdates.poll();
-        applyPendingUpdate(pending);
-        pendingRefreshes.add(pending.getExecutable());
+    // Updates are only removed while holding the refreshLock so they are applied in the order
+    // they were offered.
+    for (int i = 0; (i < numUpdates) || (numUpdates <= 0); i++) {
+      PendingWatermarkUpdate<ExecutableT, CollectionT> pending = pendingUpdates.poll();
+      if (pending == null) {
+        return;
       }
+      applyPendingUpdate(pending);
+      pendingRefreshes.add(pending.getExecutable());
     }
   }
 
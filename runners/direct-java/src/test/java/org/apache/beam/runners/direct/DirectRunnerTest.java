@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
+import org.apache.beam.runners.direct.DirectOptions.ExecutorType;
 import org.apache.beam.runners.direct.DirectRunner.DirectPipelineResult;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
@@ -217,6 +219,33 @@ public class DirectRunnerTest implements Serializable {
     assertThat("Each element should have been processed twice", changed.get(), equalTo(6));
   }
 
+  @Test
+  public void workStealingExecutorShouldSucceed() {
+    Pipeline p = getPipeline();
+    p.getOptions().as(DirectOptions.class).setExecutorType(ExecutorType.WORK_STEALING);
+
+    PCollection<KV<Long, Long>> sums =
+        p.apply(GenerateSequence.from(0).to(10000))
+            .apply(
+                MapElements.via(
+                    new SimpleFunction<Long, KV<Long, Long>>() {
+                      @Override
+                      public KV<Long, Long> apply(Long input) {
+                        return KV.of(input % 10, input);
+                      }
+                    }))
+            .apply(Sum.longsPerKey());
+
+    List<KV<Long, Long>> expected = new ArrayList<>();
+    for (long key = 0; key < 10; key++) {
+      // The sum of key, key + 10, ..., key + 9990.
+      expected.add(KV.of(key, 1000 * key + 10 * 999 * 1000 / 2));
+    }
+    PAssert.that(sums).containsInAnyOrder(expected);
+
+    p.run();
+  }
+
   @Test
   public void byteArrayCountShouldSucceed() {
     Pipeline p = getPipeline();
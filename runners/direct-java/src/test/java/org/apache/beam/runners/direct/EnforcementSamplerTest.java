@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.runners.direct.EnforcementSampler.Check;
+import org.apache.beam.runners.direct.EnforcementSampler.TransformChecks;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link EnforcementSampler}. */
+@RunWith(JUnit4.class)
+public class EnforcementSamplerTest {
+  @Rule public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void defaultOptionsCheckAll() {
+    EnforcementSampler sampler =
+        EnforcementSampler.create(PipelineOptionsFactory.create().as(DirectOptions.class));
+    assertTrue(sampler.isCheckAll());
+  }
+
+  @Test
+  public void checksWarmupElementsThenSamples() {
+    EnforcementSampler sampler = EnforcementSampler.create(10, 5L, false);
+    assertFalse(sampler.isCheckAll());
+
+    TransformChecks checks = sampler.forTransform("ParDo", Check.ENCODABILITY);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(checks.shouldCheck());
+    }
+    for (int i = 0; i < 3; i++) {
+      assertTrue(checks.shouldCheck());
+      for (int j = 1; j < 10; j++) {
+        assertFalse(checks.shouldCheck());
+      }
+    }
+    assertThat(checks.getSeen(), equalTo(35L));
+    assertThat(checks.getChecked(), equalTo(8L));
+  }
+
+  @Test
+  public void samplesEachTransformAndCheckIndependently() {
+    EnforcementSampler sampler = EnforcementSampler.create(2, 0L, false);
+
+    TransformChecks first = sampler.forTransform("First", Check.ENCODABILITY);
+    assertThat(sampler.forTransform("First", Check.ENCODABILITY), sameInstance(first));
+    TransformChecks otherCheck = sampler.forTransform("First", Check.OUTPUT_IMMUTABILITY);
+    TransformChecks otherTransform = sampler.forTransform("Second", Check.ENCODABILITY);
+
+    assertTrue(first.shouldCheck());
+    assertFalse(first.shouldCheck());
+    assertTrue(otherCheck.shouldCheck());
+    assertTrue(otherTransform.shouldCheck());
+  }
+
+  @Test
+  public void costReportContainsEachTransform() {
+    EnforcementSampler sampler = EnforcementSampler.create(1, 0L, true);
+    assertFalse(sampler.isCheckAll());
+
+    TransformChecks checks = sampler.forTransform("MyParDo", Check.INPUT_IMMUTABILITY);
+    assertTrue(checks.shouldCheck());
+    checks.recordCheck(checks.startCheck());
+    sampler.forTransform("Other", Check.ENCODABILITY).shouldCheck();
+
+    String report = sampler.getCostReport();
+    assertThat(report, containsString("MyParDo [INPUT_IMMUTABILITY]: checked 1 of 1 elements"));
+    assertThat(report, containsString("Other [ENCODABILITY]: checked 1 of 1 elements"));
+  }
+
+  @Test
+  public void nonPositivePeriodThrows() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("period must be positive");
+    EnforcementSampler.create(0, 0L, false);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.direct;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.apache.beam.runners.core.StateNamespace;
+import org.apache.beam.runners.core.StateNamespaceForTest;
+import org.apache.beam.runners.core.StateTag;
+import org.apache.beam.runners.core.StateTags;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.runners.AppliedPTransform;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SpillingStateBackend}. */
+@RunWith(JUnit4.class)
+public class SpillingStateBackendTest {
+  @Rule public final TestPipeline p = TestPipeline.create().enableAbandonedNodeEnforcement(false);
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private final StateNamespace namespace = new StateNamespaceForTest("global");
+  private final StateTag<BagState<String>> bagTag = StateTags.bag("bag", StringUtf8Coder.of());
+  private final StateTag<ValueState<Integer>> valueTag = StateTags.value("value", VarIntCoder.of());
+
+  private AppliedPTransform<?, ?, ?> step;
+  private SpillingStateBackend backend;
+
+  @Before
+  public void setup() {
+    PCollection<Integer> created = p.apply(Create.of(1, 2, 3));
+    step = DirectGraphs.getProducer(created);
+    backend = new SpillingStateBackend(tmp.getRoot(), 1);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    backend.close();
+  }
+
+  @Test
+  public void getSpilledStateRestoresContents() {
+    StepAndKey foo = StepAndKey.of(step, StructuralKey.of("foo", StringUtf8Coder.of()));
+    StepAndKey bar = StepAndKey.of(step, StructuralKey.of("bar", StringUtf8Coder.of()));
+    backend.put(foo, committedState("foo", 1, "a", "b"));
+    // Only one key is kept in memory, so foo is spilled.
+    backend.put(bar, committedState("bar", 2, "c"));
+
+    CopyOnAccessInMemoryStateInternals<?> fooState = backend.get(foo);
+    assertThat(fooState.state(namespace, bagTag).read(), containsInAnyOrder("a", "b"));
+    assertThat(fooState.state(namespace, valueTag).read(), equalTo(1));
+
+    CopyOnAccessInMemoryStateInternals<?> barState = backend.get(bar);
+    assertThat(barState.state(namespace, bagTag).read(), containsInAnyOrder("c"));
+    assertThat(barState.state(namespace, valueTag).read(), equalTo(2));
+  }
+
+  @Test
+  public void getAfterRemoveReturnsNull() {
+    StepAndKey foo = StepAndKey.of(step, StructuralKey.of("foo", StringUtf8Coder.of()));
+    StepAndKey bar = StepAndKey.of(step, StructuralKey.of("bar", StringUtf8Coder.of()));
+    backend.put(foo, committedState("foo", 1, "a"));
+    backend.put(bar, committedState("bar", 2, "b"));
+
+    backend.remove(foo);
+    backend.remove(bar);
+
+    assertThat(backend.get(foo), nullValue());
+    assertThat(backend.get(bar), nullValue());
+  }
+
+  @Test
+  public void putReplacesSpilledState() {
+    StepAndKey foo = StepAndKey.of(step, StructuralKey.of("foo", StringUtf8Coder.of()));
+    StepAndKey bar = StepAndKey.of(step, StructuralKey.of("bar", StringUtf8Coder.of()));
+    backend.put(foo, committedState("foo", 1, "a"));
+    backend.put(bar, committedState("bar", 2, "b"));
+    backend.put(foo, committedState("foo", 3, "c", "d"));
+
+    CopyOnAccessInMemoryStateInternals<?> fooState = backend.get(foo);
+    assertThat(fooState.state(namespace, bagTag).read(), containsInAnyOrder("c", "d"));
+    assertThat(fooState.state(namespace, valueTag).read(), equalTo(3));
+  }
+
+  @Test
+  public void compactionReusesSpillFiles() throws Exception {
+    backend.close();
+    backend = new SpillingStateBackend(tmp.getRoot(), 1, 1024);
+    StepAndKey foo = StepAndKey.of(step, StructuralKey.of("foo", StringUtf8Coder.of()));
+    StepAndKey bar = StepAndKey.of(step, StructuralKey.of("bar", StringUtf8Coder.of()));
+    // Alternating between two keys spills the state of the other key each time, leaving the
+    // previously spilled state unused which triggers a compaction every few puts.
+    for (int i = 0; i < 1000; ++i) {
+      backend.put(foo, committedState("foo", i, "a"));
+      backend.put(bar, committedState("bar", i, "b"));
+      assertThat(tmp.getRoot().listFiles().length, lessThanOrEqualTo(2));
+    }
+
+    CopyOnAccessInMemoryStateInternals<?> fooState = backend.get(foo);
+    assertThat(fooState.state(namespace, valueTag).read(), equalTo(999));
+
+    backend.close();
+    assertThat(tmp.getRoot().listFiles(), emptyArray());
+  }
+
+  private CopyOnAccessInMemoryStateInternals<String> committedState(
+      String key, int value, String... elements) {
+    CopyOnAccessInMemoryStateInternals<String> internals =
+        CopyOnAccessInMemoryStateInternals.withUnderlying(key, null);
+    BagState<String> bag = internals.state(namespace, bagTag);
+    for (String element : elements) {
+      bag.add(element);
+    }
+    internals.state(namespace, valueTag).write(value);
+    return internals.commit();
+  }
+}
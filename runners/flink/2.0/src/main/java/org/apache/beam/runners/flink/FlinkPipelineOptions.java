@@ -282,6 +282,16 @@ public interface FlinkPipelineOptions
     }
   }
 
+  @Description(
+      "If greater than 0, the maximum number of elements in a bundle is chosen per operator from "
+          + "the measured cost of processing elements and finishing bundles, such that processing "
+          + "and finishing a bundle takes about this many milliseconds. Bundles remain limited by "
+          + "maxBundleSize and maxBundleTimeMills. Only applies to streaming pipelines.")
+  @Default.Long(0)
+  Long getTargetBundleLatencyMillis();
+
+  void setTargetBundleLatencyMillis(Long targetBundleLatencyMillis);
+
   @Description(
       "Interval in milliseconds for sending latency tracking marks from the sources to the sinks. "
           + "Interval value <= 0 disables the feature.")
@@ -350,6 +360,16 @@ public interface FlinkPipelineOptions
 
   void setFasterCopy(Boolean fasterCopy);
 
+  @Description(
+      "Store OrderedListState in a map state keyed by timestamps in an order preserving encoding. "
+          + "With the RocksDB state backend ranges are then read and cleared by iterating the "
+          + "timestamps in order instead of reading and sorting all values. Changes the layout of "
+          + "OrderedListState in checkpoints and savepoints.")
+  @Default.Boolean(false)
+  Boolean getSortedOrderedListState();
+
+  void setSortedOrderedListState(Boolean sortedOrderedListState);
+
   @Description(
       "Directory containing Flink YAML configuration files. "
           + "These properties will be set to all jobs submitted to Flink and take precedence "
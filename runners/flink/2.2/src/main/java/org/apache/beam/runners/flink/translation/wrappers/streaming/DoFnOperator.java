@@ -104,6 +104,7 @@ import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.core.execution.CheckpointingMode;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.runtime.state.InternalPriorityQueue;
 import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.OperatorStateBackend;
@@ -199,6 +200,8 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
   private final long maxBundleSize;
   /** Max duration of a bundle. */
   private final long maxBundleTimeMills;
+  /** Target duration of a bundle if bundles are sized adaptively, otherwise 0. */
+  private final long targetBundleLatencyMillis;
 
   private final DoFnSchemaInformation doFnSchemaInformation;
 
@@ -245,6 +248,9 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
   /** A timer that finishes the current bundle after a fixed amount of time. */
   private transient ScheduledFuture<?> checkFinishBundleTimer;
 
+  /** Chooses the size of bundles if they are sized adaptively. */
+  private transient @Nullable AdaptiveBundleSizer adaptiveBundleSizer;
+
   /**
    * This and the below fields need to be volatile because we use multiple threads to access these.
    * (a) the main processing thread (b) a timer thread to finish bundles by a timeout instead of the
@@ -315,8 +321,15 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
 
     this.maxBundleSize = flinkOptions.getMaxBundleSize();
     Preconditions.checkArgument(maxBundleSize > 0, "Bundle size must be at least 1");
-    this.maxBundleTimeMills = flinkOptions.getMaxBundleTimeMills();
-    Preconditions.checkArgument(maxBundleTimeMills > 0, "Bundle time must be at least 1");
+    this.targetBundleLatencyMillis = flinkOptions.getTargetBundleLatencyMillis();
+    Preconditions.checkArgument(
+        targetBundleLatencyMillis >= 0, "Target bundle latency must not be negative");
+    Preconditions.checkArgument(
+        flinkOptions.getMaxBundleTimeMills() > 0, "Bundle time must be at least 1");
+    this.maxBundleTimeMills =
+        targetBundleLatencyMillis > 0
+            ? Math.min(flinkOptions.getMaxBundleTimeMills(), targetBundleLatencyMillis)
+            : flinkOptions.getMaxBundleTimeMills();
     this.doFnSchemaInformation = doFnSchemaInformation;
     this.sideInputMapping = sideInputMapping;
 
@@ -538,7 +551,14 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
         createBufferingDoFnRunnerIfNeeded(createWrappingDoFnRunner(doFnRunner, stepContext));
     earlyBindStateIfNeeded();
 
+    if (targetBundleLatencyMillis > 0 && shoudBundleElements()) {
+      adaptiveBundleSizer = new AdaptiveBundleSizer(maxBundleSize, targetBundleLatencyMillis);
+    }
+
     if (!options.getDisableMetrics()) {
+      if (adaptiveBundleSizer != null) {
+        getMetricGroup().gauge("bundleSize", (Gauge<Long>) adaptiveBundleSizer::getBundleSize);
+      }
       flinkMetricContainer = new FlinkMetricContainer(getRuntimeContext());
       doFnRunner = new DoFnRunnerWithMetricsUpdate<>(stepName, doFnRunner, flinkMetricContainer);
       String checkpointMetricNamespace = options.getReportCheckpointDuration();
@@ -751,7 +771,13 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
       checkInvokeStartBundle();
       LOG.trace("Processing element {} in {}", streamRecord.getValue().getValue(), doFn.getClass());
       long oldHold = keyCoder != null ? keyedStateInternals.minWatermarkHoldMs() : -1L;
-      doFnRunner.processElement(e);
+      if (adaptiveBundleSizer != null) {
+        long startNanos = System.nanoTime();
+        doFnRunner.processElement(e);
+        adaptiveBundleSizer.elementProcessed(System.nanoTime() - startNanos);
+      } else {
+        doFnRunner.processElement(e);
+      }
       checkInvokeFinishBundleByCount();
       emitWatermarkIfHoldChanged(oldHold);
     }
@@ -1002,7 +1028,9 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
     // for more information.
     //noinspection NonAtomicOperationOnVolatileField
     elementCount++;
-    if (elementCount >= maxBundleSize) {
+    long bundleSize =
+        adaptiveBundleSizer != null ? adaptiveBundleSizer.getBundleSize() : maxBundleSize;
+    if (elementCount >= bundleSize) {
       invokeFinishBundle();
       updateOutputWatermark();
     }
@@ -1041,7 +1069,11 @@ public class DoFnOperator<PreInputT, InputT, OutputT>
     long previousBundleFinishTime = lastFinishBundleTime;
     if (bundleStarted) {
       LOG.debug("Finishing bundle.");
+      long startNanos = System.nanoTime();
       pushbackDoFnRunner.finishBundle();
+      if (adaptiveBundleSizer != null) {
+        adaptiveBundleSizer.bundleFinished(elementCount, System.nanoTime() - startNanos);
+      }
       LOG.debug("Finished bundle. Element count: {}", elementCount);
       elementCount = 0L;
       lastFinishBundleTime = getProcessingTimeService().getCurrentProcessingTime();
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.wrappers.streaming;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
+
+/**
+ * Chooses the maximum number of elements in the bundles of an operator such that processing and
+ * finishing a bundle takes about a target latency.
+ *
+ * <p>The cost of processing an element and of finishing a bundle are measured by the operator and
+ * smoothed with an exponentially weighted moving average. Bundles which are finished before a
+ * checkpoint barrier are measured as well, so the time the operator holds back a barrier is bounded
+ * by the target latency too. The bundle size is the largest one whose estimated duration stays
+ * within the target, which batches as many elements as possible for operators with expensive
+ * finishBundle calls. If finishing a bundle alone exceeds the target latency, the target cannot be
+ * met and the maximum bundle size is used to amortize the cost of finishing bundles.
+ *
+ * <p>Not thread safe, the operator only calls it while holding the checkpoint lock.
+ */
+class AdaptiveBundleSizer {
+  /** Weight of a new measurement in the moving averages. */
+  private static final double SMOOTHING = 0.2;
+
+  private final long maxBundleSize;
+  private final double targetLatencyNanos;
+
+  private double elementNanos = -1;
+  private double finishBundleNanos = -1;
+  private long bundleProcessingNanos;
+  private long bundleSize;
+
+  AdaptiveBundleSizer(long maxBundleSize, long targetLatencyMillis) {
+    Preconditions.checkArgument(maxBundleSize > 0, "Bundle size must be at least 1");
+    Preconditions.checkArgument(targetLatencyMillis > 0, "Target latency must be at least 1");
+    this.maxBundleSize = maxBundleSize;
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    this.bundleSize = maxBundleSize;
+  }
+
+  /** Returns the maximum number of elements of the current bundle. */
+  long getBundleSize() {
+    return bundleSize;
+  }
+
+  /** Records the time it took to process an element of the current bundle. */
+  void elementProcessed(long nanos) {
+    bundleProcessingNanos += nanos;
+  }
+
+  /** Records a finished bundle and chooses the size of the next bundle. */
+  void bundleFinished(long elements, long finishBundleNanos) {
+    if (elements > 0) {
+      this.elementNanos = average(this.elementNanos, (double) bundleProcessingNanos / elements);
+    }
+    this.finishBundleNanos = average(this.finishBundleNanos, finishBundleNanos);
+    bundleProcessingNanos = 0;
+
+    if (elementNanos < 0) {
+      return;
+    }
+    double remainingNanos = targetLatencyNanos - this.finishBundleNanos;
+    if (remainingNanos < elementNanos) {
+      bundleSize = maxBundleSize;
+    } else {
+      bundleSize = (long) Math.max(1, Math.min(maxBundleSize, remainingNanos / elementNanos));
+    }
+  }
+
+  private static double average(double average, double value) {
+    return average < 0 ? value : average + SMOOTHING * (value - average);
+  }
+}
@@ -18,9 +18,11 @@
 package org.apache.beam.runners.flink.translation.wrappers.streaming.state;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -39,6 +41,7 @@ import org.apache.beam.runners.flink.translation.types.CoderTypeSerializer;
 import org.apache.beam.runners.flink.translation.wrappers.streaming.FlinkKeyUtils;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.InstantCoder;
+import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.VoidCoder;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
@@ -172,6 +175,7 @@ public class FlinkStateInternals<K> implements StateInternals {
   private final MapStateDescriptor<String, Instant> watermarkHoldStateDescriptor;
 
   private final boolean fasterCopy;
+  private final boolean sortedOrderedListState;
 
   public FlinkStateInternals(
       KeyedStateBackend<FlinkKey> flinkStateBackend,
@@ -182,6 +186,8 @@ public class FlinkStateInternals<K> implements StateInternals {
     this.flinkStateBackend = Objects.requireNonNull(flinkStateBackend);
     this.keyCoder = Objects.requireNonNull(keyCoder);
     this.fasterCopy = pipelineOptions.get().as(FlinkPipelineOptions.class).getFasterCopy();
+    this.sortedOrderedListState =
+        pipelineOptions.get().as(FlinkPipelineOptions.class).getSortedOrderedListState();
     this.namespaceKeySerializer = new FlinkStateNamespaceKeySerializer(windowCoder);
 
     watermarkHoldStateDescriptor =
@@ -302,6 +308,16 @@ public class FlinkStateInternals<K> implements StateInternals {
     @Override
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
+      if (sortedOrderedListState) {
+        FlinkSortedOrderedListState<T> flinkSortedOrderedListState =
+            new FlinkSortedOrderedListState<>(
+                flinkStateBackend, id, namespace, elemCoder, namespaceKeySerializer, fasterCopy);
+        collectGlobalWindowStateDescriptor(
+            flinkSortedOrderedListState.flinkStateDescriptor,
+            flinkSortedOrderedListState.namespace,
+            namespaceKeySerializer);
+        return flinkSortedOrderedListState;
+      }
       FlinkOrderedListState<T> flinkOrderedListState =
           new FlinkOrderedListState<>(
               flinkStateBackend, id, namespace, elemCoder, namespaceKeySerializer, fasterCopy);
@@ -718,6 +734,163 @@ public class FlinkStateInternals<K> implements StateInternals {
     }
   }
 
+  /**
+   * An {@link OrderedListState} stored in a Flink map state from timestamps to the values with that
+   * timestamp.
+   *
+   * <p>Timestamps are serialized with the {@link InstantCoder} which preserves their order. The
+   * RocksDB state backend iterates the entries of a map state in the order of their serialized
+   * keys, so reading or clearing a range stops at the end of the range instead of reading and
+   * sorting all values. Other state backends iterate in no particular order and the values are
+   * sorted in memory.
+   */
+  private static class FlinkSortedOrderedListState<T> implements OrderedListState<T> {
+    private final StateNamespace namespace;
+    private final MapStateDescriptor<Instant, List<T>> flinkStateDescriptor;
+    private final KeyedStateBackend<FlinkKey> flinkStateBackend;
+    private final FlinkStateNamespaceKeySerializer namespaceSerializer;
+    private final boolean iteratesInTimestampOrder;
+
+    FlinkSortedOrderedListState(
+        KeyedStateBackend<FlinkKey> flinkStateBackend,
+        String stateId,
+        StateNamespace namespace,
+        Coder<T> coder,
+        FlinkStateNamespaceKeySerializer namespaceSerializer,
+        boolean fasterCopy) {
+      this.namespace = namespace;
+      this.flinkStateBackend = flinkStateBackend;
+      this.flinkStateDescriptor =
+          new MapStateDescriptor<>(
+              stateId,
+              new CoderTypeSerializer<>(InstantCoder.of(), fasterCopy),
+              new CoderTypeSerializer<>(ListCoder.of(coder), fasterCopy));
+      this.namespaceSerializer = namespaceSerializer;
+      this.iteratesInTimestampOrder =
+          flinkStateBackend.getClass().getSimpleName().equals("RocksDBKeyedStateBackend");
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> readRange(Instant minTimestamp, Instant limitTimestamp) {
+      return read(minTimestamp, limitTimestamp);
+    }
+
+    @Override
+    public void clearRange(Instant minTimestamp, Instant limitTimestamp) {
+      try {
+        Iterator<Map.Entry<Instant, List<T>>> entries = getPartitionedState().iterator();
+        while (entries.hasNext()) {
+          Instant timestamp = entries.next().getKey();
+          if (!timestamp.isBefore(limitTimestamp)) {
+            if (iteratesInTimestampOrder) {
+              break;
+            }
+          } else if (!timestamp.isBefore(minTimestamp)) {
+            entries.remove();
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing state.", e);
+      }
+    }
+
+    @Override
+    public OrderedListState<T> readRangeLater(Instant minTimestamp, Instant limitTimestamp) {
+      return this;
+    }
+
+    @Override
+    public void add(TimestampedValue<T> value) {
+      try {
+        org.apache.flink.api.common.state.MapState<Instant, List<T>> partitionedState =
+            getPartitionedState();
+        List<T> values = partitionedState.get(value.getTimestamp());
+        values = values == null ? new ArrayList<>(1) : new ArrayList<>(values);
+        values.add(value.getValue());
+        partitionedState.put(value.getTimestamp(), values);
+      } catch (Exception e) {
+        throw new RuntimeException("Error adding to ordered list state.", e);
+      }
+    }
+
+    @Override
+    public ReadableState<Boolean> isEmpty() {
+      return new ReadableState<Boolean>() {
+        @Override
+        public Boolean read() {
+          try {
+            return getPartitionedState().isEmpty();
+          } catch (Exception e) {
+            throw new RuntimeException("Error reading state.", e);
+          }
+        }
+
+        @Override
+        public ReadableState<Boolean> readLater() {
+          return this;
+        }
+      };
+    }
+
+    @Override
+    public Iterable<TimestampedValue<T>> read() {
+      return read(null, null);
+    }
+
+    private List<TimestampedValue<T>> read(
+        @Nullable Instant minTimestamp, @Nullable Instant limitTimestamp) {
+      List<Map.Entry<Instant, List<T>>> entries = new ArrayList<>();
+      try {
+        Iterable<Map.Entry<Instant, List<T>>> allEntries = getPartitionedState().entries();
+        if (allEntries != null) {
+          for (Map.Entry<Instant, List<T>> entry : allEntries) {
+            Instant timestamp = entry.getKey();
+            if (limitTimestamp != null && !timestamp.isBefore(limitTimestamp)) {
+              if (iteratesInTimestampOrder) {
+                break;
+              }
+            } else if (minTimestamp == null || !timestamp.isBefore(minTimestamp)) {
+              entries.add(entry);
+            }
+          }
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Error reading state.", e);
+      }
+      if (!iteratesInTimestampOrder) {
+        entries.sort(Map.Entry.comparingByKey());
+      }
+
+      List<TimestampedValue<T>> result = new ArrayList<>();
+      for (Map.Entry<Instant, List<T>> entry : entries) {
+        for (T value : entry.getValue()) {
+          result.add(TimestampedValue.of(value, entry.getKey()));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public GroupingState<TimestampedValue<T>, Iterable<TimestampedValue<T>>> readLater() {
+      return this;
+    }
+
+    @Override
+    public void clear() {
+      try {
+        getPartitionedState().clear();
+      } catch (Exception e) {
+        throw new RuntimeException("Error clearing state.", e);
+      }
+    }
+
+    private org.apache.flink.api.common.state.MapState<Instant, List<T>> getPartitionedState()
+        throws Exception {
+      return flinkStateBackend.getPartitionedState(
+          namespace, namespaceSerializer, flinkStateDescriptor);
+    }
+  }
+
   private static class FlinkBagState<T> implements BagState<T> {
 
     private final StateNamespace namespace;
@@ -1705,6 +1878,7 @@ public class FlinkStateInternals<K> implements StateInternals {
 
     private final KeyedStateBackend keyedStateBackend;
     private final Boolean fasterCopy;
+    private final boolean sortedOrderedListState;
     private final FlinkStateNamespaceKeySerializer namespaceSerializer;
 
     public EarlyBinder(
@@ -1713,6 +1887,8 @@ public class FlinkStateInternals<K> implements StateInternals {
         Coder<? extends BoundedWindow> windowCoder) {
       this.keyedStateBackend = keyedStateBackend;
       this.fasterCopy = pipelineOptions.get().as(FlinkPipelineOptions.class).getFasterCopy();
+      this.sortedOrderedListState =
+          pipelineOptions.get().as(FlinkPipelineOptions.class).getSortedOrderedListState();
       this.namespaceSerializer = new FlinkStateNamespaceKeySerializer(windowCoder);
     }
 
@@ -1778,10 +1954,19 @@ public class FlinkStateInternals<K> implements StateInternals {
     public <T> OrderedListState<T> bindOrderedList(
         String id, StateSpec<OrderedListState<T>> spec, Coder<T> elemCoder) {
       try {
-        keyedStateBackend.getOrCreateKeyedState(
-            namespaceSerializer,
-            new ListStateDescriptor<>(
-                id, new CoderTypeSerializer<>(TimestampedValueCoder.of(elemCoder), fasterCopy)));
+        if (sortedOrderedListState) {
+          keyedStateBackend.getOrCreateKeyedState(
+              namespaceSerializer,
+              new MapStateDescriptor<>(
+                  id,
+                  new CoderTypeSerializer<>(InstantCoder.of(), fasterCopy),
+                  new CoderTypeSerializer<>(ListCoder.of(elemCoder), fasterCopy)));
+        } else {
+          keyedStateBackend.getOrCreateKeyedState(
+              namespaceSerializer,
+              new ListStateDescriptor<>(
+                  id, new CoderTypeSerializer<>(TimestampedValueCoder.of(elemCoder), fasterCopy)));
+        }
       } catch (Exception e) {
         throw new RuntimeException(e);
       }
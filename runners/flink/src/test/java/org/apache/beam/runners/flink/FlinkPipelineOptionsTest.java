@@ -98,6 +98,8 @@ public class FlinkPipelineOptionsTest {
     assertThat(options.getAllowNonRestoredState(), is(false));
     assertThat(options.getDisableMetrics(), is(false));
     assertThat(options.getFasterCopy(), is(false));
+    assertThat(options.getSortedOrderedListState(), is(false));
+    assertThat(options.getTargetBundleLatencyMillis(), is(0L));
 
     assertThat(options.isStreaming(), is(false));
     assertThat(options.getMaxBundleSize(), is(5000L));
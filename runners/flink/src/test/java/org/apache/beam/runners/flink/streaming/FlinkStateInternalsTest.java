@@ -34,10 +34,12 @@ import org.apache.beam.runners.flink.adapter.FlinkKey;
 import org.apache.beam.runners.flink.translation.wrappers.streaming.state.FlinkStateInternals;
 import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.state.OrderedListState;
 import org.apache.beam.sdk.state.WatermarkHoldState;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.java.typeutils.ValueTypeInfo;
@@ -188,6 +190,41 @@ public class FlinkStateInternalsTest extends StateInternalsTest {
     assertThat(state.read(), is((Instant) null));
   }
 
+  @Test
+  public void testSortedOrderedListState() throws Exception {
+    FlinkPipelineOptions options = FlinkPipelineOptions.defaults();
+    options.setSortedOrderedListState(true);
+    FlinkStateInternals<String> stateInternals =
+        new FlinkStateInternals<>(
+            createStateBackend(),
+            StringUtf8Coder.of(),
+            IntervalWindow.getCoder(),
+            new SerializablePipelineOptions(options));
+    StateTag<OrderedListState<String>> stateTag =
+        StateTags.orderedList("orderedList", StringUtf8Coder.of());
+    OrderedListState<String> state = stateInternals.state(StateNamespaces.global(), stateTag);
+
+    TimestampedValue<String> negative = TimestampedValue.of("negative", new Instant(-10));
+    TimestampedValue<String> first = TimestampedValue.of("first", new Instant(20));
+    TimestampedValue<String> second = TimestampedValue.of("second", new Instant(20));
+    TimestampedValue<String> last = TimestampedValue.of("last", new Instant(30));
+    assertThat(state.isEmpty().read(), is(true));
+    state.add(last);
+    state.add(first);
+    state.add(negative);
+    state.add(second);
+    assertThat(state.isEmpty().read(), is(false));
+
+    assertThat(state.read(), Matchers.contains(negative, first, second, last));
+    assertThat(state.readRange(new Instant(0), new Instant(30)), Matchers.contains(first, second));
+
+    state.clearRange(new Instant(-10), new Instant(30));
+    assertThat(state.read(), Matchers.contains(last));
+
+    state.clear();
+    assertThat(state.isEmpty().read(), is(true));
+  }
+
   public static KeyedStateBackend<FlinkKey> createStateBackend() throws Exception {
     AbstractKeyedStateBackend<FlinkKey> keyedStateBackend =
         MemoryStateBackendWrapper.createKeyedStateBackend(
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.wrappers.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AdaptiveBundleSizer}. */
+@RunWith(JUnit4.class)
+public class AdaptiveBundleSizerTest {
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testStartsWithMaxBundleSize() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    assertThat(sizer.getBundleSize(), is(1000L));
+  }
+
+  @Test
+  public void testSizesBundlesToTargetLatency() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    processBundle(sizer, 10, MILLIS, 20 * MILLIS);
+    // (100ms - 20ms) / 1ms per element
+    assertThat(sizer.getBundleSize(), is(80L));
+
+    processBundle(sizer, 80, MILLIS, 20 * MILLIS);
+    assertThat(sizer.getBundleSize(), is(80L));
+  }
+
+  @Test
+  public void testBundleSizeIsLimitedByMaxBundleSize() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(50, 100);
+    processBundle(sizer, 10, MILLIS / 10, MILLIS);
+    assertThat(sizer.getBundleSize(), is(50L));
+  }
+
+  @Test
+  public void testBundleSizeIsAtLeastOne() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    processBundle(sizer, 10, 90 * MILLIS, 5 * MILLIS);
+    assertThat(sizer.getBundleSize(), is(1L));
+  }
+
+  @Test
+  public void testUsesMaxBundleSizeIfFinishBundleExceedsTargetLatency() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    processBundle(sizer, 10, MILLIS, 200 * MILLIS);
+    assertThat(sizer.getBundleSize(), is(1000L));
+  }
+
+  @Test
+  public void testSmoothsMeasurements() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    processBundle(sizer, 10, MILLIS, 0);
+    assertThat(sizer.getBundleSize(), is(100L));
+
+    // A single slow bundle only moves the estimate by the smoothing factor.
+    processBundle(sizer, 10, 6 * MILLIS, 0);
+    assertThat(sizer.getBundleSize(), is(50L));
+  }
+
+  @Test
+  public void testEmptyBundlesOnlyUpdateFinishBundleCost() {
+    AdaptiveBundleSizer sizer = new AdaptiveBundleSizer(1000, 100);
+    sizer.bundleFinished(0, 10 * MILLIS);
+    assertThat(sizer.getBundleSize(), is(1000L));
+
+    processBundle(sizer, 10, MILLIS, 10 * MILLIS);
+    assertThat(sizer.getBundleSize(), is(90L));
+  }
+
+  private static void processBundle(
+      AdaptiveBundleSizer sizer, int elements, long elementNanos, long finishBundleNanos) {
+    for (int i = 0; i < elements; i++) {
+      sizer.elementProcessed(elementNanos);
+    }
+    sizer.bundleFinished(elements, finishBundleNanos);
+  }
+}
@@ -25,6 +25,7 @@ import static org.apache.beam.runners.spark.structuredstreaming.translation.batc
 import static org.apache.beam.runners.spark.structuredstreaming.translation.batch.GroupByKeyHelpers.valueValue;
 import static org.apache.beam.runners.spark.structuredstreaming.translation.batch.GroupByKeyHelpers.windowedKV;
 import static org.apache.beam.runners.spark.structuredstreaming.translation.utils.ScalaInterop.fun1;
+import static org.apache.spark.sql.functions.col;
 
 import java.util.Collection;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
@@ -42,9 +43,11 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
 import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Encoder;
 import org.apache.spark.sql.expressions.Aggregator;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import scala.Tuple2;
 import scala.collection.IterableOnce;
 
@@ -54,7 +57,8 @@ import scala.collection.IterableOnce;
  *
  * <ul>
  *   <li>When using the default global window, window information is dropped and restored after the
- *       aggregation.
+ *       aggregation. Common combine functions on numeric values, such as sums or counts, are
+ *       translated to Spark's built-in aggregate functions, see {@link DeclarativeAggregators}.
  *   <li>For non-merging windows, windows are exploded and moved into a composite key for better
  *       distribution. After the aggregation, windowed values are restored from the composite key.
  *   <li>All other cases use an aggregator on windowed values that is optimized for the current
@@ -84,6 +88,7 @@ class CombinePerKeyTranslatorBatch<K, InT, AccT, OutT>
 
     Encoder<K> keyEnc = cxt.keyEncoderOf(inputCoder);
     Encoder<KV<K, InT>> inputEnc = cxt.encoderOf(inputCoder);
+    Encoder<KV<K, OutT>> outputEnc = cxt.kvEncoderOf(outputCoder);
     Encoder<WindowedValue<KV<K, OutT>>> wvOutputEnc = cxt.windowedEncoder(outputCoder);
     Encoder<AccT> accumEnc = accumEncoder(combineFn, inputCoder.getValueCoder(), cxt);
 
@@ -92,7 +97,20 @@ class CombinePerKeyTranslatorBatch<K, InT, AccT, OutT>
     boolean globalGroupBy = eligibleForGlobalGroupBy(windowing, true);
     boolean groupByWindow = eligibleForGroupByWindow(windowing, true);
 
-    if (globalGroupBy || groupByWindow) {
+    @Nullable Column declarativeAgg =
+        globalGroupBy ? declarativeAggregate(combineFn, inputEnc, outputEnc, cxt) : null;
+
+    if (declarativeAgg != null) {
+      // Group by key using a declarative aggregate function on the value column, afterwards the
+      // global window is restored
+      result =
+          cxt.getDataset(cxt.getInput())
+              .map(value(), inputEnc)
+              .groupBy(col("key"))
+              .agg(declarativeAgg.as("value"))
+              .as(outputEnc)
+              .map(fun1(WindowedValues::valueInGlobalWindow), wvOutputEnc);
+    } else if (globalGroupBy || groupByWindow) {
       Aggregator<KV<K, InT>, ?, OutT> valueAgg =
           Aggregators.value(combineFn, KV::getValue, accumEnc, cxt.valueEncoderOf(outputCoder));
 
@@ -150,6 +168,16 @@ class CombinePerKeyTranslatorBatch<K, InT, AccT, OutT>
     return t -> WindowedValues.valueInGlobalWindow(KV.of(t._1, t._2));
   }
 
+  private @Nullable Column declarativeAggregate(
+      CombineFn<?, ?, ?> fn, Encoder<?> inputEnc, Encoder<?> outputEnc, Context cxt) {
+    return DeclarativeAggregators.aggregate(
+        fn,
+        col("value"),
+        inputEnc.schema().apply("value").dataType(),
+        outputEnc.schema().apply("value").dataType(),
+        Boolean.parseBoolean(cxt.getSparkSession().conf().get("spark.sql.ansi.enabled")));
+  }
+
   private Encoder<AccT> accumEncoder(
       CombineFn<InT, AccT, OutT> fn, Coder<InT> valueCoder, Context cxt) {
     try {
@@ -35,7 +35,6 @@ import static org.apache.beam.runners.spark.structuredstreaming.translation.util
 import static org.apache.beam.runners.spark.structuredstreaming.translation.utils.ScalaInterop.javaIterator;
 import static org.apache.beam.runners.spark.structuredstreaming.translation.utils.ScalaInterop.seqOf;
 import static org.apache.beam.sdk.transforms.windowing.PaneInfo.NO_FIRING;
-import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 import static org.apache.spark.sql.functions.col;
 import static org.apache.spark.sql.functions.collect_list;
 import static org.apache.spark.sql.functions.explode;
@@ -49,8 +48,11 @@ import org.apache.beam.runners.core.ReduceFnRunner;
 import org.apache.beam.runners.core.StateInternalsFactory;
 import org.apache.beam.runners.core.SystemReduceFn;
 import org.apache.beam.runners.spark.SparkCommonPipelineOptions;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingPipelineOptions;
 import org.apache.beam.runners.spark.structuredstreaming.translation.TransformTranslator;
 import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.GroupAlsoByWindowViaOutputBufferFn;
+import org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions.SpillingIterable;
+import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
@@ -82,8 +84,9 @@ import scala.collection.immutable.List;
  * latter case the entire group (iterator) has to be loaded into memory as well. Either way there's
  * a risk of OOM errors. When enabling {@link
  * SparkCommonPipelineOptions#getPreferGroupByKeyToHandleHugeValues()}, a more memory sensitive
- * iterable is used that can be traversed just once. Attempting to traverse the iterable again will
- * throw.
+ * iterable is used instead. It keeps up to {@link
+ * SparkStructuredStreamingPipelineOptions#getGroupByKeyMaxValuesInMemory()} values in memory and
+ * spills all others to local disk, so it can be traversed multiple times.
  *
  * <ul>
  *   <li>When using the default global window, window information is dropped and restored after the
@@ -122,14 +125,15 @@ class GroupByKeyTranslatorBatch<K, V>
 
     Encoder<V> valueEnc = cxt.valueEncoderOf(inputCoder);
     Encoder<K> keyEnc = cxt.keyEncoderOf(inputCoder);
+    Coder<V> valueCoder = inputCoder.getValueCoder();
 
     // In batch we can ignore triggering and allowed lateness parameters
     final Dataset<WindowedValue<KV<K, Iterable<V>>>> result;
 
-    boolean useCollectList =
-        !cxt.getOptions()
-            .as(SparkCommonPipelineOptions.class)
-            .getPreferGroupByKeyToHandleHugeValues();
+    SparkStructuredStreamingPipelineOptions options =
+        cxt.getOptions().as(SparkStructuredStreamingPipelineOptions.class);
+    boolean useCollectList = !options.getPreferGroupByKeyToHandleHugeValues();
+    int maxValuesInMemory = options.getGroupByKeyMaxValuesInMemory();
     if (useCollectList && eligibleForGlobalGroupBy(windowing, false)) {
       // Collects all values per key in memory. This might be problematic if there's
       // few keys only
@@ -144,14 +148,15 @@ class GroupByKeyTranslatorBatch<K, V>
                       windowTimestamp(tsCombiner)));
 
     } else if (eligibleForGlobalGroupBy(windowing, true)) {
-      // Produces an iterable that can be traversed exactly once. However, on the plus
-      // side, data is
-      // not collected in memory until serialized or done by the user.
+      // Produces an iterable that keeps a limited number of values in memory and spills all others
+      // to local disk, so that groups don't have to fit into memory.
       result =
           cxt.getDataset(cxt.getInput())
               .groupByKey(valueKey(), keyEnc)
               .mapValues(valueValue(), cxt.valueEncoderOf(inputCoder))
-              .mapGroups(fun2((k, it) -> KV.of(k, iterableOnce(it))), cxt.kvEncoderOf(outputCoder))
+              .mapGroups(
+                  fun2((k, it) -> KV.of(k, spillingIterable(it, valueCoder, maxValuesInMemory))),
+                  cxt.kvEncoderOf(outputCoder))
               .map(fun1(WindowedValues::valueInGlobalWindow), cxt.windowedEncoder(outputCoder));
 
     } else if (useCollectList
@@ -181,9 +186,8 @@ class GroupByKeyTranslatorBatch<K, V>
       // values are assigned to multiple windows, more data would be shuffled around.
       // If there's few
       // keys only, this is still valuable.
-      // Produces an iterable that can be traversed exactly once. However, on the plus
-      // side, data is
-      // not collected in memory until serialized or done by the user.
+      // Produces an iterable that keeps a limited number of values in memory and spills all others
+      // to local disk, so that groups don't have to fit into memory.
       Encoder<Tuple2<BoundedWindow, K>> windowedKeyEnc =
           cxt.tupleEncoder(cxt.windowEncoder(), keyEnc);
       result =
@@ -192,7 +196,9 @@ class GroupByKeyTranslatorBatch<K, V>
               .groupByKey(fun1(t -> t._1()), windowedKeyEnc)
               .mapValues(fun1(t -> t._2()), valueEnc)
               .mapGroups(
-                  fun2((wKey, it) -> windowedKV(wKey, iterableOnce(it))),
+                  fun2(
+                      (wKey, it) ->
+                          windowedKV(wKey, spillingIterable(it, valueCoder, maxValuesInMemory))),
                   cxt.windowedEncoder(outputCoder));
 
     } else {
@@ -247,14 +253,12 @@ class GroupByKeyTranslatorBatch<K, V>
   }
 
   /**
-   * Java {@link Iterable} from Scala {@link Iterator} that can be iterated just once so that we
-   * don't have to load all data into memory.
+   * Java {@link Iterable} from Scala {@link Iterator} that can be iterated multiple times without
+   * having to load all data into memory, see {@link SpillingIterable}.
    */
-  private static <T extends @NonNull Object> Iterable<T> iterableOnce(Iterator<T> it) {
-    return () -> {
-      checkState(!it.isEmpty(), "Iterator on values can only be consumed once!");
-      return javaIterator(it);
-    };
+  private static <T extends @NonNull Object> Iterable<T> spillingIterable(
+      Iterator<T> it, Coder<T> coder, int maxValuesInMemory) {
+    return new SpillingIterable<>(javaIterator(it), coder, maxValuesInMemory);
   }
 
   private <T> TypedColumn<?, KV<K, T>> keyValue(TypedColumn<?, K> key, TypedColumn<?, T> value) {
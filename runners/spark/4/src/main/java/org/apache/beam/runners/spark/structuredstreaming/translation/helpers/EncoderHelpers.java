@@ -28,6 +28,7 @@ import static org.apache.spark.sql.types.DataTypes.IntegerType;
 import static org.apache.spark.sql.types.DataTypes.LongType;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -37,6 +38,12 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.Field;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
@@ -44,6 +51,7 @@ import org.apache.beam.sdk.transforms.windowing.IntervalWindow.IntervalWindowCod
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo.PaneInfoCoder;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions;
@@ -69,6 +77,7 @@ import org.apache.spark.sql.catalyst.expressions.Literal;
 import org.apache.spark.sql.catalyst.expressions.Literal$;
 import org.apache.spark.sql.catalyst.expressions.MapKeys;
 import org.apache.spark.sql.catalyst.expressions.MapValues;
+import org.apache.spark.sql.catalyst.expressions.objects.CreateExternalRow;
 import org.apache.spark.sql.catalyst.expressions.objects.MapObjects$;
 import org.apache.spark.sql.catalyst.util.ArrayData;
 import org.apache.spark.sql.types.ArrayType;
@@ -81,6 +90,7 @@ import org.apache.spark.util.MutablePair;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
 import scala.Option;
 import scala.Some;
 import scala.Tuple2;
@@ -96,6 +106,7 @@ public class EncoderHelpers {
   private static final DataType KV_TYPE = new ObjectType(KV.class);
   private static final DataType MUTABLE_PAIR_TYPE = new ObjectType(MutablePair.class);
   private static final DataType LIST_TYPE = new ObjectType(List.class);
+  private static final DataType ROW_TYPE = new ObjectType(Row.class);
 
   // Collections / maps of these types can be (de)serialized without (de)serializing each member
   private static final Set<Class<?>> PRIMITIVE_TYPES =
@@ -163,15 +174,53 @@ public class EncoderHelpers {
    * Creates a Spark {@link Encoder} for {@link T} of {@link DataTypes#BinaryType BinaryType}
    * delegating to a Beam {@link Coder} underneath.
    *
-   * <p>Note: For common types, if available, default Spark {@link Encoder}s are used instead.
+   * <p>Note: For common types, if available, default Spark {@link Encoder}s are used instead. For
+   * {@link SchemaCoder}s the {@link Encoder} of {@link #schemaEncoder(SchemaCoder)} is used.
    *
    * @param coder Beam {@link Coder}
    */
   public static <T> Encoder<T> encoderFor(Coder<T> coder) {
+    if (coder instanceof SchemaCoder) {
+      return schemaEncoder((SchemaCoder<T>) coder);
+    }
     Encoder<T> enc = getOrCreateDefaultEncoder(coder.getEncodedTypeDescriptor().getRawType());
     return enc != null ? enc : binaryEncoder(coder, true);
   }
 
+  /**
+   * Creates a Spark {@link Encoder} for {@link T} of {@link StructType} with a field for each field
+   * of the {@link Schema} of a Beam {@link SchemaCoder}, such as a {@link RowCoder} or the coder of
+   * a type with a schema inferred by the {@link org.apache.beam.sdk.schemas.SchemaRegistry}.
+   *
+   * <p>Fields of primitive types, {@code STRING}, {@code BYTES}, {@code DATETIME}, nested rows and
+   * collections of these are mapped to the corresponding Spark SQL types, so Spark can operate on
+   * them without decoding the element using a Beam {@link Coder}. Fields of other types, such as
+   * {@code DECIMAL} (which may exceed the precision of Spark decimals), {@code MAP} (which cannot
+   * be grouped by in Spark) and logical types, are of {@link DataTypes#BinaryType BinaryType} using
+   * the Beam {@link Coder} of the field.
+   *
+   * @param coder Beam {@link SchemaCoder}
+   */
+  public static <T> Encoder<T> schemaEncoder(SchemaCoder<T> coder) {
+    if (coder.getSchema().getFieldCount() == 0) {
+      return binaryEncoder(coder, true);
+    }
+    Encoder<Row> rowEnc = rowEncoder(coder.getSchema());
+    if (coder instanceof RowCoder) {
+      return (Encoder<T>) rowEnc;
+    }
+    // T could be private, use OBJECT_TYPE for code generation to not risk an IllegalAccessError.
+    // The conversion to a row is shared by all fields due to subexpression elimination.
+    Literal litCoder = lit(coder, SchemaCoder.class);
+    Expression row =
+        invokeIfNotNull(Utils.class, "toRow", ROW_TYPE, rootRef(OBJECT_TYPE, true), litCoder);
+    Expression serializer = serialize(row, rowEnc);
+    Expression deserializer =
+        invokeIfNotNull(Utils.class, "fromRow", OBJECT_TYPE, deserializer(rowEnc), litCoder);
+    return EncoderFactory.create(
+        serializer, deserializer, coder.getEncodedTypeDescriptor().getRawType());
+  }
+
   /**
    * Creates a Spark {@link Encoder} for {@link T} of {@link StructType} with fields {@code value},
    * {@code timestamp}, {@code window} and {@code pane}.
@@ -321,6 +370,101 @@ public class EncoderHelpers {
         coder.getEncodedTypeDescriptor().getRawType());
   }
 
+  /** Creates a Spark {@link Encoder} for Beam {@link Row}s of {@link StructType}. */
+  private static Encoder<Row> rowEncoder(Schema schema) {
+    List<Field> fields = schema.getFields();
+    List<Encoder<?>> encoders = new ArrayList<>(fields.size());
+    Expression in = rootRef(ROW_TYPE, true);
+    Expression[] args = new Expression[fields.size() * 2];
+    for (int i = 0; i < fields.size(); i++) {
+      FieldType type = fields.get(i).getType();
+      Encoder<?> enc = rowFieldEncoder(type);
+      encoders.add(enc);
+      args[i * 2] = lit(fields.get(i).getName());
+      args[i * 2 + 1] = serialize(rowFieldValue(in, i, type, enc), enc);
+    }
+    Expression serializer = nullSafe(in, new CreateNamedStruct(seqOf(args)));
+
+    StructType structType = (StructType) serializer.dataType();
+    Expression col = rootCol(structType);
+    Expression[] values = new Expression[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      values[i] = deserializeField(col, encoders.get(i), i, fields.get(i).getName());
+    }
+    Expression sparkRow = new CreateExternalRow(seqOf(values), structType);
+    Expression beamRow =
+        invoke(Utils.class, "toBeamRow", ROW_TYPE, sparkRow, lit(schema, Schema.class));
+    Expression deserializer = nullSafe(col, beamRow);
+    return EncoderFactory.create(serializer, deserializer, Row.class);
+  }
+
+  private static Encoder<?> rowFieldEncoder(FieldType type) {
+    Encoder<?> enc = nativeFieldEncoder(type);
+    return enc != null
+        ? enc
+        : binaryEncoder(SchemaCoder.coderForFieldType(type.withNullable(false)), true);
+  }
+
+  // Encoder of the corresponding Spark SQL type if values of the field type can be mapped
+  private static @Nullable Encoder<?> nativeFieldEncoder(FieldType type) {
+    switch (type.getTypeName()) {
+      case BYTE:
+        return encoderOf(Byte.class);
+      case INT16:
+        return encoderOf(Short.class);
+      case INT32:
+        return encoderOf(Integer.class);
+      case INT64:
+        return encoderOf(Long.class);
+      case FLOAT:
+        return encoderOf(Float.class);
+      case DOUBLE:
+        return encoderOf(Double.class);
+      case BOOLEAN:
+        return encoderOf(Boolean.class);
+      case STRING:
+        return encoderOf(String.class);
+      case BYTES:
+        return encoderOf(byte[].class);
+      case DATETIME:
+        return encoderOf(Instant.class);
+      case ROW:
+        Schema schema = type.getRowSchema();
+        return schema != null && schema.getFieldCount() > 0 ? rowEncoder(schema) : null;
+      case ARRAY:
+      case ITERABLE:
+        FieldType elementType = type.getCollectionElementType();
+        // elements are used as is, datetimes and iterables would have to be converted first
+        if (elementType == null
+            || elementType.getTypeName() == TypeName.DATETIME
+            || elementType.getTypeName() == TypeName.ITERABLE) {
+          return null;
+        }
+        Encoder<?> elementEnc = nativeFieldEncoder(elementType);
+        return elementEnc != null ? collectionEncoder(elementEnc, elementType.getNullable()) : null;
+      default:
+        return null;
+    }
+  }
+
+  // Value of field idx of row converted to the type expected by the encoder if necessary
+  private static Expression rowFieldValue(Expression row, int idx, FieldType type, Encoder<?> enc) {
+    switch (type.getTypeName()) {
+      case DATETIME:
+        Expression instant =
+            invoke(row, "getValue", new ObjectType(ReadableInstant.class), true, lit(idx));
+        return invoke(instant, "toInstant", new ObjectType(Instant.class), true);
+      case ITERABLE:
+        Expression iterable =
+            invoke(row, "getValue", new ObjectType(Iterable.class), true, lit(idx));
+        return invokeIfNotNull(
+            Utils.class, "toCollection", new ObjectType(Collection.class), iterable);
+      default:
+        Expression ref = serializer(enc).collect(match(BoundReference.class)).head();
+        return invoke(row, "getValue", ref.dataType(), true, lit(idx));
+    }
+  }
+
   private static <T, W extends BoundedWindow> Expression serializeWindowedValue(
       Expression in,
       Encoder<T> valueEnc,
@@ -582,6 +726,31 @@ public class EncoderHelpers {
       return Arrays.asList(arrayData.toObjectArray(type));
     }
 
+    public static Row toRow(Object value, SchemaCoder<Object> coder) {
+      return coder.getToRowFunction().apply(value);
+    }
+
+    public static Object fromRow(Row row, SchemaCoder<Object> coder) {
+      return coder.getFromRowFunction().apply(row);
+    }
+
+    public static Row toBeamRow(org.apache.spark.sql.Row row, Schema schema) {
+      List<@Nullable Object> values = new ArrayList<>(row.size());
+      for (int i = 0; i < row.size(); i++) {
+        values.add(row.get(i));
+      }
+      return Row.withSchema(schema).attachValues(values);
+    }
+
+    public static Collection<Object> toCollection(Iterable<Object> iterable) {
+      if (iterable instanceof Collection) {
+        return (Collection<Object>) iterable;
+      }
+      List<Object> list = new ArrayList<>();
+      iterable.forEach(list::add);
+      return list;
+    }
+
     public static Seq<Object> toSeq(ArrayData arrayData) {
       return arrayData.toSeq(OBJECT_TYPE);
     }
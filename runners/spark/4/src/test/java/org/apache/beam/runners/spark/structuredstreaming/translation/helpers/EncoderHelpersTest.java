@@ -29,7 +29,9 @@ import static org.apache.beam.runners.spark.structuredstreaming.translation.help
 import static org.apache.beam.runners.spark.structuredstreaming.translation.helpers.EncoderHelpers.windowedValueEncoder;
 import static org.apache.beam.runners.spark.structuredstreaming.translation.utils.ScalaInterop.tuple;
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Predicates.notNull;
+import static org.apache.spark.sql.types.DataTypes.BinaryType;
 import static org.apache.spark.sql.types.DataTypes.IntegerType;
+import static org.apache.spark.sql.types.DataTypes.LongType;
 import static org.apache.spark.sql.types.DataTypes.StringType;
 import static org.apache.spark.sql.types.DataTypes.createStructField;
 import static org.apache.spark.sql.types.DataTypes.createStructType;
@@ -60,11 +62,18 @@ import org.apache.beam.sdk.coders.DoubleCoder;
 import org.apache.beam.sdk.coders.FloatCoder;
 import org.apache.beam.sdk.coders.InstantCoder;
 import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.schemas.JavaFieldSchema;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaRegistry;
+import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
@@ -76,9 +85,11 @@ import org.apache.spark.sql.Encoder;
 import org.apache.spark.sql.catalyst.InternalRow;
 import org.apache.spark.sql.catalyst.encoders.AgnosticEncoder;
 import org.apache.spark.sql.catalyst.encoders.ExpressionEncoder;
+import org.apache.spark.sql.types.ArrayType;
 import org.apache.spark.sql.types.DecimalType;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -243,6 +254,75 @@ public class EncoderHelpersTest {
     assertThat(dataset.collectAsList(), equalTo(data));
   }
 
+  @Test
+  public void testSchemaEncoderForRows() {
+    Schema nestedSchema =
+        Schema.builder().addInt32Field("id").addNullableStringField("name").build();
+    Schema schema =
+        Schema.builder()
+            .addInt64Field("long")
+            .addNullableStringField("string")
+            .addDateTimeField("dateTime")
+            .addArrayField("array", FieldType.STRING)
+            .addIterableField("iterable", FieldType.INT32)
+            .addNullableRowField("row", nestedSchema)
+            .addDecimalField("decimal")
+            .addMapField("map", FieldType.STRING, FieldType.INT32)
+            .build();
+    List<Row> data =
+        asList(
+            Row.withSchema(schema)
+                .addValues(
+                    1L,
+                    "a",
+                    Instant.ofEpochMilli(1),
+                    asList("a1", "a2"),
+                    asList(1, 2),
+                    Row.withSchema(nestedSchema).addValues(1, null).build(),
+                    new BigDecimal("1.2345678901234567890123"),
+                    ImmutableMap.of("a", 1))
+                .build(),
+            Row.withSchema(schema)
+                .addValues(
+                    2L,
+                    null,
+                    Instant.ofEpochMilli(2),
+                    asList(),
+                    asList(3),
+                    null,
+                    BigDecimal.ONE,
+                    ImmutableMap.of())
+                .build());
+
+    Encoder<Row> encoder = encoderFor(RowCoder.of(schema));
+    serializeAndDeserialize(data.get(0), encoder);
+
+    Dataset<Row> dataset = createDataset(data, encoder);
+    StructType sparkSchema = dataset.schema();
+    assertThat(sparkSchema.apply("long").dataType(), equalTo(LongType));
+    assertThat(sparkSchema.apply("string").dataType(), equalTo(StringType));
+    assertThat(sparkSchema.apply("dateTime").dataType(), equalTo(LongType));
+    assertThat(sparkSchema.apply("array").dataType(), instanceOf(ArrayType.class));
+    assertThat(sparkSchema.apply("iterable").dataType(), instanceOf(ArrayType.class));
+    assertThat(sparkSchema.apply("row").dataType(), instanceOf(StructType.class));
+    assertThat(sparkSchema.apply("decimal").dataType(), equalTo(BinaryType));
+    assertThat(sparkSchema.apply("map").dataType(), equalTo(BinaryType));
+    assertThat(dataset.collectAsList(), equalTo(data));
+  }
+
+  @Test
+  public void testSchemaEncoderForInferredSchema() throws Exception {
+    List<Pojo> data = asList(new Pojo("a", 1), new Pojo(null, 2));
+
+    Encoder<Pojo> encoder = encoderFor(SchemaRegistry.createDefault().getSchemaCoder(Pojo.class));
+    serializeAndDeserialize(data.get(0), encoder);
+
+    Dataset<Pojo> dataset = createDataset(data, encoder);
+    assertThat(dataset.schema().apply("name").dataType(), equalTo(StringType));
+    assertThat(dataset.schema().apply("count").dataType(), equalTo(IntegerType));
+    assertThat(dataset.collectAsList(), equalTo(data));
+  }
+
   // fix scale/precision to system default to compare using equals
   private static BigDecimal bigDecimalOf(long l) {
     DecimalType type = DecimalType.SYSTEM_DEFAULT();
@@ -295,4 +375,31 @@ public class EncoderHelpersTest {
       return Objects.hash(string);
     }
   }
+
+  @DefaultSchema(JavaFieldSchema.class)
+  public static class Pojo {
+    public @Nullable String name;
+    public int count;
+
+    public Pojo() {}
+
+    public Pojo(@Nullable String name, int count) {
+      this.name = name;
+      this.count = count;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (!(o instanceof Pojo)) {
+        return false;
+      }
+      Pojo that = (Pojo) o;
+      return Objects.equals(name, that.name) && count == that.count;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, count);
+    }
+  }
 }
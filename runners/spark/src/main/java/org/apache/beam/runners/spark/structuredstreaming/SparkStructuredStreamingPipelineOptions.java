@@ -39,4 +39,13 @@ public interface SparkStructuredStreamingPipelineOptions extends SparkCommonPipe
   boolean getUseActiveSparkSession();
 
   void setUseActiveSparkSession(boolean value);
+
+  @Description(
+      "Maximum number of values per key and window kept in memory by GroupByKey if "
+          + "preferGroupByKeyToHandleHugeValues is enabled. All other values of a group are "
+          + "spilled to local disk, so that the grouped values can be iterated multiple times.")
+  @Default.Integer(10000)
+  int getGroupByKeyMaxValuesInMemory();
+
+  void setGroupByKeyMaxValuesInMemory(int value);
 }
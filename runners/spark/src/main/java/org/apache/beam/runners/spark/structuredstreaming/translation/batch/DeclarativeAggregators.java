@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch;
+
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Max;
+import org.apache.beam.sdk.transforms.Mean;
+import org.apache.beam.sdk.transforms.Min;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Encoder;
+import org.apache.spark.sql.expressions.Aggregator;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.NumericType;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Maps common Beam {@link CombineFn}s to Spark's built-in declarative aggregate functions.
+ *
+ * <p>Other than a Spark {@link Aggregator} (see {@link Aggregators}), which keeps accumulators as
+ * objects and (de)serializes them using an {@link Encoder}, declarative aggregate functions keep
+ * their aggregation buffers in fixed-width Tungsten rows and are part of whole stage code
+ * generation, including the partial aggregation before the shuffle.
+ *
+ * <p>Beam's integral sums wrap around on overflow, as do Spark's unless ANSI mode ({@code
+ * spark.sql.ansi.enabled}, the default since Spark 4) is enabled, in which case Spark fails the
+ * query instead. Integral sums are therefore only translated if ANSI mode is disabled.
+ *
+ * <p>{@code Top} is not mapped, its output is a list ordered by a user provided comparator which
+ * none of Spark's built-in aggregate functions computes.
+ */
+class DeclarativeAggregators {
+  private static final Class<?> COUNT_FN = Count.combineFn().getClass();
+
+  // Aggregate functions of numeric values by CombineFn class. Min / max of doubles is missing on
+  // purpose, Spark considers NaN to be larger than any other value while Java propagates NaN.
+  private static final Map<Class<?>, Function<Column, Column>> NUMERIC_AGGREGATES =
+      ImmutableMap.<Class<?>, Function<Column, Column>>builder()
+          .put(Sum.ofDoubles().getClass(), functions::sum)
+          .put(Min.ofIntegers().getClass(), functions::min)
+          .put(Min.ofLongs().getClass(), functions::min)
+          .put(Max.ofIntegers().getClass(), functions::max)
+          .put(Max.ofLongs().getClass(), functions::max)
+          .put(Mean.of().getClass(), functions::avg)
+          .build();
+
+  // Sums which overflow and are only translated if ANSI mode is disabled.
+  private static final Map<Class<?>, Function<Column, Column>> INTEGRAL_SUMS =
+      ImmutableMap.<Class<?>, Function<Column, Column>>builder()
+          .put(Sum.ofIntegers().getClass(), functions::sum)
+          .put(Sum.ofLongs().getClass(), functions::sum)
+          .build();
+
+  private DeclarativeAggregators() {}
+
+  /**
+   * Returns the declarative aggregate function equivalent to the {@link CombineFn} or {@code null}
+   * if there is none.
+   *
+   * @param fn Beam {@link CombineFn}
+   * @param value Column of the input values
+   * @param valueType Spark SQL type of the input values
+   * @param outputType Spark SQL type of the output values the result is cast to
+   * @param ansiEnabled If Spark SQL's ANSI mode is enabled
+   */
+  static @Nullable Column aggregate(
+      CombineFn<?, ?, ?> fn,
+      Column value,
+      DataType valueType,
+      DataType outputType,
+      boolean ansiEnabled) {
+    if (!(outputType instanceof NumericType)) {
+      return null;
+    } else if (fn.getClass().equals(COUNT_FN)) {
+      // count all values including null
+      return functions.count(functions.lit(1)).cast(outputType);
+    }
+    Function<Column, Column> aggregate = NUMERIC_AGGREGATES.get(fn.getClass());
+    if (aggregate == null && !ansiEnabled) {
+      aggregate = INTEGRAL_SUMS.get(fn.getClass());
+    }
+    if (aggregate == null || !(valueType instanceof NumericType)) {
+      return null;
+    }
+    // e.g. Spark sums integers as longs, casting truncates the sum the same way int addition wraps
+    return aggregate.apply(value).cast(outputType);
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.apache.beam.sdk.util.Preconditions.checkStateNotNull;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.spark.SparkEnv;
+import org.apache.spark.TaskContext;
+import org.apache.spark.util.TaskCompletionListener;
+import org.apache.spark.util.Utils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link Iterable} over the values of a group that can be iterated multiple times without holding
+ * all values in memory.
+ *
+ * <p>Values are consumed lazily from the iterator of the group the first time they are needed. Up
+ * to {@code maxValuesInMemory} values are kept in memory, all further values are spilled to a file
+ * in a local directory of Spark using the Beam {@link Coder} and read back from the file when
+ * iterating again. The file is closed for writing once all values of the group have been consumed
+ * and deleted once the Spark task completes.
+ *
+ * <p>Not thread safe, all iterators must be used by the thread of the Spark task.
+ */
+@Internal
+public class SpillingIterable<T> implements Iterable<T> {
+  private static final String SPILL_FILE_PREFIX = "beam-groupbykey-";
+
+  private final Iterator<T> source;
+  private final Coder<T> coder;
+  private final int maxValuesInMemory;
+
+  private final List<T> memory = new ArrayList<>();
+  private @Nullable SpillFile spillFile = null;
+  // number of values written to the spill file and how many of these are flushed
+  private long spilled = 0;
+  private long flushed = 0;
+
+  public SpillingIterable(Iterator<T> source, Coder<T> coder, int maxValuesInMemory) {
+    checkArgument(maxValuesInMemory >= 0, "maxValuesInMemory must not be negative");
+    this.source = source;
+    this.coder = coder;
+    this.maxValuesInMemory = maxValuesInMemory;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new SpillingIterator();
+  }
+
+  /** Number of values consumed from the iterator of the group so far. */
+  private long consumed() {
+    return memory.size() + spilled;
+  }
+
+  private T consumeNext() {
+    T value = source.next();
+    if (memory.size() < maxValuesInMemory) {
+      memory.add(value);
+    } else {
+      spill(value);
+    }
+    if (spillFile != null && !source.hasNext()) {
+      finishSpilling(spillFile);
+    }
+    return value;
+  }
+
+  private void spill(T value) {
+    try {
+      SpillFile file = spillFile;
+      if (file == null) {
+        file = SpillFile.create();
+        spillFile = file;
+      }
+      coder.encode(value, file.out());
+      spilled++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to spill value of group", e);
+    }
+  }
+
+  /** Closes the spill file for writing, from now on it is only read. */
+  private void finishSpilling(SpillFile file) {
+    try {
+      file.closeOut();
+      flushed = spilled;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to close spill file of group", e);
+    }
+  }
+
+  /** Makes sure the value at {@code position} of the spill file can be read. */
+  private void flushUntil(long position) throws IOException {
+    if (position >= flushed) {
+      checkStateNotNull(spillFile).flush();
+      flushed = spilled;
+    }
+  }
+
+  /**
+   * A spill file and the stream writing to it, which is deleted when the Spark task completes. The
+   * task completion listener must not reference the {@link SpillingIterable}, otherwise the values
+   * kept in memory for every spilled group of a task would only be released once the task
+   * completes.
+   */
+  private static class SpillFile implements TaskCompletionListener {
+    private final File file;
+    private @Nullable OutputStream out;
+
+    private SpillFile(File file) throws IOException {
+      this.file = file;
+      this.out = new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    static SpillFile create() throws IOException {
+      SparkEnv env = SparkEnv.get();
+      File dir = env != null ? new File(Utils.getLocalDir(env.conf())) : null;
+      File file = File.createTempFile(SPILL_FILE_PREFIX, ".spill", dir);
+      SpillFile spillFile = new SpillFile(file);
+      TaskContext taskContext = TaskContext.get();
+      if (taskContext != null) {
+        taskContext.addTaskCompletionListener(spillFile);
+      } else {
+        file.deleteOnExit();
+      }
+      return spillFile;
+    }
+
+    OutputStream out() {
+      return checkStateNotNull(out, "Spill file %s is closed for writing", file);
+    }
+
+    void flush() throws IOException {
+      if (out != null) {
+        out.flush();
+      }
+    }
+
+    void closeOut() throws IOException {
+      if (out != null) {
+        out.close();
+        out = null;
+      }
+    }
+
+    InputStream open() throws IOException {
+      return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    @Override
+    public void onTaskCompletion(TaskContext context) {
+      try {
+        closeOut();
+      } catch (IOException e) {
+        // ignore, the file is deleted anyways
+      }
+      file.delete();
+    }
+  }
+
+  private class SpillingIterator implements Iterator<T> {
+    private long index = 0;
+    // stream on the spill file and position of the next value to be read from it
+    private @Nullable InputStream in = null;
+    private long inPosition = 0;
+
+    @Override
+    public boolean hasNext() {
+      if (index < consumed() || source.hasNext()) {
+        return true;
+      }
+      close();
+      return false;
+    }
+
+    @Override
+    public T next() {
+      if (index < memory.size()) {
+        return memory.get((int) index++);
+      } else if (index < consumed()) {
+        return readSpilled(index++ - memory.size());
+      } else if (!source.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      index++;
+      return consumeNext();
+    }
+
+    private T readSpilled(long position) {
+      try {
+        flushUntil(position);
+        InputStream stream = in;
+        if (stream == null) {
+          stream = checkStateNotNull(spillFile).open();
+          in = stream;
+        }
+        // skip values this iterator consumed from the group itself
+        for (; inPosition < position; inPosition++) {
+          coder.decode(stream);
+        }
+        inPosition++;
+        return coder.decode(stream);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read spilled value of group", e);
+      }
+    }
+
+    private void close() {
+      try {
+        if (in != null) {
+          in.close();
+          in = null;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -27,6 +27,8 @@ import org.apache.beam.sdk.transforms.CombineFnBase;
 import org.apache.beam.sdk.transforms.Count;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.Distinct;
+import org.apache.beam.sdk.transforms.Max;
+import org.apache.beam.sdk.transforms.Mean;
 import org.apache.beam.sdk.transforms.Sum;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Sessions;
@@ -72,6 +74,46 @@ public class CombinePerKeyTest implements Serializable {
     pipeline.run();
   }
 
+  @Test
+  public void testDeclarativeCombinePerKey() {
+    PCollection<KV<String, Long>> input =
+        pipeline.apply(
+            Create.of(
+                KV.of("a", 1L), KV.of("a", 4L), KV.of("b", 2L), KV.of("b", -2L), KV.of("c", 5L)));
+
+    PAssert.that(input.apply("Sum", Sum.longsPerKey()))
+        .containsInAnyOrder(KV.of("a", 5L), KV.of("b", 0L), KV.of("c", 5L));
+    PAssert.that(input.apply("Max", Max.longsPerKey()))
+        .containsInAnyOrder(KV.of("a", 4L), KV.of("b", 2L), KV.of("c", 5L));
+    PAssert.that(input.apply("Mean", Mean.perKey()))
+        .containsInAnyOrder(KV.of("a", 2.5), KV.of("b", 0.0), KV.of("c", 5.0));
+    PAssert.that(input.apply("Count", Count.perKey()))
+        .containsInAnyOrder(KV.of("a", 2L), KV.of("b", 2L), KV.of("c", 1L));
+    pipeline.run();
+  }
+
+  @Test
+  public void testDeclarativeCombinePerKeyOverflowsLikeBeam() {
+    // Spark fails integral sums that overflow in ANSI mode while Beam's sums wrap around
+    String ansiEnabled = SESSION.getSession().conf().get("spark.sql.ansi.enabled");
+    SESSION.getSession().conf().set("spark.sql.ansi.enabled", "true");
+    try {
+      PCollection<KV<String, Integer>> ints =
+          pipeline.apply(
+              "Ints", Create.of(KV.of("a", Integer.MAX_VALUE), KV.of("a", 1), KV.of("b", 2)));
+      PCollection<KV<String, Long>> longs =
+          pipeline.apply("Longs", Create.of(KV.of("a", Long.MAX_VALUE), KV.of("a", 1L)));
+
+      PAssert.that(ints.apply("SumInts", Sum.integersPerKey()))
+          .containsInAnyOrder(KV.of("a", Integer.MIN_VALUE), KV.of("b", 2));
+      PAssert.that(longs.apply("SumLongs", Sum.longsPerKey()))
+          .containsInAnyOrder(KV.of("a", Long.MIN_VALUE));
+      pipeline.run();
+    } finally {
+      SESSION.getSession().conf().set("spark.sql.ansi.enabled", ansiEnabled);
+    }
+  }
+
   @Test
   public void testDistinctViaCombinePerKey() {
     List<Integer> elems = Lists.newArrayList(1, 2, 3, 3, 4, 4, 4, 4, 5, 5);
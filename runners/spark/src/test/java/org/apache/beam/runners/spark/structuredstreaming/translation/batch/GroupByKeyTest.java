@@ -22,6 +22,8 @@ import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static org.apache.beam.sdk.testing.SerializableMatchers.containsInAnyOrder;
+import static org.apache.beam.sdk.values.TypeDescriptors.integers;
+import static org.apache.beam.sdk.values.TypeDescriptors.kvs;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.io.Serializable;
@@ -33,12 +35,14 @@ import java.util.List;
 import java.util.Map;
 import org.apache.beam.runners.spark.SparkCommonPipelineOptions;
 import org.apache.beam.runners.spark.structuredstreaming.SparkSessionRule;
+import org.apache.beam.runners.spark.structuredstreaming.SparkStructuredStreamingPipelineOptions;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.SerializableMatcher;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.MapElements;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Sessions;
@@ -180,6 +184,36 @@ public class GroupByKeyTest implements Serializable {
     pipeline.run();
   }
 
+  @Test
+  public void testGroupByKeyValuesCanBeIteratedMultipleTimes() {
+    pipeline
+        .getOptions()
+        .as(SparkStructuredStreamingPipelineOptions.class)
+        .setGroupByKeyMaxValuesInMemory(1);
+
+    PCollection<KV<Integer, Integer>> input =
+        pipeline
+            .apply(
+                Create.of(
+                    shuffleRandomly(
+                        KV.of(1, 1), KV.of(1, 3), KV.of(1, 5), KV.of(2, 2), KV.of(2, 4))))
+            .apply(GroupByKey.create())
+            .apply(
+                MapElements.into(kvs(integers(), integers()))
+                    .via(kv -> KV.of(kv.getKey(), sum(kv.getValue()) + sum(kv.getValue()))));
+
+    PAssert.that(input).containsInAnyOrder(KV.of(1, 18), KV.of(2, 12));
+    pipeline.run();
+  }
+
+  private static int sum(Iterable<Integer> values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
   static class AssertContains<K, V> extends DoFn<KV<K, Iterable<V>>, Void> {
     private final Map<K, List<SerializableMatcher<Iterable<? extends V>>>> byKey;
 
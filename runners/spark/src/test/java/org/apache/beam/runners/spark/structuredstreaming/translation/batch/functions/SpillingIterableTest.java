@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.spark.structuredstreaming.translation.batch.functions;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.spark.TaskContext;
+import org.apache.spark.TaskContext$;
+import org.apache.spark.util.TaskCompletionListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SpillingIterable}. */
+@RunWith(JUnit4.class)
+public class SpillingIterableTest {
+  private static final List<Integer> VALUES =
+      IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+  @Test
+  public void testIterateMultipleTimesInMemory() {
+    Iterable<Integer> iterable = spillingIterable(VALUES, VALUES.size());
+    assertThat(iterable, contains(VALUES.toArray()));
+    assertThat(iterable, contains(VALUES.toArray()));
+  }
+
+  @Test
+  public void testIterateMultipleTimesSpilled() {
+    Iterable<Integer> iterable = spillingIterable(VALUES, 10);
+    assertThat(iterable, contains(VALUES.toArray()));
+    assertThat(iterable, contains(VALUES.toArray()));
+  }
+
+  @Test
+  public void testIterateAllSpilled() {
+    Iterable<Integer> iterable = spillingIterable(VALUES, 0);
+    assertThat(iterable, contains(VALUES.toArray()));
+    assertThat(iterable, contains(VALUES.toArray()));
+  }
+
+  @Test
+  public void testInterleavedIterators() {
+    Iterable<Integer> iterable = spillingIterable(VALUES, 10);
+    Iterator<Integer> first = iterable.iterator();
+    List<Integer> firstValues = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      firstValues.add(first.next());
+    }
+
+    // the second iterator consumes the remaining values of the group and spills them
+    assertThat(ImmutableList.copyOf(iterable.iterator()), equalTo(VALUES));
+
+    // the first iterator continues reading from the spill file
+    first.forEachRemaining(firstValues::add);
+    assertThat(firstValues, equalTo(VALUES));
+  }
+
+  @Test
+  public void testEmptyGroup() {
+    Iterable<Integer> iterable = spillingIterable(ImmutableList.of(), 10);
+    assertThat(iterable, emptyIterable());
+    assertFalse(iterable.iterator().hasNext());
+  }
+
+  @Test
+  public void testManySpilledGroupsInOneTask() {
+    List<TaskCompletionListener> listeners = new ArrayList<>();
+    TaskContext taskContext = mock(TaskContext.class);
+    when(taskContext.addTaskCompletionListener(any(TaskCompletionListener.class)))
+        .thenAnswer(
+            invocation -> {
+              listeners.add(invocation.getArgument(0));
+              return taskContext;
+            });
+
+    Set<File> filesBefore = spillFiles();
+    TaskContext$.MODULE$.setTaskContext(taskContext);
+    try {
+      for (int group = 0; group < 100; group++) {
+        Iterable<Integer> iterable = spillingIterable(VALUES, 10);
+        assertThat(iterable, contains(VALUES.toArray()));
+        assertThat(iterable, contains(VALUES.toArray()));
+      }
+    } finally {
+      TaskContext$.MODULE$.unset();
+    }
+
+    assertThat(listeners, hasSize(100));
+    for (TaskCompletionListener listener : listeners) {
+      // listeners live until the task completes and must not retain the values of the group
+      for (Field field : listener.getClass().getDeclaredFields()) {
+        assertFalse(SpillingIterable.class.isAssignableFrom(field.getType()));
+        assertFalse(Iterable.class.isAssignableFrom(field.getType()));
+        assertFalse(Iterator.class.isAssignableFrom(field.getType()));
+      }
+    }
+
+    Set<File> newFiles = spillFiles();
+    newFiles.removeAll(filesBefore);
+    assertThat(newFiles, hasSize(100));
+
+    listeners.forEach(listener -> listener.onTaskCompletion(taskContext));
+    newFiles.retainAll(spillFiles());
+    assertThat(newFiles, emptyIterable());
+  }
+
+  private static Set<File> spillFiles() {
+    File[] files =
+        new File(System.getProperty("java.io.tmpdir"))
+            .listFiles((dir, name) -> name.startsWith("beam-groupbykey-"));
+    return files == null ? new HashSet<>() : new HashSet<>(Arrays.asList(files));
+  }
+
+  private static Iterable<Integer> spillingIterable(List<Integer> values, int maxValuesInMemory) {
+    return new SpillingIterable<>(values.iterator(), VarIntCoder.of(), maxValuesInMemory);
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.coders;
+
+import com.google.protobuf.Struct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.extensions.avro.coders.AvroCoder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.jmh.coders.Event.AutoValueEvent;
+import org.apache.beam.sdk.jmh.coders.Event.JavaBeanEvent;
+import org.apache.beam.sdk.jmh.coders.Event.JavaFieldEvent;
+import org.apache.beam.sdk.schemas.NoSuchSchemaException;
+import org.apache.beam.sdk.schemas.SchemaRegistry;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.ExposedByteArrayInputStream;
+import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for encoding, decoding and cloning values with commonly used {@link Coder}s.
+ *
+ * <p>Run with {@code -prof gc}, or {@code -PjmhResults} when running through Gradle, to
+ * additionally measure the allocation rate of each coder.
+ */
+@OperationsPerInvocation(CoderBenchmark.VALUES_PER_INVOCATION)
+public class CoderBenchmark {
+  static final int VALUES_PER_INVOCATION = 1024;
+
+  /** The coders being benchmarked and a generator for values of a representative shape. */
+  public enum Payload {
+    VAR_INT {
+      @Override
+      Coder<?> coder() {
+        return VarIntCoder.of();
+      }
+
+      @Override
+      Object value(Random random) {
+        // A mix of 1, 2, 4 and 5 byte encodings.
+        switch (random.nextInt(4)) {
+          case 0:
+            return random.nextInt(1 << 7);
+          case 1:
+            return random.nextInt(1 << 14);
+          case 2:
+            return random.nextInt(1 << 28);
+          default:
+            return random.nextInt();
+        }
+      }
+    },
+    STRING_UTF8 {
+      @Override
+      Coder<?> coder() {
+        return StringUtf8Coder.of();
+      }
+
+      @Override
+      Object value(Random random) {
+        return randomString(random, 8 << random.nextInt(6));
+      }
+    },
+    KV {
+      @Override
+      Coder<?> coder() {
+        return KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+      }
+
+      @Override
+      Object value(Random random) {
+        return org.apache.beam.sdk.values.KV.of(randomString(random, 16), random.nextLong());
+      }
+    },
+    ITERABLE {
+      @Override
+      Coder<?> coder() {
+        return IterableCoder.of(VarLongCoder.of());
+      }
+
+      @Override
+      Object value(Random random) {
+        List<Long> values = new ArrayList<>(64);
+        for (int i = 0; i < 64; i++) {
+          values.add((long) random.nextInt(1 << 20));
+        }
+        return values;
+      }
+    },
+    ROW {
+      @Override
+      Coder<?> coder() {
+        return RowCoder.of(Event.SCHEMA);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toRow();
+      }
+    },
+    ROW_LAZY {
+      @Override
+      Coder<?> coder() {
+        return RowCoder.of(Event.SCHEMA).withLazyRowDecoding();
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toRow();
+      }
+    },
+    JAVA_BEAN_SCHEMA {
+      @Override
+      Coder<?> coder() throws NoSuchSchemaException {
+        return SchemaRegistry.createDefault().getSchemaCoder(JavaBeanEvent.class);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toJavaBean();
+      }
+    },
+    AUTO_VALUE_SCHEMA {
+      @Override
+      Coder<?> coder() throws NoSuchSchemaException {
+        return SchemaRegistry.createDefault().getSchemaCoder(AutoValueEvent.class);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toAutoValue();
+      }
+    },
+    JAVA_FIELD_SCHEMA {
+      @Override
+      Coder<?> coder() throws NoSuchSchemaException {
+        return SchemaRegistry.createDefault().getSchemaCoder(JavaFieldEvent.class);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toJavaField();
+      }
+    },
+    AVRO {
+      @Override
+      Coder<?> coder() {
+        return AvroCoder.of(Event.AVRO_SCHEMA);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toGenericRecord();
+      }
+    },
+    PROTO {
+      @Override
+      Coder<?> coder() {
+        return ProtoCoder.of(Struct.class);
+      }
+
+      @Override
+      Object value(Random random) {
+        return Event.random(random).toStruct();
+      }
+    };
+
+    abstract Coder<?> coder() throws NoSuchSchemaException;
+
+    abstract Object value(Random random);
+
+    private static String randomString(Random random, int length) {
+      StringBuilder builder = new StringBuilder(length);
+      // Roughly one in eight strings contains non ASCII characters.
+      boolean ascii = random.nextInt(8) != 0;
+      for (int i = 0; i < length; i++) {
+        builder.append(
+            ascii ? (char) ('a' + random.nextInt(26)) : (char) (0xC0 + random.nextInt(64)));
+      }
+      return builder.toString();
+    }
+  }
+
+  /** The values to encode and their concatenated nested encodings. */
+  @State(Scope.Thread)
+  public static class Values {
+    @Param Payload payload;
+
+    Coder<Object> coder;
+    Object[] values;
+    byte[] encoded;
+    final ExposedByteArrayOutputStream output = new ExposedByteArrayOutputStream();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+      coder = (Coder<Object>) payload.coder();
+      Random random = new Random(314159);
+      values = new Object[VALUES_PER_INVOCATION];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = payload.value(random);
+        coder.encode(values[i], output);
+      }
+      encoded = output.toByteArray();
+      output.reset();
+    }
+  }
+
+  @Benchmark
+  public void encode(Values state, Blackhole bh) throws IOException {
+    state.output.reset();
+    for (Object value : state.values) {
+      state.coder.encode(value, state.output);
+    }
+    bh.consume(state.output);
+  }
+
+  @Benchmark
+  public void decode(Values state, Blackhole bh) throws IOException {
+    ExposedByteArrayInputStream input = new ExposedByteArrayInputStream(state.encoded);
+    for (int i = 0; i < VALUES_PER_INVOCATION; i++) {
+      bh.consume(state.coder.decode(input));
+    }
+  }
+
+  @Benchmark
+  public void cloneValue(Values state, Blackhole bh) throws IOException {
+    for (Object value : state.values) {
+      bh.consume(CoderUtils.clone(state.coder, value));
+    }
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.coders;
+
+import com.google.auto.value.AutoValue;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.schemas.AutoValueSchema;
+import org.apache.beam.sdk.schemas.JavaBeanSchema;
+import org.apache.beam.sdk.schemas.JavaFieldSchema;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
+import org.apache.beam.sdk.values.Row;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A realistic event payload represented in each of the forms which are benchmarked, i.e. a
+ * {@link Row}, a Java bean, an {@link AutoValue}, a POJO with public fields, an Avro {@link
+ * GenericRecord} and a protobuf {@link Struct}. All representations carry the same data so that the
+ * cost of the different coders can be compared.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class Event {
+  public static final Schema SCHEMA =
+      Schema.builder()
+          .addStringField("id")
+          .addInt64Field("timestamp")
+          .addInt32Field("count")
+          .addDoubleField("score")
+          .addStringField("country")
+          .addArrayField("tags", FieldType.STRING)
+          .build();
+
+  public static final org.apache.avro.Schema AVRO_SCHEMA =
+      SchemaBuilder.record("Event")
+          .namespace(Event.class.getPackage().getName())
+          .fields()
+          .requiredString("id")
+          .requiredLong("timestamp")
+          .requiredInt("count")
+          .requiredDouble("score")
+          .requiredString("country")
+          .name("tags")
+          .type()
+          .array()
+          .items()
+          .stringType()
+          .noDefault()
+          .endRecord();
+
+  private static final String[] COUNTRIES = {"US", "DE", "FR", "JP", "BR", "IN", "GB", "CA"};
+  private static final String[] TAGS = {
+    "mobile", "desktop", "tablet", "organic", "paid", "returning", "new", "premium", "trial"
+  };
+
+  private final String id;
+  private final long timestamp;
+  private final int count;
+  private final double score;
+  private final String country;
+  private final List<String> tags;
+
+  private Event(
+      String id, long timestamp, int count, double score, String country, List<String> tags) {
+    this.id = id;
+    this.timestamp = timestamp;
+    this.count = count;
+    this.score = score;
+    this.country = country;
+    this.tags = tags;
+  }
+
+  /** Generates a random event with a skew similar to what is typically seen in user data. */
+  public static Event random(Random random) {
+    int numTags = random.nextInt(5);
+    List<String> tags = new ArrayList<>(numTags);
+    for (int i = 0; i < numTags; i++) {
+      tags.add(TAGS[random.nextInt(TAGS.length)]);
+    }
+    return new Event(
+        new UUID(random.nextLong(), random.nextLong()).toString(),
+        1_700_000_000_000L + random.nextInt(Integer.MAX_VALUE),
+        // Counts are mostly small.
+        random.nextInt(4) == 0 ? random.nextInt(100_000) : random.nextInt(100),
+        random.nextDouble(),
+        COUNTRIES[random.nextInt(COUNTRIES.length)],
+        tags);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public List<String> getTags() {
+    return tags;
+  }
+
+  public Row toRow() {
+    return Row.withSchema(SCHEMA).addValues(id, timestamp, count, score, country, tags).build();
+  }
+
+  public JavaBeanEvent toJavaBean() {
+    JavaBeanEvent event = new JavaBeanEvent();
+    event.setId(id);
+    event.setTimestamp(timestamp);
+    event.setCount(count);
+    event.setScore(score);
+    event.setCountry(country);
+    event.setTags(tags);
+    return event;
+  }
+
+  public AutoValueEvent toAutoValue() {
+    return AutoValueEvent.create(id, timestamp, count, score, country, tags);
+  }
+
+  public JavaFieldEvent toJavaField() {
+    JavaFieldEvent event = new JavaFieldEvent();
+    event.id = id;
+    event.timestamp = timestamp;
+    event.count = count;
+    event.score = score;
+    event.country = country;
+    event.tags = tags;
+    return event;
+  }
+
+  public GenericRecord toGenericRecord() {
+    GenericData.Record record = new GenericData.Record(AVRO_SCHEMA);
+    record.put("id", id);
+    record.put("timestamp", timestamp);
+    record.put("count", count);
+    record.put("score", score);
+    record.put("country", country);
+    record.put("tags", tags);
+    return record;
+  }
+
+  public Struct toStruct() {
+    ListValue.Builder tagValues = ListValue.newBuilder();
+    for (String tag : tags) {
+      tagValues.addValues(Value.newBuilder().setStringValue(tag));
+    }
+    return Struct.newBuilder()
+        .putFields("id", Value.newBuilder().setStringValue(id).build())
+        .putFields("timestamp", Value.newBuilder().setNumberValue(timestamp).build())
+        .putFields("count", Value.newBuilder().setNumberValue(count).build())
+        .putFields("score", Value.newBuilder().setNumberValue(score).build())
+        .putFields("country", Value.newBuilder().setStringValue(country).build())
+        .putFields("tags", Value.newBuilder().setListValue(tagValues).build())
+        .build();
+  }
+
+  /** An event using {@link JavaBeanSchema}. */
+  @DefaultSchema(JavaBeanSchema.class)
+  public static class JavaBeanEvent {
+    private String id;
+    private long timestamp;
+    private int count;
+    private double score;
+    private String country;
+    private List<String> tags;
+
+    public String getId() {
+      return id;
+    }
+
+    public void setId(String id) {
+      this.id = id;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+      this.timestamp = timestamp;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public void setScore(double score) {
+      this.score = score;
+    }
+
+    public String getCountry() {
+      return country;
+    }
+
+    public void setCountry(String country) {
+      this.country = country;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof JavaBeanEvent)) {
+        return false;
+      }
+      JavaBeanEvent that = (JavaBeanEvent) o;
+      return timestamp == that.timestamp
+          && count == that.count
+          && Double.compare(score, that.score) == 0
+          && Objects.equals(id, that.id)
+          && Objects.equals(country, that.country)
+          && Objects.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, timestamp, count, score, country, tags);
+    }
+  }
+
+  /** An event using {@link AutoValueSchema}. */
+  @DefaultSchema(AutoValueSchema.class)
+  @AutoValue
+  public abstract static class AutoValueEvent {
+    public abstract String getId();
+
+    public abstract long getTimestamp();
+
+    public abstract int getCount();
+
+    public abstract double getScore();
+
+    public abstract String getCountry();
+
+    public abstract List<String> getTags();
+
+    public static AutoValueEvent create(
+        String id, long timestamp, int count, double score, String country, List<String> tags) {
+      return new AutoValue_Event_AutoValueEvent(id, timestamp, count, score, country, tags);
+    }
+  }
+
+  /** An event using {@link JavaFieldSchema}. */
+  @DefaultSchema(JavaFieldSchema.class)
+  public static class JavaFieldEvent {
+    public String id;
+    public long timestamp;
+    public int count;
+    public double score;
+    public String country;
+    public List<String> tags;
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof JavaFieldEvent)) {
+        return false;
+      }
+      JavaFieldEvent that = (JavaFieldEvent) o;
+      return timestamp == that.timestamp
+          && count == that.count
+          && Double.compare(score, that.score) == 0
+          && Objects.equals(id, that.id)
+          && Objects.equals(country, that.country)
+          && Objects.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, timestamp, count, score, country, tags);
+    }
+  }
+}
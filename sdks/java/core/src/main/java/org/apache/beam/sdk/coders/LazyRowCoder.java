@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedStorage;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
+
+/**
+ * A {@link Coder} for {@link Row} objects which decodes rows into {@link RowWithEncodedStorage}
+ * instances that decode their fields on access. The encoding is identical to the encoding of the
+ * coder created by {@link RowCoderGenerator#generate}.
+ *
+ * <p>Decoding copies the encoded row and computes the offset of each field. The offsets of fields
+ * whose encoding has a known length, which includes all primitive types, are found by skipping
+ * their bytes without decoding them. Other fields are decoded while computing the offsets and their
+ * decoded values are retained by the row.
+ *
+ * <p>Rows which were decoded by this coder are encoded by copying their encoded bytes.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes",
+  "unchecked"
+})
+class LazyRowCoder extends CustomCoder<Row> implements RowWithEncodedStorage.FieldDecoder {
+  private static final String SCHEMA_OPTION_STATIC_ENCODING = "beam:option:row:static_encoding";
+  private static final int INITIAL_BUFFER_SIZE = 64;
+
+  // How to find the end of an encoded field. Non-negative values are fixed lengths.
+  private static final int VAR_INT = -1;
+  private static final int LENGTH_PREFIXED = -2;
+  private static final int DECIMAL = -3;
+  private static final int DECODE = -4;
+
+  private final Schema schema;
+  // Used to encode rows which were not decoded by this coder.
+  private final Coder<Row> generatedCoder;
+  private final boolean staticEncoding;
+  private final int[] encodingPosToRowIndex;
+  // Indexed by encoding position.
+  private final Coder[] coders;
+  private final int[] fieldEncodings;
+  // Indexed by row index.
+  private final Coder[] rowIndexCoders;
+  // The size of the most recently decoded row, used to size the buffer for the next row.
+  private transient int expectedSize = INITIAL_BUFFER_SIZE;
+
+  LazyRowCoder(Schema schema, Coder<Row> generatedCoder, int[] encodingPosToRowIndex) {
+    this.schema = schema;
+    this.generatedCoder = generatedCoder;
+    this.staticEncoding =
+        schema.getOptions().getValueOrDefault(SCHEMA_OPTION_STATIC_ENCODING, false);
+    this.encodingPosToRowIndex = encodingPosToRowIndex;
+    this.coders = new Coder[schema.getFieldCount()];
+    this.fieldEncodings = new int[schema.getFieldCount()];
+    this.rowIndexCoders = new Coder[schema.getFieldCount()];
+    for (int encodingPos = 0; encodingPos < schema.getFieldCount(); ++encodingPos) {
+      int rowIndex = encodingPosToRowIndex[encodingPos];
+      // Nulls are handled by the null bitmap so the field coders do not need to handle nulls.
+      FieldType fieldType = schema.getField(rowIndex).getType().withNullable(false);
+      coders[encodingPos] =
+          fieldType.getTypeName() == Schema.TypeName.ROW
+              ? RowCoder.of(fieldType.getRowSchema()).withLazyRowDecoding()
+              : SchemaCoder.coderForFieldType(fieldType);
+      fieldEncodings[encodingPos] = fieldEncoding(fieldType);
+      rowIndexCoders[rowIndex] = coders[encodingPos];
+    }
+  }
+
+  private static int fieldEncoding(FieldType fieldType) {
+    if (fieldType.getNullable()) {
+      return DECODE;
+    }
+    switch (fieldType.getTypeName()) {
+      case BYTE:
+      case BOOLEAN:
+        return 1;
+      case INT16:
+        return 2;
+      case FLOAT:
+        return 4;
+      case DOUBLE:
+      case DATETIME:
+        return 8;
+      case INT32:
+      case INT64:
+        return VAR_INT;
+      case STRING:
+      case BYTES:
+        return LENGTH_PREFIXED;
+      case DECIMAL:
+        return DECIMAL;
+      case LOGICAL_TYPE:
+        return fieldEncoding(fieldType.getLogicalType().getBaseType());
+      default:
+        return DECODE;
+    }
+  }
+
+  @Override
+  public void encode(Row value, OutputStream outStream) throws IOException {
+    if (value instanceof RowWithEncodedStorage
+        && ((RowWithEncodedStorage) value).getFieldDecoder() == this) {
+      outStream.write(((RowWithEncodedStorage) value).getEncoded());
+    } else {
+      generatedCoder.encode(value, outStream);
+    }
+  }
+
+  @Override
+  public Row decode(InputStream inStream) throws IOException {
+    RecordingInputStream in = new RecordingInputStream(inStream, expectedSize);
+    int fieldCount;
+    int nullFieldsOffset = 0;
+    int nullFieldsLength = 0;
+    if (staticEncoding) {
+      fieldCount = coders.length;
+    } else {
+      fieldCount = VarInt.decodeInt(in);
+      nullFieldsLength = VarInt.decodeInt(in);
+      nullFieldsOffset = in.position();
+      in.skipBytes(nullFieldsLength);
+    }
+    int[] fieldOffsets = new int[coders.length];
+    // Fields which are not present in the encoding, because the schema was evolved to contain more
+    // fields, are null.
+    Arrays.fill(fieldOffsets, -1);
+    Object[] decodedValues = new Object[coders.length];
+    // In the case of a schema change going backwards, fieldCount might be > coders.length, in which
+    // case we drop the extra fields.
+    int presentFieldCount = Math.min(fieldCount, coders.length);
+    for (int encodingPos = 0; encodingPos < presentFieldCount; ++encodingPos) {
+      if (isNull(in.buffer(), nullFieldsOffset, nullFieldsLength, encodingPos)) {
+        continue;
+      }
+      int rowIndex = encodingPosToRowIndex[encodingPos];
+      fieldOffsets[rowIndex] = in.position();
+      int fieldEncoding = fieldEncodings[encodingPos];
+      switch (fieldEncoding) {
+        case VAR_INT:
+          VarInt.decodeLong(in);
+          break;
+        case LENGTH_PREFIXED:
+          in.skipBytes(VarInt.decodeInt(in));
+          break;
+        case DECIMAL:
+          // The scale followed by the length prefixed unscaled value.
+          VarInt.decodeInt(in);
+          in.skipBytes(VarInt.decodeInt(in));
+          break;
+        case DECODE:
+          decodedValues[rowIndex] = coders[encodingPos].decode(in);
+          break;
+        default:
+          in.skipBytes(fieldEncoding);
+      }
+    }
+    byte[] encoded = in.toByteArray();
+    expectedSize = encoded.length;
+    return new RowWithEncodedStorage(schema, encoded, fieldOffsets, decodedValues, this);
+  }
+
+  // Reads the bitmap encoded by BitSetCoder without decoding it.
+  private static boolean isNull(byte[] buffer, int offset, int length, int encodingPos) {
+    int index = encodingPos >>> 3;
+    return index < length && (buffer[offset + index] & (1 << (encodingPos & 7))) != 0;
+  }
+
+  @Override
+  public Object decodeField(byte[] encoded, int offset, int fieldIdx) throws IOException {
+    return rowIndexCoders[fieldIdx].decode(
+        new ByteArrayInputStream(encoded, offset, encoded.length - offset));
+  }
+
+  @Override
+  public String toString() {
+    return "LazyRowCoder{schema=" + schema + "}";
+  }
+
+  /** An {@link InputStream} which records all bytes read from the underlying stream. */
+  private static class RecordingInputStream extends InputStream {
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+
+    RecordingInputStream(InputStream in, int initialSize) {
+      this.in = in;
+      this.buffer = new byte[Math.max(1, initialSize)];
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+      if (read > 0) {
+        ensureCapacity(read);
+        System.arraycopy(b, off, buffer, position, read);
+        position += read;
+      }
+      return read;
+    }
+
+    /** Reads and records exactly {@code length} bytes. */
+    void skipBytes(int length) throws IOException {
+      ensureCapacity(length);
+      ByteStreams.readFully(in, buffer, position, length);
+      position += length;
+    }
+
+    int position() {
+      return position;
+    }
+
+    byte[] buffer() {
+      return buffer;
+    }
+
+    byte[] toByteArray() {
+      return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+      if (buffer.length - position < length) {
+        buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, position + length));
+      }
+    }
+  }
+}
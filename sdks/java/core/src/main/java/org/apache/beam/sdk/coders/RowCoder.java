@@ -45,11 +45,21 @@ public class RowCoder extends SchemaCoder<Row> {
   }
 
   private RowCoder(Schema schema) {
+    this(schema, false);
+  }
+
+  private RowCoder(Schema schema, boolean lazyRowDecoding) {
     super(
         schema,
         TypeDescriptors.rows(),
         SerializableFunctions.identity(),
-        SerializableFunctions.identity());
+        SerializableFunctions.identity(),
+        lazyRowDecoding);
+  }
+
+  @Override
+  public RowCoder withLazyRowDecoding() {
+    return new RowCoder(schema, true);
   }
 
   @Override
@@ -62,11 +72,11 @@ public class RowCoder extends SchemaCoder<Row> {
       return false;
     }
     RowCoder rowCoder = (RowCoder) o;
-    return schema.equals(rowCoder.schema);
+    return schema.equals(rowCoder.schema) && isLazyRowDecoding() == rowCoder.isLazyRowDecoding();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema);
+    return Objects.hash(schema, isLazyRowDecoding());
   }
 }
@@ -98,6 +98,9 @@ import org.slf4j.LoggerFactory;
  *   }
  * }
  * </code></pre>
+ *
+ * <p>{@link RowCoderGenerator#generateLazy(Schema)} returns a coder with the same encoding which
+ * decodes rows lazily, see {@link LazyRowCoder}.
  */
 @SuppressWarnings({
   "nullness", // TODO(https://github.com/apache/beam/issues/20497)
@@ -137,6 +140,14 @@ public abstract class RowCoderGenerator {
   @GuardedBy("cacheLock")
   private static final Map<UUID, WithStackTrace<Coder<Row>>> GENERATED_CODERS = Maps.newHashMap();
 
+  // The encoding positions used by the generated coders, which lazily decoding coders must share.
+  @GuardedBy("cacheLock")
+  private static final Map<UUID, int[]> GENERATED_ENCODING_POS_TO_ROW_INDEX = Maps.newHashMap();
+
+  // Cache for lazily decoding coders.
+  @GuardedBy("cacheLock")
+  private static final Map<UUID, Coder<Row>> LAZY_CODERS = Maps.newHashMap();
+
   @GuardedBy("cacheLock")
   private static final Map<UUID, WithStackTrace<Map<String, Integer>>> ENCODING_POSITION_OVERRIDES =
       Maps.newHashMap();
@@ -195,6 +206,8 @@ public abstract class RowCoderGenerator {
   static void clearRowCoderCache() {
     synchronized (cacheLock) {
       GENERATED_CODERS.clear();
+      GENERATED_ENCODING_POS_TO_ROW_INDEX.clear();
+      LAZY_CODERS.clear();
     }
   }
 
@@ -270,6 +283,7 @@ public abstract class RowCoderGenerator {
       }
       String stackTrace = getStackTrace();
       GENERATED_CODERS.put(uuid, new WithStackTrace<>(rowCoder, stackTrace));
+      GENERATED_ENCODING_POS_TO_ROW_INDEX.put(uuid, encodingPosToRowIndex);
       LOG.debug(
           "Created row coder for uuid {} with encoding positions {} at {}",
           uuid,
@@ -279,6 +293,25 @@ public abstract class RowCoderGenerator {
     }
   }
 
+  /**
+   * Returns a {@link Coder} for {@link Row} objects with the same encoding as the coder returned by
+   * {@link #generate(Schema)} which decodes the fields of each row when they are first accessed.
+   */
+  public static Coder<Row> generateLazy(Schema schema) {
+    UUID uuid = Preconditions.checkNotNull(schema.getUUID());
+    synchronized (cacheLock) {
+      @Nullable Coder<Row> existingRowCoder = LAZY_CODERS.get(uuid);
+      if (existingRowCoder != null) {
+        return existingRowCoder;
+      }
+      Coder<Row> generatedCoder = generate(schema);
+      Coder<Row> rowCoder =
+          new LazyRowCoder(schema, generatedCoder, GENERATED_ENCODING_POS_TO_ROW_INDEX.get(uuid));
+      LAZY_CODERS.put(uuid, rowCoder);
+      return rowCoder;
+    }
+  }
+
   private static class GeneratedCoderConstructor implements Implementation {
     @Override
     public InstrumentedType prepare(InstrumentedType instrumentedType) {
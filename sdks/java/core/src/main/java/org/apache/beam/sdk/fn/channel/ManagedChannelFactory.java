@@ -140,4 +140,12 @@ public class ManagedChannelFactory {
   public ManagedChannelFactory withDirectExecutor() {
     return new ManagedChannelFactory(type, interceptors, true);
   }
+
+  /**
+   * Returns whether the channels created by this factory are in-process channels, which pass
+   * messages to the server without serializing them.
+   */
+  public boolean isInProcess() {
+    return type == Type.IN_PROCESS;
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Chooses how many bytes an outbound endpoint buffers and for how long before flushing based upon
+ * how long previous flushes spent in {@code onNext}, which is dominated by waiting for the gRPC
+ * stream to become ready, and the rate at which the endpoint produces data.
+ *
+ * <p>For streaming pipelines the linger time is chosen such that the time an element spends
+ * buffered plus the time to send it meets the target latency and the size is chosen such that the
+ * buffer fills up within the linger time.
+ *
+ * <p>For batch pipelines there is no linger time and the size is increased while sending is cheap
+ * relative to filling the buffer since larger messages amortize the per message overhead. The size
+ * is decreased when sending is blocked for longer than it takes to fill the buffer since the
+ * consumer is the bottleneck and smaller buffers limit the memory held while blocked.
+ *
+ * <p>The size is never less than a few elements to avoid flushing for every element.
+ */
+@NotThreadSafe
+class AdaptiveFlushPolicy {
+  // The weight given to the latest observation in the moving averages.
+  private static final double ALPHA = 0.25;
+  private static final int MIN_ELEMENTS_PER_FLUSH = 4;
+
+  private final boolean streaming;
+  private final long targetLatencyNanos;
+  private final int minSizeLimit;
+  private final int maxSizeLimit;
+
+  private int sizeLimit;
+  private long lingerNanos;
+  private double averageSendNanos;
+  private double averageBytesPerNano;
+  private double averageElementSize;
+  private boolean hasObservations;
+
+  AdaptiveFlushPolicy(
+      boolean streaming,
+      long targetLatencyNanos,
+      int initialSizeLimit,
+      int minSizeLimit,
+      int maxSizeLimit) {
+    this.streaming = streaming;
+    this.targetLatencyNanos = targetLatencyNanos;
+    this.minSizeLimit = minSizeLimit;
+    this.maxSizeLimit = maxSizeLimit;
+    this.sizeLimit = clamp(initialSizeLimit);
+    this.lingerNanos = streaming ? targetLatencyNanos : Long.MAX_VALUE;
+  }
+
+  /** The number of buffered bytes which should trigger a flush. */
+  int getSizeLimit() {
+    return sizeLimit;
+  }
+
+  /**
+   * The maximum amount of time data should be buffered before it is flushed or {@link
+   * Long#MAX_VALUE} if data should only be flushed based upon size.
+   */
+  long getLingerNanos() {
+    return lingerNanos;
+  }
+
+  /**
+   * Updates the policy after a flush.
+   *
+   * @param bytes the number of bytes flushed
+   * @param elements the number of elements flushed
+   * @param fillNanos the time between the first element being buffered and the flush
+   * @param sendNanos the time spent passing the flushed data to the outbound observer
+   */
+  void onFlush(long bytes, long elements, long fillNanos, long sendNanos) {
+    if (bytes <= 0 || elements <= 0) {
+      return;
+    }
+    double bytesPerNano = (double) bytes / Math.max(1, fillNanos);
+    double elementSize = (double) bytes / elements;
+    if (hasObservations) {
+      averageSendNanos += ALPHA * (sendNanos - averageSendNanos);
+      averageBytesPerNano += ALPHA * (bytesPerNano - averageBytesPerNano);
+      averageElementSize += ALPHA * (elementSize - averageElementSize);
+    } else {
+      averageSendNanos = sendNanos;
+      averageBytesPerNano = bytesPerNano;
+      averageElementSize = elementSize;
+      hasObservations = true;
+    }
+
+    long newSizeLimit;
+    if (streaming) {
+      // Leave enough of the target latency for sending but always allow some time for buffering.
+      lingerNanos = Math.max(targetLatencyNanos / 10, targetLatencyNanos - (long) averageSendNanos);
+      newSizeLimit = (long) (averageBytesPerNano * lingerNanos);
+    } else if (sendNanos * 10 < fillNanos) {
+      newSizeLimit = 2L * sizeLimit;
+    } else if (sendNanos > fillNanos) {
+      newSizeLimit = sizeLimit / 2;
+    } else {
+      newSizeLimit = sizeLimit;
+    }
+    sizeLimit = clamp(Math.max(newSizeLimit, (long) (MIN_ELEMENTS_PER_FLUSH * averageElementSize)));
+  }
+
+  private int clamp(long size) {
+    return (int) Math.max(minSizeLimit, Math.min(maxSizeLimit, size));
+  }
+}
@@ -228,8 +228,21 @@ public class BeamFnDataInboundObserver implements CloseableFnDataReceiver<BeamFn
       }
       Coder<Object> coder = (Coder<Object>) endpoint.endpoint.getCoder();
       FnDataReceiver<Object> receiver = (FnDataReceiver<Object>) endpoint.endpoint.getReceiver();
-      while (inputStream.available() > 0) {
-        receiver.accept(coder.decode(inputStream));
+      if (receiver instanceof PrefetchingFnDataReceiver) {
+        // Decode the whole block up front so the receiver can start fetching what all of its
+        // elements need before processing the first one.
+        List<Object> decoded = new ArrayList<>();
+        while (inputStream.available() > 0) {
+          decoded.add(coder.decode(inputStream));
+        }
+        ((PrefetchingFnDataReceiver<Object>) receiver).prefetch(decoded);
+        for (Object element : decoded) {
+          receiver.accept(element);
+        }
+      } else {
+        while (inputStream.available() > 0) {
+          receiver.accept(coder.decode(inputStream));
+        }
       }
       if (isLast) {
         endpoint.isDone = true;
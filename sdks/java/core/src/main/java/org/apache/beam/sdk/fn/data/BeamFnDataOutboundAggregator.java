@@ -21,6 +21,9 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -31,12 +34,17 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.fn.stream.BufferingStreamObserver;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.StreamingOptions;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
@@ -54,11 +62,27 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The default time-based buffer threshold can be overridden by specifying the experiment {@code
  * data_buffer_time_limit_ms=<milliseconds>}
+ *
+ * <p>Specifying the experiment {@code data_buffer_zero_copy} encodes elements into pooled direct
+ * {@link ByteBuffer}s which are sent without being copied into the outbound {@link Elements}. The
+ * buffers are reused once the outbound {@link StreamObserver} returns from {@link
+ * StreamObserver#onNext} so the experiment only takes effect when the aggregator is created for a
+ * transport which serializes the {@link Elements} within that call, such as a gRPC stream over the
+ * network but not an in-process one. Output for instructions whose outbound observer is a {@link
+ * BufferingStreamObserver}, which retains the {@link Elements} until they are drained, is copied.
+ *
+ * <p>Specifying the experiment {@code data_buffer_adaptive} sizes the buffer of each endpoint
+ * independently based upon how long sending previous flushes blocked on the outbound stream and the
+ * rate at which the endpoint produces output, see {@link AdaptiveFlushPolicy}. The size limit above
+ * becomes the initial size of each endpoint's buffer and the time limit bounds how long output is
+ * buffered for. Streaming pipelines additionally flush each endpoint such that output is sent
+ * within the target latency which can be overridden by specifying the experiment {@code
+ * data_buffer_target_latency_ms=<milliseconds>}.
  */
-// The calling thread that invokes sendOrCollectBufferedDataAndFinishOutboundStreams synchronizes on
+// The calling thread that invokes sendOrCollectBufferedDataAndFinishOutboundStreams acquires
 // flushLock effectively making the periodic flushing no longer read or mutate hasFlushedForBundle
 // and allowing the calling thread to read and mutate hasFlushedForBundle safely without needing to
-// create another memory barrier. Also note that flush is always invoked when synchronizing on
+// create another memory barrier. Also note that flush is always invoked while holding
 // flushLock when there is a periodic flushing thread.
 @NotThreadSafe
 public class BeamFnDataOutboundAggregator {
@@ -67,51 +91,117 @@ public class BeamFnDataOutboundAggregator {
   public static final int DEFAULT_BUFFER_LIMIT_BYTES = 1_000_000;
   public static final String DATA_BUFFER_TIME_LIMIT_MS = "data_buffer_time_limit_ms=";
   public static final long DEFAULT_BUFFER_LIMIT_TIME_MS = -1L;
+  public static final String DATA_BUFFER_ZERO_COPY = "data_buffer_zero_copy";
+  public static final String DATA_BUFFER_ADAPTIVE = "data_buffer_adaptive";
+  public static final String DATA_BUFFER_TARGET_LATENCY_MS = "data_buffer_target_latency_ms=";
+  public static final long DEFAULT_BUFFER_TARGET_LATENCY_MS = 100L;
+
+  // Large enough to amortize acquiring chunks from the pool while limiting the space that is
+  // held by each endpoint which has buffered output.
+  @VisibleForTesting static final int ZERO_COPY_CHUNK_SIZE = 32 * 1024;
 
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataOutboundAggregator.class);
   private final int sizeLimit;
   private final long timeLimit;
+  @Nullable private final PooledByteBufferOutputStream.Pool bufferPool;
+  private final boolean adaptive;
+  private final boolean streaming;
+  private final long targetLatencyNanos;
+  // The longest time that output is buffered for, Long.MAX_VALUE if output is only flushed based
+  // upon size.
+  private final long maxLingerNanos;
+  // The receivers whose buffered output is being sent.
+  private final List<Receiver<?>> flushedReceivers = new ArrayList<>();
   // The instructionId is set between prepareForInstruction and finishInstruction/discard.
   private @Nullable String instructionId = null;
   @VisibleForTesting final Map<String, Receiver<?>> outputDataReceivers = new HashMap<>();
   @VisibleForTesting final Map<TimerEndpoint, Receiver<?>> outputTimersReceivers = new HashMap<>();
   @Nullable private StreamObserver<Elements> outboundObserver;
+  // Whether the current instruction encodes into pooled buffers, only if the outbound observer
+  // doesn't retain the Elements passed to it.
+  private boolean zeroCopy = false;
   @Nullable @VisibleForTesting ScheduledFuture<?> flushFuture;
   private long bytesWrittenSinceFlush = 0;
-  private final Object flushLock = new Object();
+  // Guards the buffered output and outbound observer against the periodic flushing thread.
+  private final ReentrantLock flushLock = new ReentrantLock();
   private final boolean collectElementsIfNoFlushes;
   private boolean hasFlushedForBundle = false;
 
   public BeamFnDataOutboundAggregator(PipelineOptions options, boolean collectElementsIfNoFlushes) {
+    this(options, collectElementsIfNoFlushes, false);
+  }
+
+  /**
+   * Creates an aggregator which uses the zero copy encoding path if the experiment {@code
+   * data_buffer_zero_copy} is specified and {@code serializingTransport} is true, meaning that the
+   * outbound observers passed to {@link #prepareForInstruction} serialize the {@link Elements}
+   * before returning from {@link StreamObserver#onNext}.
+   */
+  public BeamFnDataOutboundAggregator(
+      PipelineOptions options, boolean collectElementsIfNoFlushes, boolean serializingTransport) {
     this.sizeLimit = getSizeLimit(options);
-    this.timeLimit = getTimeLimit(options);
+    this.adaptive = ExperimentalOptions.hasExperiment(options, DATA_BUFFER_ADAPTIVE);
+    this.streaming = options.as(StreamingOptions.class).isStreaming();
+    long timeLimit = getTimeLimit(options);
+    long maxLingerMillis = timeLimit > 0 ? timeLimit : Long.MAX_VALUE;
+    if (adaptive && streaming) {
+      long targetLatencyMillis = getTargetLatency(options);
+      this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+      maxLingerMillis = Math.min(maxLingerMillis, targetLatencyMillis);
+    } else {
+      this.targetLatencyNanos = -1L;
+    }
+    this.maxLingerNanos =
+        maxLingerMillis == Long.MAX_VALUE
+            ? Long.MAX_VALUE
+            : TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+    if (adaptive && maxLingerMillis != Long.MAX_VALUE) {
+      // Endpoints are flushed once their output has been buffered for longer than their linger
+      // time so check several times within the linger time to not overshoot it by much.
+      timeLimit = Math.max(1L, maxLingerMillis / 4);
+    }
+    this.timeLimit = timeLimit;
+    this.bufferPool =
+        serializingTransport && ExperimentalOptions.hasExperiment(options, DATA_BUFFER_ZERO_COPY)
+            ? new PooledByteBufferOutputStream.Pool(
+                ZERO_COPY_CHUNK_SIZE, Math.max(4, 2 * sizeLimit / ZERO_COPY_CHUNK_SIZE))
+            : null;
     this.collectElementsIfNoFlushes = collectElementsIfNoFlushes;
   }
 
   public void prepareForInstruction(
       String instructionId, StreamObserver<Elements> outboundObserver) {
     if (timeLimit > 0) {
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         checkState(this.instructionId == null && this.outboundObserver == null);
         this.instructionId = instructionId;
         this.outboundObserver = outboundObserver;
+        this.zeroCopy =
+            bufferPool != null && !(outboundObserver instanceof BufferingStreamObserver);
+      } finally {
+        flushLock.unlock();
       }
     } else {
       checkState(this.instructionId == null && this.outboundObserver == null);
       this.instructionId = instructionId;
       this.outboundObserver = outboundObserver;
+      this.zeroCopy = bufferPool != null && !(outboundObserver instanceof BufferingStreamObserver);
     }
   }
 
   public void finishInstruction() {
     if (flushFuture != null) {
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         checkState(
             this.instructionId != null && this.outboundObserver != null,
             "instruction was not started or previously completed");
         checkState(bytesWrittenSinceFlush == 0, "bytes were not flushed for instruction");
         this.instructionId = null;
         this.outboundObserver = null;
+      } finally {
+        flushLock.unlock();
       }
     } else {
       checkState(this.instructionId != null && this.outboundObserver != null);
@@ -148,8 +238,11 @@ public class BeamFnDataOutboundAggregator {
       outputDataReceivers.put(pTransformId, receiver);
       return data -> {
         checkFlushThreadException();
-        synchronized (flushLock) {
+        flushLock.lock();
+        try {
           receiver.accept(data);
+        } finally {
+          flushLock.unlock();
         }
       };
     }
@@ -173,8 +266,11 @@ public class BeamFnDataOutboundAggregator {
       outputTimersReceivers.put(timerKey, receiver);
       return timers -> {
         checkFlushThreadException();
-        synchronized (flushLock) {
+        flushLock.lock();
+        try {
           receiver.accept(timers);
+        } finally {
+          flushLock.unlock();
         }
       };
     }
@@ -182,15 +278,54 @@ public class BeamFnDataOutboundAggregator {
     return receiver;
   }
 
+  /** Returns whether each endpoint's buffer is sized adaptively. */
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  /** Returns the statistics describing how the outbound data endpoint is flushed. */
+  public FlushStatistics getDataFlushStatistics(String pTransformId) {
+    return checkNotNull(
+        outputDataReceivers.get(pTransformId),
+        "No outbound data endpoint registered for %s",
+        pTransformId);
+  }
+
   private void flushInternal() {
     if (bytesWrittenSinceFlush == 0) {
       return;
     }
-    Elements.Builder elements = convertBufferForTransmission();
+    send(convertBufferForTransmission(receiver -> true));
+  }
+
+  /** Flushes the endpoints whose output has been buffered for longer than their linger time. */
+  private void flushExpiredInternal() {
+    if (bytesWrittenSinceFlush == 0) {
+      return;
+    }
+    long nowNanos = System.nanoTime();
+    send(convertBufferForTransmission(receiver -> receiver.hasExpired(nowNanos)));
+  }
+
+  private void send(Elements.Builder elements) {
     if (elements.getDataCount() > 0 || elements.getTimersCount() > 0) {
+      long startNanos = System.nanoTime();
       checkNotNull(outboundObserver).onNext(elements.build());
+      onSent(System.nanoTime() - startNanos, true);
+      hasFlushedForBundle = true;
     }
-    hasFlushedForBundle = true;
+    recycleSentBuffers();
+  }
+
+  /**
+   * Records the time spent in {@link StreamObserver#onNext} sending the output of the flushed
+   * receivers which is dominated by the time blocked waiting for the outbound stream to be ready.
+   */
+  private void onSent(long sendNanos, boolean updateFlushPolicy) {
+    for (Receiver<?> receiver : flushedReceivers) {
+      receiver.onSent(sendNanos, updateFlushPolicy);
+    }
+    flushedReceivers.clear();
   }
 
   /**
@@ -210,11 +345,14 @@ public class BeamFnDataOutboundAggregator {
             "This method should only be called between prepareForInstruction and finishInstruction");
     Elements.Builder bufferedElements;
     if (timeLimit > 0) {
-      synchronized (flushLock) {
-        bufferedElements = convertBufferForTransmission();
+      flushLock.lock();
+      try {
+        bufferedElements = convertBufferForTransmission(receiver -> true);
+      } finally {
+        flushLock.unlock();
       }
     } else {
-      bufferedElements = convertBufferForTransmission();
+      bufferedElements = convertBufferForTransmission(receiver -> true);
     }
     LOG.debug(
         "Closing streams for instruction {} and outbound data {} and timers {}.",
@@ -242,18 +380,65 @@ public class BeamFnDataOutboundAggregator {
     }
     // This is the end of the bundle so we reset state to prepare for future bundles.
     if (collectElementsIfNoFlushes && !hasFlushedForBundle) {
+      // The collected elements are returned to the caller so their buffers can't be reused.
+      dropSentBuffers();
+      flushedReceivers.clear();
       return bufferedElements.build();
     }
+    long startNanos = System.nanoTime();
     checkNotNull(outboundObserver).onNext(bufferedElements.build());
+    long sendNanos = System.nanoTime() - startNanos;
+    // The output buffered at the end of the bundle doesn't reflect how quickly the buffer fills up
+    // so it is only accounted for in the send time and not used to resize the buffers.
+    if (timeLimit > 0) {
+      flushLock.lock();
+      try {
+        onSent(sendNanos, false);
+        recycleSentBuffers();
+      } finally {
+        flushLock.unlock();
+      }
+    } else {
+      onSent(sendNanos, false);
+      recycleSentBuffers();
+    }
     hasFlushedForBundle = false;
     return null;
   }
 
+  /** Reuses the buffers of all output which has been passed to the outbound observer. */
+  private void recycleSentBuffers() {
+    if (bufferPool == null) {
+      return;
+    }
+    for (Receiver<?> receiver : outputDataReceivers.values()) {
+      receiver.recycleSentBuffers();
+    }
+    for (Receiver<?> receiver : outputTimersReceivers.values()) {
+      receiver.recycleSentBuffers();
+    }
+  }
+
+  private void dropSentBuffers() {
+    if (bufferPool == null) {
+      return;
+    }
+    for (Receiver<?> receiver : outputDataReceivers.values()) {
+      receiver.dropSentBuffers();
+    }
+    for (Receiver<?> receiver : outputTimersReceivers.values()) {
+      receiver.dropSentBuffers();
+    }
+  }
+
   // Send the elements to the StreamObserver associated with this aggregator.
   public void sendElements(Elements elements) {
     if (timeLimit > 0) {
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         checkNotNull(outboundObserver).onNext(elements);
+      } finally {
+        flushLock.unlock();
       }
     } else {
       checkNotNull(outboundObserver).onNext(elements);
@@ -265,9 +450,12 @@ public class BeamFnDataOutboundAggregator {
   public void discard() {
     if (timeLimit > 0) {
       // Short-circuit the possibly concurrently running flush.
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         bytesWrittenSinceFlush = 0L;
         finishInstruction();
+      } finally {
+        flushLock.unlock();
       }
       if (flushFuture != null) {
         flushFuture.cancel(false);
@@ -278,18 +466,17 @@ public class BeamFnDataOutboundAggregator {
     }
   }
 
-  private Elements.Builder convertBufferForTransmission() {
+  private Elements.Builder convertBufferForTransmission(Predicate<Receiver<?>> shouldFlush) {
     Elements.Builder bufferedElements = Elements.newBuilder();
     if (bytesWrittenSinceFlush == 0) {
       return bufferedElements;
     }
-    bytesWrittenSinceFlush = 0L;
     String instructionId =
         checkNotNull(
             this.instructionId,
             "This method should only be called between prepareForInstruction and finishInstruction");
     for (Map.Entry<String, Receiver<?>> entry : outputDataReceivers.entrySet()) {
-      if (!entry.getValue().hasBufferedOutput()) {
+      if (!entry.getValue().hasBufferedOutput() || !shouldFlush.test(entry.getValue())) {
         continue;
       }
       ByteString bytes = entry.getValue().toByteStringAndResetBuffer();
@@ -300,7 +487,7 @@ public class BeamFnDataOutboundAggregator {
           .setData(bytes);
     }
     for (Map.Entry<TimerEndpoint, Receiver<?>> entry : outputTimersReceivers.entrySet()) {
-      if (!entry.getValue().hasBufferedOutput()) {
+      if (!entry.getValue().hasBufferedOutput() || !shouldFlush.test(entry.getValue())) {
         continue;
       }
       ByteString bytes = entry.getValue().toByteStringAndResetBuffer();
@@ -316,8 +503,15 @@ public class BeamFnDataOutboundAggregator {
 
   void flush() {
     try {
-      synchronized (flushLock) {
-        flushInternal();
+      flushLock.lock();
+      try {
+        if (adaptive) {
+          flushExpiredInternal();
+        } else {
+          flushInternal();
+        }
+      } finally {
+        flushLock.unlock();
       }
     } catch (OutOfMemoryError oom) {
       throw oom;
@@ -373,33 +567,103 @@ public class BeamFnDataOutboundAggregator {
     return DEFAULT_BUFFER_LIMIT_TIME_MS;
   }
 
+  private static long getTargetLatency(PipelineOptions options) {
+    List<String> experiments = options.as(ExperimentalOptions.class).getExperiments();
+    for (String experiment : experiments == null ? Collections.<String>emptyList() : experiments) {
+      if (experiment.startsWith(DATA_BUFFER_TARGET_LATENCY_MS)) {
+        return Long.parseLong(experiment.substring(DATA_BUFFER_TARGET_LATENCY_MS.length()));
+      }
+    }
+    return DEFAULT_BUFFER_TARGET_LATENCY_MS;
+  }
+
+  /**
+   * Statistics describing how an outbound endpoint is flushed, which may be read from any thread.
+   */
+  public interface FlushStatistics {
+    /** The number of buffered bytes which triggers a flush of the endpoint. */
+    int getFlushSizeLimit();
+
+    /**
+     * The longest time the endpoint's output is buffered for in milliseconds or -1 if the output is
+     * only flushed based upon size.
+     */
+    long getFlushLingerMillis();
+
+    /**
+     * The total time spent sending messages containing the endpoint's output, which includes the
+     * time blocked waiting for the outbound stream to be ready.
+     */
+    long getTotalSendNanos();
+  }
+
   @VisibleForTesting
-  class Receiver<T> implements FnDataReceiver<T> {
+  class Receiver<T> implements FnDataReceiver<T>, FlushStatistics {
     private final ByteStringOutputStream output;
+    // Used instead of output when the zero copy encoding path is enabled.
+    private final @Nullable PooledByteBufferOutputStream pooledOutput;
+    // Used instead of sizeLimit when adaptive flushing is enabled.
+    private final @Nullable AdaptiveFlushPolicy flushPolicy;
     private final Coder<T> coder;
     private long perBundleByteCount;
     private long perBundleElementCount;
+    private long bytesSinceFlush;
+    private long elementsSinceFlush;
+    private long firstBufferedNanos;
+    // Describes the most recent flush until its output has been sent.
+    private long flushedBytes;
+    private long flushedElements;
+    private long flushedFillNanos;
+    // Read by the progress reporting thread.
+    private volatile int flushSizeLimit;
+    private volatile long flushLingerNanos;
+    private final AtomicLong totalSendNanos = new AtomicLong();
 
     public Receiver(Coder<T> coder) {
       this.output = new ByteStringOutputStream();
+      this.pooledOutput = bufferPool == null ? null : new PooledByteBufferOutputStream(bufferPool);
+      this.flushPolicy =
+          adaptive
+              ? new AdaptiveFlushPolicy(
+                  streaming,
+                  targetLatencyNanos,
+                  sizeLimit,
+                  Math.max(1, sizeLimit / 16),
+                  (int) Math.min(Integer.MAX_VALUE, 4L * sizeLimit))
+              : null;
       this.coder = coder;
       this.perBundleByteCount = 0L;
       this.perBundleElementCount = 0L;
+      this.flushSizeLimit = flushPolicy == null ? sizeLimit : flushPolicy.getSizeLimit();
+      this.flushLingerNanos =
+          flushPolicy == null
+              ? maxLingerNanos
+              : Math.min(maxLingerNanos, flushPolicy.getLingerNanos());
     }
 
     @Override
     public void accept(T input) throws Exception {
-      int size = output.size();
-      coder.encode(input, output);
-      long delta = (long) output.size() - size;
+      if (flushPolicy != null && bytesSinceFlush == 0) {
+        firstBufferedNanos = System.nanoTime();
+      }
+      OutputStream stream = zeroCopy && pooledOutput != null ? pooledOutput : output;
+      int size = bufferedSize();
+      coder.encode(input, stream);
+      long delta = (long) bufferedSize() - size;
       if (delta == 0) {
-        output.write(0);
+        stream.write(0);
         delta = 1;
       }
       bytesWrittenSinceFlush += delta;
+      bytesSinceFlush += delta;
+      elementsSinceFlush += 1;
       perBundleByteCount += delta;
       perBundleElementCount += 1;
-      if (bytesWrittenSinceFlush > sizeLimit) {
+      if (flushPolicy != null) {
+        if (bytesSinceFlush > flushSizeLimit) {
+          send(convertBufferForTransmission(receiver -> receiver == this));
+        }
+      } else if (bytesWrittenSinceFlush > sizeLimit) {
         flushInternal();
       }
     }
@@ -414,14 +678,71 @@ public class BeamFnDataOutboundAggregator {
       return perBundleElementCount;
     }
 
+    private int bufferedSize() {
+      return pooledOutput == null ? output.size() : output.size() + pooledOutput.size();
+    }
+
     public boolean hasBufferedOutput() {
-      return !output.isEmpty();
+      return !output.isEmpty() || (pooledOutput != null && !pooledOutput.isEmpty());
     }
 
     public ByteString toByteStringAndResetBuffer() {
+      bytesWrittenSinceFlush -= bytesSinceFlush;
+      flushedBytes = bytesSinceFlush;
+      flushedElements = elementsSinceFlush;
+      flushedFillNanos = flushPolicy == null ? 0L : System.nanoTime() - firstBufferedNanos;
+      bytesSinceFlush = 0L;
+      elementsSinceFlush = 0L;
+      flushedReceivers.add(this);
+      // Output is only buffered in one of the streams since the outbound observer, and with it
+      // whether output is pooled, only changes between instructions after all output was sent.
+      if (pooledOutput != null && !pooledOutput.isEmpty()) {
+        return pooledOutput.toByteStringAndReset();
+      }
       return this.output.toByteStringAndReset();
     }
 
+    boolean hasExpired(long nowNanos) {
+      return nowNanos - firstBufferedNanos >= flushLingerNanos;
+    }
+
+    void onSent(long sendNanos, boolean updateFlushPolicy) {
+      totalSendNanos.addAndGet(sendNanos);
+      if (flushPolicy != null && updateFlushPolicy) {
+        flushPolicy.onFlush(flushedBytes, flushedElements, flushedFillNanos, sendNanos);
+        flushSizeLimit = flushPolicy.getSizeLimit();
+        flushLingerNanos = Math.min(maxLingerNanos, flushPolicy.getLingerNanos());
+      }
+    }
+
+    @Override
+    public int getFlushSizeLimit() {
+      return flushSizeLimit;
+    }
+
+    @Override
+    public long getFlushLingerMillis() {
+      long lingerNanos = flushLingerNanos;
+      return lingerNanos == Long.MAX_VALUE ? -1L : TimeUnit.NANOSECONDS.toMillis(lingerNanos);
+    }
+
+    @Override
+    public long getTotalSendNanos() {
+      return totalSendNanos.get();
+    }
+
+    void recycleSentBuffers() {
+      if (pooledOutput != null) {
+        pooledOutput.recycleSentChunks();
+      }
+    }
+
+    void dropSentBuffers() {
+      if (pooledOutput != null) {
+        pooledOutput.dropSentChunks();
+      }
+    }
+
     public void resetStats() {
       this.perBundleElementCount = 0L;
       this.perBundleByteCount = 0L;
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * An {@link OutputStream} that writes into fixed size direct {@link ByteBuffer} chunks borrowed
+ * from a {@link Pool} and produces {@link ByteString}s which wrap the chunks without copying.
+ *
+ * <p>Chunks referenced by a {@link ByteString} returned from {@link #toByteStringAndReset()} are
+ * retained by this stream until either {@link #recycleSentChunks()} returns them to the pool, which
+ * is only safe once the {@link ByteString} is no longer referenced, or {@link #dropSentChunks()}
+ * releases them to the garbage collector.
+ */
+@NotThreadSafe
+class PooledByteBufferOutputStream extends OutputStream {
+
+  /** A bounded pool of direct {@link ByteBuffer} chunks. */
+  @ThreadSafe
+  static class Pool {
+    private final int chunkSize;
+    private final int maxPooledChunks;
+    private final ArrayDeque<ByteBuffer> chunks;
+
+    Pool(int chunkSize, int maxPooledChunks) {
+      this.chunkSize = chunkSize;
+      this.maxPooledChunks = maxPooledChunks;
+      this.chunks = new ArrayDeque<>();
+    }
+
+    synchronized ByteBuffer acquire() {
+      @Nullable ByteBuffer chunk = chunks.pollLast();
+      if (chunk == null) {
+        return ByteBuffer.allocateDirect(chunkSize);
+      }
+      chunk.clear();
+      return chunk;
+    }
+
+    synchronized void release(List<ByteBuffer> released) {
+      for (ByteBuffer chunk : released) {
+        if (chunks.size() >= maxPooledChunks) {
+          return;
+        }
+        chunks.addLast(chunk);
+      }
+    }
+
+    synchronized int size() {
+      return chunks.size();
+    }
+  }
+
+  private final Pool pool;
+  // The chunks which have been filled, the current chunk is not included.
+  private final List<ByteBuffer> filled;
+  // The chunks referenced by ByteStrings which were returned by toByteStringAndReset.
+  private final List<ByteBuffer> sent;
+  private @Nullable ByteBuffer current;
+  private int size;
+
+  PooledByteBufferOutputStream(Pool pool) {
+    this.pool = pool;
+    this.filled = new ArrayList<>();
+    this.sent = new ArrayList<>();
+  }
+
+  @Override
+  public void write(int b) {
+    @Nullable ByteBuffer chunk = current;
+    if (chunk == null || !chunk.hasRemaining()) {
+      chunk = nextChunk();
+    }
+    chunk.put((byte) b);
+    size += 1;
+  }
+
+  @Override
+  public void write(byte[] b, int offset, int length) {
+    size += length;
+    while (length > 0) {
+      @Nullable ByteBuffer chunk = current;
+      if (chunk == null || !chunk.hasRemaining()) {
+        chunk = nextChunk();
+      }
+      int bytesToWrite = Math.min(length, chunk.remaining());
+      chunk.put(b, offset, bytesToWrite);
+      offset += bytesToWrite;
+      length -= bytesToWrite;
+    }
+  }
+
+  private ByteBuffer nextChunk() {
+    if (current != null) {
+      filled.add(current);
+    }
+    ByteBuffer chunk = pool.acquire();
+    current = chunk;
+    return chunk;
+  }
+
+  /** Returns the number of bytes written since the last reset. */
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Creates a byte string which wraps the contents of this output stream without copying and resets
+   * the output stream.
+   *
+   * <p>The chunks backing the returned {@link ByteString} are not written to until they are
+   * recycled with {@link #recycleSentChunks()}.
+   */
+  ByteString toByteStringAndReset() {
+    if (current != null) {
+      filled.add(current);
+      current = null;
+    }
+    ByteString result = ByteString.EMPTY;
+    for (ByteBuffer chunk : filled) {
+      ByteBuffer written = chunk.duplicate();
+      written.flip();
+      result = result.concat(UnsafeByteOperations.unsafeWrap(written));
+    }
+    sent.addAll(filled);
+    filled.clear();
+    size = 0;
+    return result;
+  }
+
+  /** Returns the chunks of all previously returned {@link ByteString}s to the pool. */
+  void recycleSentChunks() {
+    if (!sent.isEmpty()) {
+      pool.release(sent);
+      sent.clear();
+    }
+  }
+
+  /**
+   * Forgets the chunks of all previously returned {@link ByteString}s without returning them to
+   * the pool, for when the {@link ByteString}s may be referenced indefinitely.
+   */
+  void dropSentChunks() {
+    sent.clear();
+  }
+}
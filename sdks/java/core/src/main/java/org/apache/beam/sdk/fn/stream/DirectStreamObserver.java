@@ -20,6 +20,7 @@ package org.apache.beam.sdk.fn.stream;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.CallStreamObserver;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
@@ -52,7 +53,8 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
    */
   private final int maxMessagesBeforeCheck;
 
-  private final Object lock = new Object();
+  // Serializes calls to the outbound observer and guards numMessages.
+  private final ReentrantLock lock = new ReentrantLock();
   private int numMessages;
 
   public DirectStreamObserver(Phaser phaser, CallStreamObserver<T> outboundObserver) {
@@ -68,7 +70,8 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
 
   @Override
   public void onNext(T value) {
-    synchronized (lock) {
+    lock.lock();
+    try {
       if (numMessages >= maxMessagesBeforeCheck) {
         numMessages = 0;
         int waitSeconds = 1;
@@ -115,20 +118,28 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
       }
       outboundObserver.onNext(value);
       numMessages += 1;
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void onError(Throwable t) {
-    synchronized (lock) {
+    lock.lock();
+    try {
       outboundObserver.onError(t);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void onCompleted() {
-    synchronized (lock) {
+    lock.lock();
+    try {
       outboundObserver.onCompleted();
+    } finally {
+      lock.unlock();
     }
   }
 }
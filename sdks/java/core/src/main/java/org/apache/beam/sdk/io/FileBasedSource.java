@@ -23,6 +23,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Verify.verify;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
@@ -485,6 +486,8 @@ public abstract class FileBasedSource<T> extends OffsetBasedSource<T> {
    * methods defined here will not be accessed by more than one thread concurrently.
    */
   public abstract static class FileBasedReader<T> extends OffsetBasedReader<T> {
+    // Smaller files are not worth the cost of setting up a memory mapping.
+    private static final long MIN_MEMORY_MAPPED_FILE_SIZE = 1 << 20;
 
     // Initialized in startImpl
     private @Nullable ReadableByteChannel channel = null;
@@ -510,7 +513,14 @@ public abstract class FileBasedSource<T> extends OffsetBasedSource<T> {
       FileBasedSource<T> source = getCurrentSource();
       ResourceId resourceId = source.getSingleFileMetadata().resourceId();
       try {
-        this.channel = FileSystems.open(resourceId);
+        ReadableByteChannel channel = FileSystems.open(resourceId);
+        this.channel = channel;
+        if (prefersMemoryMappedReads()
+            && channel instanceof FileChannel
+            && ((FileChannel) channel).size() >= MIN_MEMORY_MAPPED_FILE_SIZE) {
+          channel = new MappedByteChannel((FileChannel) channel);
+          this.channel = channel;
+        }
         if (channel instanceof SeekableByteChannel) {
           SeekableByteChannel seekChannel = (SeekableByteChannel) channel;
           seekChannel.position(source.getStartOffset());
@@ -542,6 +552,20 @@ public abstract class FileBasedSource<T> extends OffsetBasedSource<T> {
       return readNextRecord();
     }
 
+    /**
+     * Returns whether the reader prefers to read the file through memory mapped regions if the
+     * {@link FileSystem} opens it as a {@link FileChannel}, which the {@link LocalFileSystem} does.
+     * The channel passed to {@link #startReading} is a {@link MappedByteChannel} in this case,
+     * unless the file is small.
+     *
+     * <p>Memory mapping saves a system call per read and allows readers to {@link
+     * MappedByteChannel#slice} records out of the file without copying them. Seeking is cheap as
+     * well. The default implementation returns {@code false}.
+     */
+    protected boolean prefersMemoryMappedReads() {
+      return false;
+    }
+
     /**
      * Closes any {@link ReadableByteChannel} created for the current reader. This implementation is
      * idempotent. Any {@code close()} method introduced by a subclass must be idempotent and must
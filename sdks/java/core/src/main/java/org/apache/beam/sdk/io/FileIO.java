@@ -1423,6 +1423,29 @@ public class FileIO {
       return toBuilder().setBatchMaxBufferingDuration(batchMaxBufferingDuration).build();
     }
 
+    /**
+     * Returns a new {@link Write} that rolls files by size and age instead of by number of records.
+     * See {@link WriteFiles#withRollingFiles} for details.
+     *
+     * <p>This option is used only for writing unbounded data with auto-sharding.
+     */
+    public Write<DestinationT, UserT> withRollingFiles(
+        int targetFileSizeBytes, Duration maxFileAge) {
+      checkArgument(
+          targetFileSizeBytes > 0,
+          "targetFileSizeBytes must be positive, but was: %s",
+          targetFileSizeBytes);
+      checkArgument(
+          maxFileAge.isLongerThan(Duration.ZERO),
+          "maxFileAge must be positive, but was: %s",
+          maxFileAge);
+      return toBuilder()
+          .setBatchSize(Integer.MAX_VALUE)
+          .setBatchSizeBytes(targetFileSizeBytes)
+          .setBatchMaxBufferingDuration(maxFileAge)
+          .build();
+    }
+
     @VisibleForTesting
     Contextful<Fn<DestinationT, FileNaming>> resolveFileNamingFn() {
       if (getDynamic()) {
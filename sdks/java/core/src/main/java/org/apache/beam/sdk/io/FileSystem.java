@@ -157,6 +157,19 @@ public abstract class FileSystem<ResourceIdT extends ResourceId> {
    */
   protected abstract String getScheme();
 
+  /**
+   * Returns whether {@link FileSystems} may split bulk {@link #match}, {@link #copy}, {@link
+   * #rename} and {@link #delete} calls into batches and call them concurrently from multiple
+   * threads.
+   *
+   * <p>File systems which process the resources of bulk operations one at a time should return
+   * {@code true} if they are thread safe. File systems which already batch or parallelize bulk
+   * operations themselves should keep the default of {@code false}.
+   */
+  protected boolean allowsConcurrentBulkOperations() {
+    return false;
+  }
+
   public enum LineageLevel {
     FILE,
     TOP_LEVEL
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import org.apache.beam.sdk.options.Default;
+import org.apache.beam.sdk.options.Description;
+import org.apache.beam.sdk.options.PipelineOptions;
+
+/** Pipeline options for the {@link FileSystems} utility. */
+public interface FileSystemOptions extends PipelineOptions {
+
+  @Description(
+      "The maximum number of threads used by a bulk match, copy, rename or delete of FileSystems. "
+          + "Only applies to file systems which process the resources of bulk operations one at "
+          + "a time, such as the local file system. Set to 1 to disable parallel bulk operations.")
+  @Default.Integer(FileSystems.DEFAULT_BULK_OPERATION_PARALLELISM)
+  int getFileSystemBulkOperationParallelism();
+
+  void setFileSystemBulkOperationParallelism(int parallelism);
+}
@@ -24,6 +24,8 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Ve
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.RoundingMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
@@ -34,6 +36,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,6 +56,7 @@ import org.apache.beam.sdk.io.fs.MoveOptions;
 import org.apache.beam.sdk.io.fs.MoveOptions.StandardMoveOptions;
 import org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions;
 import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Lineage;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -58,6 +65,7 @@ import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Function;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Joiner;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Throwables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.FluentIterable;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
@@ -66,6 +74,8 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Multim
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Ordering;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Sets;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.TreeMultimap;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.math.IntMath;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /** Clients facing {@link FileSystem} utility. */
 @SuppressWarnings({
@@ -85,6 +95,22 @@ public class FileSystems {
   private static final AtomicReference<Map<String, FileSystem>> SCHEME_TO_FILESYSTEM =
       new AtomicReference<>(ImmutableMap.of(DEFAULT_SCHEME, new LocalFileSystem()));
 
+  static final int DEFAULT_BULK_OPERATION_PARALLELISM = 16;
+  // Bulk operations are split into batches of at least this many resources, and into several
+  // batches per thread to balance batches of different cost.
+  private static final int MIN_BATCH_SIZE = 50;
+  private static final int BATCHES_PER_THREAD = 4;
+  private static volatile int bulkOperationParallelism = DEFAULT_BULK_OPERATION_PARALLELISM;
+
+  // Progress of bulk operations, by number of resources processed.
+  private static final Counter MATCHED_SPECS = Metrics.counter(FileSystems.class, "matchedSpecs");
+  private static final Counter COPIED_RESOURCES =
+      Metrics.counter(FileSystems.class, "copiedResources");
+  private static final Counter RENAMED_RESOURCES =
+      Metrics.counter(FileSystems.class, "renamedResources");
+  private static final Counter DELETED_RESOURCES =
+      Metrics.counter(FileSystems.class, "deletedResources");
+
   /** ******************************** METHODS FOR CLIENT ********************************* */
 
   /** Checks whether the given spec contains a glob wildcard character. */
@@ -126,13 +152,13 @@ public class FileSystems {
    *     with {@link MatchResult#metadata()}.
    */
   public static List<MatchResult> match(List<String> specs) throws IOException {
-    return getFileSystemInternal(getOnlyScheme(specs)).match(specs);
+    return matchInternal(getFileSystemInternal(getOnlyScheme(specs)), specs);
   }
 
   /** Like {@link #match(List)}, but with a configurable {@link EmptyMatchTreatment}. */
   public static List<MatchResult> match(List<String> specs, EmptyMatchTreatment emptyMatchTreatment)
       throws IOException {
-    List<MatchResult> matches = getFileSystemInternal(getOnlyScheme(specs)).match(specs);
+    List<MatchResult> matches = matchInternal(getFileSystemInternal(getOnlyScheme(specs)), specs);
     List<MatchResult> res = Lists.newArrayListWithExpectedSize(matches.size());
     for (int i = 0; i < matches.size(); i++) {
       res.add(maybeAdjustEmptyMatchResult(specs.get(i), matches.get(i), emptyMatchTreatment));
@@ -284,7 +310,16 @@ public class FileSystems {
     FileSystem fileSystem = getFileSystemInternal(srcResourceIds.iterator().next().getScheme());
     FilterResult filtered = filterFiles(fileSystem, srcResourceIds, destResourceIds, moveOptions);
     if (!filtered.resultSources.isEmpty()) {
-      fileSystem.copy(filtered.resultSources, filtered.resultDestinations);
+      List<ResourceId> srcs = filtered.resultSources;
+      List<ResourceId> dests = filtered.resultDestinations;
+      bulkOperation(
+          fileSystem,
+          srcs.size(),
+          COPIED_RESOURCES,
+          (from, to) -> {
+            fileSystem.copy(srcs.subList(from, to), dests.subList(from, to));
+            return null;
+          });
     }
   }
 
@@ -325,20 +360,50 @@ public class FileSystems {
       MoveOptions... moveOptions)
       throws IOException {
     try {
-      fileSystem.rename(srcResourceIds, destResourceIds, moveOptions);
+      renameInBatches(fileSystem, srcResourceIds, destResourceIds, moveOptions);
     } catch (UnsupportedOperationException e) {
       // Some file systems do not yet support specifying the move options. Instead we
       // perform filtering using match calls before renaming.
       FilterResult filtered = filterFiles(fileSystem, srcResourceIds, destResourceIds, moveOptions);
       if (!filtered.resultSources.isEmpty()) {
-        fileSystem.rename(filtered.resultSources, filtered.resultDestinations);
+        renameInBatches(fileSystem, filtered.resultSources, filtered.resultDestinations);
       }
       if (!filtered.filteredExistingSrcs.isEmpty()) {
-        fileSystem.delete(filtered.filteredExistingSrcs);
+        deleteInBatches(fileSystem, filtered.filteredExistingSrcs);
       }
     }
   }
 
+  private static void renameInBatches(
+      FileSystem fileSystem,
+      List<ResourceId> srcResourceIds,
+      List<ResourceId> destResourceIds,
+      MoveOptions... moveOptions)
+      throws IOException {
+    bulkOperation(
+        fileSystem,
+        srcResourceIds.size(),
+        RENAMED_RESOURCES,
+        (from, to) -> {
+          fileSystem.rename(
+              srcResourceIds.subList(from, to), destResourceIds.subList(from, to), moveOptions);
+          return null;
+        });
+  }
+
+  private static void deleteInBatches(FileSystem fileSystem, Collection<ResourceId> resourceIds)
+      throws IOException {
+    List<ResourceId> resourceIdList = new ArrayList<>(resourceIds);
+    bulkOperation(
+        fileSystem,
+        resourceIdList.size(),
+        DELETED_RESOURCES,
+        (from, to) -> {
+          fileSystem.delete(resourceIdList.subList(from, to));
+          return null;
+        });
+  }
+
   /**
    * Deletes a collection of resources.
    *
@@ -394,8 +459,92 @@ public class FileSystems {
     if (resourceIdsToDelete.isEmpty()) {
       return;
     }
-    getFileSystemInternal(resourceIdsToDelete.iterator().next().getScheme())
-        .delete(resourceIdsToDelete);
+    deleteInBatches(
+        getFileSystemInternal(resourceIdsToDelete.iterator().next().getScheme()),
+        resourceIdsToDelete);
+  }
+
+  private static List<MatchResult> matchInternal(FileSystem fileSystem, List<String> specs)
+      throws IOException {
+    List<List<MatchResult>> batches =
+        bulkOperation(
+            fileSystem,
+            specs.size(),
+            MATCHED_SPECS,
+            (from, to) -> fileSystem.match(specs.subList(from, to)));
+    return batches.size() == 1 ? batches.get(0) : Lists.newArrayList(Iterables.concat(batches));
+  }
+
+  /** An operation on the resources {@code [from, to)} of a bulk operation. */
+  @FunctionalInterface
+  @VisibleForTesting
+  interface BatchOperation<T> {
+    T apply(int from, int to) throws IOException;
+  }
+
+  /**
+   * Performs a bulk operation on {@code size} resources and returns the results of its batches in
+   * order.
+   *
+   * <p>If the {@link FileSystem} {@link FileSystem#allowsConcurrentBulkOperations allows it}, the
+   * operation is split into batches which are executed concurrently by a pool of up to {@link
+   * FileSystemOptions#getFileSystemBulkOperationParallelism} threads. Otherwise it is executed as a
+   * single batch by the calling thread. If a batch fails, the batches which did not start yet are
+   * cancelled and the failure is rethrown, like for a sequential bulk operation the state of the
+   * other resources is unknown in this case.
+   *
+   * <p>{@code progress} is incremented by the number of resources of each completed batch.
+   */
+  @VisibleForTesting
+  static <T> List<T> bulkOperation(
+      FileSystem fileSystem, int size, Counter progress, BatchOperation<T> operation)
+      throws IOException {
+    int parallelism =
+        Math.min(
+            bulkOperationParallelism, IntMath.divide(size, MIN_BATCH_SIZE, RoundingMode.CEILING));
+    if (parallelism <= 1 || !fileSystem.allowsConcurrentBulkOperations()) {
+      T result = operation.apply(0, size);
+      progress.inc(size);
+      return Collections.singletonList(result);
+    }
+
+    int batchSize =
+        Math.max(
+            MIN_BATCH_SIZE,
+            IntMath.divide(size, parallelism * BATCHES_PER_THREAD, RoundingMode.CEILING));
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("FileSystems-bulk-operation-%d")
+                .build());
+    try {
+      List<Future<T>> batches = new ArrayList<>();
+      for (int from = 0; from < size; from += batchSize) {
+        int batchFrom = from;
+        int batchTo = Math.min(size, from + batchSize);
+        batches.add(executor.submit(() -> operation.apply(batchFrom, batchTo)));
+      }
+      List<T> results = new ArrayList<>(batches.size());
+      for (int i = 0; i < batches.size(); i++) {
+        results.add(batches.get(i).get());
+        // Reported by the calling thread, metrics are not available in the pool.
+        progress.inc(Math.min(batchSize, size - i * batchSize));
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw (InterruptedIOException)
+          new InterruptedIOException("Interrupted during bulk file system operation").initCause(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.throwIfInstanceOf(cause, IOException.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new IOException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /** Report source {@link Lineage} metrics for resource id. */
@@ -579,6 +728,8 @@ public class FileSystems {
     // entry to set other PipelineOption determined flags
     Metrics.setDefaultPipelineOptions(options);
     Lineage.setDefaultPipelineOptions(options);
+    bulkOperationParallelism =
+        options.as(FileSystemOptions.class).getFileSystemBulkOperationParallelism();
 
     while (true) {
       KV<Long, Integer> revision = FILESYSTEM_REVISION.get();
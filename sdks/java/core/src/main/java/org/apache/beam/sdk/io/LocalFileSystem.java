@@ -231,6 +231,11 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
     return "file";
   }
 
+  @Override
+  protected boolean allowsConcurrentBulkOperations() {
+    return true;
+  }
+
   private MatchResult matchOne(String baseDir, String spec) {
     if (spec.toLowerCase().startsWith("file:")) {
       spec = spec.substring("file:".length());
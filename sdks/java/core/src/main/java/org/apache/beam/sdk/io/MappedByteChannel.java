@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A read-only {@link SeekableByteChannel} which reads a {@link FileChannel} through memory mapped
+ * windows of the file instead of a system call per read.
+ *
+ * <p>Seeking only moves the position of the channel, a window is mapped on the next read outside
+ * of the current window. Readers that can process records in place may use {@link #slice} to get
+ * a read-only view of a region of the file without copying it.
+ *
+ * <p>The file must not be truncated while it is read, accessing a mapped region beyond the end of
+ * the file fails with an unspecified error.
+ */
+public class MappedByteChannel implements SeekableByteChannel {
+  /** Default size of the mapped windows. */
+  static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+  private final FileChannel file;
+  private final int windowSize;
+  private final long size;
+
+  private long position;
+  // the currently mapped region of the file starting at windowStart
+  private @Nullable MappedByteBuffer window = null;
+  private long windowStart = 0;
+
+  public MappedByteChannel(FileChannel file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  MappedByteChannel(FileChannel file, int windowSize) throws IOException {
+    checkArgument(windowSize > 0, "windowSize must be positive");
+    this.file = file;
+    this.windowSize = windowSize;
+    this.size = file.size();
+    this.position = file.position();
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    checkOpen();
+    if (position >= size) {
+      return -1;
+    }
+    int length = (int) Math.min(dst.remaining(), size - position);
+    int read = 0;
+    while (read < length) {
+      ByteBuffer region = window(position);
+      int offset = (int) (position - windowStart);
+      int n = Math.min(length - read, region.limit() - offset);
+      region.position(offset).limit(offset + n);
+      dst.put(region);
+      position += n;
+      read += n;
+    }
+    return read;
+  }
+
+  /**
+   * Returns a read-only view of {@code length} bytes of the file at {@code position} without
+   * copying them. The position of the channel is not changed.
+   */
+  public ByteBuffer slice(long position, int length) throws IOException {
+    checkOpen();
+    checkArgument(
+        position >= 0 && length >= 0 && position + length <= size,
+        "Region [%s, %s) is not within the file of %s bytes",
+        position,
+        position + length,
+        size);
+    MappedByteBuffer current = window;
+    if (current != null
+        && position >= windowStart
+        && position + length <= windowStart + current.capacity()) {
+      ByteBuffer region = current.duplicate();
+      int offset = (int) (position - windowStart);
+      region.position(offset).limit(offset + length);
+      return region.slice();
+    }
+    return file.map(FileChannel.MapMode.READ_ONLY, position, length);
+  }
+
+  /** Returns a view of the mapped window containing {@code position}, mapping it if necessary. */
+  private ByteBuffer window(long position) throws IOException {
+    MappedByteBuffer current = window;
+    if (current == null
+        || position < windowStart
+        || position >= windowStart + current.capacity()) {
+      long length = Math.min(windowSize, size - position);
+      current = file.map(FileChannel.MapMode.READ_ONLY, position, length);
+      window = current;
+      windowStart = position;
+    }
+    return current.duplicate();
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public long position() throws IOException {
+    checkOpen();
+    return position;
+  }
+
+  @Override
+  public MappedByteChannel position(long newPosition) throws IOException {
+    checkOpen();
+    checkArgument(newPosition >= 0, "Position must not be negative: %s", newPosition);
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public long size() throws IOException {
+    checkOpen();
+    return size;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return file.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the mapping is released once the buffer is garbage collected
+    window = null;
+    file.close();
+  }
+
+  private void checkOpen() throws ClosedChannelException {
+    if (!file.isOpen()) {
+      throw new ClosedChannelException();
+    }
+  }
+}
@@ -22,7 +22,10 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
@@ -32,6 +35,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
 import org.apache.beam.sdk.io.fs.MatchResult;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
@@ -50,12 +54,17 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * <p>This source supports reading from any arbitrary byte position within the stream. If the
  * starting position is not {@code 0}, then bytes are skipped until the first delimiter is found
  * representing the beginning of the first record to be decoded.
+ *
+ * <p>Files opened as {@link java.nio.channels.FileChannel}s are read through memory mapped regions
+ * if the {@value #MEMORY_MAPPED_READS_EXPERIMENT} experiment is enabled.
  */
 @VisibleForTesting
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
 public class TextSource extends FileBasedSource<String> {
+  static final String MEMORY_MAPPED_READS_EXPERIMENT = "use_memory_mapped_text_reads";
+
   byte[] delimiter;
 
   int skipHeaderLines;
@@ -94,7 +103,11 @@ public class TextSource extends FileBasedSource<String> {
 
   @Override
   protected FileBasedReader<String> createSingleFileReader(PipelineOptions options) {
-    return new TextBasedReader(this, delimiter, skipHeaderLines);
+    return new TextBasedReader(
+        this,
+        delimiter,
+        skipHeaderLines,
+        ExperimentalOptions.hasExperiment(options, MEMORY_MAPPED_READS_EXPERIMENT));
   }
 
   @Override
@@ -115,9 +128,15 @@ public class TextSource extends FileBasedSource<String> {
         ByteString.copyFrom(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
     private static final byte CR = '\r';
     private static final byte LF = '\n';
+    // Used to read eight bytes of the buffer at once when searching for delimiters.
+    private static final VarHandle LONG_VIEW =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
 
     private final byte @Nullable [] delimiter;
     private final int skipHeaderLines;
+    private final boolean memoryMappedReads;
 
     // Used to build up results that span buffers. It may contain the delimiter as a suffix.
     private final SubstringByteArrayOutputStream str;
@@ -127,7 +146,7 @@ public class TextSource extends FileBasedSource<String> {
     // A wrapper of the `buffer` field;
     private final ByteBuffer byteBuffer;
 
-    private ReadableByteChannel inChannel;
+    @VisibleForTesting ReadableByteChannel inChannel;
     private long startOfRecord;
     private volatile long startOfNextRecord;
     private volatile boolean eof;
@@ -140,22 +159,29 @@ public class TextSource extends FileBasedSource<String> {
     private @Nullable KMPDelimiterFinder delimiterFinder;
 
     private TextBasedReader(TextSource source, byte[] delimiter) {
-      this(source, delimiter, 0);
+      this(source, delimiter, 0, false);
     }
 
-    private TextBasedReader(TextSource source, byte[] delimiter, int skipHeaderLines) {
+    private TextBasedReader(
+        TextSource source, byte[] delimiter, int skipHeaderLines, boolean memoryMappedReads) {
       super(source);
       this.buffer = new byte[READ_BUFFER_SIZE];
       this.str = new SubstringByteArrayOutputStream();
       this.byteBuffer = ByteBuffer.wrap(buffer);
       this.delimiter = delimiter;
       this.skipHeaderLines = skipHeaderLines;
+      this.memoryMappedReads = memoryMappedReads;
 
       if (delimiter != null) {
         delimiterFinder = new KMPDelimiterFinder(delimiter);
       }
     }
 
+    @Override
+    protected boolean prefersMemoryMappedReads() {
+      return memoryMappedReads;
+    }
+
     @Override
     protected long getCurrentOffset() throws NoSuchElementException {
       if (currentValue == null) {
@@ -346,7 +372,8 @@ public class TextSource extends FileBasedSource<String> {
           ++startOfRecord;
         }
 
-        // Search for the newline
+        // Skip ahead to the first CR or LF, then search for the newline
+        bufferPosn = indexOfLineTerminator(buffer, bufferPosn, bufferLength);
         for (; bufferPosn < bufferLength; ++bufferPosn) {
           if (buffer[bufferPosn] == LF) {
             newlineLength = prevCharCR ? 2 : 1;
@@ -424,9 +451,10 @@ public class TextSource extends FileBasedSource<String> {
 
         int startPosn = bufferPosn;
         boolean delimiterFound = false;
-        for (; bufferPosn < bufferLength; ++bufferPosn) {
-          if (delimiterFinder.feed(buffer[bufferPosn])) {
-            ++bufferPosn;
+        while (bufferPosn < bufferLength) {
+          // Skip ahead to where the delimiter may start, other bytes don't change the finder
+          bufferPosn = delimiterFinder.indexOfCandidate(buffer, bufferPosn, bufferLength);
+          if (bufferPosn < bufferLength && delimiterFinder.feed(buffer[bufferPosn++])) {
             delimiterFound = true;
             break;
           }
@@ -454,6 +482,58 @@ public class TextSource extends FileBasedSource<String> {
       str.reset();
       return true;
     }
+
+    /**
+     * Returns the index of the first CR or LF in {@code bytes} from {@code from} inclusive to
+     * {@code to} exclusive, or {@code to} if there is none.
+     */
+    @VisibleForTesting
+    static int indexOfLineTerminator(byte[] bytes, int from, int to) {
+      int i = from;
+      for (; i <= to - Long.BYTES; i += Long.BYTES) {
+        long word = (long) LONG_VIEW.get(bytes, i);
+        long matches = zeroBytes(word ^ (LF * ONES)) | zeroBytes(word ^ (CR * ONES));
+        if (matches != 0) {
+          return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+      }
+      for (; i < to; ++i) {
+        if (bytes[i] == LF || bytes[i] == CR) {
+          return i;
+        }
+      }
+      return to;
+    }
+
+    /**
+     * Returns the index of the first occurrence of {@code b} in {@code bytes} from {@code from}
+     * inclusive to {@code to} exclusive, or {@code to} if there is none.
+     */
+    @VisibleForTesting
+    static int indexOf(byte[] bytes, byte b, int from, int to) {
+      long pattern = (b & 0xFF) * ONES;
+      int i = from;
+      for (; i <= to - Long.BYTES; i += Long.BYTES) {
+        long matches = zeroBytes((long) LONG_VIEW.get(bytes, i) ^ pattern);
+        if (matches != 0) {
+          return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+      }
+      for (; i < to; ++i) {
+        if (bytes[i] == b) {
+          return i;
+        }
+      }
+      return to;
+    }
+
+    /**
+     * Sets the high bit of each zero byte of the little endian {@code word}. Bytes above the lowest
+     * zero byte may be marked incorrectly, so only the lowest marked byte is exact.
+     */
+    private static long zeroBytes(long word) {
+      return (word - ONES) & ~word & HIGH_BITS;
+    }
   }
 
   /**
@@ -535,6 +615,18 @@ public class TextSource extends FileBasedSource<String> {
       delimiterOffset = 0;
     }
 
+    /**
+     * Returns the index of the next byte in {@code bytes} from {@code from} inclusive to {@code to}
+     * exclusive that can continue or start a match of the delimiter, or {@code to} if there is
+     * none. Feeding any of the bytes before it would not change the state of the finder.
+     */
+    public int indexOfCandidate(byte[] bytes, int from, int to) {
+      if (delimiterOffset > 0) {
+        return from;
+      }
+      return TextBasedReader.indexOf(bytes, delimiter[0], from, to);
+    }
+
     private void compile() {
       // the current position in table
       int pos = 1;
@@ -25,6 +25,8 @@ import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -46,6 +48,9 @@ import org.apache.beam.sdk.io.FileBasedSink.FileResultCoder;
 import org.apache.beam.sdk.io.FileBasedSink.WriteOperation;
 import org.apache.beam.sdk.io.FileBasedSink.Writer;
 import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Gauge;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.options.ValueProvider.StaticValueProvider;
@@ -171,6 +176,7 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
         .setWindowedWrites(false)
         .setWithAutoSharding(false)
         .setMaxNumWritersPerBundle(DEFAULT_MAX_NUM_WRITERS_PER_BUNDLE)
+        .setWriterEviction(false)
         .setSideInputs(sink.getDynamicDestinations().getSideInputs())
         .setSkipIfEmpty(false)
         .setBadRecordErrorHandler(new DefaultErrorHandler<>())
@@ -194,6 +200,8 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
 
   abstract int getMaxNumWritersPerBundle();
 
+  abstract boolean getWriterEviction();
+
   abstract boolean getSkipIfEmpty();
 
   abstract @Nullable Integer getBatchSize();
@@ -230,6 +238,8 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
     abstract Builder<UserT, DestinationT, OutputT> setMaxNumWritersPerBundle(
         int maxNumWritersPerBundle);
 
+    abstract Builder<UserT, DestinationT, OutputT> setWriterEviction(boolean writerEviction);
+
     abstract Builder<UserT, DestinationT, OutputT> setSkipIfEmpty(boolean skipIfEmpty);
 
     abstract Builder<UserT, DestinationT, OutputT> setBatchSize(@Nullable Integer batchSize);
@@ -302,6 +312,25 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
     return toBuilder().setMaxNumWritersPerBundle(maxNumWritersPerBundle).build();
   }
 
+  /**
+   * Returns a new {@link WriteFiles} that closes the least recently used writer of a bundle once
+   * {@link #withMaxNumWritersPerBundle maxNumWritersPerBundle} writers are open, instead of
+   * spilling the records of further destinations to shuffle.
+   *
+   * <p>This avoids shuffling records at the cost of writing more, smaller temporary files when
+   * bundles contain records of many destinations, which suits pipelines with thousands of dynamic
+   * destinations. The number of open writers, and so the memory used by their buffers, is bounded
+   * just as when spilling.
+   *
+   * <p>This option only applies to writes {@link #withRunnerDeterminedSharding()} of bounded data.
+   */
+  public WriteFiles<UserT, DestinationT, OutputT> withWriterEviction() {
+    checkArgument(
+        getMaxNumWritersPerBundle() != -1,
+        "Cannot use withWriterEviction() after withNoSpilling() has been set.");
+    return toBuilder().setWriterEviction(true).build();
+  }
+
   /** Set this sink to skip writing any files if the PCollection is empty. */
   public WriteFiles<UserT, DestinationT, OutputT> withSkipIfEmpty(boolean skipIfEmpty) {
     return toBuilder().setSkipIfEmpty(skipIfEmpty).build();
@@ -339,6 +368,37 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
     return toBuilder().setBatchMaxBufferingDuration(batchMaxBufferingDuration).build();
   }
 
+  /**
+   * Returns a new {@link WriteFiles} that rolls files by size and age instead of by number of
+   * records.
+   *
+   * <p>The records of each shard are buffered in state managed by the runner, so the memory used on
+   * workers stays bounded, until their encoded size reaches {@code targetFileSizeBytes}, the first
+   * of them has been buffered for {@code maxFileAge}, or the window closes. They are then written
+   * to a new file, which is committed exactly once together with the other files of the pane. This
+   * produces well-sized files for windows of any length.
+   *
+   * <p>This is equivalent to setting {@link #withBatchSizeBytes} and {@link
+   * #withBatchMaxBufferingDuration} without limiting the number of records per file. This option is
+   * used only for writing unbounded data with auto-sharding.
+   */
+  public WriteFiles<UserT, DestinationT, OutputT> withRollingFiles(
+      int targetFileSizeBytes, Duration maxFileAge) {
+    checkArgument(
+        targetFileSizeBytes > 0,
+        "targetFileSizeBytes must be positive, but was: %s",
+        targetFileSizeBytes);
+    checkArgument(
+        maxFileAge.isLongerThan(Duration.ZERO),
+        "maxFileAge must be positive, but was: %s",
+        maxFileAge);
+    return toBuilder()
+        .setBatchSize(Integer.MAX_VALUE)
+        .setBatchSizeBytes(targetFileSizeBytes)
+        .setBatchMaxBufferingDuration(maxFileAge)
+        .build();
+  }
+
   public WriteFiles<UserT, DestinationT, OutputT> withSideInputs(
       List<PCollectionView<?>> sideInputs) {
     return toBuilder().setSideInputs(sideInputs).build();
@@ -596,7 +656,7 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
       TupleTag<KV<ShardedKey<Integer>, UserT>> unwrittenRecordsTag =
           new TupleTag<>("unwrittenRecords");
       Coder<UserT> inputCoder = input.getCoder();
-      if (getMaxNumWritersPerBundle() < 0) {
+      if (getMaxNumWritersPerBundle() < 0 || getWriterEviction()) {
         PCollectionTuple writeTuple =
             input.apply(
                 "WritedUnshardedBundles",
@@ -674,8 +734,16 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
 
     private final Coder<UserT> inputCoder;
 
-    // Initialized in startBundle()
+    private final Counter writerPoolHits = Metrics.counter(WriteFiles.class, "writerPoolHits");
+    private final Counter writerPoolEvictions =
+        Metrics.counter(WriteFiles.class, "writerPoolEvictions");
+    private final Gauge openWriters = Metrics.gauge(WriteFiles.class, "openWriters");
+
+    // Initialized in startBundle(), in least recently used order
     private @Nullable Map<WriterKey<DestinationT>, Writer<DestinationT, OutputT>> writers;
+    // Files of writers closed by eviction, output in finishBundle() as they may belong to other
+    // windows than the current element.
+    private @Nullable List<FileResult<DestinationT>> evictedFiles;
 
     private int spilledShardNum = UNKNOWN_SHARDNUM;
 
@@ -691,7 +759,8 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
     @StartBundle
     public void startBundle(StartBundleContext unused) {
       // Reset state in case of reuse. We need to make sure that each bundle gets unique writers.
-      writers = Maps.newHashMap();
+      writers = new LinkedHashMap<>(16, 0.75f, true);
+      evictedFiles = new ArrayList<>();
     }
 
     @ProcessElement
@@ -713,8 +782,18 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
       DestinationT destination = maybeDestination.destination;
       WriterKey<DestinationT> key = new WriterKey<>(window, c.pane(), destination);
       Writer<DestinationT, OutputT> writer = writers.get(key);
+      boolean evictWriters = getWriterEviction() && getMaxNumWritersPerBundle() > 0;
+      if (writer != null && evictWriters) {
+        writerPoolHits.inc();
+      } else if (writer == null && evictWriters) {
+        while (writers.size() >= getMaxNumWritersPerBundle()) {
+          evictLeastRecentlyUsedWriter();
+        }
+      }
       if (writer == null) {
-        if (getMaxNumWritersPerBundle() < 0 || writers.size() <= getMaxNumWritersPerBundle()) {
+        if (getMaxNumWritersPerBundle() < 0
+            || evictWriters
+            || writers.size() <= getMaxNumWritersPerBundle()) {
           String uuid = UUID.randomUUID().toString();
           LOG.info(
               "Opening writer {} for window {} pane {} destination {}",
@@ -726,6 +805,7 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
           writer.setDestination(destination);
           writer.open(uuid);
           writers.put(key, writer);
+          openWriters.set(writers.size());
           LOG.debug("Done opening writer");
         } else {
           if (spilledShardNum == UNKNOWN_SHARDNUM) {
@@ -752,8 +832,37 @@ public abstract class WriteFiles<UserT, DestinationT, OutputT>
       writeOrClose(writer, formattedRecord);
     }
 
+    private void evictLeastRecentlyUsedWriter() throws Exception {
+      Iterator<Map.Entry<WriterKey<DestinationT>, Writer<DestinationT, OutputT>>> iterator =
+          writers.entrySet().iterator();
+      Map.Entry<WriterKey<DestinationT>, Writer<DestinationT, OutputT>> entry = iterator.next();
+      iterator.remove();
+      WriterKey<DestinationT> key = entry.getKey();
+      Writer<DestinationT, OutputT> writer = entry.getValue();
+      LOG.debug(
+          "Evicting writer for window {} pane {} destination {}",
+          key.window,
+          key.paneInfo,
+          key.destination);
+      try {
+        writer.close();
+      } catch (Exception e) {
+        // If anything goes wrong, make sure to delete the temporary file.
+        writer.cleanup();
+        throw e;
+      }
+      evictedFiles.add(
+          new FileResult<>(
+              writer.getOutputFile(), UNKNOWN_SHARDNUM, key.window, key.paneInfo, key.destination));
+      writerPoolEvictions.inc();
+      openWriters.set(writers.size());
+    }
+
     @FinishBundle
     public void finishBundle(FinishBundleContext c) throws Exception {
+      for (FileResult<DestinationT> result : evictedFiles) {
+        c.output(result, result.getWindow().maxTimestamp(), result.getWindow());
+      }
       for (Map.Entry<WriterKey<DestinationT>, Writer<DestinationT, OutputT>> entry :
           writers.entrySet()) {
         WriterKey<DestinationT> key = entry.getKey();
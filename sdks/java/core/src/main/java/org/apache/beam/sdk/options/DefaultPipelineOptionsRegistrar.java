@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.options;
 
 import com.google.auto.service.AutoService;
+import org.apache.beam.sdk.io.FileSystemOptions;
 import org.apache.beam.sdk.lineage.LineageOptions;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 
@@ -37,6 +38,7 @@ public class DefaultPipelineOptionsRegistrar implements PipelineOptionsRegistrar
         .add(SdkHarnessOptions.class)
         .add(PortablePipelineOptions.class)
         .add(LineageOptions.class)
+        .add(FileSystemOptions.class)
         .build();
   }
 }
@@ -157,6 +157,34 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
 
   void setGroupingTableMaxSizeMb(int value);
 
+  /** The set of grouping table implementations that can be used to pre-combine elements. */
+  enum GroupingTableImplementation {
+    /** Stores keys and accumulators as objects on the heap using sampled size estimates. */
+    HEAP,
+
+    /**
+     * Stores encoded keys and accumulators within pooled byte pages using exact byte accounting.
+     * Only applies to keys with a deterministic coder, others fall back to {@link #HEAP}.
+     */
+    ENCODED
+  }
+
+  /**
+   * The grouping table implementation used by the SDK harness to pre-combine elements.
+   *
+   * <p>The {@link GroupingTableImplementation#ENCODED ENCODED} table avoids retaining an object per
+   * key and accumulator which reduces garbage collection overhead for combines with many keys at
+   * the cost of encoding and decoding the accumulator on each insertion.
+   */
+  @Description(
+      "The grouping table implementation used by the SDK harness to pre-combine elements. HEAP "
+          + "stores keys and accumulators as objects and ENCODED stores them encoded within "
+          + "pooled byte pages using exact byte accounting.")
+  @Default.Enum("HEAP")
+  GroupingTableImplementation getGroupingTableImplementation();
+
+  void setGroupingTableImplementation(GroupingTableImplementation value);
+
   /**
    * Size (in MB) for the process wide cache within the SDK harness. The cache is responsible for
    * storing all values which are cached within a bundle and across bundles such as side inputs and
@@ -215,6 +243,30 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
 
   void setMaxCacheMemoryUsageMbClass(Class<? extends MaxCacheMemoryUsageMb> kls);
 
+  /** The implementation backing the process wide cache within the SDK harness. */
+  enum CacheImplementation {
+    /** A Guava cache with LRU eviction. */
+    GUAVA,
+    /**
+     * A segmented, lock-striped cache using W-TinyLFU admission and eviction which scales better
+     * with many concurrent bundle processing threads.
+     */
+    TINY_LFU
+  }
+
+  /**
+   * The implementation to use for the process wide cache within the SDK harness. Both
+   * implementations respect {@link #getMaxCacheMemoryUsageMb() maxCacheMemoryUsageMb}.
+   */
+  @Description(
+      "The implementation to use for the process wide cache within the SDK harness. GUAVA uses a Guava "
+          + "cache with LRU eviction. TINY_LFU uses a segmented, lock-striped cache with W-TinyLFU admission "
+          + "which reduces contention when many bundles are processed concurrently.")
+  @Default.Enum("GUAVA")
+  CacheImplementation getCacheImplementation();
+
+  void setCacheImplementation(CacheImplementation value);
+
   /**
    * A {@link DefaultValueFactory} which constructs an instance of the class specified by {@link
    * #getMaxCacheMemoryUsageMbClass maxCacheMemoryUsageMbClass} to compute the maximum amount of
@@ -452,6 +504,23 @@ public interface SdkHarnessOptions extends PipelineOptions, MemoryMonitorOptions
 
   void setElementProcessingTimeoutMinutes(int value);
 
+  /**
+   * Whether the SDK harness processes bundles on virtual threads.
+   *
+   * <p>Virtual threads make blocking within a DoFn, for example on I/O, cheap allowing the harness
+   * to process many more bundles concurrently. Virtual threads require Java 21 or later, on older
+   * versions bundles are processed on platform threads.
+   */
+  @Description(
+      "Whether the SDK harness processes bundles on virtual threads. Requires Java 21 or later, "
+          + "bundles are processed on platform threads otherwise. Virtual threads pinned to their "
+          + "carrier thread are reported with the virtualThreadPinnedCount and "
+          + "virtualThreadPinnedMsecs metrics of the PTransform.")
+  @Default.Boolean(false)
+  boolean getUseVirtualThreads();
+
+  void setUseVirtualThreads(boolean value);
+
   /**
    * The Avro spec supports the `java-class` schema annotation, which allows fields to be serialized
    * and deserialized via their toString/String constructor. As of Avro 1.11.4+, allowed Java
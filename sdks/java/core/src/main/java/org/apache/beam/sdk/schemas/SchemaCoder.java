@@ -47,6 +47,7 @@ public class SchemaCoder<T> extends CustomCoder<T> {
   private final TypeDescriptor<T> typeDescriptor;
   private final SerializableFunction<T, Row> toRowFunction;
   private final SerializableFunction<Row, T> fromRowFunction;
+  private final boolean lazyRowDecoding;
   private transient @Nullable Coder<Row> delegateCoder;
 
   protected SchemaCoder(
@@ -54,6 +55,15 @@ public class SchemaCoder<T> extends CustomCoder<T> {
       TypeDescriptor<T> typeDescriptor,
       SerializableFunction<T, Row> toRowFunction,
       SerializableFunction<Row, T> fromRowFunction) {
+    this(schema, typeDescriptor, toRowFunction, fromRowFunction, false);
+  }
+
+  protected SchemaCoder(
+      Schema schema,
+      TypeDescriptor<T> typeDescriptor,
+      SerializableFunction<T, Row> toRowFunction,
+      SerializableFunction<Row, T> fromRowFunction,
+      boolean lazyRowDecoding) {
     checkArgument(
         !typeDescriptor.hasUnresolvedParameters(),
         "Cannot create SchemaCoder with a TypeDescriptor that has unresolved parameters: %s",
@@ -67,6 +77,7 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     this.fromRowFunction = fromRowFunction;
     this.typeDescriptor = typeDescriptor;
     this.schema = schema;
+    this.lazyRowDecoding = lazyRowDecoding;
   }
 
   /**
@@ -97,6 +108,24 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return schema;
   }
 
+  /**
+   * Returns a {@link SchemaCoder} with the same encoding which decodes the fields of each {@link
+   * Row} when they are first accessed instead of decoding all fields up front.
+   *
+   * <p>This reduces the cost of decoding rows with many fields of which only a few are accessed,
+   * for example when a projection follows a shuffle. Rows which are passed through unmodified are
+   * encoded by copying their encoded bytes. Lazy decoding is a property of the coder instance and
+   * is not preserved when the coder is translated to a portable representation.
+   */
+  public SchemaCoder<T> withLazyRowDecoding() {
+    return new SchemaCoder<>(schema, typeDescriptor, toRowFunction, fromRowFunction, true);
+  }
+
+  /** Returns whether rows are decoded lazily, see {@link #withLazyRowDecoding()}. */
+  public boolean isLazyRowDecoding() {
+    return lazyRowDecoding;
+  }
+
   /** Returns the toRow conversion function. */
   public SerializableFunction<Row, T> getFromRowFunction() {
     return fromRowFunction;
@@ -111,7 +140,10 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     if (delegateCoder == null) {
       // RowCoderGenerator caches based on id, so if a new instance of this RowCoder is
       // deserialized, we don't need to run ByteBuddy again to construct the class.
-      delegateCoder = RowCoderGenerator.generate(schema);
+      delegateCoder =
+          lazyRowDecoding
+              ? RowCoderGenerator.generateLazy(schema)
+              : RowCoderGenerator.generate(schema);
     }
     return delegateCoder;
   }
@@ -211,12 +243,13 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return schema.equals(that.schema)
         && typeDescriptor.equals(that.typeDescriptor)
         && toRowFunction.equals(that.toRowFunction)
-        && fromRowFunction.equals(that.fromRowFunction);
+        && fromRowFunction.equals(that.fromRowFunction)
+        && lazyRowDecoding == that.lazyRowDecoding;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, typeDescriptor, toRowFunction, fromRowFunction);
+    return Objects.hash(schema, typeDescriptor, toRowFunction, fromRowFunction, lazyRowDecoding);
   }
 
   @Override
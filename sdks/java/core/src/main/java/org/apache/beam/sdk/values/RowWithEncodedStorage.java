@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.values;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.schemas.Schema;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Concrete subclass of {@link Row} that stores the encoded row and decodes each field when it is
+ * first accessed.
+ *
+ * <p>This avoids materializing every field of rows with wide schemas when only a few of the fields
+ * are accessed, for example by a projection following a shuffle. Decoded fields are cached so each
+ * field is decoded at most once.
+ */
+@Internal
+public class RowWithEncodedStorage extends Row {
+  private static final Object NOT_DECODED = new Object();
+
+  /** Decodes individual fields of an encoded row. */
+  @Internal
+  public interface FieldDecoder {
+    /** Decodes the field with the given index which is encoded starting at {@code offset}. */
+    @Nullable
+    Object decodeField(byte[] encoded, int offset, int fieldIdx) throws IOException;
+  }
+
+  private final byte[] encoded;
+  private final int[] fieldOffsets;
+  private final @Nullable Object[] values;
+  private final transient FieldDecoder fieldDecoder;
+
+  /**
+   * Creates a row from its encoding.
+   *
+   * @param encoded the encoded row
+   * @param fieldOffsets the offset of each field within {@code encoded} or -1 if the field is null
+   * @param decodedValues the values of the fields which have already been decoded, other entries
+   *     must be null
+   * @param fieldDecoder decodes the remaining fields on access
+   */
+  public RowWithEncodedStorage(
+      Schema schema,
+      byte[] encoded,
+      int[] fieldOffsets,
+      @Nullable Object[] decodedValues,
+      FieldDecoder fieldDecoder) {
+    super(schema);
+    this.encoded = encoded;
+    this.fieldOffsets = fieldOffsets;
+    this.values = decodedValues;
+    this.fieldDecoder = fieldDecoder;
+    for (int i = 0; i < values.length; ++i) {
+      if (values[i] == null && fieldOffsets[i] >= 0) {
+        values[i] = NOT_DECODED;
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings({"TypeParameterUnusedInFormals", "unchecked"})
+  public <T extends @Nullable Object> T getValue(int fieldIdx) {
+    if (fieldIdx < 0 || fieldIdx >= values.length) {
+      throw new IllegalArgumentException("No field at index " + fieldIdx);
+    }
+    @Nullable Object value = values[fieldIdx];
+    if (value == NOT_DECODED) {
+      try {
+        value = fieldDecoder.decodeField(encoded, fieldOffsets[fieldIdx], fieldIdx);
+      } catch (IOException e) {
+        throw new IllegalStateException(
+            "Unable to decode field " + getSchema().getField(fieldIdx).getName(), e);
+      }
+      values[fieldIdx] = value;
+    }
+    return (T) value;
+  }
+
+  @Override
+  public List<@Nullable Object> getValues() {
+    for (int i = 0; i < values.length; ++i) {
+      getValue(i);
+    }
+    return Arrays.asList(values);
+  }
+
+  @Override
+  public int getFieldCount() {
+    return values.length;
+  }
+
+  /** Returns the encoded row. */
+  public byte[] getEncoded() {
+    return encoded;
+  }
+
+  /** Returns the decoder of the fields of the encoded row. */
+  public FieldDecoder getFieldDecoder() {
+    return fieldDecoder;
+  }
+
+  // The field decoder isn't serializable so the decoded row is serialized instead.
+  private Object writeReplace() {
+    return Row.withSchema(getSchema()).attachValues(getValues());
+  }
+}
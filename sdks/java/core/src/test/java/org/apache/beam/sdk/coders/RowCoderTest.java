@@ -17,7 +17,11 @@
  */
 package org.apache.beam.sdk.coders;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -35,7 +39,9 @@ import org.apache.beam.sdk.schemas.Schema.LogicalType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType.Value;
 import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedStorage;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Lists;
@@ -645,4 +651,98 @@ public class RowCoderTest {
 
     CoderProperties.coderDecodeEncodeEqual(RowCoder.of(schema), row);
   }
+
+  @Test
+  public void testLazyDecoding() throws Exception {
+    Schema nestedSchema = Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+    EnumerationType enumeration = EnumerationType.create("one", "two", "three");
+    Schema schema =
+        Schema.builder()
+            .addByteField("f_byte")
+            .addInt16Field("f_int16")
+            .addInt32Field("f_int32")
+            .addInt64Field("f_int64")
+            .addDecimalField("f_decimal")
+            .addFloatField("f_float")
+            .addDoubleField("f_double")
+            .addStringField("f_string")
+            .addDateTimeField("f_datetime")
+            .addBooleanField("f_boolean")
+            .addByteArrayField("f_bytes")
+            .addNullableField("f_nullable", FieldType.STRING)
+            .addRowField("f_row", nestedSchema)
+            .addArrayField("f_array", FieldType.INT64)
+            .addMapField("f_map", FieldType.STRING, FieldType.DOUBLE)
+            .addLogicalTypeField("f_enum", enumeration)
+            .build();
+    DateTime dateTime =
+        new DateTime().withDate(1979, 3, 14).withTime(1, 2, 3, 4).withZone(DateTimeZone.UTC);
+    Row row =
+        Row.withSchema(schema)
+            .addValues(
+                (byte) 0,
+                (short) 1,
+                -2,
+                Long.MAX_VALUE,
+                new BigDecimal("-2.3"),
+                1.2f,
+                3.0d,
+                "str",
+                dateTime,
+                false,
+                new byte[] {1, 2, 3},
+                null,
+                Row.withSchema(nestedSchema).addValues(18, "foobar").build(),
+                Arrays.asList(1L, 2L),
+                ImmutableMap.of("a", 1.0),
+                enumeration.valueOf("two"))
+            .build();
+    RowCoder coder = RowCoder.of(schema).withLazyRowDecoding();
+
+    CoderProperties.coderDecodeEncodeEqual(coder, row);
+
+    Row decoded = CoderUtils.clone(coder, row);
+    assertThat(decoded, instanceOf(RowWithEncodedStorage.class));
+    // Access the fields out of order.
+    for (int i = schema.getFieldCount() - 1; i >= 0; --i) {
+      assertTrue(
+          schema.getField(i).getName(),
+          Row.Equals.deepEquals(
+              row.getValue(i), decoded.getValue(i), schema.getField(i).getType()));
+    }
+    assertEquals(row, decoded);
+  }
+
+  @Test
+  public void testLazyDecodingEncodesUnmodifiedRows() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addInt32Field("f_int32")
+            .addNullableField("f_string", FieldType.STRING)
+            .build();
+    Row row = Row.withSchema(schema).addValues(42, "hello world!").build();
+    RowCoder coder = RowCoder.of(schema).withLazyRowDecoding();
+
+    byte[] encoded = CoderUtils.encodeToByteArray(RowCoder.of(schema), row);
+    Row decoded = CoderUtils.decodeFromByteArray(coder, encoded);
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, decoded));
+    assertEquals("hello world!", decoded.getString("f_string"));
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, decoded));
+  }
+
+  @Test
+  public void testLazyDecodingStaticEncoding() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addInt32Field("f_int32")
+            .addStringField("f_string")
+            .setOptions(
+                Schema.Options.builder()
+                    .setOption("beam:option:row:static_encoding", FieldType.BOOLEAN, true)
+                    .build())
+            .build();
+    Row row = Row.withSchema(schema).addValues(42, "hello world!").build();
+
+    CoderProperties.coderDecodeEncodeEqual(RowCoder.of(schema).withLazyRowDecoding(), row);
+  }
 }
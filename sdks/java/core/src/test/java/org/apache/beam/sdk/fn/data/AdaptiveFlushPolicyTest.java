@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AdaptiveFlushPolicy}. */
+@RunWith(JUnit4.class)
+public class AdaptiveFlushPolicyTest {
+  private static final long TARGET_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testBatchGrowsWhileSendingIsCheap() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(false, -1, 1000, 100, 4000);
+    assertEquals(Long.MAX_VALUE, policy.getLingerNanos());
+    assertEquals(1000, policy.getSizeLimit());
+
+    policy.onFlush(1000, 10, 10 * MILLI, MILLI / 10);
+    assertEquals(2000, policy.getSizeLimit());
+    policy.onFlush(2000, 20, 20 * MILLI, MILLI / 10);
+    assertEquals(4000, policy.getSizeLimit());
+    policy.onFlush(4000, 40, 40 * MILLI, MILLI / 10);
+    assertEquals(4000, policy.getSizeLimit());
+    assertEquals(Long.MAX_VALUE, policy.getLingerNanos());
+  }
+
+  @Test
+  public void testBatchShrinksWhileBlocked() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(false, -1, 1000, 100, 4000);
+
+    policy.onFlush(1000, 100, MILLI, 10 * MILLI);
+    assertEquals(500, policy.getSizeLimit());
+    policy.onFlush(500, 50, MILLI, 10 * MILLI);
+    assertEquals(250, policy.getSizeLimit());
+
+    // Sending which is neither cheap nor blocked keeps the size.
+    policy.onFlush(250, 25, 2 * MILLI, MILLI);
+    assertEquals(250, policy.getSizeLimit());
+  }
+
+  @Test
+  public void testSizeIsAtLeastSeveralElements() {
+    AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy(false, -1, 1000, 100, 4000);
+
+    policy.onFlush(1000, 1, MILLI, 10 * MILLI);
+    assertEquals(1000 * 4, policy.getSizeLimit());
+  }
+
+  @Test
+  public void testStreamingMeetsTargetLatency() {
+    AdaptiveFlushPolicy policy =
+        new AdaptiveFlushPolicy(true, TARGET_LATENCY_NANOS, 1000, 10, 1_000_000);
+    assertEquals(TARGET_LATENCY_NANOS, policy.getLingerNanos());
+
+    // 100 bytes per millisecond and 20 milliseconds to send leaves 80 milliseconds to buffer.
+    policy.onFlush(1000, 10, 10 * MILLI, 20 * MILLI);
+    assertEquals(80 * MILLI, policy.getLingerNanos());
+    assertEquals(8000, policy.getSizeLimit(), 1);
+  }
+
+  @Test
+  public void testStreamingAlwaysLingers() {
+    AdaptiveFlushPolicy policy =
+        new AdaptiveFlushPolicy(true, TARGET_LATENCY_NANOS, 1000, 10, 1_000_000);
+
+    policy.onFlush(1000, 10, 10 * MILLI, 2 * TARGET_LATENCY_NANOS);
+    assertEquals(TARGET_LATENCY_NANOS / 10, policy.getLingerNanos());
+    assertEquals(1000, policy.getSizeLimit(), 1);
+  }
+}
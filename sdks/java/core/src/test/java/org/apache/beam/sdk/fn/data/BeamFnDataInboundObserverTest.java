@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -105,6 +106,43 @@ public class BeamFnDataInboundObserverTest {
     future.get();
   }
 
+  @Test
+  public void testPrefetchingReceiverSeesWholeBlockBeforeElements() throws Exception {
+    Collection<String> events = new ArrayList<>();
+    PrefetchingFnDataReceiver<WindowedValue<String>> receiver =
+        new PrefetchingFnDataReceiver<WindowedValue<String>>() {
+          @Override
+          public void prefetch(List<WindowedValue<String>> inputs) {
+            StringBuilder prefetched = new StringBuilder("prefetch");
+            for (WindowedValue<String> input : inputs) {
+              prefetched.append(' ').append(input.getValue());
+            }
+            events.add(prefetched.toString());
+          }
+
+          @Override
+          public void accept(WindowedValue<String> input) {
+            events.add(input.getValue());
+          }
+        };
+    BeamFnDataInboundObserver observer =
+        BeamFnDataInboundObserver.forConsumers(
+            Arrays.asList(DataEndpoint.create(TRANSFORM_ID, CODER, receiver)),
+            Collections.emptyList());
+
+    Future<?> future =
+        executor.submit(
+            () -> {
+              observer.accept(dataWith("ABC", "DEF", "GHI"));
+              observer.accept(lastData());
+              return null;
+            });
+
+    observer.awaitCompletion();
+    assertThat(events, contains("prefetch ABC DEF GHI", "ABC", "DEF", "GHI"));
+    future.get();
+  }
+
   @Test
   public void testAwaitCompletionFailureVisibleToAwaitCompletionCallerAndProducer()
       throws Exception {
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -29,6 +30,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
@@ -36,7 +38,12 @@ import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.sdk.coders.ByteArrayCoder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.LengthPrefixCoder;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator.FlushStatistics;
 import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator.Receiver;
+import org.apache.beam.sdk.fn.stream.AdvancingPhaser;
+import org.apache.beam.sdk.fn.stream.BufferingStreamObserver;
+import org.apache.beam.sdk.fn.test.TestExecutors;
+import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
 import org.apache.beam.sdk.fn.test.TestStreams;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -46,6 +53,7 @@ import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterab
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -60,6 +68,8 @@ public class BeamFnDataOutboundAggregatorTest {
       LogicalEndpoint.timer("999L", "333L", "111L");
   private static final Coder<byte[]> CODER = LengthPrefixCoder.of(ByteArrayCoder.of());
 
+  @Rule public TestExecutorService executor = TestExecutors.from(Executors.newCachedThreadPool());
+
   @Parameters
   public static Collection<LogicalEndpoint> data() {
     return Arrays.asList(DATA_OUTPUT_LOCATION, TIMER_OUTPUT_LOCATION);
@@ -324,6 +334,180 @@ public class BeamFnDataOutboundAggregatorTest {
     checkEqualInAnyOrder(builder.build(), values.get(1));
   }
 
+  @Test
+  public void testAdaptiveFlushesEndpointsIndependently() throws Exception {
+    List<BeamFnApi.Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_size_limit=100", "data_buffer_adaptive"));
+    BeamFnDataOutboundAggregator aggregator = new BeamFnDataOutboundAggregator(options, false);
+    assertTrue(aggregator.isAdaptive());
+    aggregator.prepareForInstruction(
+        endpoint.getInstructionId(), TestStreams.<Elements>withOnNext(values::add).build());
+    LogicalEndpoint additionalEndpoint =
+        LogicalEndpoint.data(
+            endpoint.getInstructionId(), "additional:" + endpoint.getTransformId());
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    FnDataReceiver<byte[]> additionalDataReceiver =
+        registerOutputLocation(aggregator, additionalEndpoint, CODER);
+    aggregator.start();
+
+    // The combined output exceeds the size limit but neither endpoint does.
+    dataReceiver.accept(new byte[51]);
+    additionalDataReceiver.accept(new byte[49]);
+    MatcherAssert.assertThat(values, empty());
+
+    // Only the endpoint which exceeds the size limit is flushed.
+    dataReceiver.accept(new byte[49]);
+    Assert.assertEquals(messageWithData(new byte[51], new byte[49]), values.get(0));
+
+    FlushStatistics statistics =
+        aggregator.getDataFlushStatistics(additionalEndpoint.getTransformId());
+    assertEquals(100, statistics.getFlushSizeLimit());
+    assertEquals(-1L, statistics.getFlushLingerMillis());
+
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+    checkEqualInAnyOrder(
+        messageWithDataBuilder(additionalEndpoint, new byte[49])
+            .mergeFrom(endMessage())
+            .addData(
+                BeamFnApi.Elements.Data.newBuilder()
+                    .setInstructionId(additionalEndpoint.getInstructionId())
+                    .setTransformId(additionalEndpoint.getTransformId())
+                    .setIsLast(true))
+            .build(),
+        values.get(1));
+    aggregator.finishInstruction();
+  }
+
+  @Test
+  public void testZeroCopyBuffersAreRecycled() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_size_limit=100", "data_buffer_zero_copy"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(options, false, true);
+    // Serialize the elements as gRPC would since the buffers are reused after onNext returns.
+    aggregator.prepareForInstruction(
+        endpoint.getInstructionId(),
+        TestStreams.<Elements>withOnNext(e -> values.add(copy(e))).build());
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    for (int i = 0; i < 10; ++i) {
+      dataReceiver.accept(filled(51, i));
+      assertEquals(i, values.size());
+      dataReceiver.accept(filled(49, i));
+      Assert.assertEquals(messageWithData(filled(51, i), filled(49, i)), values.get(i));
+    }
+
+    // Test elements which span multiple buffers.
+    byte[] large = filled(2 * BeamFnDataOutboundAggregator.ZERO_COPY_CHUNK_SIZE + 7, 42);
+    dataReceiver.accept(large);
+    Assert.assertEquals(messageWithData(large), values.get(10));
+
+    dataReceiver.accept(filled(1, 11));
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+    checkEqualInAnyOrder(
+        messageWithDataBuilder(filled(1, 11)).mergeFrom(endMessage()).build(), values.get(11));
+  }
+
+  @Test
+  public void testZeroCopyCollectedElementsAreNotRecycled() throws Exception {
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options.as(ExperimentalOptions.class).setExperiments(Arrays.asList("data_buffer_zero_copy"));
+    BeamFnDataOutboundAggregator aggregator = new BeamFnDataOutboundAggregator(options, true, true);
+    aggregator.prepareForInstruction(
+        endpoint.getInstructionId(), TestStreams.<Elements>withOnNext(e -> fail()).build());
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    dataReceiver.accept(filled(10, 1));
+    Elements first = aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+    aggregator.finishInstruction();
+
+    aggregator.prepareForInstruction(
+        endpoint.getInstructionId(), TestStreams.<Elements>withOnNext(e -> fail()).build());
+    dataReceiver.accept(filled(10, 2));
+    Elements second = aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+
+    // The first bundle's elements must not be overwritten by the second bundle.
+    checkEqualInAnyOrder(
+        messageWithDataBuilder(filled(10, 1)).mergeFrom(endMessage()).build(), first);
+    checkEqualInAnyOrder(
+        messageWithDataBuilder(filled(10, 2)).mergeFrom(endMessage()).build(), second);
+  }
+
+  @Test
+  public void testZeroCopyWithBufferingStreamObserver() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    CountDownLatch allSent = new CountDownLatch(1);
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_size_limit=100", "data_buffer_zero_copy"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(options, false, true);
+    // The elements are only serialized once all of them have been passed to the observer.
+    BufferingStreamObserver<Elements> outboundObserver =
+        new BufferingStreamObserver<>(
+            new AdvancingPhaser(1),
+            TestStreams.<Elements>withOnNext(
+                    e -> {
+                      try {
+                        allSent.await();
+                      } catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                      }
+                      values.add(copy(e));
+                    })
+                .build(),
+            executor,
+            64);
+    aggregator.prepareForInstruction(endpoint.getInstructionId(), outboundObserver);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    for (int i = 0; i < 10; ++i) {
+      dataReceiver.accept(filled(101, i));
+    }
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+    allSent.countDown();
+    outboundObserver.onCompleted();
+
+    for (int i = 0; i < 10; ++i) {
+      Assert.assertEquals(messageWithData(filled(101, i)), values.get(i));
+    }
+    Assert.assertEquals(endMessage(), values.get(10));
+  }
+
+  @Test
+  public void testZeroCopyRequiresSerializingTransport() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_size_limit=100", "data_buffer_zero_copy"));
+    BeamFnDataOutboundAggregator aggregator = new BeamFnDataOutboundAggregator(options, false);
+    // Retain the elements without serializing them as an in-process transport does.
+    aggregator.prepareForInstruction(
+        endpoint.getInstructionId(), TestStreams.<Elements>withOnNext(values::add).build());
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    for (int i = 0; i < 10; ++i) {
+      dataReceiver.accept(filled(101, i));
+    }
+    aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+
+    for (int i = 0; i < 10; ++i) {
+      Assert.assertEquals(messageWithData(filled(101, i)), values.get(i));
+    }
+  }
+
   @Test
   public void testInstructionLifecycle() {
     BeamFnDataOutboundAggregator aggregator =
@@ -390,6 +574,20 @@ public class BeamFnDataOutboundAggregatorTest {
     }
   }
 
+  private static byte[] filled(int size, int value) {
+    byte[] bytes = new byte[size];
+    Arrays.fill(bytes, (byte) value);
+    return bytes;
+  }
+
+  private static Elements copy(Elements elements) {
+    try {
+      return Elements.parseFrom(elements.toByteString());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   BeamFnApi.Elements messageWithData(byte[]... datum) throws IOException {
     return messageWithDataBuilder(datum).build();
   }
@@ -21,6 +21,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 import static org.mockito.Mockito.doThrow;
@@ -29,17 +30,24 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.Writer;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.beam.sdk.io.fs.CreateOptions;
 import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.io.fs.MoveOptions;
 import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.util.MimeTypes;
 import org.apache.beam.sdk.values.KV;
@@ -304,6 +312,101 @@ public class FileSystemsTest {
         .delete(toResourceIds(ImmutableList.of(srcPath3), false /* isDirectory */));
   }
 
+  @Test
+  public void testRenameManyFiles() throws Exception {
+    List<Path> srcPaths = new ArrayList<>();
+    List<Path> destPaths = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      Path srcPath = temporaryFolder.newFile().toPath();
+      createFileWithContent(srcPath, "content" + i);
+      srcPaths.add(srcPath);
+      destPaths.add(srcPath.resolveSibling("dest").resolve("dest" + i));
+    }
+
+    FileSystems.rename(toResourceIds(srcPaths, false), toResourceIds(destPaths, false));
+
+    for (int i = 0; i < 500; i++) {
+      assertFalse(srcPaths.get(i).toFile().exists());
+      assertThat(
+          Files.readLines(destPaths.get(i).toFile(), StandardCharsets.UTF_8),
+          containsInAnyOrder("content" + i));
+    }
+
+    List<MatchResult> matches =
+        FileSystems.matchResources(toResourceIds(destPaths, false /* isDirectory */));
+    assertEquals(500, matches.size());
+    for (int i = 0; i < 500; i++) {
+      assertEquals(
+          LocalResourceId.fromPath(destPaths.get(i), false),
+          matches.get(i).metadata().get(0).resourceId());
+    }
+
+    FileSystems.delete(toResourceIds(destPaths, false /* isDirectory */));
+    for (Path destPath : destPaths) {
+      assertFalse(destPath.toFile().exists());
+    }
+  }
+
+  @Test
+  public void testBulkOperationInConcurrentBatches() throws Exception {
+    FileSystem mockFileSystem = mock(FileSystem.class);
+    when(mockFileSystem.allowsConcurrentBulkOperations()).thenReturn(true);
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    List<List<Integer>> batches =
+        FileSystems.bulkOperation(
+            mockFileSystem,
+            1000,
+            Metrics.counter(FileSystemsTest.class, "progress"),
+            (from, to) -> {
+              threads.add(Thread.currentThread().getName());
+              return IntStream.range(from, to).boxed().collect(Collectors.toList());
+            });
+
+    assertTrue(batches.size() > 1);
+    assertFalse(threads.contains(Thread.currentThread().getName()));
+    assertEquals(
+        IntStream.range(0, 1000).boxed().collect(Collectors.toList()),
+        batches.stream().flatMap(List::stream).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testBulkOperationInSingleBatch() throws Exception {
+    FileSystem mockFileSystem = mock(FileSystem.class);
+    when(mockFileSystem.allowsConcurrentBulkOperations()).thenReturn(false);
+
+    List<String> batches =
+        FileSystems.bulkOperation(
+            mockFileSystem,
+            1000,
+            Metrics.counter(FileSystemsTest.class, "progress"),
+            (from, to) -> from + "-" + to + "-" + Thread.currentThread().getName());
+
+    assertEquals(ImmutableList.of("0-1000-" + Thread.currentThread().getName()), batches);
+  }
+
+  @Test
+  public void testBulkOperationRethrowsFailure() {
+    FileSystem mockFileSystem = mock(FileSystem.class);
+    when(mockFileSystem.allowsConcurrentBulkOperations()).thenReturn(true);
+
+    IOException exception =
+        assertThrows(
+            IOException.class,
+            () ->
+                FileSystems.bulkOperation(
+                    mockFileSystem,
+                    1000,
+                    Metrics.counter(FileSystemsTest.class, "progress"),
+                    (from, to) -> {
+                      if (from > 0) {
+                        throw new FileNotFoundException("batch " + from);
+                      }
+                      return null;
+                    }));
+    assertTrue(exception instanceof FileNotFoundException);
+  }
+
   @Test
   public void testValidMatchNewResourceForLocalFileSystem() {
     assertEquals("file", FileSystems.matchNewResource("/tmp/f1", false).getScheme());
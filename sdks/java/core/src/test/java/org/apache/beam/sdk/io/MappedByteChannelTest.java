@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link MappedByteChannel}. */
+@RunWith(JUnit4.class)
+public class MappedByteChannelTest {
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private final byte[] data = new byte[1000];
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    file = tmpFolder.newFile();
+    Files.write(file.toPath(), data);
+  }
+
+  @Test
+  public void testReadAcrossWindows() throws IOException {
+    try (MappedByteChannel channel = open(64)) {
+      assertEquals(data.length, channel.size());
+      ByteBuffer dst = ByteBuffer.allocate(data.length + 10);
+      // reads smaller and larger than a window
+      dst.limit(30);
+      assertEquals(30, channel.read(dst));
+      dst.limit(dst.capacity());
+      assertEquals(data.length - 30, channel.read(dst));
+      assertEquals(data.length, channel.position());
+      assertEquals(-1, channel.read(dst));
+      assertArrayEquals(data, Arrays.copyOf(dst.array(), data.length));
+    }
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    try (MappedByteChannel channel = open(64)) {
+      ByteBuffer dst = ByteBuffer.allocate(100);
+      channel.position(900);
+      assertEquals(100, channel.read(dst));
+      assertArrayEquals(Arrays.copyOfRange(data, 900, 1000), dst.array());
+
+      // seek back before the current window
+      dst.clear();
+      channel.position(10);
+      assertEquals(100, channel.read(dst));
+      assertArrayEquals(Arrays.copyOfRange(data, 10, 110), dst.array());
+      assertEquals(110, channel.position());
+
+      channel.position(2000);
+      assertEquals(-1, channel.read(dst));
+    }
+  }
+
+  @Test
+  public void testStartsAtPositionOfFileChannel() throws IOException {
+    FileChannel file = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+    file.position(500);
+    try (MappedByteChannel channel = new MappedByteChannel(file, 64)) {
+      ByteBuffer dst = ByteBuffer.allocate(1);
+      assertEquals(1, channel.read(dst));
+      assertEquals(data[500], dst.get(0));
+    }
+  }
+
+  @Test
+  public void testSlice() throws IOException {
+    try (MappedByteChannel channel = open(64)) {
+      // within the current window and across windows
+      channel.read(ByteBuffer.allocate(1));
+      assertSlice(channel, 10, 20);
+      assertSlice(channel, 60, 100);
+      assertSlice(channel, 0, data.length);
+      assertSlice(channel, data.length, 0);
+      assertEquals(1, channel.position());
+      assertThrows(IllegalArgumentException.class, () -> channel.slice(990, 20));
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws IOException {
+    try (MappedByteChannel channel = open(64)) {
+      assertThrows(NonWritableChannelException.class, () -> channel.write(ByteBuffer.wrap(data)));
+      assertThrows(NonWritableChannelException.class, () -> channel.truncate(0));
+    }
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    MappedByteChannel channel = open(64);
+    channel.close();
+    assertFalse(channel.isOpen());
+    assertThrows(ClosedChannelException.class, () -> channel.read(ByteBuffer.allocate(1)));
+  }
+
+  private MappedByteChannel open(int windowSize) throws IOException {
+    return new MappedByteChannel(
+        FileChannel.open(file.toPath(), StandardOpenOption.READ), windowSize);
+  }
+
+  private void assertSlice(MappedByteChannel channel, int position, int length) throws IOException {
+    ByteBuffer slice = channel.slice(position, length);
+    byte[] bytes = new byte[slice.remaining()];
+    slice.get(bytes);
+    assertArrayEquals(Arrays.copyOfRange(data, position, position + length), bytes);
+  }
+}
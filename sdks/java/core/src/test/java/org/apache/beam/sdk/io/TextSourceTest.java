@@ -19,20 +19,33 @@ package org.apache.beam.sdk.io;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.beam.sdk.io.fs.MatchResult;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.hamcrest.Matcher;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 @RunWith(JUnit4.class)
 public class TextSourceTest {
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
 
   @Test
   public void testSubstringByteArrayOutputStreamSuccessful() throws IOException {
@@ -130,6 +143,95 @@ public class TextSourceTest {
     assertEquals(Arrays.asList("", "", ""), split("AAB", "AABAABAAB"));
   }
 
+  @Test
+  public void testDelimiterFinderSkipsToCandidates() {
+    String[][] cases = {
+      {"AB", "xxAxxxxxxxABxxxxAABxxxxxxxxxAB"},
+      {"AAB", "xxxxxxxxxAAxAAABxxxxxxxxxxAAAB"},
+      {"ABABC", "ABABABCxxxxxxxxABABxABABCxxxxxxxxxA"},
+      {"|", "a|bc|||defghijklmnop|qrstuvwx|"},
+    };
+    for (String[] c : cases) {
+      assertEquals(split(c[0], c[1]), splitSkippingToCandidates(c[0], c[1]));
+    }
+  }
+
+  @Test
+  public void testIndexOfLineTerminator() {
+    for (int length = 0; length < 20; length++) {
+      for (int pos = 0; pos <= length; pos++) {
+        // 0x8A and 0x8D only differ from LF and CR in the high bit
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) 0x8A);
+        for (byte terminator : new byte[] {'\n', '\r'}) {
+          if (pos < length) {
+            bytes[pos] = terminator;
+            if (pos + 1 < length) {
+              bytes[pos + 1] = terminator == '\n' ? (byte) '\r' : (byte) '\n';
+            }
+          }
+          assertEquals(pos, TextSource.TextBasedReader.indexOfLineTerminator(bytes, 0, length));
+          for (int from = 0; from <= pos; from++) {
+            assertEquals(
+                pos, TextSource.TextBasedReader.indexOfLineTerminator(bytes, from, length));
+          }
+          assertEquals(
+              Math.min(pos, Math.max(0, length - 1)),
+              TextSource.TextBasedReader.indexOfLineTerminator(bytes, 0, Math.max(0, length - 1)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIndexOf() {
+    byte[] bytes = "abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      assertEquals(i, TextSource.TextBasedReader.indexOf(bytes, bytes[i], 0, bytes.length));
+      assertEquals(i, TextSource.TextBasedReader.indexOf(bytes, bytes[i], i, bytes.length));
+      assertEquals(i, TextSource.TextBasedReader.indexOf(bytes, bytes[i], 0, i));
+    }
+    assertEquals(
+        bytes.length, TextSource.TextBasedReader.indexOf(bytes, (byte) 0xE1, 0, bytes.length));
+    assertEquals(
+        bytes.length, TextSource.TextBasedReader.indexOf(bytes, (byte) '!', 0, bytes.length));
+  }
+
+  @Test
+  public void testMemoryMappedReadsDisabledByDefault() throws IOException {
+    assertReadsLargeFile(PipelineOptionsFactory.create(), not(instanceOf(MappedByteChannel.class)));
+  }
+
+  @Test
+  public void testMemoryMappedReadsWithExperiment() throws IOException {
+    PipelineOptions options =
+        PipelineOptionsFactory.fromArgs(
+                "--experiments=" + TextSource.MEMORY_MAPPED_READS_EXPERIMENT)
+            .create();
+    assertReadsLargeFile(options, instanceOf(MappedByteChannel.class));
+  }
+
+  private void assertReadsLargeFile(PipelineOptions options, Matcher<Object> channelMatcher)
+      throws IOException {
+    // large enough to be memory mapped
+    List<String> expected =
+        IntStream.range(0, 200_000).mapToObj(i -> "line " + i).collect(Collectors.toList());
+    File file = tmpFolder.newFile();
+    Files.write(file.toPath(), expected, StandardCharsets.UTF_8);
+
+    MatchResult.Metadata metadata = FileSystems.matchSingleFileSpec(file.getPath());
+    TextSource source = new TextSource(metadata, 0, metadata.sizeBytes(), null);
+    List<String> lines = new ArrayList<>();
+    try (TextSource.TextBasedReader reader =
+        (TextSource.TextBasedReader) source.createReader(options)) {
+      for (boolean more = reader.start(); more; more = reader.advance()) {
+        lines.add(reader.getCurrent());
+      }
+      assertThat(reader.inChannel, channelMatcher);
+    }
+    assertEquals(expected, lines);
+  }
+
   List<String> split(String delimiter, String text) {
     byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
     TextSource.KMPDelimiterFinder finder = new TextSource.KMPDelimiterFinder(delimiterBytes);
@@ -153,4 +255,28 @@ public class TextSourceTest {
     }
     return result;
   }
+
+  List<String> splitSkippingToCandidates(String delimiter, String text) {
+    byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+    TextSource.KMPDelimiterFinder finder = new TextSource.KMPDelimiterFinder(delimiterBytes);
+
+    byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+
+    List<String> result = new ArrayList<>();
+    int start = 0;
+    int i = 0;
+    while (i < textBytes.length) {
+      i = finder.indexOfCandidate(textBytes, i, textBytes.length);
+      if (i < textBytes.length && finder.feed(textBytes[i++])) {
+        int end = i - delimiterBytes.length;
+        result.add(new String(textBytes, start, end - start, StandardCharsets.UTF_8));
+        start = i;
+      }
+    }
+
+    if (start != textBytes.length) {
+      result.add(new String(textBytes, start, textBytes.length - start, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
 }
@@ -30,6 +30,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
@@ -366,6 +367,38 @@ public class WriteFilesTest {
         true);
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesUnboundedPCollections.class})
+  public void testWriteUnboundedWithRollingFiles() throws IOException {
+    runShardedWrite(
+        Arrays.asList("one", "two", "three", "four", "five", "six"),
+        Window.into(FixedWindows.of(Duration.standardSeconds(10))),
+        getBaseOutputFilename(),
+        WriteFiles.to(makeSimpleSink())
+            .withWindowedWrites()
+            .withAutoSharding()
+            .withRollingFiles(10, Duration.standardMinutes(1)),
+        null,
+        true);
+  }
+
+  @Test
+  public void testRollingFilesParameters() {
+    WriteFiles<String, Void, String> write =
+        WriteFiles.to(makeSimpleSink())
+            .withRollingFiles(CUSTOM_FILE_TRIGGERING_BYTE_COUNT, Duration.standardMinutes(1));
+    assertEquals(Integer.MAX_VALUE, (int) write.getBatchSize());
+    assertEquals(CUSTOM_FILE_TRIGGERING_BYTE_COUNT, (int) write.getBatchSizeBytes());
+    assertEquals(Duration.standardMinutes(1), write.getBatchMaxBufferingDuration());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WriteFiles.to(makeSimpleSink()).withRollingFiles(0, Duration.standardMinutes(1)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WriteFiles.to(makeSimpleSink()).withRollingFiles(1, Duration.ZERO));
+  }
+
   @Test
   @Category({
     NeedsRunner.class,
@@ -491,6 +524,30 @@ public class WriteFilesTest {
             .withNoSpilling());
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testWriteWithWriterEviction() throws IOException {
+    List<String> inputs = Lists.newArrayList();
+    for (int i = 0; i < 100; ++i) {
+      inputs.add("mambo_number_" + i);
+    }
+    runWrite(
+        inputs,
+        Window.into(FixedWindows.of(Duration.millis(10))),
+        getBaseOutputFilename(),
+        WriteFiles.to(makeSimpleSink())
+            .withMaxNumWritersPerBundle(2)
+            .withWindowedWrites()
+            .withWriterEviction());
+  }
+
+  @Test
+  public void testWriterEvictionWithNoSpilling() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WriteFiles.to(makeSimpleSink()).withNoSpilling().withWriterEviction());
+  }
+
   @Test
   public void testBuildWrite() {
     SimpleSink<Void> sink = makeSimpleSink();
@@ -34,7 +34,12 @@ public abstract class ExternalSorter implements Sorter {
     /** Sorter type. */
     public enum SorterType {
       HADOOP,
-      NATIVE
+      NATIVE,
+      /**
+       * A native sorter which sorts runs on all available processors and merges them through memory
+       * mapped files. Suited for sorting large amounts of data per key.
+       */
+      NATIVE_PARALLEL
     }
 
     /** Sets the path to a temporary location where the sorter writes intermediate files. */
@@ -91,9 +96,14 @@ public abstract class ExternalSorter implements Sorter {
 
   /** Returns a {@link Sorter} configured with the given {@link Options}. */
   public static ExternalSorter create(Options options) {
-    return options.getSorterType() == Options.SorterType.HADOOP
-        ? HadoopExternalSorter.create(options)
-        : NativeExternalSorter.create(options);
+    switch (options.getSorterType()) {
+      case HADOOP:
+        return HadoopExternalSorter.create(options);
+      case NATIVE_PARALLEL:
+        return ParallelNativeExternalSorter.create(options);
+      default:
+        return NativeExternalSorter.create(options);
+    }
   }
 
   ExternalSorter(Options options) {
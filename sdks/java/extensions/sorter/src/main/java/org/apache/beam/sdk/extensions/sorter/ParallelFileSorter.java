@@ -0,0 +1,679 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sorter;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * External sorter which sorts runs of records on multiple threads while the input is still being
+ * added, writes the sorted runs to temporary files using a {@link FileChannel} and merges the runs
+ * with a loser tree reading the files through memory mapped buffers.
+ *
+ * <p>Every key is normalized to a prefix of its first eight bytes which is compared as an unsigned
+ * {@code long}, so that the remaining bytes are only compared for keys that share a prefix.
+ *
+ * <p>If all records fit into a single run they are sorted in memory and nothing is written to disk.
+ */
+class ParallelFileSorter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelFileSorter.class);
+
+  // Runs are limited to 1 GiB so that their records always fit into a single array.
+  private static final long MAX_RUN_BYTES = 1L << 30;
+  private static final long MIN_RUN_BYTES = 1L << 20;
+  private static final int MAX_MERGE_FAN_IN = 512;
+  private static final int MAX_MAPPED_WINDOW_BYTES = 64 << 20;
+  private static final int MIN_MAPPED_WINDOW_BYTES = 64 << 10;
+  private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+  // The key and value length which precede every record.
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+  // The prefix and offset kept in memory for every record of a run.
+  private static final int INDEX_ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("parallel-file-sorter-%d")
+              .build());
+
+  private final Path tempDir;
+  private final int runBytes;
+  private final int parallelism;
+  private final int maxMergeFanIn;
+  // The size of the windows mapped by each reader of a merge, such that the merges which run
+  // concurrently map about as much memory as the runs which are sorted concurrently.
+  private final int mergeWindowBytes;
+
+  /** Runs which are being sorted and written by {@link #EXECUTOR}, oldest first. */
+  private final Deque<Future<File>> pendingRuns = new ArrayDeque<>();
+
+  /** Files containing sorted runs. */
+  private final List<File> runs = new ArrayList<>();
+
+  private Run currentRun;
+  private boolean sortCalled = false;
+
+  /**
+   * Create a new file sorter which uses at most {@code maxMemory} bytes for buffering the records
+   * of runs and sorts up to {@code parallelism} runs concurrently.
+   */
+  public ParallelFileSorter(Path tempDir, long maxMemory, int parallelism) {
+    this(
+        tempDir,
+        (int) Math.max(MIN_RUN_BYTES, Math.min(MAX_RUN_BYTES, maxMemory / (parallelism + 1))),
+        parallelism,
+        MAX_MERGE_FAN_IN);
+  }
+
+  @VisibleForTesting
+  ParallelFileSorter(Path tempDir, int runBytes, int parallelism, int maxMergeFanIn) {
+    checkArgument(runBytes > 0, "runBytes must be greater than zero");
+    checkArgument(parallelism > 0, "parallelism must be greater than zero");
+    checkArgument(maxMergeFanIn > 1, "maxMergeFanIn must be greater than one");
+    this.tempDir = tempDir;
+    this.runBytes = runBytes;
+    this.parallelism = parallelism;
+    this.maxMergeFanIn = maxMergeFanIn;
+    this.mergeWindowBytes =
+        Math.max(
+            MIN_MAPPED_WINDOW_BYTES, Math.min(MAX_MAPPED_WINDOW_BYTES, runBytes / maxMergeFanIn));
+    this.currentRun = new Run(runBytes);
+  }
+
+  /**
+   * Adds a given record to the sorter.
+   *
+   * <p>Records can only be added before calling {@link #sort()}.
+   */
+  public void add(byte[] key, byte[] value) throws IOException {
+    checkState(!sortCalled, "Records can only be added before sort()");
+    if (!currentRun.hasRoomFor(key, value)) {
+      spill();
+    }
+    currentRun.add(key, value);
+  }
+
+  /**
+   * Sorts the added elements and returns an {@link Iterable} over the sorted elements.
+   *
+   * <p>Can be called at most once.
+   */
+  public Iterable<KV<byte[], byte[]>> sort() throws IOException {
+    checkState(!sortCalled, "sort() can only be called once.");
+    sortCalled = true;
+
+    if (pendingRuns.isEmpty() && runs.isEmpty()) {
+      Run run = currentRun;
+      run.sort();
+      return run::iterator;
+    }
+
+    if (!currentRun.isEmpty()) {
+      spill();
+    }
+    while (!pendingRuns.isEmpty()) {
+      runs.add(await(pendingRuns.removeFirst()));
+    }
+    currentRun = new Run(0);
+
+    List<File> files = new ArrayList<>(runs);
+    while (files.size() > maxMergeFanIn) {
+      files = mergeInParallel(files);
+    }
+    List<File> mergedFiles = files;
+    // The final merge runs on its own so it can use the memory of all concurrent merges.
+    int windowBytes =
+        (int) Math.min(MAX_MAPPED_WINDOW_BYTES, (long) mergeWindowBytes * parallelism);
+    LOG.debug("Merging {} sorted runs", mergedFiles.size());
+    return () -> {
+      try {
+        return MergingIterator.of(openAll(mergedFiles, windowBytes));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Hands the current run over to be sorted and written to disk, waiting for the oldest pending run
+   * if there are already {@link #parallelism} runs pending which bounds the memory used.
+   */
+  private void spill() throws IOException {
+    while (pendingRuns.size() >= parallelism) {
+      runs.add(await(pendingRuns.removeFirst()));
+    }
+    Run run = currentRun;
+    pendingRuns.addLast(EXECUTOR.submit(() -> run.sortAndWrite(tempDir)));
+    currentRun = new Run(runBytes);
+  }
+
+  /**
+   * Merges groups of at most {@link #maxMergeFanIn} files into one file each, running at most
+   * {@link #parallelism} merges at a time.
+   */
+  private List<File> mergeInParallel(List<File> files) throws IOException {
+    LOG.debug("Merging {} sorted runs in groups of {}", files.size(), maxMergeFanIn);
+    Deque<Future<File>> pendingMerges = new ArrayDeque<>();
+    List<File> merged = new ArrayList<>();
+    for (int i = 0; i < files.size(); i += maxMergeFanIn) {
+      while (pendingMerges.size() >= parallelism) {
+        merged.add(await(pendingMerges.removeFirst()));
+      }
+      List<File> group = files.subList(i, Math.min(files.size(), i + maxMergeFanIn));
+      pendingMerges.addLast(EXECUTOR.submit(() -> merge(group)));
+    }
+    while (!pendingMerges.isEmpty()) {
+      merged.add(await(pendingMerges.removeFirst()));
+    }
+    for (File file : files) {
+      Files.deleteIfExists(file.toPath());
+    }
+    return merged;
+  }
+
+  private File merge(List<File> files) throws IOException {
+    File file = createTempFile(tempDir);
+    try (RunWriter writer = new RunWriter(file)) {
+      MergingIterator iterator = MergingIterator.of(openAll(files, mergeWindowBytes));
+      while (iterator.hasNext()) {
+        KV<byte[], byte[]> kv = iterator.next();
+        writer.write(kv.getKey(), kv.getValue());
+      }
+    }
+    return file;
+  }
+
+  private static List<RunReader> openAll(List<File> files, int windowBytes) throws IOException {
+    List<RunReader> readers = new ArrayList<>(files.size());
+    for (File file : files) {
+      RunReader reader = new RunReader(file, windowBytes);
+      reader.advance();
+      readers.add(reader);
+    }
+    return readers;
+  }
+
+  private static File await(Future<File> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for sorted run");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static File createTempFile(Path tempDir) throws IOException {
+    File file = Files.createTempFile(tempDir, "sort", "run").toFile();
+    file.deleteOnExit();
+    return file;
+  }
+
+  /** Returns the first eight bytes of the key as a big endian {@code long}, padded with zeros. */
+  private static long prefix(byte[] bytes, int offset, int length) {
+    long prefix = 0;
+    int prefixLength = Math.min(length, Long.BYTES);
+    for (int i = 0; i < prefixLength; i++) {
+      prefix |= (bytes[offset + i] & 0xFFL) << (Long.SIZE - Byte.SIZE * (i + 1));
+    }
+    return prefix;
+  }
+
+  private static int compare(
+      long prefix1,
+      byte[] bytes1,
+      int offset1,
+      int length1,
+      long prefix2,
+      byte[] bytes2,
+      int offset2,
+      int length2) {
+    int result = Long.compareUnsigned(prefix1, prefix2);
+    if (result != 0) {
+      return result;
+    }
+    return Arrays.compareUnsigned(
+        bytes1, offset1, offset1 + length1, bytes2, offset2, offset2 + length2);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * The records of a run stored back to back in a single array in the same format as they are
+   * written to disk, a key length and value length followed by the key and value bytes, along with
+   * an index of the key prefix and offset of every record which is what is actually sorted.
+   */
+  private static class Run {
+    private static final int INITIAL_BYTES = 64 << 10;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final long maxBytes;
+    private byte[] data;
+    private int size = 0;
+    private long[] prefixes;
+    private int[] offsets;
+    private int count = 0;
+
+    Run(int maxBytes) {
+      this.maxBytes = maxBytes;
+      this.data = new byte[Math.min(INITIAL_BYTES, maxBytes)];
+      this.prefixes = new long[INITIAL_RECORDS];
+      this.offsets = new int[INITIAL_RECORDS];
+    }
+
+    boolean isEmpty() {
+      return count == 0;
+    }
+
+    /** An empty run always has room so that records larger than a run can still be sorted. */
+    boolean hasRoomFor(byte[] key, byte[] value) {
+      long bytes = size + (long) count * INDEX_ENTRY_BYTES;
+      return isEmpty()
+          || bytes + RECORD_HEADER_BYTES + key.length + value.length + INDEX_ENTRY_BYTES
+              <= maxBytes;
+    }
+
+    void add(byte[] key, byte[] value) {
+      int recordLength = RECORD_HEADER_BYTES + key.length + value.length;
+      if (size + recordLength > data.length) {
+        long capacity = Math.max(size + recordLength, Math.min(maxBytes, 2L * data.length));
+        data = Arrays.copyOf(data, (int) capacity);
+      }
+      if (count == offsets.length) {
+        prefixes = Arrays.copyOf(prefixes, 2 * count);
+        offsets = Arrays.copyOf(offsets, 2 * count);
+      }
+      prefixes[count] = prefix(key, 0, key.length);
+      offsets[count] = size;
+      count++;
+      putInt(size, key.length);
+      putInt(size + Integer.BYTES, value.length);
+      System.arraycopy(key, 0, data, size + RECORD_HEADER_BYTES, key.length);
+      System.arraycopy(value, 0, data, size + RECORD_HEADER_BYTES + key.length, value.length);
+      size += recordLength;
+    }
+
+    File sortAndWrite(Path tempDir) throws IOException {
+      sort();
+      File file = createTempFile(tempDir);
+      try (RunWriter writer = new RunWriter(file)) {
+        for (int i = 0; i < count; i++) {
+          int offset = offsets[i];
+          writer.write(
+              data, offset, RECORD_HEADER_BYTES + keyLength(offset) + valueLength(offset));
+        }
+      }
+      LOG.debug("Sorted and wrote {} records to {}", count, file);
+      return file;
+    }
+
+    Iterator<KV<byte[], byte[]>> iterator() {
+      return new Iterator<KV<byte[], byte[]>>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < count;
+        }
+
+        @Override
+        public KV<byte[], byte[]> next() {
+          if (next >= count) {
+            throw new NoSuchElementException();
+          }
+          int offset = offsets[next++];
+          int keyStart = offset + RECORD_HEADER_BYTES;
+          int valueStart = keyStart + keyLength(offset);
+          return KV.of(
+              Arrays.copyOfRange(data, keyStart, valueStart),
+              Arrays.copyOfRange(data, valueStart, valueStart + valueLength(offset)));
+        }
+      };
+    }
+
+    /** Sorts the index with a three-way quicksort which handles runs of equal keys efficiently. */
+    void sort() {
+      sort(0, count - 1);
+    }
+
+    private void sort(int low, int high) {
+      while (high - low >= INSERTION_SORT_THRESHOLD) {
+        swap(low, medianOfThree(low, low + (high - low) / 2, high));
+        int lt = low;
+        int gt = high;
+        int i = low + 1;
+        while (i <= gt) {
+          int result = compare(i, lt);
+          if (result < 0) {
+            swap(lt++, i++);
+          } else if (result > 0) {
+            swap(i, gt--);
+          } else {
+            i++;
+          }
+        }
+        // Recurse into the smaller partition to bound the stack depth.
+        if (lt - low < high - gt) {
+          sort(low, lt - 1);
+          low = gt + 1;
+        } else {
+          sort(gt + 1, high);
+          high = lt - 1;
+        }
+      }
+      for (int i = low + 1; i <= high; i++) {
+        for (int j = i; j > low && compare(j, j - 1) < 0; j--) {
+          swap(j, j - 1);
+        }
+      }
+    }
+
+    private int medianOfThree(int a, int b, int c) {
+      if (compare(a, b) < 0) {
+        return compare(b, c) < 0 ? b : compare(a, c) < 0 ? c : a;
+      } else {
+        return compare(a, c) < 0 ? a : compare(b, c) < 0 ? c : b;
+      }
+    }
+
+    private int compare(int i, int j) {
+      int offset1 = offsets[i];
+      int offset2 = offsets[j];
+      return ParallelFileSorter.compare(
+          prefixes[i],
+          data,
+          offset1 + RECORD_HEADER_BYTES,
+          keyLength(offset1),
+          prefixes[j],
+          data,
+          offset2 + RECORD_HEADER_BYTES,
+          keyLength(offset2));
+    }
+
+    private void swap(int i, int j) {
+      long prefix = prefixes[i];
+      prefixes[i] = prefixes[j];
+      prefixes[j] = prefix;
+      int offset = offsets[i];
+      offsets[i] = offsets[j];
+      offsets[j] = offset;
+    }
+
+    private int keyLength(int offset) {
+      return getInt(offset);
+    }
+
+    private int valueLength(int offset) {
+      return getInt(offset + Integer.BYTES);
+    }
+
+    private int getInt(int offset) {
+      return (data[offset] & 0xFF) << 24
+          | (data[offset + 1] & 0xFF) << 16
+          | (data[offset + 2] & 0xFF) << 8
+          | (data[offset + 3] & 0xFF);
+    }
+
+    private void putInt(int offset, int value) {
+      data[offset] = (byte) (value >>> 24);
+      data[offset + 1] = (byte) (value >>> 16);
+      data[offset + 2] = (byte) (value >>> 8);
+      data[offset + 3] = (byte) value;
+    }
+  }
+
+  /** Writes records to a file through a {@link FileChannel}. */
+  private static class RunWriter implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+
+    RunWriter(File file) throws IOException {
+      this.channel =
+          FileChannel.open(
+              file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Writes a record which is already in the on disk format. */
+    void write(byte[] record, int offset, int length) throws IOException {
+      if (length > buffer.remaining()) {
+        flush();
+      }
+      if (length > buffer.capacity()) {
+        writeFully(ByteBuffer.wrap(record, offset, length));
+      } else {
+        buffer.put(record, offset, length);
+      }
+    }
+
+    void write(byte[] key, byte[] value) throws IOException {
+      int length = RECORD_HEADER_BYTES + key.length + value.length;
+      if (length > buffer.remaining()) {
+        flush();
+      }
+      if (length > buffer.capacity()) {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        header.putInt(key.length).putInt(value.length).flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(key));
+        writeFully(ByteBuffer.wrap(value));
+      } else {
+        buffer.putInt(key.length).putInt(value.length).put(key).put(value);
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      writeFully(buffer);
+      buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Reads the records of a sorted run through a window of the file which is memory mapped, moving
+   * the window forward when the next record is not fully contained in it.
+   */
+  private static class RunReader {
+    private final FileChannel channel;
+    private final int windowBytes;
+    private final long size;
+    private long position = 0;
+    private long windowStart = 0;
+    private @Nullable MappedByteBuffer window = null;
+
+    private byte @Nullable [] key = null;
+    private byte @Nullable [] value = null;
+    private long prefix = 0;
+
+    RunReader(File file, int windowBytes) throws IOException {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      this.windowBytes = windowBytes;
+      this.size = channel.size();
+    }
+
+    /** Reads the next record, returning {@code false} and closing the file if there is none. */
+    boolean advance() throws IOException {
+      if (position >= size) {
+        key = null;
+        value = null;
+        channel.close();
+        return false;
+      }
+      MappedByteBuffer buffer = map(RECORD_HEADER_BYTES);
+      int keyLength = buffer.getInt((int) (position - windowStart));
+      int valueLength = buffer.getInt((int) (position - windowStart) + Integer.BYTES);
+      buffer = map((long) RECORD_HEADER_BYTES + keyLength + valueLength);
+      buffer.position((int) (position - windowStart) + RECORD_HEADER_BYTES);
+      byte[] nextKey = new byte[keyLength];
+      byte[] nextValue = new byte[valueLength];
+      buffer.get(nextKey);
+      buffer.get(nextValue);
+      key = nextKey;
+      value = nextValue;
+      prefix = prefix(nextKey, 0, keyLength);
+      position += RECORD_HEADER_BYTES + keyLength + valueLength;
+      return true;
+    }
+
+    /** Returns a window which contains the {@code length} bytes at the current position. */
+    private MappedByteBuffer map(long length) throws IOException {
+      MappedByteBuffer buffer = window;
+      if (buffer == null || position + length > windowStart + buffer.capacity()) {
+        long mapLength = Math.min(size - position, Math.max(windowBytes, length));
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+        windowStart = position;
+        window = buffer;
+      }
+      return buffer;
+    }
+  }
+
+  /** Merges sorted runs using a loser tree which needs one comparison per level per record. */
+  private static class MergingIterator implements Iterator<KV<byte[], byte[]>> {
+    private final RunReader[] readers;
+
+    /** The index of the current smallest reader followed by the loser at every inner node. */
+    private final int[] tree;
+
+    private MergingIterator(RunReader[] readers) {
+      this.readers = readers;
+      this.tree = new int[Math.max(1, readers.length)];
+    }
+
+    /** Creates an iterator over readers which are positioned at their first record. */
+    static MergingIterator of(List<RunReader> readers) {
+      MergingIterator iterator = new MergingIterator(readers.toArray(new RunReader[0]));
+      Arrays.fill(iterator.tree, -1);
+      for (int i = readers.size() - 1; i >= 0; i--) {
+        iterator.adjust(i);
+      }
+      return iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return readers.length > 0 && readers[tree[0]].key != null;
+    }
+
+    @Override
+    public KV<byte[], byte[]> next() {
+      if (readers.length == 0) {
+        throw new NoSuchElementException();
+      }
+      int winner = tree[0];
+      RunReader reader = readers[winner];
+      byte[] key = reader.key;
+      byte[] value = reader.value;
+      if (key == null || value == null) {
+        throw new NoSuchElementException();
+      }
+      try {
+        reader.advance();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      adjust(winner);
+      return KV.of(key, value);
+    }
+
+    /** Replays the matches from the leaf of the given reader to the root. */
+    private void adjust(int reader) {
+      int winner = reader;
+      for (int node = (reader + readers.length) / 2; node > 0; node /= 2) {
+        int loser = tree[node];
+        if (loser == -1) {
+          // Only happens while building the tree, the winner waits here for its opponent.
+          tree[node] = winner;
+          return;
+        }
+        if (less(loser, winner)) {
+          tree[node] = winner;
+          winner = loser;
+        }
+      }
+      tree[0] = winner;
+    }
+
+    /** Exhausted readers are larger than all others and ties are broken by run order. */
+    private boolean less(int i, int j) {
+      RunReader reader1 = readers[i];
+      RunReader reader2 = readers[j];
+      byte[] key1 = reader1.key;
+      byte[] key2 = reader2.key;
+      if (key1 == null) {
+        return false;
+      } else if (key2 == null) {
+        return true;
+      }
+      int result =
+          compare(reader1.prefix, key1, 0, key1.length, reader2.prefix, key2, 0, key2.length);
+      return result < 0 || (result == 0 && i < j);
+    }
+  }
+}
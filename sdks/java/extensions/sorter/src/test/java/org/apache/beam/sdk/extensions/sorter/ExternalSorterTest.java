@@ -87,7 +87,9 @@ public class ExternalSorterTest {
   @Parameters
   public static Collection<SorterType[]> data() {
     return Arrays.asList(
-        new SorterType[] {SorterType.HADOOP}, new SorterType[] {SorterType.NATIVE});
+        new SorterType[] {SorterType.HADOOP},
+        new SorterType[] {SorterType.NATIVE},
+        new SorterType[] {SorterType.NATIVE_PARALLEL});
   }
 
   @Test
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sorter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.primitives.UnsignedBytes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ParallelFileSorter}. */
+@RunWith(JUnit4.class)
+public class ParallelFileSorterTest {
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testMultipleMergePasses() throws Exception {
+    // Tiny runs and a fan in of four force several intermediate merge passes.
+    ParallelFileSorter sorter = new ParallelFileSorter(tmp.getRoot().toPath(), 1024, 4, 4);
+    List<byte[]> keys = addRandomRecords(sorter, 20000);
+
+    assertSorted(sorter.sort(), keys);
+  }
+
+  @Test
+  public void testSharedPrefixesAndDuplicates() throws Exception {
+    ParallelFileSorter sorter = new ParallelFileSorter(tmp.getRoot().toPath(), 4096, 2, 8);
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      // All keys share an eight byte prefix so that they are ordered by their remaining bytes.
+      byte[] key = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, (byte) (i % 300), (byte) (i % 7)};
+      keys.add(key);
+      sorter.add(key, new byte[] {(byte) i});
+    }
+    byte[] shortKey = new byte[] {1, 2, 3};
+    keys.add(shortKey);
+    sorter.add(shortKey, new byte[0]);
+
+    assertSorted(sorter.sort(), keys);
+  }
+
+  @Test
+  public void testRecordLargerThanRun() throws Exception {
+    ParallelFileSorter sorter = new ParallelFileSorter(tmp.getRoot().toPath(), 1024, 2, 4);
+    KV<byte[], byte[]> small = KV.of(new byte[] {0}, new byte[] {1});
+    KV<byte[], byte[]> large = KV.of(new byte[] {1}, new byte[4096]);
+    sorter.add(large.getKey(), large.getValue());
+    sorter.add(small.getKey(), small.getValue());
+
+    assertThat(sorter.sort(), contains(small, large));
+  }
+
+  private static List<byte[]> addRandomRecords(ParallelFileSorter sorter, int numRecords)
+      throws Exception {
+    Random random = new Random(0L);
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < numRecords; i++) {
+      byte[] key = new byte[random.nextInt(16)];
+      random.nextBytes(key);
+      byte[] value = new byte[random.nextInt(8)];
+      random.nextBytes(value);
+      keys.add(key);
+      sorter.add(key, value);
+    }
+    return keys;
+  }
+
+  private static void assertSorted(Iterable<KV<byte[], byte[]>> sorted, List<byte[]> keys) {
+    keys.sort(UnsignedBytes.lexicographicalComparator());
+    // Iterate twice to check that the result can be iterated multiple times.
+    for (int i = 0; i < 2; i++) {
+      List<byte[]> actual = new ArrayList<>();
+      for (KV<byte[], byte[]> record : sorted) {
+        actual.add(record.getKey());
+      }
+      assertThat(actual.toArray(new byte[0][]), equalTo(keys.toArray(new byte[0][])));
+    }
+  }
+}
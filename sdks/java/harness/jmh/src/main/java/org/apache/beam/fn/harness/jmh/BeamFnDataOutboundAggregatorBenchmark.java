@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.LengthPrefixCoder;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks for encoding outbound elements with the {@link BeamFnDataOutboundAggregator} with and
+ * without the zero copy encoding path.
+ */
+public class BeamFnDataOutboundAggregatorBenchmark {
+  private static final int ELEMENTS_PER_BUNDLE = 10_000;
+  private static final Coder<byte[]> CODER = LengthPrefixCoder.of(ByteArrayCoder.of());
+
+  /** Serializes the outbound elements as a gRPC stream would without retaining them. */
+  private static class SerializingObserver implements StreamObserver<Elements> {
+    long bytesSent;
+
+    @Override
+    public void onNext(Elements elements) {
+      try {
+        elements.writeTo(ByteStreams.nullOutputStream());
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      bytesSent += elements.getSerializedSize();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onCompleted() {}
+  }
+
+  @State(Scope.Thread)
+  public static class Aggregator {
+    @Param({"false", "true"})
+    public String zeroCopy;
+
+    /** The number of outputs written to by the bundle. */
+    @Param({"1", "16"})
+    public int fanOut;
+
+    @Param({"16", "1024"})
+    public int elementSize;
+
+    final SerializingObserver observer = new SerializingObserver();
+    BeamFnDataOutboundAggregator aggregator;
+    List<FnDataReceiver<byte[]>> receivers;
+    byte[][] elements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      PipelineOptions options = PipelineOptionsFactory.create();
+      if (Boolean.parseBoolean(zeroCopy)) {
+        options
+            .as(ExperimentalOptions.class)
+            .setExperiments(Arrays.asList(BeamFnDataOutboundAggregator.DATA_BUFFER_ZERO_COPY));
+      }
+      aggregator = new BeamFnDataOutboundAggregator(options, false, true);
+      receivers = new ArrayList<>();
+      for (int i = 0; i < fanOut; ++i) {
+        receivers.add(aggregator.registerOutputDataLocation("output" + i, CODER));
+      }
+      // Use a stable seed to ensure consistency across benchmark runs
+      Random random = new Random(-2134890234);
+      elements = new byte[64][];
+      for (int i = 0; i < elements.length; ++i) {
+        elements[i] = new byte[elementSize];
+        random.nextBytes(elements[i]);
+      }
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long testBundle(Aggregator state) throws Exception {
+    state.aggregator.prepareForInstruction("instruction", state.observer);
+    for (int i = 0; i < ELEMENTS_PER_BUNDLE; ++i) {
+      state
+          .receivers
+          .get(i % state.fanOut)
+          .accept(state.elements[i % state.elements.length]);
+    }
+    state.aggregator.sendOrCollectBufferedDataAndFinishOutboundStreams();
+    state.aggregator.finishInstruction();
+    return state.observer.bytesSent;
+  }
+}
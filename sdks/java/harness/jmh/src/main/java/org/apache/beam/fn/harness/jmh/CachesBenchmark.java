@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions.CacheImplementation;
+import org.apache.beam.sdk.util.WeightedValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks for the process wide cache within the SDK harness comparing the available {@link
+ * CacheImplementation}s under concurrent access.
+ */
+public class CachesBenchmark {
+  private static final int KEY_SPACE = 1 << 16;
+  private static final int KEY_MASK = KEY_SPACE - 1;
+  private static final long VALUE_WEIGHT = 1 << 10;
+
+  @State(Scope.Benchmark)
+  public static class CacheState {
+    @Param({"GUAVA", "TINY_LFU"})
+    public String implementation;
+
+    /** The size of the cache, the default fits roughly half of the key space. */
+    @Param({"48"})
+    public int maxCacheMemoryUsageMb;
+
+    Cache<Object, Object> cache;
+
+    /** Keys drawn from a skewed distribution so that some keys are accessed far more often. */
+    Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+      options.setCacheImplementation(CacheImplementation.valueOf(implementation));
+      options.setMaxCacheMemoryUsageMb(maxCacheMemoryUsageMb);
+      cache = Caches.subCache(Caches.fromOptions(options), "benchmark");
+
+      // Use a stable seed to ensure consistency across benchmark runs
+      Random random = new Random(-2134890234);
+      keys = new Integer[KEY_SPACE];
+      for (int i = 0; i < KEY_SPACE; ++i) {
+        keys[i] = (int) Math.min(KEY_SPACE - 1, Math.abs(random.nextGaussian() * KEY_SPACE / 8));
+      }
+      for (int i = 0; i < KEY_SPACE; ++i) {
+        cache.put(keys[i], WeightedValue.of(keys[i], VALUE_WEIGHT));
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      index = ThreadLocalRandom.current().nextInt(KEY_SPACE);
+    }
+
+    Integer nextKey(CacheState state) {
+      index = (index + 1) & KEY_MASK;
+      return state.keys[index];
+    }
+  }
+
+  private static Object read(CacheState state, ThreadState threadState) {
+    return state.cache.computeIfAbsent(
+        threadState.nextKey(state), (key) -> WeightedValue.of(key, VALUE_WEIGHT));
+  }
+
+  private static Object readWrite(CacheState state, ThreadState threadState) {
+    Integer key = threadState.nextKey(state);
+    if ((threadState.index & 7) == 0) {
+      state.cache.put(key, WeightedValue.of(key, VALUE_WEIGHT));
+      return key;
+    }
+    return state.cache.computeIfAbsent(key, (unused) -> WeightedValue.of(key, VALUE_WEIGHT));
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @Threads(1)
+  public Object readSingleThreaded(CacheState state, ThreadState threadState) {
+    return read(state, threadState);
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @Threads(8)
+  public Object read8Threads(CacheState state, ThreadState threadState) {
+    return read(state, threadState);
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @Threads(32)
+  public Object read32Threads(CacheState state, ThreadState threadState) {
+    return read(state, threadState);
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @Threads(8)
+  public Object readWrite8Threads(CacheState state, ThreadState threadState) {
+    return readWrite(state, threadState);
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+  @Threads(32)
+  public Object readWrite32Threads(CacheState state, ThreadState threadState) {
+    return readWrite(state, threadState);
+  }
+}
@@ -24,12 +24,18 @@ import java.util.Random;
 import org.apache.beam.fn.harness.Cache;
 import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.Caches.ClearableCache;
+import org.apache.beam.fn.harness.EncodedPrecombineGroupingTable;
+import org.apache.beam.fn.harness.GroupingTable;
 import org.apache.beam.fn.harness.PrecombineGroupingTable;
+import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions.GroupingTableImplementation;
 import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
@@ -61,6 +67,9 @@ public class PrecombineGroupingTableBenchmark {
     @Param({"uniform", "normal", "hotKey", "uniqueKeys"})
     public String distribution;
 
+    @Param({"HEAP", "ENCODED"})
+    public String implementation;
+
     @Setup(Level.Trial)
     public void setUp() {
       this.elements = generateTestData(distribution);
@@ -113,14 +122,33 @@ public class PrecombineGroupingTableBenchmark {
       throws Exception {
     ClearableCache<Object, Object> cache =
         new ClearableCache<>(Caches.subCache(table.cache, Thread.currentThread().getName()));
-    PrecombineGroupingTable<String, Integer, int[]> groupingTable =
-        PrecombineGroupingTable.combiningAndSampling(
-            table.options,
-            cache,
-            table.sumInts,
-            StringUtf8Coder.of(),
-            .001,
-            Boolean.valueOf(table.globallyWindowed));
+    GroupingTable<String, Integer, int[]> groupingTable;
+    switch (GroupingTableImplementation.valueOf(table.implementation)) {
+      case HEAP:
+        groupingTable =
+            PrecombineGroupingTable.combiningAndSampling(
+                table.options,
+                cache,
+                table.sumInts,
+                StringUtf8Coder.of(),
+                .001,
+                Boolean.valueOf(table.globallyWindowed));
+        break;
+      case ENCODED:
+        groupingTable =
+            EncodedPrecombineGroupingTable.combining(
+                table.options,
+                cache,
+                table.sumInts,
+                StringUtf8Coder.of(),
+                table.sumInts.getAccumulatorCoder(
+                    CoderRegistry.createDefault(), VarIntCoder.of()),
+                GlobalWindow.Coder.INSTANCE,
+                Boolean.valueOf(table.globallyWindowed));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown implementation: " + table.implementation);
+    }
     for (int i = 0, size = table.elements.size(); i < size; ++i) {
       groupingTable.put(table.elements.get(i), blackhole::consume);
     }
@@ -22,6 +22,7 @@ import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Pr
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -37,6 +38,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.fn.harness.ElementwiseFnDataReceiver;
 import org.apache.beam.fn.harness.FnHarness;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.LogEntry;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.ProcessBundleRequest.CacheToken;
@@ -73,6 +75,7 @@ import org.apache.beam.sdk.fn.server.GrpcContextHeaderAccessorProvider;
 import org.apache.beam.sdk.fn.server.GrpcFnServer;
 import org.apache.beam.sdk.fn.server.ServerFactory;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.state.BagState;
@@ -83,17 +86,21 @@ import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.Impulse;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.WithKeys;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.util.construction.BeamUrns;
 import org.apache.beam.sdk.util.construction.PipelineTranslation;
 import org.apache.beam.sdk.util.construction.graph.ExecutableStage;
 import org.apache.beam.sdk.util.construction.graph.FusedPipeline;
 import org.apache.beam.sdk.util.construction.graph.GreedyPipelineFuser;
 import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Strings;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.joda.time.Duration;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -124,6 +131,10 @@ public class ProcessBundleBenchmark {
     final Future<?> sdkHarnessExecutorFuture;
 
     public SdkHarness() {
+      this(Collections.emptyList());
+    }
+
+    SdkHarness(List<String> experiments) {
       Set<String> runnerCapabilities = new HashSet<>();
       if (Boolean.parseBoolean(elementsEmbedding)) {
         runnerCapabilities.add(
@@ -166,6 +177,7 @@ public class ProcessBundleBenchmark {
                 serverFactory);
 
         PipelineOptions pipelineOptions = PipelineOptionsFactory.create();
+        pipelineOptions.as(ExperimentalOptions.class).setExperiments(experiments);
         // Create the SDK harness, and wait until it connects
         sdkHarnessExecutor = Executors.newSingleThreadExecutor(threadFactory);
         sdkHarnessExecutorFuture =
@@ -324,6 +336,103 @@ public class ProcessBundleBenchmark {
     assertEquals(3_000, outputValuesCount.getAndSet(0));
   }
 
+  @State(Scope.Benchmark)
+  public static class ElementwiseChain extends SdkHarness {
+    static final int CHAIN_LENGTH = 10;
+
+    final BundleProcessor processor;
+    final ExecutableProcessBundleDescriptor descriptor;
+
+    public ElementwiseChain() {
+      this(Collections.emptyList());
+    }
+
+    ElementwiseChain(List<String> experiments) {
+      super(experiments);
+      try {
+        Pipeline p = Pipeline.create();
+        PCollection<String> strings =
+            p.apply("impulse", Impulse.create())
+                .apply("create", ParDo.of(new TrivialTransform.OutputZeroOneTwo()));
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+          strings =
+              strings.apply(
+                  "window" + i, Window.into(FixedWindows.of(Duration.standardMinutes(i + 1))));
+        }
+        strings
+            .apply("addKeys", WithKeys.of("foo"))
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()))
+            // Force the output to be materialized
+            .apply("gbk", GroupByKey.create());
+
+        RunnerApi.Pipeline pipelineProto = PipelineTranslation.toProto(p);
+        // The fuser will create one stage (SDK responsible portion in []):
+        // (Impulse + [create + window0 + ... + window9 + addKeys] + GBK write)
+        //
+        // The assign windows transforms form a chain of stateless element-wise runners.
+        FusedPipeline fused = GreedyPipelineFuser.fuse(pipelineProto);
+        checkState(fused.getFusedStages().size() == 1, "Expected exactly one fused stage");
+        ExecutableStage stage = fused.getFusedStages().iterator().next();
+
+        this.descriptor =
+            ProcessBundleDescriptors.fromExecutableStage(
+                "my_stage", stage, dataServer.getApiServiceDescriptor());
+
+        this.processor =
+            controlClient.getProcessor(
+                descriptor.getProcessBundleDescriptor(), descriptor.getRemoteInputDestinations());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /** An {@link ElementwiseChain} whose stateless element-wise runners are fused. */
+  @State(Scope.Benchmark)
+  public static class FusedElementwiseChain extends ElementwiseChain {
+    public FusedElementwiseChain() {
+      super(
+          Collections.singletonList(ElementwiseFnDataReceiver.FUSE_ELEMENTWISE_RUNNERS_EXPERIMENT));
+    }
+  }
+
+  @Benchmark
+  @Threads(16) // Use several threads since we expect contention during bundle processing.
+  public void testElementwiseChain(ElementwiseChain elementwiseChain) throws Exception {
+    processElementwiseChain(elementwiseChain.processor, elementwiseChain.descriptor);
+  }
+
+  @Benchmark
+  @Threads(16) // Use several threads since we expect contention during bundle processing.
+  public void testFusedElementwiseChain(FusedElementwiseChain elementwiseChain) throws Exception {
+    processElementwiseChain(elementwiseChain.processor, elementwiseChain.descriptor);
+  }
+
+  private static void processElementwiseChain(
+      BundleProcessor processor, ExecutableProcessBundleDescriptor descriptor) throws Exception {
+    Map<String, ? super Coder<WindowedValue<?>>> remoteOutputCoders =
+        descriptor.getRemoteOutputCoders();
+    Map<String, RemoteOutputReceiver<?>> outputReceivers = new HashMap<>();
+    AtomicInteger outputValuesCount = new AtomicInteger();
+    for (Entry<String, ? super Coder<WindowedValue<?>>> remoteOutputCoder :
+        remoteOutputCoders.entrySet()) {
+      outputReceivers.put(
+          remoteOutputCoder.getKey(),
+          RemoteOutputReceiver.of(
+              (Coder) remoteOutputCoder.getValue(),
+              (FnDataReceiver<? super WindowedValue<?>>)
+                  (WindowedValue<?> value) -> outputValuesCount.incrementAndGet()));
+    }
+    try (RemoteBundle bundle =
+        processor.newBundle(outputReceivers, BundleProgressHandler.ignored())) {
+      for (int i = 0; i < 1_000; i++) {
+        Iterables.getOnlyElement(bundle.getInputReceivers().values())
+            .accept(valueInGlobalWindow(new byte[0]));
+      }
+    }
+    assertEquals(3_000, outputValuesCount.getAndSet(0));
+  }
+
   @State(Scope.Benchmark)
   public static class StatefulTransform extends SdkHarness {
     final BundleProcessor processor;
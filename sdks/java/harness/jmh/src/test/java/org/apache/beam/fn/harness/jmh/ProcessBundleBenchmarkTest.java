@@ -19,6 +19,8 @@ package org.apache.beam.fn.harness.jmh;
 
 import java.util.Arrays;
 import java.util.Collection;
+import org.apache.beam.fn.harness.jmh.ProcessBundleBenchmark.ElementwiseChain;
+import org.apache.beam.fn.harness.jmh.ProcessBundleBenchmark.FusedElementwiseChain;
 import org.apache.beam.fn.harness.jmh.ProcessBundleBenchmark.StatefulTransform;
 import org.apache.beam.fn.harness.jmh.ProcessBundleBenchmark.TrivialTransform;
 import org.junit.Test;
@@ -52,6 +54,22 @@ public class ProcessBundleBenchmarkTest {
     transform.tearDown();
   }
 
+  @Test
+  public void testElementwiseChain() throws Exception {
+    ElementwiseChain transform = new ElementwiseChain();
+    transform.elementsEmbedding = elementsEmbedding;
+    new ProcessBundleBenchmark().testElementwiseChain(transform);
+    transform.tearDown();
+  }
+
+  @Test
+  public void testFusedElementwiseChain() throws Exception {
+    FusedElementwiseChain transform = new FusedElementwiseChain();
+    transform.elementsEmbedding = elementsEmbedding;
+    new ProcessBundleBenchmark().testFusedElementwiseChain(transform);
+    transform.tearDown();
+  }
+
   @Test
   public void testStateWithoutCaching() throws Exception {
     StatefulTransform transform = new StatefulTransform();
@@ -47,6 +47,7 @@ import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.data.PrefetchingFnDataReceiver;
 import org.apache.beam.sdk.fn.data.RemoteGrpcPortRead;
 import org.apache.beam.sdk.util.construction.CoderTranslation;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
@@ -102,7 +103,7 @@ public class BeamFnDataReadRunner<OutputT> {
               context::addBundleProgressReporter,
               consumer);
       context.addIncomingDataEndpoint(
-          runner.apiServiceDescriptor, runner.coder, runner::forwardElementToConsumer);
+          runner.apiServiceDescriptor, runner.coder, runner.getInboundDataReceiver());
       context.addFinishBundleFunction(runner::blockTillReadFinishes);
       context.addResetFunction(runner::reset);
       context.addChannelRoot(runner);
@@ -218,6 +219,29 @@ public class BeamFnDataReadRunner<OutputT> {
         });
   }
 
+  /**
+   * Returns the receiver for the inbound data which forwards blocks of elements to be prefetched if
+   * the consumer is a {@link PrefetchingFnDataReceiver}.
+   */
+  FnDataReceiver<WindowedValue<OutputT>> getInboundDataReceiver() {
+    if (!(consumer instanceof PrefetchingFnDataReceiver)) {
+      return this::forwardElementToConsumer;
+    }
+    PrefetchingFnDataReceiver<WindowedValue<OutputT>> prefetchingConsumer =
+        (PrefetchingFnDataReceiver<WindowedValue<OutputT>>) consumer;
+    return new PrefetchingFnDataReceiver<WindowedValue<OutputT>>() {
+      @Override
+      public void prefetch(List<WindowedValue<OutputT>> inputs) throws Exception {
+        prefetchingConsumer.prefetch(inputs);
+      }
+
+      @Override
+      public void accept(WindowedValue<OutputT> input) throws Exception {
+        forwardElementToConsumer(input);
+      }
+    };
+  }
+
   public void forwardElementToConsumer(WindowedValue<OutputT> element) throws Exception {
     synchronized (splittingLock) {
       if (index == stopIndex - 1) {
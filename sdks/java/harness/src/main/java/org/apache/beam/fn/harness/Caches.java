@@ -165,8 +165,15 @@ public final class Caches {
    * parameters within {@link SdkHarnessOptions}.
    */
   public static <K, V> Cache<K, V> fromOptions(PipelineOptions options) {
-    return forMaximumBytes(
-        ((long) options.as(SdkHarnessOptions.class).getMaxCacheMemoryUsageMb()) << 20);
+    SdkHarnessOptions harnessOptions = options.as(SdkHarnessOptions.class);
+    long maximumBytes = ((long) harnessOptions.getMaxCacheMemoryUsageMb()) << 20;
+    switch (harnessOptions.getCacheImplementation()) {
+      case TINY_LFU:
+        return tinyLfuForMaximumBytes(maximumBytes);
+      case GUAVA:
+      default:
+        return forMaximumBytes(maximumBytes);
+    }
   }
 
   /**
@@ -180,9 +187,7 @@ public final class Caches {
     if (cache instanceof SubCache) {
       return new SubCache<>(
           ((SubCache<?, ?>) cache).cache,
-          ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix),
-          ((SubCache<?, ?>) cache).maxWeightInBytes,
-          ((SubCache<?, ?>) cache).weightInBytes);
+          ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix));
     }
     throw new IllegalArgumentException(
         String.format(
@@ -241,85 +246,98 @@ public final class Caches {
         weightInBytes);
   }
 
+  /**
+   * Returns a cache that uses a W-TinyLFU admission and eviction policy, partitioning entries into
+   * independently locked segments to reduce contention between bundle processing threads.
+   */
+  @VisibleForTesting
+  static <K, V> Cache<K, V> tinyLfuForMaximumBytes(long maximumBytes) {
+    return new SubCache<>(new TinyLfuBackingCache(maximumBytes), CompositeKeyPrefix.ROOT);
+  }
+
   private static WeightedValue<Object> addWeightedValue(
       CompositeKey key, Object o, LongAdder weightInBytes) {
-    WeightedValue<Object> rval;
-    long additionalBytes = 0;
+    WeightedValue<Object> rval = weightedValue(o);
+    long additionalBytes = o instanceof WeightedValue ? 0 : REFERENCE_SIZE * 2;
+    weightInBytes.add(key.getWeight() + rval.getWeight() + additionalBytes);
+    return rval;
+  }
+
+  private static WeightedValue<Object> weightedValue(Object o) {
     if (o instanceof WeightedValue) {
-      rval = (WeightedValue<Object>) o;
+      return (WeightedValue<Object>) o;
     } else if (o instanceof Weighted) {
-      rval = WeightedValue.of(o, ((Weighted) o).getWeight());
-      additionalBytes = REFERENCE_SIZE * 2;
+      return WeightedValue.of(o, ((Weighted) o).getWeight());
     } else {
-      rval = WeightedValue.of(o, weigh(o));
-      additionalBytes = REFERENCE_SIZE * 2;
+      return WeightedValue.of(o, weigh(o));
     }
-    weightInBytes.add(key.getWeight() + rval.getWeight() + additionalBytes);
-    return rval;
   }
 
-  /**
-   * A view of a cache that operates on keys with a specified key prefix.
-   *
-   * <p>All lookups, insertions, and removals into the parent {@link Cache} will be prefixed by the
-   * specified prefixes.
-   */
-  private static class SubCache<K, V> implements Cache<K, V> {
+  /** The storage shared by a root cache and all of its {@link SubCache sub-caches}. */
+  private interface BackingCache {
+    @Nullable
+    Object getIfPresent(CompositeKey key);
+
+    Object computeIfAbsent(CompositeKey key, Function<CompositeKey, Object> loadingFunction);
+
+    void put(CompositeKey key, Object value);
+
+    void remove(CompositeKey key);
+
+    String describeStats();
+  }
+
+  /** A {@link BackingCache} using a vendored Guava cache. */
+  private static class GuavaBackingCache implements BackingCache {
     private final org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
             CompositeKey, WeightedValue<Object>>
         cache;
-    private final CompositeKeyPrefix keyPrefix;
     private final long maxWeightInBytes;
     private final LongAdder weightInBytes;
 
-    SubCache(
+    GuavaBackingCache(
         org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
                 CompositeKey, WeightedValue<Object>>
             cache,
-        CompositeKeyPrefix keyPrefix,
         long maxWeightInBytes,
         LongAdder weightInBytes) {
       this.cache = cache;
-      this.keyPrefix = keyPrefix;
       this.maxWeightInBytes = maxWeightInBytes;
       this.weightInBytes = weightInBytes;
     }
 
     @Override
-    public @Nullable V peek(K key) {
-      @Nullable WeightedValue<Object> value = cache.getIfPresent(keyPrefix.valueKey(key));
+    public @Nullable Object getIfPresent(CompositeKey key) {
+      @Nullable WeightedValue<Object> value = cache.getIfPresent(key);
       if (value == null) {
         return null;
       }
-      return (V) value.getValue();
+      return value.getValue();
     }
 
     @Override
-    public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
+    public Object computeIfAbsent(
+        CompositeKey key, Function<CompositeKey, Object> loadingFunction) {
       try {
-        CompositeKey compositeKey = keyPrefix.valueKey(key);
-        return (V)
-            cache
-                .get(
-                    compositeKey,
-                    () ->
-                        addWeightedValue(
-                            compositeKey, checkNotNull(loadingFunction.apply(key)), weightInBytes))
-                .getValue();
+        return cache
+            .get(
+                key,
+                () ->
+                    addWeightedValue(key, checkNotNull(loadingFunction.apply(key)), weightInBytes))
+            .getValue();
       } catch (ExecutionException e) {
         throw new RuntimeException(e);
       }
     }
 
     @Override
-    public void put(K key, V value) {
-      CompositeKey compositeKey = keyPrefix.valueKey(key);
-      cache.put(compositeKey, addWeightedValue(compositeKey, checkNotNull(value), weightInBytes));
+    public void put(CompositeKey key, Object value) {
+      cache.put(key, addWeightedValue(key, checkNotNull(value), weightInBytes));
     }
 
     @Override
-    public void remove(K key) {
-      cache.invalidate(keyPrefix.valueKey(key));
+    public void remove(CompositeKey key) {
+      cache.invalidate(key);
     }
 
     @Override
@@ -337,6 +355,132 @@ public final class Caches {
     }
   }
 
+  /** A {@link BackingCache} using a {@link TinyLfuCache}. */
+  private static class TinyLfuBackingCache implements BackingCache {
+    private final TinyLfuCache<CompositeKey, WeightedValue<Object>> cache;
+
+    TinyLfuBackingCache(long maxWeightInBytes) {
+      this.cache =
+          new TinyLfuCache<>(
+              maxWeightInBytes,
+              // Since our weights are tracking bytes used, we need to account for the cache
+              // internal bytes.
+              (key, value) -> key.getWeight() + value.getWeight() + REFERENCE_SIZE * 15,
+              TinyLfuBackingCache::shrink);
+    }
+
+    private static @Nullable WeightedValue<Object> shrink(
+        CompositeKey key, WeightedValue<Object> value) {
+      @Nullable Object v = value.getValue();
+      if (!(v instanceof Cache.Shrinkable)) {
+        return null;
+      }
+      @Nullable Object updatedEntry = ((Shrinkable<?>) v).shrink();
+      if (updatedEntry == null) {
+        return null;
+      }
+      return weightedValue(updatedEntry);
+    }
+
+    @Override
+    public @Nullable Object getIfPresent(CompositeKey key) {
+      @Nullable WeightedValue<Object> value = cache.getIfPresent(key);
+      if (value == null) {
+        return null;
+      }
+      return value.getValue();
+    }
+
+    @Override
+    public Object computeIfAbsent(
+        CompositeKey key, Function<CompositeKey, Object> loadingFunction) {
+      return cache
+          .get(key, (unused) -> weightedValue(checkNotNull(loadingFunction.apply(key))))
+          .getValue();
+    }
+
+    @Override
+    public void put(CompositeKey key, Object value) {
+      cache.put(key, weightedValue(checkNotNull(value)));
+    }
+
+    @Override
+    public void remove(CompositeKey key) {
+      cache.invalidate(key);
+    }
+
+    @Override
+    public String describeStats() {
+      // Apply any buffered writes so that the reported weight is accurate.
+      cache.cleanUp();
+      long hits = cache.hitCount();
+      long requests = hits + cache.missCount();
+      long loads = cache.loadCount();
+      return String.format(
+          "used/max %d/%d MB, hit %.2f%%, lookups %d, avg load time %.0f ns, loads %d, evictions %d",
+          cache.weightedSize() >> 20,
+          cache.maximumWeight() >> 20,
+          requests == 0 ? 100. : hits * 100. / requests,
+          requests,
+          loads == 0 ? 0. : (double) cache.totalLoadTimeNanos() / loads,
+          loads,
+          cache.evictionCount());
+    }
+  }
+
+  /**
+   * A view of a cache that operates on keys with a specified key prefix.
+   *
+   * <p>All lookups, insertions, and removals into the parent {@link Cache} will be prefixed by the
+   * specified prefixes.
+   */
+  private static class SubCache<K, V> implements Cache<K, V> {
+    private final BackingCache cache;
+    private final CompositeKeyPrefix keyPrefix;
+
+    SubCache(
+        org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.cache.Cache<
+                CompositeKey, WeightedValue<Object>>
+            cache,
+        CompositeKeyPrefix keyPrefix,
+        long maxWeightInBytes,
+        LongAdder weightInBytes) {
+      this(new GuavaBackingCache(cache, maxWeightInBytes, weightInBytes), keyPrefix);
+    }
+
+    SubCache(BackingCache cache, CompositeKeyPrefix keyPrefix) {
+      this.cache = cache;
+      this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public @Nullable V peek(K key) {
+      return (V) cache.getIfPresent(keyPrefix.valueKey(key));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
+      return (V)
+          cache.computeIfAbsent(
+              keyPrefix.valueKey(key), (unused) -> loadingFunction.apply(key));
+    }
+
+    @Override
+    public void put(K key, V value) {
+      cache.put(keyPrefix.valueKey(key), value);
+    }
+
+    @Override
+    public void remove(K key) {
+      cache.remove(keyPrefix.valueKey(key));
+    }
+
+    @Override
+    public String describeStats() {
+      return cache.describeStats();
+    }
+  }
+
   /** A key prefix used to generate keys that are stored within a sub-cache. */
   static class CompositeKeyPrefix {
     public static final CompositeKeyPrefix ROOT = new CompositeKeyPrefix(new Object[0], 0);
@@ -399,11 +543,13 @@ public final class Caches {
     private final Object[] namespace;
     private final @Nullable Object key;
     private final long weight;
+    private final int hashCode;
 
     private CompositeKey(Object[] namespace, long namespaceWeight, @Nullable Object key) {
       this.namespace = namespace;
       this.key = key;
       this.weight = namespaceWeight + weigh(key);
+      this.hashCode = Arrays.hashCode(namespace) * 31 + Objects.hashCode(key);
     }
 
     @Override
@@ -429,7 +575,7 @@ public final class Caches {
 
     @Override
     public int hashCode() {
-      return Arrays.hashCode(namespace);
+      return hashCode;
     }
 
     @Override
@@ -449,11 +595,7 @@ public final class Caches {
     private final Set<K> weakHashSet;
 
     public ClearableCache(Cache<K, V> cache) {
-      super(
-          ((SubCache<K, V>) cache).cache,
-          ((SubCache<CompositeKey, V>) cache).keyPrefix,
-          ((SubCache<CompositeKey, V>) cache).maxWeightInBytes,
-          ((SubCache<CompositeKey, V>) cache).weightInBytes);
+      super(((SubCache<K, V>) cache).cache, ((SubCache<K, V>) cache).keyPrefix);
       // We specifically use a weak hash map so that once the key is no longer referenced we don't
       // have to keep track of it anymore and the weak hash map will garbage collect it for us.
       this.weakHashSet = Collections.newSetFromMap(new WeakHashMap<>());
@@ -32,8 +32,12 @@ import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions.GroupingTableImplementation;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.WindowFn;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.util.construction.PTransformTranslation;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
@@ -75,7 +79,9 @@ public class CombineRunners {
     private final CombineFn<InputT, AccumT, ?> combineFn;
     private final FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output;
     private final Coder<KeyT> keyCoder;
-    private @Nullable PrecombineGroupingTable<KeyT, InputT, AccumT> groupingTable;
+    private final @Nullable Coder<AccumT> accumulatorCoder;
+    private final @Nullable Coder<? extends BoundedWindow> windowCoder;
+    private @Nullable GroupingTable<KeyT, InputT, AccumT> groupingTable;
     private boolean isGloballyWindowed;
 
     PrecombineRunner(
@@ -85,7 +91,7 @@ public class CombineRunners {
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
         Coder<KeyT> keyCoder) {
-      this(options, ptransformId, bundleCache, combineFn, output, keyCoder, false);
+      this(options, ptransformId, bundleCache, combineFn, output, keyCoder, null, null, false);
     }
 
     PrecombineRunner(
@@ -95,6 +101,8 @@ public class CombineRunners {
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
         Coder<KeyT> keyCoder,
+        @Nullable Coder<AccumT> accumulatorCoder,
+        @Nullable Coder<? extends BoundedWindow> windowCoder,
         boolean isGloballyWindowed) {
       this.options = options;
       this.ptransformId = ptransformId;
@@ -102,16 +110,30 @@ public class CombineRunners {
       this.combineFn = combineFn;
       this.output = output;
       this.keyCoder = keyCoder;
+      this.accumulatorCoder = accumulatorCoder;
+      this.windowCoder = windowCoder;
       this.isGloballyWindowed = isGloballyWindowed;
     }
 
-    private PrecombineGroupingTable<KeyT, InputT, AccumT> getGroupingTable() {
+    private GroupingTable<KeyT, InputT, AccumT> getGroupingTable() {
       return checkStateNotNull(
           this.groupingTable,
           "groupingTable not initialized. Did you call this outside of the context of bundle processing?");
     }
 
     void startBundle() {
+      if (useEncodedGroupingTable()) {
+        groupingTable =
+            EncodedPrecombineGroupingTable.combining(
+                options,
+                Caches.subCache(bundleCache.get(), ptransformId),
+                combineFn,
+                keyCoder,
+                checkStateNotNull(accumulatorCoder),
+                checkStateNotNull(windowCoder),
+                isGloballyWindowed);
+        return;
+      }
       groupingTable =
           PrecombineGroupingTable.combiningAndSampling(
               options,
@@ -122,6 +144,14 @@ public class CombineRunners {
               isGloballyWindowed);
     }
 
+    private boolean useEncodedGroupingTable() {
+      return options.as(SdkHarnessOptions.class).getGroupingTableImplementation()
+              == GroupingTableImplementation.ENCODED
+          && accumulatorCoder != null
+          && windowCoder != null
+          && EncodedPrecombineGroupingTable.supportsKeyCoder(keyCoder);
+    }
+
     void processElement(WindowedValue<KV<KeyT, InputT>> elem) throws Exception {
       getGroupingTable().put(elem, output);
     }
@@ -161,11 +191,11 @@ public class CombineRunners {
       // expected KvCoder.
       Coder<?> uncastInputCoder = rehydratedComponents.getCoder(mainInput.getCoderId());
       KvCoder<KeyT, InputT> inputCoder;
-      boolean isGloballyWindowed =
+      WindowFn<?, ?> windowFn =
           rehydratedComponents
               .getWindowingStrategy(mainInput.getWindowingStrategyId())
-              .getWindowFn()
-              .equals(new GlobalWindows());
+              .getWindowFn();
+      boolean isGloballyWindowed = windowFn.equals(new GlobalWindows());
       if (uncastInputCoder instanceof WindowedValueCoder) {
         inputCoder =
             (KvCoder<KeyT, InputT>)
@@ -181,6 +211,11 @@ public class CombineRunners {
           (CombineFn)
               SerializableUtils.deserializeFromByteArray(
                   combinePayload.getCombineFn().getPayload().toByteArray(), "CombineFn");
+      @Nullable Coder<AccumT> accumulatorCoder =
+          combinePayload.getAccumulatorCoderId().isEmpty()
+              ? null
+              : (Coder<AccumT>)
+                  rehydratedComponents.getCoder(combinePayload.getAccumulatorCoderId());
 
       FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> consumer =
           (FnDataReceiver)
@@ -195,6 +230,8 @@ public class CombineRunners {
               combineFn,
               consumer,
               keyCoder,
+              accumulatorCoder,
+              windowFn.windowCoder(),
               isGloballyWindowed);
 
       // Register the appropriate handlers.
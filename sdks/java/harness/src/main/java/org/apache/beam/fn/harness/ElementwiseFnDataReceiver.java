@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+
+/**
+ * An interface that may be used to extend a {@link FnDataReceiver} signalling that the downstream
+ * runner is stateless and element-wise: it has no start or finish bundle functions and only
+ * outputs while processing an element.
+ *
+ * <p>When such a runner consumes the output of another stateless element-wise runner, both are
+ * fused into the execution state of the first runner of the chain. Element counts are still
+ * reported for every PCollection, but processing time and user metrics of the downstream runners
+ * are attributed to the first runner.
+ */
+@FunctionalInterface
+public interface ElementwiseFnDataReceiver<T> extends FnDataReceiver<T> {
+
+  /** The experiment which enables fusing chains of stateless element-wise runners. */
+  String FUSE_ELEMENTWISE_RUNNERS_EXPERIMENT = "fuse_elementwise_runners";
+
+  /** Returns whether stateless element-wise runners should be fused. */
+  static boolean isFusionEnabled(PipelineOptions options) {
+    return ExperimentalOptions.hasExperiment(options, FUSE_ELEMENTWISE_RUNNERS_EXPERIMENT);
+  }
+}
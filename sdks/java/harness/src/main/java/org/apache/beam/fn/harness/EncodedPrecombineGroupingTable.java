@@ -0,0 +1,669 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.fn.harness.Cache.Shrinkable;
+import org.apache.beam.runners.core.GlobalCombineFnRunner;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.util.Weighted;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.joda.time.Instant;
+
+/**
+ * A grouping table that stores encoded keys and accumulators within pooled {@code byte[]} pages
+ * instead of as objects on the heap.
+ *
+ * <p>Entries are located using an open-addressing hash index over the encoded key and window
+ * bytes, so the table does not retain any per-entry objects and its weight is the exact number of
+ * bytes it has allocated instead of a sampled estimate. Like {@link PrecombineGroupingTable}, the
+ * table registers itself within the {@link Cache} so that memory pressure shrinks the maximum
+ * weight of the table causing entries to be output earlier.
+ *
+ * <p>Grouping is performed on the encoded form of the key which requires a deterministic key coder,
+ * see {@link #supportsKeyCoder}. Every insertion decodes, updates and re-encodes the accumulator
+ * which favors accumulators that have a compact encoding.
+ *
+ * <p>{@link NotThreadSafe} because the caller must use the bundle processing thread when invoking
+ * {@link #put} and {@link #flush}. {@link #shrink} may be called from any thread.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+@NotThreadSafe
+public class EncodedPrecombineGroupingTable<K, InputT, AccumT>
+    implements GroupingTable<K, InputT, AccumT>,
+        Shrinkable<EncodedPrecombineGroupingTable<K, InputT, AccumT>>,
+        Weighted {
+
+  /**
+   * Returns a grouping table that combines inputs into an accumulator storing the encoded key and
+   * accumulator. The grouping table uses the cache to defer flushing output until the cache evicts
+   * the table.
+   */
+  public static <K, InputT, AccumT> EncodedPrecombineGroupingTable<K, InputT, AccumT> combining(
+      PipelineOptions options,
+      Cache<Object, Object> cache,
+      CombineFn<InputT, AccumT, ?> combineFn,
+      Coder<K> keyCoder,
+      Coder<AccumT> accumulatorCoder,
+      Coder<? extends BoundedWindow> windowCoder,
+      boolean isGloballyWindowed) {
+    return new EncodedPrecombineGroupingTable<>(
+        options,
+        cache,
+        keyCoder,
+        accumulatorCoder,
+        windowCoder,
+        GlobalCombineFnRunners.create(combineFn),
+        isGloballyWindowed);
+  }
+
+  /** Returns whether keys encoded with the specified coder can be grouped by their encoding. */
+  public static boolean supportsKeyCoder(Coder<?> keyCoder) {
+    try {
+      keyCoder.verifyDeterministic();
+      return true;
+    } catch (NonDeterministicException e) {
+      return false;
+    }
+  }
+
+  /** The size of each pooled page. Larger values are stored within a dedicated page. */
+  @VisibleForTesting static final int PAGE_SIZE = 1 << 16;
+
+  /**
+   * The maximum number of unused pages retained across all tables within this process, bounding
+   * the pool to 8 MiBs.
+   */
+  private static final int MAX_POOLED_PAGES = 128;
+
+  private static final PagePool PAGE_POOL = new PagePool(MAX_POOLED_PAGES);
+
+  /**
+   * The number of bytes used by the per entry metadata arrays, the hash, key address and length,
+   * accumulator address, length and capacity, timestamp and dirty flag.
+   */
+  private static final int METADATA_BYTES_PER_ENTRY = 41;
+
+  /** The index is kept at twice the entry capacity to bound the load factor to one half. */
+  private static final int INDEX_BYTES_PER_ENTRY = 2 * Integer.BYTES;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private static final long NO_ADDRESS = -1L;
+
+  private static final Collection<? extends BoundedWindow> GLOBAL_WINDOWS =
+      Collections.singletonList(GlobalWindow.INSTANCE);
+
+  private static final class Key implements Weighted {
+    private static final Key INSTANCE = new Key();
+
+    @Override
+    public long getWeight() {
+      // Ignore the actual size of this singleton because it is trivial and because
+      // the weight reported here will be counted many times as it is present in
+      // many different state subcaches.
+      return 0;
+    }
+  }
+
+  private final PipelineOptions options;
+  private final Cache<Key, EncodedPrecombineGroupingTable<K, InputT, AccumT>> cache;
+  private final Coder<K> keyCoder;
+  private final Coder<AccumT> accumulatorCoder;
+  private final Coder<BoundedWindow> windowCoder;
+  private final GlobalCombineFnRunner<InputT, AccumT, ?> combineFn;
+  private final boolean isGloballyWindowed;
+  private final AtomicLong maxWeight;
+
+  private final ExposedOutputStream keyScratch;
+  private final ExposedOutputStream accumulatorScratch;
+  private final PageInputStream pageInput;
+
+  // Pages holding the encoded keys and accumulators, addressed by (page index << 32 | offset).
+  private final List<byte[]> pages;
+  private int pagePosition;
+  private long pageBytes;
+  private long garbageBytes;
+
+  // Entries are stored in insertion order across the metadata arrays and the index maps a hash
+  // slot to the entry index plus one, zero representing an empty slot.
+  private int[] index;
+  private int size;
+  private int[] hashes;
+  private long[] keyAddresses;
+  private int[] keyLengths;
+  private long[] accumulatorAddresses;
+  private int[] accumulatorLengths;
+  private int[] accumulatorCapacities;
+  private long[] timestamps;
+  private boolean[] dirty;
+
+  private long weight;
+  private long lastWeightForFlush;
+
+  @SuppressWarnings("unchecked")
+  EncodedPrecombineGroupingTable(
+      PipelineOptions options,
+      Cache<?, ?> cache,
+      Coder<K> keyCoder,
+      Coder<AccumT> accumulatorCoder,
+      Coder<? extends BoundedWindow> windowCoder,
+      GlobalCombineFnRunner<InputT, AccumT, ?> combineFn,
+      boolean isGloballyWindowed) {
+    this.options = options;
+    this.cache = (Cache<Key, EncodedPrecombineGroupingTable<K, InputT, AccumT>>) cache;
+    this.keyCoder = keyCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.windowCoder = (Coder<BoundedWindow>) windowCoder;
+    this.combineFn = combineFn;
+    this.isGloballyWindowed = isGloballyWindowed;
+    this.maxWeight = new AtomicLong();
+    this.keyScratch = new ExposedOutputStream();
+    this.accumulatorScratch = new ExposedOutputStream();
+    this.pageInput = new PageInputStream();
+    this.pages = new ArrayList<>();
+    allocateMetadata(INITIAL_CAPACITY);
+    updateWeight();
+    this.cache.put(Key.INSTANCE, this);
+  }
+
+  @Nullable
+  @Override
+  public EncodedPrecombineGroupingTable<K, InputT, AccumT> shrink() {
+    long currentWeight = maxWeight.updateAndGet(operand -> operand >> 1);
+    // It is possible that we are shrunk multiple times until the requested max weight is too small.
+    // In this case we want to effectively stop shrinking since we can't effectively cache much
+    // at this time and the next insertion will likely evict all records.
+    if (currentWeight <= 100L) {
+      return null;
+    }
+    return this;
+  }
+
+  @Override
+  public long getWeight() {
+    return maxWeight.get();
+  }
+
+  /** Returns the exact number of bytes allocated by this table. */
+  @VisibleForTesting
+  long getAllocatedBytes() {
+    return weight;
+  }
+
+  /** Returns the number of entries within this table. */
+  @VisibleForTesting
+  int size() {
+    return size;
+  }
+
+  @Override
+  public void put(
+      WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    Collection<? extends BoundedWindow> windows =
+        isGloballyWindowed ? GLOBAL_WINDOWS : value.getWindows();
+
+    keyScratch.reset();
+    keyCoder.encode(value.getValue().getKey(), keyScratch);
+    if (!isGloballyWindowed) {
+      VarInt.encode(windows.size(), keyScratch);
+      for (BoundedWindow window : windows) {
+        windowCoder.encode(window, keyScratch);
+      }
+    }
+    byte[] keyBytes = keyScratch.array();
+    int keyLength = keyScratch.size();
+    int hash = hash(keyBytes, keyLength);
+
+    int slot = findSlot(hash, keyBytes, keyLength);
+    int entry = index[slot] - 1;
+    AccumT accumulator;
+    if (entry < 0) {
+      accumulator = combineFn.createAccumulator(options, NullSideInputReader.empty(), windows);
+      // The PGBK output will inherit the timestamp of one of its inputs.
+      entry = insert(slot, hash, keyBytes, keyLength, value.getTimestamp());
+    } else {
+      accumulator = readAccumulator(entry);
+    }
+    accumulator =
+        combineFn.addInput(
+            accumulator, value.getValue().getValue(), options, NullSideInputReader.empty(), windows);
+    writeAccumulator(entry, accumulator);
+    dirty[entry] = true;
+
+    // Reclaim the space of accumulators which outgrew their original allocation.
+    if (garbageBytes > PAGE_SIZE && garbageBytes > pageBytes >> 1) {
+      rebuild(0);
+    }
+    updateWeight();
+
+    if (Caches.shouldUpdateOnSizeChange(lastWeightForFlush, weight)) {
+      flushIfNeeded(receiver);
+      lastWeightForFlush = weight;
+    }
+  }
+
+  private void flushIfNeeded(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    // Increase the maximum only if we require it
+    maxWeight.accumulateAndGet(weight, (current, update) -> current < update ? update : current);
+
+    // Update the cache to ensure that LRU is handled appropriately and for the cache to have an
+    // opportunity to shrink the maxWeight if necessary.
+    cache.put(Key.INSTANCE, this);
+
+    // Get the updated weight now that the cache may have been shrunk and respect it
+    long currentMax = maxWeight.get();
+
+    // Only compact and output from the bundle processing thread that is inserting elements into the
+    // grouping table. This ensures that we honor the guarantee that transforms for a single bundle
+    // execute using the same thread.
+    if (weight > currentMax) {
+      // Try to compact as many the values as possible and only flush values if compaction wasn't
+      // enough.
+      for (int entry = 0; entry < size; ++entry) {
+        if (dirty[entry]) {
+          writeAccumulator(entry, compact(entry, readAccumulator(entry)));
+          dirty[entry] = false;
+        }
+      }
+      rebuild(0);
+
+      if (weight > currentMax) {
+        // Output the oldest entries until the remaining entries are expected to fit.
+        long retainedBytes = 0;
+        for (int entry = 0; entry < size; ++entry) {
+          retainedBytes += entryBytes(entry);
+        }
+        int firstRetained = 0;
+        while (firstRetained < size && retainedBytes > currentMax) {
+          retainedBytes -= entryBytes(firstRetained);
+          output(firstRetained, receiver);
+          firstRetained += 1;
+        }
+        rebuild(firstRetained);
+      }
+    }
+  }
+
+  /** Flushes all entries in this table to output. */
+  @Override
+  public void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
+    cache.remove(Key.INSTANCE);
+    for (int entry = 0; entry < size; ++entry) {
+      output(entry, receiver);
+    }
+    releasePages(pages);
+    pages.clear();
+    pagePosition = 0;
+    pageBytes = 0;
+    garbageBytes = 0;
+    allocateMetadata(INITIAL_CAPACITY);
+    updateWeight();
+  }
+
+  /**
+   * Output the given entry. Does not actually remove it from the table or update this table's size.
+   */
+  private void output(int entry, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    long keyAddress = keyAddresses[entry];
+    pageInput.reset(page(keyAddress), offset(keyAddress), keyLengths[entry]);
+    K key = keyCoder.decode(pageInput);
+    Collection<? extends BoundedWindow> windows =
+        isGloballyWindowed ? GLOBAL_WINDOWS : decodeWindows(pageInput);
+
+    AccumT accumulator = readAccumulator(entry);
+    if (dirty[entry]) {
+      accumulator =
+          combineFn.compact(accumulator, options, NullSideInputReader.empty(), windows);
+    }
+    receiver.accept(
+        isGloballyWindowed
+            ? WindowedValues.valueInGlobalWindow(KV.of(key, accumulator))
+            : WindowedValues.of(
+                KV.of(key, accumulator),
+                new Instant(timestamps[entry]),
+                windows,
+                // The PaneInfo will always be overwritten by the GBK.
+                PaneInfo.NO_FIRING));
+  }
+
+  private AccumT compact(int entry, AccumT accumulator) throws IOException {
+    Collection<? extends BoundedWindow> windows = GLOBAL_WINDOWS;
+    if (!isGloballyWindowed) {
+      long keyAddress = keyAddresses[entry];
+      pageInput.reset(page(keyAddress), offset(keyAddress), keyLengths[entry]);
+      keyCoder.decode(pageInput);
+      windows = decodeWindows(pageInput);
+    }
+    return combineFn.compact(accumulator, options, NullSideInputReader.empty(), windows);
+  }
+
+  private Collection<? extends BoundedWindow> decodeWindows(PageInputStream input)
+      throws IOException {
+    int numWindows = VarInt.decodeInt(input);
+    List<BoundedWindow> windows = new ArrayList<>(numWindows);
+    for (int i = 0; i < numWindows; ++i) {
+      windows.add(windowCoder.decode(input));
+    }
+    return windows;
+  }
+
+  private AccumT readAccumulator(int entry) throws IOException {
+    long address = accumulatorAddresses[entry];
+    pageInput.reset(page(address), offset(address), accumulatorLengths[entry]);
+    return accumulatorCoder.decode(pageInput);
+  }
+
+  private void writeAccumulator(int entry, AccumT accumulator) throws IOException {
+    accumulatorScratch.reset();
+    accumulatorCoder.encode(accumulator, accumulatorScratch);
+    int length = accumulatorScratch.size();
+    long address = accumulatorAddresses[entry];
+    if (address == NO_ADDRESS || length > accumulatorCapacities[entry]) {
+      int capacity = length;
+      if (address != NO_ADDRESS) {
+        garbageBytes += accumulatorCapacities[entry];
+        // Leave room to grow so that slowly growing accumulators aren't moved on every update.
+        capacity = Math.min(Math.max(length, PAGE_SIZE), length + (length >> 1));
+      }
+      address = allocate(capacity);
+      accumulatorAddresses[entry] = address;
+      accumulatorCapacities[entry] = capacity;
+    }
+    System.arraycopy(accumulatorScratch.array(), 0, page(address), offset(address), length);
+    accumulatorLengths[entry] = length;
+  }
+
+  private int findSlot(int hash, byte[] keyBytes, int keyLength) {
+    int mask = index.length - 1;
+    int slot = hash & mask;
+    while (true) {
+      int entry = index[slot] - 1;
+      if (entry < 0
+          || (hashes[entry] == hash
+              && keyLengths[entry] == keyLength
+              && keyEquals(entry, keyBytes, keyLength))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean keyEquals(int entry, byte[] keyBytes, int keyLength) {
+    long address = keyAddresses[entry];
+    int offset = offset(address);
+    return Arrays.equals(page(address), offset, offset + keyLength, keyBytes, 0, keyLength);
+  }
+
+  private int insert(int slot, int hash, byte[] keyBytes, int keyLength, Instant timestamp) {
+    if (size == hashes.length) {
+      growMetadata(hashes.length << 1);
+      slot = findSlot(hash, keyBytes, keyLength);
+    }
+    int entry = size++;
+    long address = allocate(keyLength);
+    System.arraycopy(keyBytes, 0, page(address), offset(address), keyLength);
+    hashes[entry] = hash;
+    keyAddresses[entry] = address;
+    keyLengths[entry] = keyLength;
+    accumulatorAddresses[entry] = NO_ADDRESS;
+    accumulatorLengths[entry] = 0;
+    accumulatorCapacities[entry] = 0;
+    timestamps[entry] = timestamp.getMillis();
+    dirty[entry] = false;
+    index[slot] = entry + 1;
+    return entry;
+  }
+
+  /**
+   * Copies the entries starting at {@code firstRetained} into new pages dropping all other entries
+   * and any space which is no longer referenced.
+   */
+  private void rebuild(int firstRetained) {
+    List<byte[]> oldPages = new ArrayList<>(pages);
+    int oldSize = size;
+    int[] oldHashes = hashes;
+    long[] oldKeyAddresses = keyAddresses;
+    int[] oldKeyLengths = keyLengths;
+    long[] oldAccumulatorAddresses = accumulatorAddresses;
+    int[] oldAccumulatorLengths = accumulatorLengths;
+    long[] oldTimestamps = timestamps;
+    boolean[] oldDirty = dirty;
+
+    pages.clear();
+    pagePosition = 0;
+    pageBytes = 0;
+    garbageBytes = 0;
+    int retained = oldSize - firstRetained;
+    allocateMetadata(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(retained) << 1));
+    for (int i = firstRetained; i < oldSize; ++i) {
+      int entry = size++;
+      hashes[entry] = oldHashes[i];
+      keyAddresses[entry] = copy(oldPages, oldKeyAddresses[i], oldKeyLengths[i]);
+      keyLengths[entry] = oldKeyLengths[i];
+      accumulatorAddresses[entry] =
+          copy(oldPages, oldAccumulatorAddresses[i], oldAccumulatorLengths[i]);
+      accumulatorLengths[entry] = oldAccumulatorLengths[i];
+      accumulatorCapacities[entry] = oldAccumulatorLengths[i];
+      timestamps[entry] = oldTimestamps[i];
+      dirty[entry] = oldDirty[i];
+      index[emptySlot(hashes[entry])] = entry + 1;
+    }
+    releasePages(oldPages);
+    updateWeight();
+  }
+
+  private long copy(List<byte[]> fromPages, long fromAddress, int length) {
+    long address = allocate(length);
+    System.arraycopy(
+        fromPages.get((int) (fromAddress >>> 32)),
+        (int) fromAddress,
+        page(address),
+        offset(address),
+        length);
+    return address;
+  }
+
+  private int emptySlot(int hash) {
+    int mask = index.length - 1;
+    int slot = hash & mask;
+    while (index[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void allocateMetadata(int capacity) {
+    size = 0;
+    index = new int[capacity << 1];
+    hashes = new int[capacity];
+    keyAddresses = new long[capacity];
+    keyLengths = new int[capacity];
+    accumulatorAddresses = new long[capacity];
+    accumulatorLengths = new int[capacity];
+    accumulatorCapacities = new int[capacity];
+    timestamps = new long[capacity];
+    dirty = new boolean[capacity];
+  }
+
+  private void growMetadata(int capacity) {
+    hashes = Arrays.copyOf(hashes, capacity);
+    keyAddresses = Arrays.copyOf(keyAddresses, capacity);
+    keyLengths = Arrays.copyOf(keyLengths, capacity);
+    accumulatorAddresses = Arrays.copyOf(accumulatorAddresses, capacity);
+    accumulatorLengths = Arrays.copyOf(accumulatorLengths, capacity);
+    accumulatorCapacities = Arrays.copyOf(accumulatorCapacities, capacity);
+    timestamps = Arrays.copyOf(timestamps, capacity);
+    dirty = Arrays.copyOf(dirty, capacity);
+    index = new int[capacity << 1];
+    for (int entry = 0; entry < size; ++entry) {
+      index[emptySlot(hashes[entry])] = entry + 1;
+    }
+  }
+
+  /** Returns the address of a region of {@code length} bytes within the pages of this table. */
+  private long allocate(int length) {
+    if (length > PAGE_SIZE) {
+      // Values larger than a page receive a dedicated page which is never pooled.
+      pages.add(new byte[length]);
+      pageBytes += length;
+      // Force the next allocation to acquire a new page.
+      pagePosition = PAGE_SIZE;
+      return ((long) (pages.size() - 1)) << 32;
+    }
+    if (pages.isEmpty() || pagePosition + length > PAGE_SIZE) {
+      if (!pages.isEmpty()) {
+        // The remainder of the current page is abandoned.
+        garbageBytes += PAGE_SIZE - pagePosition;
+      }
+      pages.add(PAGE_POOL.acquire());
+      pageBytes += PAGE_SIZE;
+      pagePosition = 0;
+    }
+    long address = (((long) (pages.size() - 1)) << 32) | pagePosition;
+    pagePosition += length;
+    return address;
+  }
+
+  private byte[] page(long address) {
+    return pages.get((int) (address >>> 32));
+  }
+
+  private static int offset(long address) {
+    return (int) address;
+  }
+
+  private long entryBytes(int entry) {
+    return keyLengths[entry]
+        + accumulatorLengths[entry]
+        + METADATA_BYTES_PER_ENTRY
+        + INDEX_BYTES_PER_ENTRY;
+  }
+
+  private void updateWeight() {
+    weight =
+        pageBytes
+            + (long) hashes.length * METADATA_BYTES_PER_ENTRY
+            + (long) index.length * Integer.BYTES;
+  }
+
+  private static void releasePages(List<byte[]> pagesToRelease) {
+    for (byte[] page : pagesToRelease) {
+      PAGE_POOL.release(page);
+    }
+  }
+
+  private static int hash(byte[] bytes, int length) {
+    int h = 1;
+    for (int i = 0; i < length; ++i) {
+      h = 31 * h + bytes[i];
+    }
+    // Spread the bits since the index only uses the low order bits of the hash.
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /** A process wide pool of pages that is shared by all tables to reduce allocation. */
+  private static final class PagePool {
+    private final Queue<byte[]> pool;
+    private final AtomicInteger pooledPages;
+    private final int maxPooledPages;
+
+    PagePool(int maxPooledPages) {
+      this.pool = new ConcurrentLinkedQueue<>();
+      this.pooledPages = new AtomicInteger();
+      this.maxPooledPages = maxPooledPages;
+    }
+
+    byte[] acquire() {
+      byte[] page = pool.poll();
+      if (page == null) {
+        return new byte[PAGE_SIZE];
+      }
+      pooledPages.decrementAndGet();
+      return page;
+    }
+
+    void release(byte[] page) {
+      if (page.length != PAGE_SIZE) {
+        return;
+      }
+      if (pooledPages.incrementAndGet() > maxPooledPages) {
+        pooledPages.decrementAndGet();
+        return;
+      }
+      pool.offer(page);
+    }
+  }
+
+  /** A {@link ByteArrayOutputStream} that exposes its buffer to avoid copying encoded bytes. */
+  private static final class ExposedOutputStream extends ByteArrayOutputStream {
+    byte[] array() {
+      return buf;
+    }
+  }
+
+  /** A {@link ByteArrayInputStream} that can be repositioned over any region of a page. */
+  private static final class PageInputStream extends ByteArrayInputStream {
+    PageInputStream() {
+      super(new byte[0]);
+    }
+
+    void reset(byte[] page, int offset, int length) {
+      this.buf = page;
+      this.pos = offset;
+      this.count = offset + length;
+      this.mark = offset;
+    }
+  }
+}
@@ -49,7 +49,11 @@ public class FlattenRunner<InputT> {
     private <T> void addFlattenRunner(Context context) throws IOException {
       // Give each input a MultiplexingFnDataReceiver to all outputs of the flatten.
       String output = getOnlyElement(context.getPTransform().getOutputsMap().values());
-      FnDataReceiver<WindowedValue<T>> receiver = context.getPCollectionConsumer(output);
+      FnDataReceiver<WindowedValue<T>> outputReceiver = context.getPCollectionConsumer(output);
+      FnDataReceiver<WindowedValue<T>> receiver = outputReceiver;
+      if (ElementwiseFnDataReceiver.isFusionEnabled(context.getPipelineOptions())) {
+        receiver = (ElementwiseFnDataReceiver<WindowedValue<T>>) outputReceiver::accept;
+      }
 
       for (String pCollectionId : context.getPTransform().getInputsMap().values()) {
         context.addPCollectionConsumer(pCollectionId, receiver);
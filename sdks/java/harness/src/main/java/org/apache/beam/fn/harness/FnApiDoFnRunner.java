@@ -62,17 +62,22 @@ import org.apache.beam.sdk.coders.DoubleCoder;
 import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.data.PrefetchingFnDataReceiver;
 import org.apache.beam.sdk.fn.splittabledofn.RestrictionTrackers;
 import org.apache.beam.sdk.fn.splittabledofn.RestrictionTrackers.ClaimObserver;
 import org.apache.beam.sdk.fn.splittabledofn.WatermarkEstimators;
 import org.apache.beam.sdk.function.ThrowingRunnable;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.ReadableState;
 import org.apache.beam.sdk.state.State;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.TimeDomain;
 import org.apache.beam.sdk.state.TimerMap;
+import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.DoFn.BundleFinalizer;
 import org.apache.beam.sdk.transforms.DoFn.MultiOutputReceiver;
@@ -140,6 +145,15 @@ import org.joda.time.format.PeriodFormat;
 @Internal
 public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimatorStateT, OutputT>
     implements FnApiStateAccessor.MutatingStateContext<Object, BoundedWindow> {
+  /**
+   * An experiment which enables requesting the bag backed user state of all elements of an inbound
+   * data block before processing the first element of the block.
+   */
+  static final String STATE_PREFETCH_EXPERIMENT = "state_prefetch";
+
+  /** The maximum number of prefetched state responses which have not been read yet. */
+  private static final int MAX_PREFETCHED_STATE_RESPONSES = 10_000;
+
   /** A registrar which provides a factory to handle Java {@link DoFn}s. */
   @AutoService(PTransformRunnerFactory.Registrar.class)
   public static class Registrar implements PTransformRunnerFactory.Registrar {
@@ -461,7 +475,7 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    final FnDataReceiver<WindowedValue> mainInputConsumer;
+    FnDataReceiver<WindowedValue> mainInputConsumer;
     switch (pTransform.getSpec().getUrn()) {
       case PTransformTranslation.PAR_DO_TRANSFORM_URN:
         if (doFnSignature.processElement().observesWindow() || !sideInputMapping.isEmpty()) {
@@ -503,6 +517,26 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       default:
         throw new IllegalStateException("Unknown urn: " + pTransform.getSpec().getUrn());
     }
+    if (PTransformTranslation.PAR_DO_TRANSFORM_URN.equals(pTransform.getSpec().getUrn())
+        && ExperimentalOptions.hasExperiment(pipelineOptions, STATE_PREFETCH_EXPERIMENT)) {
+      List<String> prefetchedStateIds = getBagBackedStateIds(doFnSignature);
+      if (!prefetchedStateIds.isEmpty()) {
+        stateAccessor.enableStatePrefetch(MAX_PREFETCHED_STATE_RESPONSES);
+        FnDataReceiver<WindowedValue> processingConsumer = mainInputConsumer;
+        mainInputConsumer =
+            new PrefetchingFnDataReceiver<WindowedValue>() {
+              @Override
+              public void prefetch(List<WindowedValue> inputs) {
+                stateAccessor.prefetchBagUserState(prefetchedStateIds, inputs);
+              }
+
+              @Override
+              public void accept(WindowedValue input) throws Exception {
+                processingConsumer.accept(input);
+              }
+            };
+      }
+    }
     addPCollectionConsumer.accept(pTransform.getInputsOrThrow(mainInput), mainInputConsumer);
 
     this.finishBundleArgumentProvider = new FinishBundleArgumentProvider();
@@ -596,6 +630,20 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     }
   }
 
+  /** Returns the ids of the declared states which are stored as bag user state. */
+  private static List<String> getBagBackedStateIds(DoFnSignature signature) {
+    List<String> stateIds = new ArrayList<>();
+    for (StateDeclaration declaration : signature.stateDeclarations().values()) {
+      Class<?> stateType = declaration.stateType().getRawType();
+      if (ValueState.class.isAssignableFrom(stateType)
+          || BagState.class.isAssignableFrom(stateType)
+          || CombiningState.class.isAssignableFrom(stateType)) {
+        stateIds.add(declaration.id());
+      }
+    }
+    return stateIds;
+  }
+
   @Override
   public Object getCurrentKey() {
     if (currentKey != null) {
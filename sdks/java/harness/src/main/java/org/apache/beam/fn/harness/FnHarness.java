@@ -31,6 +31,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import org.apache.beam.fn.harness.control.BeamFnControlClient;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler;
@@ -295,6 +297,8 @@ public class FnHarness {
             });
 
     final @Nullable DataSampler dataSampler = DataSampler.create(options);
+    @Nullable ExecutorService virtualThreadExecutor = null;
+    @Nullable AutoCloseable pinnedThreadReporter = null;
 
     // The logging client variable is not used per se, but during its lifetime (until close()) it
     // intercepts logging and sends it to the logging service.
@@ -333,7 +337,10 @@ public class FnHarness {
           BeamFnControlGrpc.newBlockingStub(channel);
 
       BeamFnDataGrpcClient beamFnDataMultiplexer =
-          new BeamFnDataGrpcClient(channelFactory::forDescriptor, outboundObserverFactory);
+          new BeamFnDataGrpcClient(
+              channelFactory::forDescriptor,
+              outboundObserverFactory,
+              !channelFactory.isInProcess());
 
       BeamFnStateGrpcClientCache beamFnStateGrpcClientCache =
           new BeamFnStateGrpcClientCache(idGenerator, channelFactory, outboundObserverFactory);
@@ -384,7 +391,8 @@ public class FnHarness {
                 channelFactory::forDescriptor,
                 processBundleHandler.getBundleProcessorCache(),
                 options,
-                processWideCache);
+                processWideCache,
+                executionStateSampler);
       }
 
       // TODO(https://github.com/apache/beam/issues/20270): Remove once runners no longer send this
@@ -436,11 +444,23 @@ public class FnHarness {
       // The control client immediately dispatches requests to an executor so we execute on the
       // direct executor. If we created separate channels for different stubs we could use
       // directExecutor() when building the channel.
+      Executor instructionExecutor = executorService;
+      if (sdkHarnessOptions.getUseVirtualThreads()) {
+        if (VirtualThreads.isSupported()) {
+          LOG.info("Processing bundles on virtual threads.");
+          virtualThreadExecutor = VirtualThreads.newThreadPerTaskExecutor("bundle-processor-");
+          instructionExecutor = virtualThreadExecutor;
+          pinnedThreadReporter = VirtualThreads.reportPinnedThreads(executionStateSampler);
+        } else {
+          LOG.warn(
+              "Virtual threads require Java 21 or later, processing bundles on platform threads.");
+        }
+      }
       BeamFnControlClient control =
           new BeamFnControlClient(
               controlStub.withExecutor(MoreExecutors.directExecutor()).withWaitForReady(),
               outboundObserverFactory,
-              executorService,
+              instructionExecutor,
               handlers);
       if (options.as(SdkHarnessOptions.class).getEnableLogViaFnApi()) {
         CompletableFuture.anyOf(
@@ -460,6 +480,16 @@ public class FnHarness {
       LOG.info("Shutting SDK harness down.");
       executionStateSampler.stop();
       executorService.shutdown();
+      if (virtualThreadExecutor != null) {
+        virtualThreadExecutor.shutdown();
+      }
+      if (pinnedThreadReporter != null) {
+        try {
+          pinnedThreadReporter.close();
+        } catch (Exception e) {
+          LOG.warn("Failed to stop reporting pinned virtual threads.", e);
+        }
+      }
     }
   }
 }
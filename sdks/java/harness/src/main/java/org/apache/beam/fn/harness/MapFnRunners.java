@@ -93,7 +93,12 @@ public abstract class MapFnRunners {
 
       String pCollectionId =
           Iterables.getOnlyElement(context.getPTransform().getInputsMap().values());
-      context.addPCollectionConsumer(pCollectionId, mapper::map);
+      if (ElementwiseFnDataReceiver.isFusionEnabled(context.getPipelineOptions())) {
+        ElementwiseFnDataReceiver<WindowedValue<InputT>> receiver = mapper::map;
+        context.addPCollectionConsumer(pCollectionId, receiver);
+      } else {
+        context.addPCollectionConsumer(pCollectionId, mapper::map);
+      }
     }
   }
 
@@ -55,7 +55,9 @@ import org.joda.time.Instant;
 })
 @NotThreadSafe
 public class PrecombineGroupingTable<K, InputT, AccumT>
-    implements Shrinkable<PrecombineGroupingTable<K, InputT, AccumT>>, Weighted {
+    implements GroupingTable<K, InputT, AccumT>,
+        Shrinkable<PrecombineGroupingTable<K, InputT, AccumT>>,
+        Weighted {
 
   /**
    * Returns a grouping table that combines inputs into an accumulator. The grouping table uses the
@@ -384,6 +386,7 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
    * full.
    */
   @VisibleForTesting
+  @Override
   public void put(
       WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
       throws Exception {
@@ -481,6 +484,7 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   }
 
   /** Flushes all entries in this table to output. */
+  @Override
   public void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
     cache.remove(Key.INSTANCE);
     for (GroupingTableEntry valueToFlush : lruMap.values()) {
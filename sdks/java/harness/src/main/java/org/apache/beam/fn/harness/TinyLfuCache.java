@@ -0,0 +1,641 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A concurrent cache bounded by weight using a W-TinyLFU admission and eviction policy.
+ *
+ * <p>Entries are partitioned into segments by key hash. Lookups are lock free and record the access
+ * within a lossy read buffer striped by thread while insertions and removals record a task within
+ * the segment's write buffer. The buffers are drained and applied to the policy by whichever thread
+ * acquires the segment's lock, which means that threads rarely wait on one another.
+ *
+ * <p>Each segment orders its entries within an admission window and a main region split into a
+ * probation and protected section. Entries that overflow the window are only admitted to the main
+ * region if a count-min sketch estimates that they are accessed more frequently than the entry that
+ * would be evicted in their place. The maximum weight is shared by all segments.
+ *
+ * <p>Instead of being evicted, entries may be replaced with a smaller value by the {@link
+ * Shrinker}.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+@ThreadSafe
+final class TinyLfuCache<K, V> {
+
+  /** Computes the weight of an entry. */
+  @FunctionalInterface
+  interface Weigher<K, V> {
+    long weigh(K key, V value);
+  }
+
+  /** Returns a smaller replacement for an entry being evicted or {@code null} to evict it. */
+  @FunctionalInterface
+  interface Shrinker<K, V> {
+    @Nullable
+    V shrink(K key, V value);
+  }
+
+  private static final int NUM_SEGMENTS = 16;
+  private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(NUM_SEGMENTS);
+  private static final int READ_BUFFER_STRIPES = 4;
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  /** The expected weight of an entry used to size the frequency sketch. */
+  private static final long EXPECTED_ENTRY_WEIGHT = 1 << 10;
+
+  private static final int NONE = 0;
+  private static final int WINDOW = 1;
+  private static final int PROBATION = 2;
+  private static final int PROTECTED = 3;
+
+  private final long maximumWeight;
+  private final long windowMaximumWeight;
+  private final long protectedMaximumWeight;
+  private final Weigher<K, V> weigher;
+  private final Shrinker<K, V> shrinker;
+  private final Segment<K, V>[] segments;
+  private final AtomicLong weightedSize;
+
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+  private final LongAdder loadCount;
+  private final LongAdder totalLoadTimeNanos;
+  private final LongAdder evictionCount;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  TinyLfuCache(long maximumWeight, Weigher<K, V> weigher, Shrinker<K, V> shrinker) {
+    this.maximumWeight = maximumWeight;
+    long segmentMaximumWeight = maximumWeight / NUM_SEGMENTS;
+    this.windowMaximumWeight = Math.max(1, segmentMaximumWeight / 100);
+    this.protectedMaximumWeight = segmentMaximumWeight - (segmentMaximumWeight / 5);
+    this.weigher = weigher;
+    this.shrinker = shrinker;
+    long expectedEntries = segmentMaximumWeight / EXPECTED_ENTRY_WEIGHT;
+    int sketchLength =
+        (int) Math.min(1 << 16, Math.max(64, Long.highestOneBit(Math.max(1, expectedEntries))));
+    this.segments = new Segment[NUM_SEGMENTS];
+    for (int i = 0; i < NUM_SEGMENTS; ++i) {
+      segments[i] = new Segment<>(sketchLength);
+    }
+    this.weightedSize = new AtomicLong();
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.loadCount = new LongAdder();
+    this.totalLoadTimeNanos = new LongAdder();
+    this.evictionCount = new LongAdder();
+  }
+
+  /** Returns the value associated with the key or {@code null} if it is not present. */
+  @Nullable
+  V getIfPresent(K key) {
+    int hash = spread(key.hashCode());
+    Segment<K, V> segment = segmentFor(hash);
+    Node<K, V> node = segment.map.get(key);
+    if (node == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    afterRead(segment, node);
+    return node.value;
+  }
+
+  /**
+   * Returns the value associated with the key, loading it with the {@code loadingFunction} if it
+   * is not present.
+   *
+   * <p>The value is loaded without holding any locks allowing the loading function to access other
+   * keys within this cache. Concurrent callers for the same key wait for the same load.
+   */
+  V get(K key, Function<K, V> loadingFunction) {
+    int hash = spread(key.hashCode());
+    Segment<K, V> segment = segmentFor(hash);
+    Node<K, V> node = segment.map.get(key);
+    if (node != null) {
+      hitCount.increment();
+      afterRead(segment, node);
+      return node.value;
+    }
+    missCount.increment();
+
+    Loading<V> loading = new Loading<>();
+    Loading<V> existing = segment.loads.putIfAbsent(key, loading);
+    if (existing != null) {
+      if (existing.thread == Thread.currentThread()) {
+        throw new IllegalStateException("Recursive load of " + key);
+      }
+      try {
+        return existing.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+    }
+
+    try {
+      // The key may have been loaded by another thread before our load was registered.
+      node = segment.map.get(key);
+      if (node != null) {
+        loading.complete(node.value);
+        return node.value;
+      }
+      long startNanos = System.nanoTime();
+      V value = loadingFunction.apply(key);
+      totalLoadTimeNanos.add(System.nanoTime() - startNanos);
+      loadCount.increment();
+
+      Node<K, V> loaded = new Node<>(key, hash, value, weigher.weigh(key, value));
+      if (segment.map.putIfAbsent(key, loaded) == null) {
+        afterWrite(segment, () -> onAdd(segment, loaded));
+      }
+      loading.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      loading.completeExceptionally(e);
+      throw e;
+    } finally {
+      segment.loads.remove(key, loading);
+    }
+  }
+
+  /** Associates the value with the key replacing any existing value. */
+  void put(K key, V value) {
+    int hash = spread(key.hashCode());
+    Segment<K, V> segment = segmentFor(hash);
+    Node<K, V> node = new Node<>(key, hash, value, weigher.weigh(key, value));
+    Node<K, V> prior = segment.map.put(key, node);
+    afterWrite(
+        segment,
+        () -> {
+          if (prior != null) {
+            onRemove(segment, prior);
+          }
+          onAdd(segment, node);
+        });
+  }
+
+  /** Removes the value associated with the key if it is present. */
+  void invalidate(K key) {
+    Segment<K, V> segment = segmentFor(spread(key.hashCode()));
+    Node<K, V> node = segment.map.remove(key);
+    if (node != null) {
+      afterWrite(segment, () -> onRemove(segment, node));
+    }
+  }
+
+  /** Returns the sum of the weights of all entries within the cache. */
+  long weightedSize() {
+    return weightedSize.get();
+  }
+
+  long maximumWeight() {
+    return maximumWeight;
+  }
+
+  long hitCount() {
+    return hitCount.sum();
+  }
+
+  long missCount() {
+    return missCount.sum();
+  }
+
+  long loadCount() {
+    return loadCount.sum();
+  }
+
+  long totalLoadTimeNanos() {
+    return totalLoadTimeNanos.sum();
+  }
+
+  long evictionCount() {
+    return evictionCount.sum();
+  }
+
+  /** Applies all pending reads and writes to the policy. */
+  void cleanUp() {
+    for (Segment<K, V> segment : segments) {
+      segment.lock();
+      try {
+        maintenance(segment);
+      } finally {
+        segment.unlock();
+      }
+    }
+  }
+
+  private Segment<K, V> segmentFor(int hash) {
+    return segments[hash >>> SEGMENT_SHIFT];
+  }
+
+  private void afterRead(Segment<K, V> segment, Node<K, V> node) {
+    int stripe =
+        spread(System.identityHashCode(Thread.currentThread())) & (READ_BUFFER_STRIPES - 1);
+    if (!segment.readBuffers[stripe].offer(node)) {
+      drain(segment);
+    }
+  }
+
+  private void afterWrite(Segment<K, V> segment, Runnable task) {
+    segment.writeBuffer.add(task);
+    drain(segment);
+  }
+
+  /**
+   * Applies the buffered reads and writes to the policy unless another thread is already doing so.
+   *
+   * <p>A thread that releases the lock checks the write buffer again so that writes recorded while
+   * it held the lock are never stranded.
+   */
+  private void drain(Segment<K, V> segment) {
+    do {
+      if (!segment.tryLock()) {
+        return;
+      }
+      try {
+        maintenance(segment);
+      } finally {
+        segment.unlock();
+      }
+    } while (!segment.writeBuffer.isEmpty());
+
+    // Evict from other segments if this segment could not evict enough on its own.
+    for (int i = 0; i < NUM_SEGMENTS && weightedSize.get() > maximumWeight; ++i) {
+      Segment<K, V> other = segments[i];
+      if (other != segment) {
+        other.lock();
+        try {
+          maintenance(other);
+        } finally {
+          other.unlock();
+        }
+      }
+    }
+  }
+
+  private void maintenance(Segment<K, V> segment) {
+    for (ReadBuffer<K, V> readBuffer : segment.readBuffers) {
+      long head = readBuffer.readCounter;
+      long tail = readBuffer.writeCounter.get();
+      for (; head < tail; ++head) {
+        int index = (int) (head & READ_BUFFER_MASK);
+        Node<K, V> node = readBuffer.buffer.get(index);
+        if (node == null) {
+          // The reader has claimed the slot but not yet published the node.
+          break;
+        }
+        readBuffer.buffer.lazySet(index, null);
+        onAccess(segment, node);
+      }
+      readBuffer.readCounter = head;
+    }
+
+    Runnable task;
+    while ((task = segment.writeBuffer.poll()) != null) {
+      task.run();
+    }
+    evict(segment);
+  }
+
+  private void onAdd(Segment<K, V> segment, Node<K, V> node) {
+    if (segment.map.get(node.key) != node) {
+      // The entry has already been replaced or removed.
+      return;
+    }
+    segment.sketch.increment(node.hash);
+    node.queue = WINDOW;
+    segment.window.addLast(node);
+    weightedSize.addAndGet(node.weight);
+  }
+
+  private void onRemove(Segment<K, V> segment, Node<K, V> node) {
+    if (node.queue == NONE) {
+      return;
+    }
+    queueFor(segment, node).remove(node);
+    node.queue = NONE;
+    weightedSize.addAndGet(-node.weight);
+  }
+
+  private void onAccess(Segment<K, V> segment, Node<K, V> node) {
+    if (node.queue == NONE) {
+      return;
+    }
+    segment.sketch.increment(node.hash);
+    switch (node.queue) {
+      case WINDOW:
+        segment.window.moveToLast(node);
+        break;
+      case PROBATION:
+        // Promote the entry and demote the least recently used protected entries to make room.
+        segment.probation.remove(node);
+        node.queue = PROTECTED;
+        segment.protectedQueue.addLast(node);
+        while (segment.protectedQueue.weight > protectedMaximumWeight
+            && segment.protectedQueue.head != node) {
+          Node<K, V> demoted = segment.protectedQueue.head;
+          segment.protectedQueue.remove(demoted);
+          demoted.queue = PROBATION;
+          segment.probation.addLast(demoted);
+        }
+        break;
+      case PROTECTED:
+        segment.protectedQueue.moveToLast(node);
+        break;
+      default:
+        throw new IllegalStateException("Unknown queue " + node.queue);
+    }
+  }
+
+  private void evict(Segment<K, V> segment) {
+    // Entries which overflow the window are admitted to the main region if there is room or if they
+    // are used more frequently than the main region's victim.
+    while (segment.window.weight > windowMaximumWeight) {
+      Node<K, V> candidate = segment.window.head;
+      Node<K, V> victim = segment.probation.head;
+      if (weightedSize.get() <= maximumWeight
+          || victim == null
+          || segment.sketch.frequency(candidate.hash) > segment.sketch.frequency(victim.hash)) {
+        segment.window.remove(candidate);
+        candidate.queue = PROBATION;
+        segment.probation.addLast(candidate);
+        if (victim != null && weightedSize.get() > maximumWeight) {
+          evictEntry(segment, victim);
+        }
+      } else {
+        evictEntry(segment, candidate);
+      }
+    }
+
+    while (weightedSize.get() > maximumWeight) {
+      Node<K, V> victim = segment.probation.head;
+      if (victim == null) {
+        victim = segment.protectedQueue.head;
+      }
+      if (victim == null) {
+        victim = segment.window.head;
+      }
+      if (victim == null) {
+        return;
+      }
+      evictEntry(segment, victim);
+    }
+  }
+
+  private void evictEntry(Segment<K, V> segment, Node<K, V> node) {
+    onRemove(segment, node);
+    evictionCount.increment();
+    V shrunk = shrinker.shrink(node.key, node.value);
+    if (shrunk != null) {
+      Node<K, V> replacement =
+          new Node<>(node.key, node.hash, shrunk, weigher.weigh(node.key, shrunk));
+      // Guard against shrinkers which don't reduce the weight to ensure that eviction terminates.
+      if (replacement.weight < node.weight
+          && segment.map.replace(node.key, node, replacement)) {
+        replacement.queue = PROBATION;
+        segment.probation.addLast(replacement);
+        weightedSize.addAndGet(replacement.weight);
+        return;
+      }
+    }
+    segment.map.remove(node.key, node);
+  }
+
+  private static AccessOrderQueue<?, ?> queueFor(Segment<?, ?> segment, Node<?, ?> node) {
+    switch (node.queue) {
+      case WINDOW:
+        return segment.window;
+      case PROBATION:
+        return segment.probation;
+      case PROTECTED:
+        return segment.protectedQueue;
+      default:
+        throw new IllegalStateException("Unknown queue " + node.queue);
+    }
+  }
+
+  private static int spread(int hash) {
+    int h = hash * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  private static final class Segment<K, V> extends ReentrantLock {
+    final ConcurrentHashMap<K, Node<K, V>> map;
+    final ConcurrentHashMap<K, Loading<V>> loads;
+    final ReadBuffer<K, V>[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer;
+
+    // Guarded by this segment's lock.
+    final AccessOrderQueue<K, V> window;
+    final AccessOrderQueue<K, V> probation;
+    final AccessOrderQueue<K, V> protectedQueue;
+    final FrequencySketch sketch;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Segment(int sketchLength) {
+      this.map = new ConcurrentHashMap<>();
+      this.loads = new ConcurrentHashMap<>();
+      this.readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+      for (int i = 0; i < READ_BUFFER_STRIPES; ++i) {
+        readBuffers[i] = new ReadBuffer<>();
+      }
+      this.writeBuffer = new ConcurrentLinkedQueue<>();
+      this.window = new AccessOrderQueue<>();
+      this.probation = new AccessOrderQueue<>();
+      this.protectedQueue = new AccessOrderQueue<>();
+      this.sketch = new FrequencySketch(sketchLength);
+    }
+  }
+
+  private static final class Node<K, V> {
+    final K key;
+    final int hash;
+    final V value;
+    final long weight;
+
+    // Guarded by the segment lock.
+    int queue;
+    @Nullable Node<K, V> prev;
+    @Nullable Node<K, V> next;
+
+    Node(K key, int hash, V value, long weight) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /** A pending load which other threads requesting the same key wait upon. */
+  private static final class Loading<V> extends CompletableFuture<V> {
+    final Thread thread = Thread.currentThread();
+  }
+
+  /**
+   * A bounded buffer of accesses which drops accesses when full or contended since they only
+   * influence the policy.
+   */
+  private static final class ReadBuffer<K, V> {
+    final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    final AtomicLong writeCounter = new AtomicLong();
+
+    // Only written while holding the segment lock.
+    volatile long readCounter;
+
+    /** Returns false if the buffer is full and should be drained. */
+    boolean offer(Node<K, V> node) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      if (tail - head >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & READ_BUFFER_MASK), node);
+      }
+      return true;
+    }
+  }
+
+  /** An intrusive doubly linked list ordered from least to most recently used. */
+  private static final class AccessOrderQueue<K, V> {
+    @Nullable Node<K, V> head;
+    @Nullable Node<K, V> tail;
+    long weight;
+
+    void addLast(Node<K, V> node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    void remove(Node<?, ?> untypedNode) {
+      @SuppressWarnings("unchecked")
+      Node<K, V> node = (Node<K, V>) untypedNode;
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      weight -= node.weight;
+    }
+
+    void moveToLast(Node<K, V> node) {
+      if (tail != node) {
+        remove(node);
+        addLast(node);
+      }
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters estimating how often keys are accessed. Counters are
+   * halved periodically so that the estimates favor recent accesses.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int length) {
+      this.table = new long[length];
+      this.tableMask = length - 1;
+      this.sampleSize = 10 * length;
+    }
+
+    int frequency(int hash) {
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; ++i) {
+        int shift = counterOffset(hash, i) << 2;
+        frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shift) & 0xfL));
+      }
+      return frequency;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; ++i) {
+        int index = indexOf(hash, i);
+        int shift = counterOffset(hash, i) << 2;
+        long mask = 0xfL << shift;
+        if ((table[index] & mask) != mask) {
+          table[index] += 1L << shift;
+          added = true;
+        }
+      }
+      if (added && ++size >= sampleSize) {
+        reset();
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < table.length; ++i) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int counterOffset(int hash, int i) {
+      return (hash >>> (i << 3)) & 15;
+    }
+  }
+}
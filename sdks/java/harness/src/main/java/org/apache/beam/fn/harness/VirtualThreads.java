@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import org.apache.beam.fn.harness.control.ExecutionStateSampler;
+
+/**
+ * Provides access to virtual threads, which are only available on Java 21 and later.
+ *
+ * <p>The SDK harness is compiled against Java 11, so virtual threads and the JFR event streaming
+ * API used to detect virtual threads which are pinned to their carrier thread are accessed
+ * reflectively.
+ *
+ * <p>Code which may block while running on virtual threads, such as sending data and control
+ * messages, guards shared state with {@link java.util.concurrent.locks.ReentrantLock}s rather than
+ * monitors. A virtual thread which blocks while holding a monitor stays pinned to its carrier
+ * thread on Java 21, which can starve all other virtual threads of carrier threads.
+ */
+public final class VirtualThreads {
+  private static final String VIRTUAL_THREAD_PINNED_EVENT = "jdk.VirtualThreadPinned";
+  // The default threshold of the JFR event, shorter pinning is rarely worth investigating.
+  private static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+
+  private VirtualThreads() {}
+
+  /** Returns whether the running JVM supports virtual threads. */
+  public static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns an executor which runs each task on a new virtual thread named with the specified
+   * prefix followed by a counter.
+   *
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = checkNotNull(Thread.class.getMethod("ofVirtual").invoke(null));
+      builder =
+          checkNotNull(
+              builderClass
+                  .getMethod("name", String.class, long.class)
+                  .invoke(builder, namePrefix, 0L));
+      ThreadFactory threadFactory =
+          (ThreadFactory) checkNotNull(builderClass.getMethod("factory").invoke(builder));
+      return (ExecutorService)
+          checkNotNull(
+              Executors.class
+                  .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                  .invoke(null, threadFactory));
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require Java 21 or later but are not supported by this JVM.", e);
+    }
+  }
+
+  /**
+   * Starts reporting virtual threads pinned to their carrier thread for longer than 20ms to the
+   * execution state the thread is in, see {@link ExecutionStateSampler#reportPinnedThread}.
+   *
+   * <p>Pinning happens when a virtual thread blocks while holding a monitor or within native code.
+   * Closing the returned {@link AutoCloseable} stops the reporting.
+   *
+   * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+   */
+  public static AutoCloseable reportPinnedThreads(ExecutionStateSampler executionStateSampler) {
+    Consumer<RecordedEvent> onPinned =
+        event -> {
+          RecordedThread thread = event.getThread();
+          if (thread != null) {
+            executionStateSampler.reportPinnedThread(
+                thread.getJavaThreadId(), event.getDuration().toMillis());
+          }
+        };
+    try {
+      Class<?> recordingStreamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+      Object recordingStream = recordingStreamClass.getConstructor().newInstance();
+      Object eventSettings =
+          checkNotNull(
+              recordingStreamClass
+                  .getMethod("enable", String.class)
+                  .invoke(recordingStream, VIRTUAL_THREAD_PINNED_EVENT));
+      Class.forName("jdk.jfr.EventSettings")
+          .getMethod("withThreshold", Duration.class)
+          .invoke(eventSettings, PINNED_THRESHOLD);
+      recordingStreamClass
+          .getMethod("onEvent", String.class, Consumer.class)
+          .invoke(recordingStream, VIRTUAL_THREAD_PINNED_EVENT, onPinned);
+      recordingStreamClass.getMethod("startAsync").invoke(recordingStream);
+      return (AutoCloseable) recordingStream;
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException(
+          "Reporting pinned virtual threads requires Java 21 or later.", e);
+    }
+  }
+}
@@ -68,6 +68,10 @@ public class ExecutionStateSampler {
   private static final Logger LOG = LoggerFactory.getLogger(ExecutionStateSampler.class);
   private static final int DEFAULT_SAMPLING_PERIOD_MS = 200;
   private static final long MAX_LULL_TIME_MS = TimeUnit.MINUTES.toMillis(5);
+  public static final MetricName VIRTUAL_THREAD_PINNED_COUNT =
+      MetricName.named(ExecutionStateSampler.class, "virtualThreadPinnedCount");
+  public static final MetricName VIRTUAL_THREAD_PINNED_MSECS =
+      MetricName.named(ExecutionStateSampler.class, "virtualThreadPinnedMsecs");
   private static final PeriodFormatter DURATION_FORMATTER =
       new PeriodFormatterBuilder()
           .appendDays()
@@ -91,6 +95,7 @@ public class ExecutionStateSampler {
 
   private final Future<Void> stateSamplingThread;
   private final @Nullable Consumer<String> onTimeoutExceededCallback;
+  private final @Nullable SampledStacks sampledStacks;
 
   @SuppressWarnings("methodref.receiver.bound" /* Synchronization ensures proper initialization */)
   public ExecutionStateSampler(
@@ -116,6 +121,10 @@ public class ExecutionStateSampler {
       this.userSpecifiedLullTimeMsForRestart = TimeUnit.MINUTES.toMillis(timeoutOption);
     }
     this.onTimeoutExceededCallback = onTimeoutExceededCallback;
+    this.sampledStacks =
+        ExperimentalOptions.hasExperiment(options, ExperimentalOptions.ENABLE_STACK_SAMPLING)
+            ? new SampledStacks()
+            : null;
 
     // We specifically synchronize to ensure that this object can complete
     // being published before the state sampler thread starts.
@@ -179,6 +188,33 @@ public class ExecutionStateSampler {
     }
   }
 
+  /**
+   * Returns the stacks of the bundle processing threads sampled by this state sampler or null if
+   * stack sampling is not enabled with the {@link ExperimentalOptions#ENABLE_STACK_SAMPLING}
+   * experiment.
+   */
+  public @Nullable SampledStacks getSampledStacks() {
+    return sampledStacks;
+  }
+
+  /**
+   * Attributes a virtual thread being pinned to its carrier thread for {@code pinnedMillis} to the
+   * execution state that the thread with {@code threadId} is currently in.
+   *
+   * <p>Pinning is reported as the {@link #VIRTUAL_THREAD_PINNED_COUNT} counter and the {@link
+   * #VIRTUAL_THREAD_PINNED_MSECS} distribution of the PTransform. Since pinning is reported after
+   * the fact, it may be attributed to a later execution state of the same thread.
+   */
+  public void reportPinnedThread(long threadId, long pinnedMillis) {
+    synchronized (activeStateTrackers) {
+      for (ExecutionStateTracker activeTracker : activeStateTrackers) {
+        if (activeTracker.reportPinnedThread(threadId, pinnedMillis)) {
+          return;
+        }
+      }
+    }
+  }
+
   @VisibleForTesting
   public boolean getUserSpecifiedTimeoutForRestart() {
     return this.userSpecifiedTimeoutForRestart;
@@ -394,6 +430,17 @@ public class ExecutionStateSampler {
       ExecutionStateImpl currentExecutionState = currentStateLazy.get();
       if (currentExecutionState != null) {
         currentExecutionState.takeSample(millisSinceLastSample);
+        SampledStacks stacks = sampledStacks;
+        Thread thread = trackedThread.get();
+        if (stacks != null && thread != null) {
+          // The thread may have transitioned since the state was read, so as with the state
+          // sampling itself the stack is only an approximation of where the time was spent.
+          stacks.add(
+              currentExecutionState.ptransformUniqueName,
+              currentExecutionState.stateName,
+              thread.getStackTrace(),
+              millisSinceLastSample);
+        }
       }
 
       long transitionsAtThisSample = numTransitionsLazy.get();
@@ -479,6 +526,25 @@ public class ExecutionStateSampler {
       return Optional.empty();
     }
 
+    /**
+     * Reports pinning to the current execution state if this tracker tracks the thread with {@code
+     * threadId}, returning whether it does.
+     */
+    private boolean reportPinnedThread(long threadId, long pinnedMillis) {
+      Thread thread = trackedThread.get();
+      if (thread == null || thread.getId() != threadId) {
+        return false;
+      }
+      ExecutionStateImpl currentExecutionState = currentStateLazy.get();
+      MetricsContainer container =
+          currentExecutionState == null
+              ? metricsContainerRegistry.getUnboundContainer()
+              : currentExecutionState.metricsContainer;
+      container.getCounter(VIRTUAL_THREAD_PINNED_COUNT).inc();
+      container.getDistribution(VIRTUAL_THREAD_PINNED_MSECS).update(pinnedMillis);
+      return true;
+    }
+
     /** Returns status information related to this tracker or null if not tracking a bundle. */
     public @Nullable ExecutionStateTrackerStatus getStatus() {
       Thread thread = trackedThread.get();
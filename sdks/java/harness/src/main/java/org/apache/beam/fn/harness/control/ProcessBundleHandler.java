@@ -50,6 +50,7 @@ import org.apache.beam.fn.harness.PTransformRunnerFactory.Registrar;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTracker;
 import org.apache.beam.fn.harness.control.FinalizeBundleHandler.CallbackRegistration;
 import org.apache.beam.fn.harness.data.BeamFnDataClient;
+import org.apache.beam.fn.harness.data.OutboundFlushStatisticsReporter;
 import org.apache.beam.fn.harness.data.PCollectionConsumerRegistry;
 import org.apache.beam.fn.harness.data.PTransformFunctionRegistry;
 import org.apache.beam.fn.harness.debug.DataSampler;
@@ -381,8 +382,18 @@ public class ProcessBundleHandler {
                                   runnerCapabilities.contains(
                                       BeamUrns.getUrn(
                                           StandardRunnerProtocols.Enum
-                                              .CONTROL_RESPONSE_ELEMENTS_EMBEDDING))));
-                  return aggregator.registerOutputDataLocation(pTransformId, coder);
+                                              .CONTROL_RESPONSE_ELEMENTS_EMBEDDING)),
+                                  beamFnDataClient.isSerializingTransport()));
+                  FnDataReceiver<T> receiver =
+                      aggregator.registerOutputDataLocation(pTransformId, coder);
+                  if (aggregator.isAdaptive()) {
+                    addBundleProgressReporter.accept(
+                        new OutboundFlushStatisticsReporter(
+                            shortIds,
+                            pTransformId,
+                            aggregator.getDataFlushStatistics(pTransformId)));
+                  }
+                  return receiver;
                 }
 
                 @Override
@@ -404,7 +415,8 @@ public class ProcessBundleHandler {
                                   runnerCapabilities.contains(
                                       BeamUrns.getUrn(
                                           StandardRunnerProtocols.Enum
-                                              .CONTROL_RESPONSE_ELEMENTS_EMBEDDING))));
+                                              .CONTROL_RESPONSE_ELEMENTS_EMBEDDING)),
+                                  beamFnDataClient.isSerializingTransport()));
                   return aggregator.registerOutputTimersLocation(
                       pTransformId, timerFamilyId, coder);
                 }
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.control;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Aggregates the stacks of bundle processing threads captured by the {@link
+ * ExecutionStateSampler} into folded stacks per PTransform.
+ *
+ * <p>Each folded stack starts with the PTransform unique name and execution state name followed by
+ * the frames from the outermost to the innermost, separated by semicolons, and is followed by the
+ * number of milliseconds attributed to it. This is the input format of common flame graph tools.
+ *
+ * <p>The number of distinct stacks per PTransform is bounded. Once the bound is reached, time spent
+ * in new stacks is attributed to a single {@code [other]} stack for the PTransform.
+ */
+@ThreadSafe
+public class SampledStacks {
+  @VisibleForTesting static final int MAX_STACKS_PER_PTRANSFORM = 1000;
+  @VisibleForTesting static final int MAX_FRAMES = 128;
+  @VisibleForTesting static final String OTHER_STACKS = "[other]";
+
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicLong>> stacks =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Attributes {@code millis} to the stack of a thread executing the specified PTransform and
+   * execution state.
+   *
+   * <p>Only the innermost {@link #MAX_FRAMES} frames of the stack are kept.
+   */
+  public void add(
+      String ptransformUniqueName, String stateName, StackTraceElement[] stack, long millis) {
+    ConcurrentHashMap<String, AtomicLong> ptransformStacks =
+        stacks.computeIfAbsent(ptransformUniqueName, unused -> new ConcurrentHashMap<>());
+    String folded = fold(ptransformUniqueName, stateName, stack);
+    AtomicLong total = ptransformStacks.get(folded);
+    if (total == null) {
+      if (ptransformStacks.size() >= MAX_STACKS_PER_PTRANSFORM) {
+        folded = sanitize(ptransformUniqueName) + ";" + OTHER_STACKS;
+      }
+      total = ptransformStacks.computeIfAbsent(folded, unused -> new AtomicLong());
+    }
+    total.addAndGet(millis);
+  }
+
+  /** Returns the folded stacks of each PTransform and the milliseconds attributed to them. */
+  public Map<String, Map<String, Long>> getFoldedStacks() {
+    Map<String, Map<String, Long>> snapshot = new HashMap<>();
+    for (Map.Entry<String, ConcurrentHashMap<String, AtomicLong>> ptransformStacks :
+        stacks.entrySet()) {
+      Map<String, Long> ptransformSnapshot = new HashMap<>();
+      for (Map.Entry<String, AtomicLong> stack : ptransformStacks.getValue().entrySet()) {
+        ptransformSnapshot.put(stack.getKey(), stack.getValue().get());
+      }
+      snapshot.put(ptransformStacks.getKey(), ptransformSnapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns all folded stacks followed by their milliseconds, one per line, ordered by descending
+   * time.
+   */
+  public String describeFoldedStacks() {
+    List<Map.Entry<String, Long>> all = new ArrayList<>();
+    for (Map<String, Long> ptransformStacks : getFoldedStacks().values()) {
+      all.addAll(ptransformStacks.entrySet());
+    }
+    all.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Long> stack : all) {
+      builder.append(stack.getKey()).append(' ').append(stack.getValue()).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static String fold(
+      String ptransformUniqueName, String stateName, StackTraceElement[] stack) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(sanitize(ptransformUniqueName)).append(';').append(stateName);
+    int outermost = Math.min(stack.length, MAX_FRAMES) - 1;
+    for (int i = outermost; i >= 0; --i) {
+      StackTraceElement frame = stack[i];
+      builder.append(';').append(frame.getClassName()).append('.').append(frame.getMethodName());
+    }
+    return builder.toString();
+  }
+
+  /** Replaces the separators of the folded format, semicolons and spaces. */
+  private static String sanitize(String ptransformUniqueName) {
+    return ptransformUniqueName.replace(';', ':').replace(' ', '_');
+  }
+}
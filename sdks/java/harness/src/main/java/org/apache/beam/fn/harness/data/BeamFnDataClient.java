@@ -75,6 +75,14 @@ public interface BeamFnDataClient extends Closeable {
   StreamObserver<Elements> getOutboundObserver(
       Endpoints.ApiServiceDescriptor apiServiceDescriptor, String dataStreamId);
 
+  /**
+   * Returns whether the {@link Elements} passed to the outbound observers are serialized before
+   * {@link StreamObserver#onNext} returns, allowing their buffers to be reused afterwards.
+   */
+  default boolean isSerializingTransport() {
+    return false;
+  }
+
   @Override
   default void close() throws IOException {
     // Default to no-op
@@ -78,12 +78,26 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
   private final ConcurrentMap<MultiplexerKey, BeamFnDataGrpcMultiplexer> multiplexerCache;
   private final Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory;
   private final OutboundObserverFactory outboundObserverFactory;
+  private final boolean serializingTransport;
 
   public BeamFnDataGrpcClient(
       Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory,
       OutboundObserverFactory outboundObserverFactory) {
+    this(channelFactory, outboundObserverFactory, false);
+  }
+
+  /**
+   * Creates a client whose channels serialize outbound {@link Elements} before returning from
+   * {@link StreamObserver#onNext} if {@code serializingTransport} is true, which is not the case
+   * for in-process channels.
+   */
+  public BeamFnDataGrpcClient(
+      Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory,
+      OutboundObserverFactory outboundObserverFactory,
+      boolean serializingTransport) {
     this.channelFactory = channelFactory;
     this.outboundObserverFactory = outboundObserverFactory;
+    this.serializingTransport = serializingTransport;
     this.multiplexerCache = new ConcurrentHashMap<>();
   }
 
@@ -136,6 +150,11 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
     return getMultiplexer(apiServiceDescriptor, dataStreamId).getOutboundObserver();
   }
 
+  @Override
+  public boolean isSerializingTransport() {
+    return serializingTransport;
+  }
+
   private BeamFnDataGrpcMultiplexer getMultiplexer(
       Endpoints.ApiServiceDescriptor apiServiceDescriptor, String dataStreamId) {
     MultiplexerKey key = new MultiplexerKey(apiServiceDescriptor, dataStreamId);
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.data;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.fn.harness.control.BundleProgressReporter;
+import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
+import org.apache.beam.runners.core.metrics.GaugeData;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Urns;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.ShortIdMap;
+import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator.FlushStatistics;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+
+/**
+ * Reports how an outbound data endpoint which is flushed adaptively by the {@link
+ * BeamFnDataOutboundAggregator} is flushed, allowing users to see whether a stage is slowed down by
+ * the consumer of its output.
+ *
+ * <p>The current flush size and linger time are reported as gauges and the time spent blocked
+ * sending the endpoint's output during the bundle is reported as a counter.
+ */
+public class OutboundFlushStatisticsReporter implements BundleProgressReporter {
+  public static final String NAMESPACE = BeamFnDataOutboundAggregator.class.getSimpleName();
+  public static final String FLUSH_SIZE_BYTES = "flushSizeBytes";
+  public static final String FLUSH_LINGER_MSECS = "flushLingerMsecs";
+  public static final String BLOCKED_MSECS = "backpressureBlockedMsecs";
+
+  private final FlushStatistics statistics;
+  private final String flushSizeShortId;
+  private final String flushLingerShortId;
+  private final String blockedShortId;
+  // The total send time of the endpoint at the start of the bundle.
+  private long startSendNanos;
+
+  public OutboundFlushStatisticsReporter(
+      ShortIdMap shortIdMap, String pTransformId, FlushStatistics statistics) {
+    this.statistics = statistics;
+    this.flushSizeShortId =
+        shortIdMap.getOrCreateShortId(
+            monitoringInfo(
+                Urns.USER_LATEST_INT64,
+                TypeUrns.LATEST_INT64_TYPE,
+                pTransformId,
+                FLUSH_SIZE_BYTES));
+    this.flushLingerShortId =
+        shortIdMap.getOrCreateShortId(
+            monitoringInfo(
+                Urns.USER_LATEST_INT64,
+                TypeUrns.LATEST_INT64_TYPE,
+                pTransformId,
+                FLUSH_LINGER_MSECS));
+    this.blockedShortId =
+        shortIdMap.getOrCreateShortId(
+            monitoringInfo(
+                Urns.USER_SUM_INT64, TypeUrns.SUM_INT64_TYPE, pTransformId, BLOCKED_MSECS));
+    this.startSendNanos = statistics.getTotalSendNanos();
+  }
+
+  private static MonitoringInfo monitoringInfo(
+      String urn, String type, String pTransformId, String name) {
+    SimpleMonitoringInfoBuilder builder =
+        new SimpleMonitoringInfoBuilder()
+            .setUrn(urn)
+            .setType(type)
+            .setLabel(Labels.PTRANSFORM, pTransformId)
+            .setLabel(Labels.NAMESPACE, NAMESPACE)
+            .setLabel(Labels.NAME, name);
+    MonitoringInfo monitoringInfo = builder.build();
+    if (monitoringInfo == null) {
+      throw new IllegalArgumentException(
+          String.format("Invalid monitoring info: %s", builder.validate()));
+    }
+    return monitoringInfo;
+  }
+
+  @Override
+  public void updateIntermediateMonitoringData(Map<String, ByteString> monitoringData) {
+    updateFinalMonitoringData(monitoringData);
+  }
+
+  @Override
+  public void updateFinalMonitoringData(Map<String, ByteString> monitoringData) {
+    monitoringData.put(
+        flushSizeShortId,
+        MonitoringInfoEncodings.encodeInt64Gauge(
+            GaugeData.create(statistics.getFlushSizeLimit())));
+    monitoringData.put(
+        flushLingerShortId,
+        MonitoringInfoEncodings.encodeInt64Gauge(
+            GaugeData.create(statistics.getFlushLingerMillis())));
+    monitoringData.put(
+        blockedShortId,
+        MonitoringInfoEncodings.encodeInt64Counter(
+            TimeUnit.NANOSECONDS.toMillis(statistics.getTotalSendNanos() - startSendNanos)));
+  }
+
+  @Override
+  public void reset() {
+    startSendNanos = statistics.getTotalSendNanos();
+  }
+}
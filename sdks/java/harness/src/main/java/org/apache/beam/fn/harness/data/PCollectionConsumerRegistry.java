@@ -21,10 +21,13 @@ import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import javax.annotation.Nullable;
+import org.apache.beam.fn.harness.ElementwiseFnDataReceiver;
 import org.apache.beam.fn.harness.HandlesSplits;
 import org.apache.beam.fn.harness.control.BundleProgressReporter;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler;
@@ -39,6 +42,7 @@ import org.apache.beam.fn.harness.debug.OutputSampler;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.ProcessBundleDescriptor;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
+import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns;
@@ -48,6 +52,7 @@ import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.fn.data.PrefetchingFnDataReceiver;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
@@ -109,6 +114,7 @@ public class PCollectionConsumerRegistry {
   private final Map<String, List<ConsumerAndMetadata>> pCollectionIdsToConsumers = new HashMap<>();
   private final Map<String, FnDataReceiver> pCollectionIdsToWrappedConsumer = new HashMap<>();
   private final Map<ExecutionStateKey, ExecutionState> executionStates = new HashMap<>();
+  private final Set<String> elementwisePTransformIds = new HashSet<>();
   private final BundleProgressReporter.Registrar bundleProgressReporterRegistrar;
   private final ProcessBundleDescriptor processBundleDescriptor;
   private final RehydratedComponents rehydratedComponents;
@@ -175,6 +181,9 @@ public class PCollectionConsumerRegistry {
 
     List<ConsumerAndMetadata> consumerAndMetadatas =
         pCollectionIdsToConsumers.computeIfAbsent(pCollectionId, (unused) -> new ArrayList<>());
+    if (consumer instanceof ElementwiseFnDataReceiver) {
+      elementwisePTransformIds.add(pTransformId);
+    }
     consumerAndMetadatas.add(
         ConsumerAndMetadata.forConsumer(
             consumer,
@@ -228,6 +237,14 @@ public class PCollectionConsumerRegistry {
               return new SplittingMetricTrackingFnDataReceiver(
                   pcId, coder, consumerAndMetadata, sampler);
             }
+            if (consumerAndMetadata.getConsumer() instanceof PrefetchingFnDataReceiver) {
+              return new PrefetchingMetricTrackingFnDataReceiver(
+                  pcId, coder, consumerAndMetadata, sampler);
+            }
+            if (consumerAndMetadata.getConsumer() instanceof ElementwiseFnDataReceiver) {
+              return new ElementwiseMetricTrackingFnDataReceiver(
+                  pcId, coder, consumerAndMetadata, sampler);
+            }
             return new MetricTrackingFnDataReceiver(pcId, coder, consumerAndMetadata, sampler);
           } else {
             /* TODO(SDF), Consider supporting splitting each consumer individually. This would never
@@ -273,6 +290,26 @@ public class PCollectionConsumerRegistry {
         });
   }
 
+  /**
+   * Returns whether the PCollection is only produced by stateless element-wise PTransforms. These
+   * only output while processing an element, and hence always within an active execution state.
+   *
+   * <p>Must only be called once all consumers have been registered.
+   */
+  private boolean isOnlyProducedByElementwisePTransforms(String pCollectionId) {
+    boolean hasProducer = false;
+    for (Map.Entry<String, PTransform> transform :
+        processBundleDescriptor.getTransformsMap().entrySet()) {
+      if (transform.getValue().getOutputsMap().containsValue(pCollectionId)) {
+        if (!elementwisePTransformIds.contains(transform.getKey())) {
+          return false;
+        }
+        hasProducer = true;
+      }
+    }
+    return hasProducer;
+  }
+
   private static <T> void logAndRethrow(
       Exception e,
       ExecutionState executionState,
@@ -371,14 +408,20 @@ public class PCollectionConsumerRegistry {
       // Use the ExecutionStateTracker and enter an appropriate state to track the
       // Process Bundle Execution time metric and also ensure user counters can get an appropriate
       // metrics container.
-      try (ExecutionState.ActiveState a = executionState.scopedActivate()) {
-        this.delegate.accept(input);
+      try {
+        acceptWithinExecutionState(input);
       } catch (Exception e) {
         logAndRethrow(
             e, executionState, executionStateTracker, ptransformId, outputSampler, elementSample);
       }
       this.sampledByteSizeDistribution.finishLazyUpdate();
     }
+
+    protected void acceptWithinExecutionState(WindowedValue<T> input) throws Exception {
+      try (ExecutionState.ActiveState a = executionState.scopedActivate()) {
+        this.delegate.accept(input);
+      }
+    }
   }
 
   /**
@@ -505,6 +548,78 @@ public class PCollectionConsumerRegistry {
     }
   }
 
+  /**
+   * A wrapping {@code FnDataReceiver<WindowedValue<T>>} which counts the number of elements
+   * consumed by the original {@code FnDataReceiver<WindowedValue<T>> consumer} and forwards blocks
+   * of elements to be prefetched to the original consumer.
+   *
+   * @param <T> - The receiving type of the PTransform.
+   */
+  private class PrefetchingMetricTrackingFnDataReceiver<T> extends MetricTrackingFnDataReceiver<T>
+      implements PrefetchingFnDataReceiver<WindowedValue<T>> {
+    private final PrefetchingFnDataReceiver<WindowedValue<T>> delegate;
+    private final ExecutionState executionState;
+
+    public PrefetchingMetricTrackingFnDataReceiver(
+        String pCollection,
+        Coder<T> coder,
+        ConsumerAndMetadata consumerAndMetadata,
+        @Nullable OutputSampler<T> outputSampler) {
+      super(pCollection, coder, consumerAndMetadata, outputSampler);
+      this.delegate = (PrefetchingFnDataReceiver) consumerAndMetadata.getConsumer();
+      this.executionState = consumerAndMetadata.getExecutionState();
+    }
+
+    @Override
+    public void prefetch(List<WindowedValue<T>> inputs) throws Exception {
+      // Prefetching is attributed to the consuming PTransform like processing the elements.
+      try (ExecutionState.ActiveState a = executionState.scopedActivate()) {
+        delegate.prefetch(inputs);
+      }
+    }
+  }
+
+  /**
+   * A wrapping {@code FnDataReceiver<WindowedValue<T>>} which counts the number of elements
+   * consumed by the original stateless element-wise {@code FnDataReceiver<WindowedValue<T>>
+   * consumer}.
+   *
+   * <p>When the elements are produced by stateless element-wise PTransforms as well, the consumer
+   * is fused into the execution state which is already active instead of activating its own. This
+   * avoids the execution state transitions for each step of a chain of such PTransforms.
+   *
+   * @param <T> - The receiving type of the PTransform.
+   */
+  private class ElementwiseMetricTrackingFnDataReceiver<T> extends MetricTrackingFnDataReceiver<T>
+      implements ElementwiseFnDataReceiver<WindowedValue<T>> {
+    private final FnDataReceiver<WindowedValue<T>> delegate;
+    private final String pCollectionId;
+    // Resolved on the first element since producers register after their consumers.
+    private @Nullable Boolean fused;
+
+    public ElementwiseMetricTrackingFnDataReceiver(
+        String pCollectionId,
+        Coder<T> coder,
+        ConsumerAndMetadata consumerAndMetadata,
+        @Nullable OutputSampler<T> outputSampler) {
+      super(pCollectionId, coder, consumerAndMetadata, outputSampler);
+      this.delegate = consumerAndMetadata.getConsumer();
+      this.pCollectionId = pCollectionId;
+    }
+
+    @Override
+    protected void acceptWithinExecutionState(WindowedValue<T> input) throws Exception {
+      if (fused == null) {
+        fused = isOnlyProducedByElementwisePTransforms(pCollectionId);
+      }
+      if (fused) {
+        delegate.accept(input);
+      } else {
+        super.acceptWithinExecutionState(input);
+      }
+    }
+  }
+
   private static class SampleByteSizeDistribution<T> {
     /** Basic implementation of {@link ElementByteSizeObserver} for use in size estimation. */
     private static class ByteSizeObserver extends ElementByteSizeObserver {
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -43,6 +44,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.VoidCoder;
 import org.apache.beam.sdk.function.ThrowingRunnable;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
@@ -70,9 +72,11 @@ import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.construction.BeamUrns;
 import org.apache.beam.sdk.util.construction.PCollectionViewTranslation;
 import org.apache.beam.sdk.util.construction.RehydratedComponents;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.WindowedValue;
 import org.apache.beam.sdk.values.WindowedValues;
 import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
@@ -90,6 +94,12 @@ import org.joda.time.Instant;
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
 public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
+  /**
+   * Enables materializing multimap side inputs once per worker into an off-heap {@link
+   * IndexedMultimapSideInput} when the runner supports bulk reads of multimap side inputs.
+   */
+  public static final String INDEXED_MULTIMAP_SIDE_INPUT_EXPERIMENT =
+      "indexed_multimap_side_input";
 
   public interface MutatingStateContext<K, W> {
     K getCurrentKey();
@@ -243,7 +253,8 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
   private final Set<String> runnerCapabilities;
   private final Map<StateKey, Object> stateKeyObjectCache;
   private final Map<TupleTag<?>, SideInputSpec> sideInputSpecMap;
-  private final BeamFnStateClient beamFnStateClient;
+  private BeamFnStateClient beamFnStateClient;
+  private @Nullable StatePrefetcher statePrefetcher;
   private final String ptransformId;
   private final Supplier<String> processBundleInstructionId;
   private final Supplier<List<BeamFnApi.ProcessBundleRequest.CacheToken>> cacheTokens;
@@ -287,33 +298,72 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
   public void setKeyAndWindowContext(MutatingStateContext<K, BoundedWindow> keyAndWindowContext) {
     this.currentWindowSupplier = keyAndWindowContext::getCurrentWindow;
     this.encodedCurrentKeySupplier =
-        memoizeFunction(
-            keyAndWindowContext::getCurrentKey,
-            key -> {
-              checkState(
-                  keyCoder != null, "Accessing state in unkeyed context, no key coder available");
-
-              ByteStringOutputStream encodedKeyOut = new ByteStringOutputStream();
-              try {
-                ((Coder) keyCoder).encode(key, encodedKeyOut, Coder.Context.NESTED);
-              } catch (IOException e) {
-                throw new IllegalStateException(e);
-              }
-              return encodedKeyOut.toByteString();
-            });
+        memoizeFunction(keyAndWindowContext::getCurrentKey, this::encodeKey);
+    this.encodedCurrentWindowSupplier = memoizeFunction(currentWindowSupplier, this::encodeWindow);
+  }
 
-    this.encodedCurrentWindowSupplier =
-        memoizeFunction(
-            currentWindowSupplier,
-            window -> {
-              ByteStringOutputStream encodedWindowOut = new ByteStringOutputStream();
-              try {
-                windowCoder.encode(window, encodedWindowOut);
-              } catch (IOException e) {
-                throw new IllegalStateException(e);
-              }
-              return encodedWindowOut.toByteString();
-            });
+  private ByteString encodeKey(Object key) {
+    checkState(keyCoder != null, "Accessing state in unkeyed context, no key coder available");
+
+    ByteStringOutputStream encodedKeyOut = new ByteStringOutputStream();
+    try {
+      ((Coder) keyCoder).encode(key, encodedKeyOut, Coder.Context.NESTED);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return encodedKeyOut.toByteString();
+  }
+
+  private ByteString encodeWindow(BoundedWindow window) {
+    ByteStringOutputStream encodedWindowOut = new ByteStringOutputStream();
+    try {
+      windowCoder.encode(window, encodedWindowOut);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return encodedWindowOut.toByteString();
+  }
+
+  /**
+   * Routes all state requests through a {@link StatePrefetcher} holding at most {@code
+   * maxPrefetched} responses, allowing {@link #prefetchBagUserState} to request state ahead of the
+   * elements which read it.
+   */
+  public void enableStatePrefetch(int maxPrefetched) {
+    StatePrefetcher prefetcher = new StatePrefetcher(beamFnStateClient, maxPrefetched);
+    this.statePrefetcher = prefetcher;
+    this.beamFnStateClient = prefetcher;
+  }
+
+  /**
+   * Requests the first page of the given bag backed user states for the key and every window of
+   * each of the keyed elements without waiting for the responses. States which are already bound in
+   * the current bundle or cached are skipped.
+   *
+   * <p>This is a no-op unless {@link #enableStatePrefetch} was called.
+   */
+  public void prefetchBagUserState(
+      Collection<String> stateIds, Iterable<? extends WindowedValue> elements) {
+    StatePrefetcher prefetcher = statePrefetcher;
+    if (prefetcher == null || stateIds.isEmpty()) {
+      return;
+    }
+    Set<StateKey> stateKeys = new LinkedHashSet<>();
+    for (WindowedValue<?> element : elements) {
+      ByteString encodedKey = encodeKey(((KV<?, ?>) element.getValue()).getKey());
+      for (BoundedWindow window : element.getWindows()) {
+        ByteString encodedWindow = encodeWindow(window);
+        for (String stateId : stateIds) {
+          StateKey stateKey = createBagUserStateKey(stateId, encodedKey, encodedWindow);
+          Cache cache = getCacheFor(stateKey);
+          if (!stateKeyObjectCache.containsKey(stateKey)
+              && cache.peek(StateFetchingIterators.IterableCacheKey.INSTANCE) == null) {
+            stateKeys.add(stateKey);
+          }
+        }
+      }
+    }
+    prefetcher.prefetch(processBundleInstructionId.get(), stateKeys);
   }
 
   private static <ArgT, ResultT> Supplier<ResultT> memoizeFunction(
@@ -404,6 +454,18 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
                               key,
                               sideInputSpec.getCoder()));
                 case Materializations.MULTIMAP_MATERIALIZATION_URN:
+                  if (useIndexedMultimapSideInputs()) {
+                    return sideInputSpec
+                        .getViewFn()
+                        .apply(
+                            new IndexedMultimapSideInput<>(
+                                getCacheFor(key),
+                                beamFnStateClient,
+                                processBundleInstructionId.get(),
+                                key,
+                                ((KvCoder) sideInputSpec.getCoder()).getKeyCoder(),
+                                ((KvCoder) sideInputSpec.getCoder()).getValueCoder()));
+                  }
                   return sideInputSpec
                       .getViewFn()
                       .apply(
@@ -432,6 +494,18 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
             });
   }
 
+  /**
+   * Returns whether multimap side inputs should be downloaded in their entirety into an {@link
+   * IndexedMultimapSideInput} instead of fetching the values of each key on demand.
+   */
+  private boolean useIndexedMultimapSideInputs() {
+    return ExperimentalOptions.hasExperiment(
+            pipelineOptions, INDEXED_MULTIMAP_SIDE_INPUT_EXPERIMENT)
+        && runnerCapabilities.contains(
+            BeamUrns.getUrn(
+                RunnerApi.StandardRunnerProtocols.Enum.MULTIMAP_KEYS_VALUES_SIDE_INPUT));
+  }
+
   @Override
   public <T> boolean contains(PCollectionView<T> view) {
     return sideInputSpecMap.containsKey(view.getTagInternal());
@@ -1264,11 +1338,17 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
   }
 
   private StateKey createBagUserStateKey(String stateId) {
+    return createBagUserStateKey(
+        stateId, encodedCurrentKeySupplier.get(), encodedCurrentWindowSupplier.get());
+  }
+
+  private StateKey createBagUserStateKey(
+      String stateId, ByteString encodedKey, ByteString encodedWindow) {
     StateKey.Builder builder = StateKey.newBuilder();
     builder
         .getBagUserStateBuilder()
-        .setWindow(encodedCurrentWindowSupplier.get())
-        .setKey(encodedCurrentKeySupplier.get())
+        .setWindow(encodedWindow)
+        .setKey(encodedKey)
         .setTransformId(ptransformId)
         .setUserStateId(stateId);
     return builder.build();
@@ -1359,5 +1439,8 @@ public class FnApiStateAccessor<K> implements SideInputReader, StateBinder {
     }
     stateFinalizers.clear();
     stateKeyObjectCache.clear();
+    if (statePrefetcher != null) {
+      statePrefetcher.clear();
+    }
   }
 }
@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.transforms.Materializations.MultimapView;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.util.Weighted;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.hash.HashFunction;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.hash.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An implementation of a multimap side input that fetches the entire side input once using a
+ * {@link StateKey.MultimapKeysValuesSideInput} request and serves all lookups from an {@link Index}
+ * of the encoded keys and values stored in direct memory.
+ *
+ * <p>The index is stored within the supplied cache, which for side inputs with a cache token is
+ * shared by all bundles and threads of the worker, so the side input is only downloaded once while
+ * it remains cached. Values are only decoded when the returned iterables are iterated and are not
+ * retained, keeping large side inputs off of the Java heap.
+ */
+public class IndexedMultimapSideInput<K, V> implements MultimapView<K, V> {
+
+  private final Index index;
+  private final Coder<K> keyCoder;
+  private final Coder<V> valueCoder;
+  private final String sideInputId;
+
+  @SuppressWarnings("unchecked")
+  public IndexedMultimapSideInput(
+      Cache<?, ?> cache,
+      BeamFnStateClient beamFnStateClient,
+      String instructionId,
+      StateKey stateKey,
+      Coder<K> keyCoder,
+      Coder<V> valueCoder) {
+    checkArgument(
+        stateKey.hasMultimapKeysSideInput(),
+        "Expected MultimapKeysSideInput StateKey but received %s.",
+        stateKey);
+    this.keyCoder = keyCoder;
+    this.valueCoder = valueCoder;
+    this.sideInputId = stateKey.getMultimapKeysSideInput().getSideInputId();
+    StateKey.MultimapKeysSideInput keysSideInput = stateKey.getMultimapKeysSideInput();
+    StateRequest bulkReadRequest =
+        StateRequest.newBuilder()
+            .setInstructionId(instructionId)
+            .setStateKey(
+                StateKey.newBuilder()
+                    .setMultimapKeysValuesSideInput(
+                        StateKey.MultimapKeysValuesSideInput.newBuilder()
+                            .setTransformId(keysSideInput.getTransformId())
+                            .setSideInputId(keysSideInput.getSideInputId())
+                            .setWindow(keysSideInput.getWindow())))
+            .build();
+    this.index =
+        ((Cache<IndexCacheKey, Index>) cache)
+            .computeIfAbsent(
+                IndexCacheKey.INSTANCE,
+                unused -> buildIndex(beamFnStateClient, bulkReadRequest, keyCoder, valueCoder));
+  }
+
+  @Override
+  public Iterable<K> get() {
+    return () ->
+        new Iterator<K>() {
+          private final Iterator<ByteBuffer> entries = index.entries();
+
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public K next() {
+            return decodeKey(Index.key(entries.next()));
+          }
+        };
+  }
+
+  @Override
+  public Iterable<V> get(K k) {
+    ByteBuffer entry = index.find(encodeKey(k));
+    if (entry == null) {
+      // As we read the entire set of values, missing keys are treated as empty iterables.
+      return Collections.emptyList();
+    }
+    int valueCount = Index.valueCount(entry);
+    ByteBuffer values = Index.values(entry);
+    return () ->
+        new Iterator<V>() {
+          private final InputStream input = new ByteBufferInputStream(values.duplicate());
+          private int remaining = valueCount;
+
+          @Override
+          public boolean hasNext() {
+            return remaining > 0;
+          }
+
+          @Override
+          public V next() {
+            if (remaining <= 0) {
+              throw new NoSuchElementException();
+            }
+            remaining -= 1;
+            try {
+              return valueCoder.decode(input);
+            } catch (IOException e) {
+              throw new IllegalStateException(
+                  String.format("Failed to decode value for side input id %s.", sideInputId), e);
+            }
+          }
+        };
+  }
+
+  private ByteString encodeKey(K k) {
+    ByteStringOutputStream output = new ByteStringOutputStream();
+    try {
+      keyCoder.encode(k, output);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          String.format("Failed to encode key %s for side input id %s.", k, sideInputId), e);
+    }
+    return output.toByteString();
+  }
+
+  private K decodeKey(ByteBuffer encodedKey) {
+    try {
+      return keyCoder.decode(new ByteBufferInputStream(encodedKey));
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          String.format("Failed to decode key for side input id %s.", sideInputId), e);
+    }
+  }
+
+  private static <K, V> Index buildIndex(
+      BeamFnStateClient beamFnStateClient,
+      StateRequest bulkReadRequest,
+      Coder<K> keyCoder,
+      Coder<V> valueCoder) {
+    Index.Builder builder = new Index.Builder();
+    ByteStringOutputStream keyOutput = new ByteStringOutputStream();
+    ByteStringOutputStream valuesOutput = new ByteStringOutputStream();
+    try {
+      // The entries are re-encoded one at a time so that only a single decoded entry is on the
+      // heap at any time.
+      for (KV<K, Iterable<V>> entry :
+          StateFetchingIterators.readAllAndDecodeStartingFrom(
+              Caches.noop(),
+              beamFnStateClient,
+              bulkReadRequest,
+              KvCoder.of(keyCoder, IterableCoder.of(valueCoder)))) {
+        keyCoder.encode(entry.getKey(), keyOutput);
+        int valueCount = 0;
+        for (V value : entry.getValue()) {
+          valueCoder.encode(value, valuesOutput);
+          valueCount += 1;
+        }
+        builder.add(
+            keyOutput.toByteStringAndReset(), valueCount, valuesOutput.toByteStringAndReset());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          String.format(
+              "Failed to materialize side input id %s.",
+              bulkReadRequest.getStateKey().getMultimapKeysValuesSideInput().getSideInputId()),
+          e);
+    }
+    return builder.build();
+  }
+
+  /** The key used to store the {@link Index} within the side input's cache. */
+  private static class IndexCacheKey implements Weighted {
+    private static final IndexCacheKey INSTANCE = new IndexCacheKey();
+
+    @Override
+    public long getWeight() {
+      // Ignore the size of this singleton since it is trivial.
+      return 0;
+    }
+  }
+
+  /**
+   * An immutable hash index over entries stored in direct memory chunks.
+   *
+   * <p>Each entry is laid out as the key length, the number of values, the length of the values,
+   * the encoded key and the encoded values. The hash table uses open addressing with linear probing
+   * and stores the address of each entry alongside its hash so that probing rarely needs to touch
+   * the entries themselves.
+   *
+   * <p>The index reports the size of its entries in direct memory as its weight, so it counts
+   * towards the cache limit even though it is not on the heap. Chunks start small and grow
+   * geometrically and the last chunk is trimmed once all entries are added, so the direct memory
+   * held is close to the size of the entries. The direct memory is released once the index is
+   * evicted and garbage collected.
+   */
+  @VisibleForTesting
+  static class Index implements Weighted {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32_fixed();
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int INITIAL_CHUNK_BYTES = 64 << 10;
+    private static final int MAX_CHUNK_BYTES = 32 << 20;
+    private static final int EMPTY = -1;
+
+    private final List<ByteBuffer> chunks;
+    private final int[] hashes;
+    // The chunk index in the upper and the position within the chunk in the lower 32 bits.
+    private final long[] addresses;
+    private final long directBytes;
+
+    private Index(List<ByteBuffer> chunks, int[] hashes, long[] addresses, long directBytes) {
+      this.chunks = chunks;
+      this.hashes = hashes;
+      this.addresses = addresses;
+      this.directBytes = directBytes;
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the entry for the encoded key or {@code null} if
+     * the key is not present.
+     */
+    @Nullable
+    ByteBuffer find(ByteString encodedKey) {
+      int hash = hash(encodedKey);
+      int mask = addresses.length - 1;
+      ByteBuffer key = encodedKey.asReadOnlyByteBuffer();
+      for (int slot = hash & mask; addresses[slot] != EMPTY; slot = (slot + 1) & mask) {
+        if (hashes[slot] != hash) {
+          continue;
+        }
+        ByteBuffer entry = entryAt(addresses[slot]);
+        if (key(entry).equals(key)) {
+          return entry;
+        }
+      }
+      return null;
+    }
+
+    /** Returns buffers positioned at the start of every entry in the order they were added. */
+    Iterator<ByteBuffer> entries() {
+      return new Iterator<ByteBuffer>() {
+        private int chunk;
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+          while (chunk < chunks.size() && position >= chunks.get(chunk).limit()) {
+            chunk += 1;
+            position = 0;
+          }
+          return chunk < chunks.size();
+        }
+
+        @Override
+        public ByteBuffer next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          ByteBuffer entry = chunks.get(chunk).duplicate();
+          entry.position(position);
+          position += entrySize(entry);
+          return entry;
+        }
+      };
+    }
+
+    @Override
+    public long getWeight() {
+      return directBytes + (long) addresses.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private ByteBuffer entryAt(long address) {
+      ByteBuffer entry = chunks.get((int) (address >>> 32)).duplicate();
+      entry.position((int) address);
+      return entry;
+    }
+
+    private static int entrySize(ByteBuffer entry) {
+      int position = entry.position();
+      return HEADER_BYTES + entry.getInt(position) + entry.getInt(position + 2 * Integer.BYTES);
+    }
+
+    static ByteBuffer key(ByteBuffer entry) {
+      int position = entry.position();
+      ByteBuffer key = entry.duplicate();
+      key.position(position + HEADER_BYTES);
+      key.limit(position + HEADER_BYTES + entry.getInt(position));
+      return key;
+    }
+
+    static int valueCount(ByteBuffer entry) {
+      return entry.getInt(entry.position() + Integer.BYTES);
+    }
+
+    static ByteBuffer values(ByteBuffer entry) {
+      int position = entry.position();
+      int start = position + HEADER_BYTES + entry.getInt(position);
+      ByteBuffer values = entry.duplicate();
+      values.position(start);
+      values.limit(start + entry.getInt(position + 2 * Integer.BYTES));
+      return values;
+    }
+
+    private static int hash(ByteString encodedKey) {
+      return HASH_FUNCTION.hashBytes(encodedKey.asReadOnlyByteBuffer()).asInt();
+    }
+
+    /** Appends entries to direct memory chunks and builds the hash table once all are added. */
+    static class Builder {
+      private final List<ByteBuffer> chunks = new ArrayList<>();
+      private int[] hashes = new int[1024];
+      private long[] addresses = new long[1024];
+      private int size;
+      private int nextChunkBytes = INITIAL_CHUNK_BYTES;
+
+      void add(ByteString encodedKey, int valueCount, ByteString encodedValues) {
+        int entrySize = HEADER_BYTES + encodedKey.size() + encodedValues.size();
+        @Nullable ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < entrySize) {
+          chunk = ByteBuffer.allocateDirect(Math.max(nextChunkBytes, entrySize));
+          chunks.add(chunk);
+          nextChunkBytes = Math.min(MAX_CHUNK_BYTES, 2 * nextChunkBytes);
+        }
+        if (size == hashes.length) {
+          hashes = Arrays.copyOf(hashes, 2 * size);
+          addresses = Arrays.copyOf(addresses, 2 * size);
+        }
+        hashes[size] = hash(encodedKey);
+        addresses[size] = ((long) (chunks.size() - 1) << 32) | chunk.position();
+        size += 1;
+
+        chunk.putInt(encodedKey.size());
+        chunk.putInt(valueCount);
+        chunk.putInt(encodedValues.size());
+        encodedKey.copyTo(chunk);
+        encodedValues.copyTo(chunk);
+      }
+
+      Index build() {
+        long directBytes = 0;
+        for (int i = 0; i < chunks.size(); ++i) {
+          ByteBuffer chunk = chunks.get(i);
+          chunk.flip();
+          // Only the last chunk can be mostly empty, copying it costs no more than filling it did.
+          if (i == chunks.size() - 1 && chunk.limit() < chunk.capacity()) {
+            ByteBuffer trimmed = ByteBuffer.allocateDirect(chunk.limit());
+            trimmed.put(chunk).flip();
+            chunks.set(i, trimmed);
+            chunk = trimmed;
+          }
+          directBytes += chunk.limit();
+        }
+        // Keep the load factor at or below one half to bound the length of probe sequences.
+        int capacity = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+        int[] tableHashes = new int[capacity];
+        long[] tableAddresses = new long[capacity];
+        Arrays.fill(tableAddresses, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < size; ++i) {
+          int slot = hashes[i] & mask;
+          while (tableAddresses[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+          }
+          tableHashes[slot] = hashes[i];
+          tableAddresses[slot] = addresses[i];
+        }
+        return new Index(chunks, tableHashes, tableAddresses, directBytes);
+      }
+    }
+  }
+
+  /** An {@link InputStream} over the remaining bytes of a {@link ByteBuffer}. */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(len, buffer.remaining());
+      buffer.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
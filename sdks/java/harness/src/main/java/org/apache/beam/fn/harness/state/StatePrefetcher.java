@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
+
+/**
+ * A {@link BeamFnStateClient} which can request the first page of many state keys ahead of the
+ * reads that need them. All of the requests of a batch are sent without waiting for any responses
+ * so that the round trips to the runner overlap. A later read of the first page of a prefetched
+ * key is answered with the response which is already in flight or has already arrived.
+ *
+ * <p>Reports the number of requests per batch and the number of first page reads which were and
+ * were not answered by a prefetched response.
+ */
+public class StatePrefetcher implements BeamFnStateClient {
+  private static final Distribution BATCH_SIZE =
+      Metrics.distribution(StatePrefetcher.class, "statePrefetchBatchSize");
+  private static final Counter HITS = Metrics.counter(StatePrefetcher.class, "statePrefetchHits");
+  private static final Counter MISSES =
+      Metrics.counter(StatePrefetcher.class, "statePrefetchMisses");
+
+  private final BeamFnStateClient delegate;
+  private final int maxPrefetched;
+  private final ConcurrentHashMap<StateKey, CompletableFuture<StateResponse>> prefetched;
+
+  /**
+   * Creates a prefetcher which holds at most {@code maxPrefetched} responses which have not been
+   * read yet.
+   */
+  public StatePrefetcher(BeamFnStateClient delegate, int maxPrefetched) {
+    this.delegate = delegate;
+    this.maxPrefetched = maxPrefetched;
+    this.prefetched = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Requests the first page of each state key which has not been prefetched yet, stopping once
+   * {@code maxPrefetched} responses are held.
+   */
+  public void prefetch(String instructionId, Collection<StateKey> stateKeys) {
+    int batchSize = 0;
+    for (StateKey stateKey : stateKeys) {
+      if (prefetched.size() >= maxPrefetched) {
+        break;
+      }
+      if (prefetched.containsKey(stateKey)) {
+        continue;
+      }
+      prefetched.put(
+          stateKey,
+          delegate.handle(
+              StateRequest.newBuilder()
+                  .setInstructionId(instructionId)
+                  .setStateKey(stateKey)
+                  .setGet(StateGetRequest.getDefaultInstance())));
+      batchSize += 1;
+    }
+    if (batchSize > 0) {
+      BATCH_SIZE.update(batchSize);
+    }
+  }
+
+  @Override
+  public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+    // Only the first page of bag user state is prefetched.
+    if (!requestBuilder.hasGet()
+        || !requestBuilder.getGet().getContinuationToken().isEmpty()
+        || !requestBuilder.getStateKey().hasBagUserState()) {
+      return delegate.handle(requestBuilder);
+    }
+    CompletableFuture<StateResponse> response = prefetched.remove(requestBuilder.getStateKey());
+    if (response == null) {
+      MISSES.inc();
+      return delegate.handle(requestBuilder);
+    }
+    HITS.inc();
+    return response;
+  }
+
+  /**
+   * Drops all prefetched responses which were not read. Must be called at the end of every bundle
+   * since the responses are only valid for the bundle which requested them.
+   */
+  public void clear() {
+    prefetched.clear();
+  }
+}
@@ -30,14 +30,17 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.control.ExecutionStateSampler;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTrackerStatus;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessor;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessorCache;
+import org.apache.beam.fn.harness.control.SampledStacks;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.WorkerStatusResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnWorkerStatusGrpc;
 import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.ManagedChannel;
 import org.apache.beam.vendor.grpc.v1p69p0.io.grpc.stub.StreamObserver;
@@ -58,6 +61,16 @@ public class BeamFnStatusClient implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnStatusClient.class);
   private final MemoryMonitor memoryMonitor;
   private final Cache<?, ?> cache;
+  private final @Nullable SampledStacks sampledStacks;
+
+  public BeamFnStatusClient(
+      ApiServiceDescriptor apiServiceDescriptor,
+      Function<ApiServiceDescriptor, ManagedChannel> channelFactory,
+      BundleProcessorCache processBundleCache,
+      PipelineOptions options,
+      Cache<?, ?> cache) {
+    this(apiServiceDescriptor, channelFactory, processBundleCache, options, cache, null);
+  }
 
   @SuppressWarnings("ThreadPriorityCheck")
   @SuppressFBWarnings("SC_START_IN_CTOR") // for memory monitor thread
@@ -66,11 +79,14 @@ public class BeamFnStatusClient implements AutoCloseable {
       Function<ApiServiceDescriptor, ManagedChannel> channelFactory,
       BundleProcessorCache processBundleCache,
       PipelineOptions options,
-      Cache<?, ?> cache) {
+      Cache<?, ?> cache,
+      @Nullable ExecutionStateSampler executionStateSampler) {
     this.channel = channelFactory.apply(apiServiceDescriptor);
     this.processBundleCache = processBundleCache;
     this.memoryMonitor = MemoryMonitor.fromOptions(options);
     this.cache = cache;
+    this.sampledStacks =
+        executionStateSampler == null ? null : executionStateSampler.getSampledStacks();
     this.inboundObserverCompletion = new CompletableFuture<>();
     Thread thread = new Thread(memoryMonitor);
     thread.setDaemon(true);
@@ -179,6 +195,22 @@ public class BeamFnStatusClient implements AutoCloseable {
     return cacheStats.toString();
   }
 
+  @VisibleForTesting
+  String getSampledStacks() {
+    StringJoiner sampledStacksState = new StringJoiner("\n");
+    sampledStacksState.add("========== SAMPLED STACKS ==========");
+    if (sampledStacks == null) {
+      sampledStacksState.add(
+          String.format(
+              "Stack sampling is disabled, enable it with --experiments=%s.",
+              ExperimentalOptions.ENABLE_STACK_SAMPLING));
+    } else {
+      sampledStacksState.add("Folded stacks per PTransform and milliseconds spent in them:");
+      sampledStacksState.add(sampledStacks.describeFoldedStacks());
+    }
+    return sampledStacksState.toString();
+  }
+
   /** Class representing the execution state of a bundle. */
   static class BundleState {
     final String instruction;
@@ -292,6 +324,8 @@ public class BeamFnStatusClient implements AutoCloseable {
       status.add("\n");
       status.add(getActiveProcessBundleState());
       status.add("\n");
+      status.add(getSampledStacks());
+      status.add("\n");
       status.add(getThreadDump());
       outboundObserver.onNext(
           WorkerStatusResponse.newBuilder()
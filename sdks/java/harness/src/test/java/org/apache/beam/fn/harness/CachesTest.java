@@ -27,6 +27,7 @@ import static org.junit.Assert.assertSame;
 import org.apache.beam.fn.harness.Cache.Shrinkable;
 import org.apache.beam.fn.harness.Caches.ClearableCache;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WeightedValue;
 import org.junit.Test;
@@ -77,6 +78,41 @@ public class CachesTest {
     testCache(Caches.fromOptions(PipelineOptionsFactory.create()));
   }
 
+  @Test
+  public void testTinyLfuCache() throws Exception {
+    testCache(Caches.tinyLfuForMaximumBytes(100 * MB));
+  }
+
+  @Test
+  public void testTinyLfuCacheFromOptions() throws Exception {
+    SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+    options.setCacheImplementation(SdkHarnessOptions.CacheImplementation.TINY_LFU);
+    testCache(Caches.fromOptions(options));
+  }
+
+  @Test
+  public void testTinyLfuSubCaches() throws Exception {
+    Cache<String, String> parent = Caches.tinyLfuForMaximumBytes(100 * MB);
+    Cache<String, String> cacheA = Caches.subCache(parent, "prefixA");
+    Cache<String, String> cacheB = Caches.subCache(parent, "prefixB");
+    testCache(cacheA);
+    assertEquals("value1", Caches.subCache(parent, "prefixA").peek("key1"));
+    assertNull(cacheB.peek("key1"));
+    cacheA.remove("key1");
+    assertNull(cacheA.peek("key1"));
+  }
+
+  @Test
+  public void testTinyLfuShrinkableIsShrunk() throws Exception {
+    Cache<WeightedValue<Integer>, ShrinkableString> cache =
+        Caches.tinyLfuForMaximumBytes(1000 * MB);
+    cache.put(WeightedValue.of(0, MB), new ShrinkableString("value", 1200 * MB));
+    // The entry doesn't fit and is shrunk instead of being evicted, 1200 -> 600 + 1 = 601
+    assertEquals("value", cache.peek(WeightedValue.of(0, MB)).value);
+    assertThat(cache.describeStats(), containsString("used/max 601/1000 MB"));
+    assertThat(cache.describeStats(), containsString("evictions 1"));
+  }
+
   @Test
   public void testSubCache() throws Exception {
     testCache(Caches.subCache(Caches.eternal(), "prefix"));
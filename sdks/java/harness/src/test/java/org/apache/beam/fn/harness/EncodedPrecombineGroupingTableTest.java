@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.sdk.values.WindowedValues.timestampedValueInGlobalWindow;
+import static org.apache.beam.sdk.values.WindowedValues.valueInGlobalWindow;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.WindowedValue;
+import org.apache.beam.sdk.values.WindowedValues;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Strings;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link EncodedPrecombineGroupingTable}. */
+@RunWith(JUnit4.class)
+public class EncodedPrecombineGroupingTableTest {
+
+  private static class TestOutputReceiver<T> implements FnDataReceiver<T> {
+    final List<T> outputElems = new ArrayList<>();
+
+    @Override
+    public void accept(T elem) {
+      outputElems.add(elem);
+    }
+  }
+
+  private static final CombineFn<Integer, Long, Long> COMBINE_FN =
+      new CombineFn<Integer, Long, Long>() {
+
+        @Override
+        public Long createAccumulator() {
+          return 0L;
+        }
+
+        @Override
+        public Long addInput(Long accumulator, Integer value) {
+          return accumulator + value;
+        }
+
+        @Override
+        public Long mergeAccumulators(Iterable<Long> accumulators) {
+          long sum = 0;
+          for (Long part : accumulators) {
+            sum += part;
+          }
+          return sum;
+        }
+
+        @Override
+        public Long extractOutput(Long accumulator) {
+          return accumulator;
+        }
+      };
+
+  /** Concatenates inputs so that accumulators outgrow their initial allocation. */
+  private static final CombineFn<String, String, String> CONCAT_FN =
+      new CombineFn<String, String, String>() {
+
+        @Override
+        public String createAccumulator() {
+          return "";
+        }
+
+        @Override
+        public String addInput(String accumulator, String value) {
+          return accumulator + value;
+        }
+
+        @Override
+        public String mergeAccumulators(Iterable<String> accumulators) {
+          return String.join("", accumulators);
+        }
+
+        @Override
+        public String extractOutput(String accumulator) {
+          return accumulator;
+        }
+      };
+
+  private static EncodedPrecombineGroupingTable<String, Integer, Long> sumTable(
+      Cache<?, ?> cache, boolean isGloballyWindowed) {
+    return new EncodedPrecombineGroupingTable<>(
+        PipelineOptionsFactory.create(),
+        cache,
+        StringUtf8Coder.of(),
+        VarLongCoder.of(),
+        isGloballyWindowed ? GlobalWindow.Coder.INSTANCE : IntervalWindow.getCoder(),
+        GlobalCombineFnRunners.create(COMBINE_FN),
+        isGloballyWindowed);
+  }
+
+  @Test
+  public void testCombiningGloballyWindowed() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = sumTable(Caches.eternal(), true);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    table.put(valueInGlobalWindow(KV.of("A", 1)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 9)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 4)), receiver);
+    assertThat(receiver.outputElems, empty());
+    assertEquals(2, table.size());
+
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            valueInGlobalWindow(KV.of("A", 1L + 2 + 4)), valueInGlobalWindow(KV.of("B", 9L + 2))));
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void testCombiningInheritsOneOfTheValuesTimestampsAndWindows() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = sumTable(Caches.eternal(), false);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    IntervalWindow first = new IntervalWindow(new Instant(0), new Instant(10));
+    IntervalWindow second = new IntervalWindow(new Instant(10), new Instant(20));
+    table.put(windowedValue("A", 1, 1, first), receiver);
+    table.put(windowedValue("A", 2, 12, second), receiver);
+    table.put(windowedValue("A", 4, 3, first), receiver);
+    table.put(windowedValue("B", 8, 15, second), receiver);
+    table.put(windowedValue("A", 16, 17, second), receiver);
+    assertEquals(3, table.size());
+
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            WindowedValues.of(KV.of("A", 1L + 4), new Instant(1), first, PaneInfo.NO_FIRING),
+            WindowedValues.of(KV.of("A", 2L + 16), new Instant(12), second, PaneInfo.NO_FIRING),
+            WindowedValues.of(KV.of("B", 8L), new Instant(15), second, PaneInfo.NO_FIRING)));
+  }
+
+  @Test
+  public void testGroupingTableOutputsEntriesWhenCacheIsFull() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table =
+        sumTable(Caches.forMaximumBytes(2500L), true);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    // A single page is larger than the cache so entries are output as soon as a page is needed.
+    table.put(timestampedValueInGlobalWindow(KV.of("A", 1), new Instant(1)), receiver);
+    table.put(timestampedValueInGlobalWindow(KV.of("B", 3), new Instant(2)), receiver);
+    assertThat(receiver.outputElems, not(empty()));
+
+    table.flush(receiver);
+    Map<String, Long> sums = new HashMap<>();
+    for (WindowedValue<KV<String, Long>> output : receiver.outputElems) {
+      sums.merge(output.getValue().getKey(), output.getValue().getValue(), Long::sum);
+    }
+    assertEquals(1L, (long) sums.get("A"));
+    assertEquals(3L, (long) sums.get("B"));
+  }
+
+  @Test
+  public void testGroupingTableWithManyKeys() throws Exception {
+    EncodedPrecombineGroupingTable<String, Integer, Long> table = sumTable(Caches.eternal(), true);
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    int numKeys = 50_000;
+    for (int round = 1; round <= 3; ++round) {
+      for (int i = 0; i < numKeys; ++i) {
+        table.put(valueInGlobalWindow(KV.of(Integer.toString(i), round)), receiver);
+      }
+    }
+    assertThat(receiver.outputElems, empty());
+    assertEquals(numKeys, table.size());
+    assertThat(
+        table.getAllocatedBytes(), greaterThan((long) EncodedPrecombineGroupingTable.PAGE_SIZE));
+
+    table.flush(receiver);
+    assertEquals(numKeys, receiver.outputElems.size());
+    for (WindowedValue<KV<String, Long>> output : receiver.outputElems) {
+      assertEquals(6L, (long) output.getValue().getValue());
+    }
+  }
+
+  @Test
+  public void testGrowingAccumulatorsAreRelocated() throws Exception {
+    EncodedPrecombineGroupingTable<String, String, String> table =
+        new EncodedPrecombineGroupingTable<>(
+            PipelineOptionsFactory.create(),
+            Caches.eternal(),
+            StringUtf8Coder.of(),
+            StringUtf8Coder.of(),
+            GlobalWindow.Coder.INSTANCE,
+            GlobalCombineFnRunners.create(CONCAT_FN),
+            true);
+    TestOutputReceiver<WindowedValue<KV<String, String>>> receiver = new TestOutputReceiver<>();
+
+    // Grow the accumulators past the size of a page to exercise relocation and oversized pages.
+    String a = Strings.repeat("a", 1000);
+    String b = Strings.repeat("b", 1000);
+    int numValues = 2 * EncodedPrecombineGroupingTable.PAGE_SIZE / 1000;
+    for (int i = 0; i < numValues; ++i) {
+      table.put(valueInGlobalWindow(KV.of("A", a)), receiver);
+      table.put(valueInGlobalWindow(KV.of("B", b)), receiver);
+    }
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            valueInGlobalWindow(KV.of("A", Strings.repeat(a, numValues))),
+            valueInGlobalWindow(KV.of("B", Strings.repeat(b, numValues)))));
+  }
+
+  @Test
+  public void testSupportsKeyCoder() {
+    assertTrue(EncodedPrecombineGroupingTable.supportsKeyCoder(StringUtf8Coder.of()));
+    assertFalse(EncodedPrecombineGroupingTable.supportsKeyCoder(DoubleCoder.of()));
+  }
+
+  private static WindowedValue<KV<String, Integer>> windowedValue(
+      String key, int value, long timestamp, IntervalWindow window) {
+    return WindowedValues.of(KV.of(key, value), new Instant(timestamp), window, PaneInfo.NO_FIRING);
+  }
+}
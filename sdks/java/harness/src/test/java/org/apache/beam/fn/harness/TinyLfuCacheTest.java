@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.base.Strings;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TinyLfuCache}. */
+@RunWith(JUnit4.class)
+public class TinyLfuCacheTest {
+
+  private static TinyLfuCache<Integer, Integer> unitWeightCache(long maximumWeight) {
+    return new TinyLfuCache<>(maximumWeight, (key, value) -> 1L, (key, value) -> null);
+  }
+
+  @Test
+  public void testPutGetAndInvalidate() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(100);
+    assertNull(cache.getIfPresent(1));
+    cache.put(1, 10);
+    assertEquals(10, (int) cache.getIfPresent(1));
+    cache.put(1, 11);
+    assertEquals(11, (int) cache.getIfPresent(1));
+    assertEquals(11, (int) cache.get(1, (key) -> 12));
+    cache.invalidate(1);
+    assertNull(cache.getIfPresent(1));
+    assertEquals(12, (int) cache.get(1, (key) -> 12));
+
+    cache.cleanUp();
+    assertEquals(1, cache.weightedSize());
+    assertEquals(1, cache.loadCount());
+  }
+
+  @Test
+  public void testWeightIsBounded() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(1000);
+    for (int i = 0; i < 100_000; ++i) {
+      cache.put(i, i);
+    }
+    cache.cleanUp();
+    assertThat(cache.weightedSize(), lessThanOrEqualTo(1000L));
+    assertThat(cache.evictionCount(), greaterThan(0L));
+  }
+
+  @Test
+  public void testFrequentlyUsedEntriesAreRetainedDuringScans() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(1000);
+    // A scan of keys which are only used once should not evict the frequently used keys.
+    for (int i = 0; i < 100_000; ++i) {
+      cache.get(i % 50, (key) -> key);
+      cache.put(1000 + i, i);
+    }
+    cache.cleanUp();
+
+    assertEquals(50, cache.loadCount());
+    assertThat(cache.weightedSize(), lessThanOrEqualTo(1000L));
+  }
+
+  @Test
+  public void testShrinkerReplacesEvictedEntry() {
+    TinyLfuCache<String, String> cache =
+        new TinyLfuCache<>(
+            1000,
+            (key, value) -> value.length(),
+            (key, value) -> value.length() > 1 ? value.substring(0, value.length() / 4) : null);
+    cache.put("key", Strings.repeat("a", 2000));
+    cache.cleanUp();
+
+    assertEquals(Strings.repeat("a", 500), cache.getIfPresent("key"));
+    assertEquals(500, cache.weightedSize());
+    assertEquals(1, cache.evictionCount());
+  }
+
+  @Test
+  public void testLoadingOtherKeysWhileLoading() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(100);
+    assertEquals(3, (int) cache.get(1, (key) -> cache.get(2, (otherKey) -> 2) + 1));
+    assertEquals(2, (int) cache.getIfPresent(2));
+    assertEquals(3, (int) cache.getIfPresent(1));
+  }
+
+  @Test
+  public void testRecursiveLoadOfTheSameKeyFails() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(100);
+    assertThrows(
+        IllegalStateException.class, () -> cache.get(1, (key) -> cache.get(1, (sameKey) -> 2)));
+    // The failed load must not prevent future loads.
+    assertEquals(3, (int) cache.get(1, (key) -> 3));
+  }
+
+  @Test
+  public void testFailedLoadIsPropagated() {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(100);
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            cache.get(
+                1,
+                (key) -> {
+                  throw new IllegalArgumentException();
+                }));
+    assertNull(cache.getIfPresent(1));
+  }
+
+  @Test
+  public void testConcurrentLoadsOfTheSameKeyAreShared() throws Exception {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(100);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      futures.add(
+          executor.submit(
+              () ->
+                  cache.get(
+                      1,
+                      (key) -> {
+                        loads.incrementAndGet();
+                        loading.countDown();
+                        try {
+                          release.await();
+                        } catch (InterruptedException e) {
+                          throw new RuntimeException(e);
+                        }
+                        return 42;
+                      })));
+      loading.await();
+      for (int i = 0; i < 3; ++i) {
+        futures.add(
+            executor.submit(
+                () ->
+                    cache.get(
+                        1,
+                        (key) -> {
+                          loads.incrementAndGet();
+                          return -1;
+                        })));
+      }
+      release.countDown();
+      for (Future<Integer> future : futures) {
+        assertEquals(42, (int) future.get(1, TimeUnit.MINUTES));
+      }
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentAccessKeepsWeightConsistent() throws Exception {
+    TinyLfuCache<Integer, Integer> cache = unitWeightCache(500);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; ++thread) {
+        int seed = thread;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 100_000; ++i) {
+                    int key = (i * 31 + seed) % 2000;
+                    switch (i % 4) {
+                      case 0:
+                        cache.put(key, i);
+                        break;
+                      case 1:
+                        cache.invalidate(key);
+                        break;
+                      default:
+                        cache.get(key, (unused) -> 0);
+                        break;
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    cache.cleanUp();
+
+    int entries = 0;
+    for (int key = 0; key < 2000; ++key) {
+      if (cache.getIfPresent(key) != null) {
+        ++entries;
+      }
+    }
+    assertEquals(entries, cache.weightedSize());
+    assertThat(cache.weightedSize(), lessThanOrEqualTo(500L));
+  }
+}
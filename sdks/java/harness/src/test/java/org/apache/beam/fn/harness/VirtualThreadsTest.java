@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link VirtualThreads}. */
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+  @Test
+  public void testIsSupportedOnJava21AndLater() {
+    assertEquals(Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void testThreadPerTaskExecutorRunsTasksOnNamedVirtualThreads() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      assertTrue(thread.getName(), thread.getName().startsWith("test-"));
+      assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  @Test
+  public void testThreadPerTaskExecutorUnsupported() {
+    assumeFalse(VirtualThreads.isSupported());
+    assertThrows(
+        UnsupportedOperationException.class, () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+  }
+}
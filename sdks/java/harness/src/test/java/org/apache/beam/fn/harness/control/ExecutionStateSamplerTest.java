@@ -715,6 +715,109 @@ public class ExecutionStateSamplerTest {
     expectedLogs.verifyWarn("Operation ongoing in bundle bundleId for PTransform");
   }
 
+  @Test
+  public void testStackSamplingAttributesStacksToActiveState() throws Exception {
+    MillisProvider clock = mock(MillisProvider.class);
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.fromArgs(
+                    "--experiments=state_sampling_period_millis=10,enable_stack_sampling")
+                .create(),
+            clock,
+            mockOnTimeoutExceededCallback);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state = tracker.create("shortId", "ptransformId", "ptransformIdName", "process");
+
+    CountDownLatch waitTillActive = new CountDownLatch(1);
+    CountDownLatch waitForSamples = new CountDownLatch(10);
+    Thread testThread = Thread.currentThread();
+    Mockito.when(clock.getMillis())
+        .thenAnswer(
+            new Answer<Long>() {
+              private long currentTime;
+
+              @Override
+              public Long answer(InvocationOnMock invocation) throws Throwable {
+                if (Thread.currentThread().equals(testThread)) {
+                  return 0L;
+                } else {
+                  // Block the state sampling thread till the state is active and unblock the
+                  // test thread once a certain number of samples have been taken.
+                  waitTillActive.await();
+                  waitForSamples.countDown();
+                  currentTime += 100;
+                  return currentTime;
+                }
+              }
+            });
+
+    tracker.start("bundleId");
+    state.activate();
+    waitTillActive.countDown();
+    waitForSamples.await();
+    state.deactivate();
+    tracker.reset();
+    sampler.stop();
+
+    Map<String, Long> stacks = sampler.getSampledStacks().getFoldedStacks().get("ptransformIdName");
+    long sampledMillis = 0;
+    for (Map.Entry<String, Long> stack : stacks.entrySet()) {
+      assertTrue(stack.getKey(), stack.getKey().startsWith("ptransformIdName;process;"));
+      sampledMillis += stack.getValue();
+    }
+    assertThat(sampledMillis, greaterThan(0L));
+    assertTrue(
+        stacks.keySet().stream()
+            .anyMatch(
+                stack ->
+                    stack.contains(
+                        ExecutionStateSamplerTest.class.getName()
+                            + ".testStackSamplingAttributesStacksToActiveState")));
+  }
+
+  @Test
+  public void testStackSamplingDisabledByDefault() throws Exception {
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.create(), mock(MillisProvider.class), null);
+    assertNull(sampler.getSampledStacks());
+    sampler.stop();
+  }
+
+  @Test
+  public void testPinnedThreadsAreReportedToCurrentState() throws Exception {
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(PipelineOptionsFactory.create(), System::currentTimeMillis, null);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state = tracker.create("shortId", "ptransformId", "ptransformIdName", "process");
+
+    tracker.start("bundleId");
+    state.activate();
+    sampler.reportPinnedThread(Thread.currentThread().getId(), 25);
+    // Pinning of threads which are not processing a bundle is ignored.
+    sampler.reportPinnedThread(Thread.currentThread().getId() + 1, 50);
+    state.deactivate();
+
+    assertEquals(
+        1L,
+        (long)
+            tracker
+                .getMetricsContainerRegistry()
+                .getContainer("ptransformId")
+                .getCounter(ExecutionStateSampler.VIRTUAL_THREAD_PINNED_COUNT)
+                .getCumulative());
+    assertEquals(
+        25L,
+        tracker
+            .getMetricsContainerRegistry()
+            .getContainer("ptransformId")
+            .getDistribution(ExecutionStateSampler.VIRTUAL_THREAD_PINNED_MSECS)
+            .getCumulative()
+            .sum());
+    tracker.reset();
+    sampler.stop();
+  }
+
   @Test
   public void testErrorState() throws Exception {
     MillisProvider clock = mock(MillisProvider.class);
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.control;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SampledStacks}. */
+@RunWith(JUnit4.class)
+public class SampledStacksTest {
+  private static final StackTraceElement[] STACK =
+      new StackTraceElement[] {
+        new StackTraceElement("com.example.Inner", "leaf", "Inner.java", 1),
+        new StackTraceElement("com.example.Outer", "root", "Outer.java", 2)
+      };
+
+  @Test
+  public void testFoldsStacksOutermostFirst() {
+    SampledStacks sampledStacks = new SampledStacks();
+    sampledStacks.add("My Step", "process", STACK, 200);
+    sampledStacks.add("My Step", "process", STACK, 100);
+    sampledStacks.add("Other;Step", "start", STACK, 50);
+
+    assertEquals(
+        ImmutableMap.of(
+            "My Step",
+            ImmutableMap.of("My_Step;process;com.example.Outer.root;com.example.Inner.leaf", 300L),
+            "Other;Step",
+            ImmutableMap.of("Other:Step;start;com.example.Outer.root;com.example.Inner.leaf", 50L)),
+        sampledStacks.getFoldedStacks());
+    assertEquals(
+        "My_Step;process;com.example.Outer.root;com.example.Inner.leaf 300\n"
+            + "Other:Step;start;com.example.Outer.root;com.example.Inner.leaf 50\n",
+        sampledStacks.describeFoldedStacks());
+  }
+
+  @Test
+  public void testKeepsInnermostFrames() {
+    StackTraceElement[] deepStack = new StackTraceElement[SampledStacks.MAX_FRAMES + 10];
+    for (int i = 0; i < deepStack.length; ++i) {
+      deepStack[i] = new StackTraceElement("com.example.Frame", "f" + i, "Frame.java", i);
+    }
+    SampledStacks sampledStacks = new SampledStacks();
+    sampledStacks.add("step", "process", deepStack, 1);
+
+    String folded = sampledStacks.getFoldedStacks().get("step").keySet().iterator().next();
+    String[] frames = folded.split(";");
+    assertEquals(SampledStacks.MAX_FRAMES + 2, frames.length);
+    assertEquals("com.example.Frame.f" + (SampledStacks.MAX_FRAMES - 1), frames[2]);
+    assertEquals("com.example.Frame.f0", frames[frames.length - 1]);
+  }
+
+  @Test
+  public void testLimitsDistinctStacksPerPTransform() {
+    SampledStacks sampledStacks = new SampledStacks();
+    for (int i = 0; i < SampledStacks.MAX_STACKS_PER_PTRANSFORM + 5; ++i) {
+      sampledStacks.add(
+          "step",
+          "process",
+          new StackTraceElement[] {new StackTraceElement("com.example.C", "m" + i, "C.java", i)},
+          1);
+    }
+
+    Map<String, Long> stacks = sampledStacks.getFoldedStacks().get("step");
+    assertEquals(SampledStacks.MAX_STACKS_PER_PTRANSFORM + 1, stacks.size());
+    assertEquals(5L, (long) stacks.get("step;" + SampledStacks.OTHER_STACKS));
+  }
+}
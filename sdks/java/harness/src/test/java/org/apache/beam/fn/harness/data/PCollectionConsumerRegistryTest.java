@@ -42,6 +42,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import org.apache.beam.fn.harness.ElementwiseFnDataReceiver;
 import org.apache.beam.fn.harness.HandlesSplits;
 import org.apache.beam.fn.harness.control.BundleProgressReporter;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler;
@@ -56,6 +57,7 @@ import org.apache.beam.model.fnexecution.v1.BeamFnLoggingGrpc;
 import org.apache.beam.model.pipeline.v1.Endpoints;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.model.pipeline.v1.RunnerApi.PCollection;
+import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
 import org.apache.beam.runners.core.metrics.DistributionData;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
@@ -428,6 +430,86 @@ public class PCollectionConsumerRegistryTest {
                 .getCumulative());
   }
 
+  @Test
+  public void testElementwiseConsumersAreFusedIntoProducerExecutionState() throws Exception {
+    ExecutionStateTracker executionStateTracker = sampler.create();
+    MetricsEnvironment.setCurrentContainer(executionStateTracker.getMetricsContainer());
+    ShortIdMap shortIds = new ShortIdMap();
+    BundleProgressReporter.InMemory reporterAndRegistrar = new BundleProgressReporter.InMemory();
+    executionStateTracker.start("testBundle");
+    ProcessBundleDescriptor descriptor =
+        TEST_DESCRIPTOR.toBuilder()
+            .putTransforms(
+                "pTransformA",
+                PTransform.newBuilder()
+                    .putInputs("input", P_COLLECTION_A)
+                    .putOutputs("output", P_COLLECTION_B)
+                    .build())
+            .build();
+    PCollectionConsumerRegistry consumers =
+        new PCollectionConsumerRegistry(
+            executionStateTracker, shortIds, reporterAndRegistrar, descriptor);
+
+    consumers.register(
+        P_COLLECTION_B,
+        "pTransformB",
+        "pTransformBName",
+        (ElementwiseFnDataReceiver<WindowedValue<Iterable<String>>>)
+            input -> TEST_USER_COUNTER.inc(2));
+    FnDataReceiver<WindowedValue<Iterable<String>>> outputOfA =
+        (FnDataReceiver<WindowedValue<Iterable<String>>>)
+            (FnDataReceiver) consumers.getMultiplexingConsumer(P_COLLECTION_B);
+    consumers.register(
+        P_COLLECTION_A,
+        "pTransformA",
+        "pTransformAName",
+        (ElementwiseFnDataReceiver<WindowedValue<String>>)
+            input -> {
+              TEST_USER_COUNTER.inc();
+              outputOfA.accept(input.withValue(Arrays.asList(input.getValue())));
+            });
+
+    FnDataReceiver<WindowedValue<String>> wrapperConsumer =
+        (FnDataReceiver<WindowedValue<String>>)
+            (FnDataReceiver) consumers.getMultiplexingConsumer(P_COLLECTION_A);
+    wrapperConsumer.accept(valueInGlobalWindow("elem"));
+
+    // pTransformA starts the chain while pTransformB is fused into its execution state.
+    assertEquals(
+        3L,
+        (long)
+            executionStateTracker
+                .getMetricsContainerRegistry()
+                .getContainer("pTransformA")
+                .getCounter(TEST_USER_COUNTER.getName())
+                .getCumulative());
+    assertEquals(
+        0L,
+        (long)
+            executionStateTracker
+                .getMetricsContainerRegistry()
+                .getContainer("pTransformB")
+                .getCounter(TEST_USER_COUNTER.getName())
+                .getCumulative());
+
+    // Elements are still counted for each PCollection of the chain.
+    Map<String, ByteString> actualData = new HashMap<>();
+    reporterAndRegistrar.updateFinalMonitoringData(actualData);
+    List<MonitoringInfo> expected = new ArrayList<>();
+    for (String pCollectionId : Arrays.asList(P_COLLECTION_A, P_COLLECTION_B)) {
+      SimpleMonitoringInfoBuilder builder = new SimpleMonitoringInfoBuilder();
+      builder.setUrn(MonitoringInfoConstants.Urns.ELEMENT_COUNT);
+      builder.setLabel(MonitoringInfoConstants.Labels.PCOLLECTION, pCollectionId);
+      builder.setInt64SumValue(1);
+      expected.add(builder.build());
+    }
+    Iterable<MonitoringInfo> result =
+        Iterables.filter(
+            shortIds.toMonitoringInfo(actualData),
+            monitoringInfo -> Urns.ELEMENT_COUNT.equals(monitoringInfo.getUrn()));
+    assertThat(result, containsInAnyOrder(expected.toArray()));
+  }
+
   @Test
   public void testHandlesSplitsPassedToOriginalConsumer() throws Exception {
     final String pTransformIdA = "pTransformIdA";
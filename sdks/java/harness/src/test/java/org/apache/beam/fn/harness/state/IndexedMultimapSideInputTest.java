@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.fn.harness.Cache;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link IndexedMultimapSideInput}. */
+@RunWith(JUnit4.class)
+public class IndexedMultimapSideInputTest {
+  private static final byte[] A = "A".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] B = "B".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] UNKNOWN = "UNKNOWN".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void testGet() throws Exception {
+    IndexedMultimapSideInput<byte[], String> multimapSideInput =
+        new IndexedMultimapSideInput<>(
+            Caches.noop(),
+            fakeStateClient(),
+            "instructionId",
+            keysStateKey(),
+            ByteArrayCoder.of(),
+            StringUtf8Coder.of());
+    assertArrayEquals(
+        new String[] {"A1", "A2", "A3"}, Iterables.toArray(multimapSideInput.get(A), String.class));
+    assertArrayEquals(
+        new String[] {"B1", "B2"}, Iterables.toArray(multimapSideInput.get(B), String.class));
+    assertArrayEquals(
+        new String[] {}, Iterables.toArray(multimapSideInput.get(UNKNOWN), String.class));
+    assertArrayEquals(
+        new byte[][] {A, B}, Iterables.toArray(multimapSideInput.get(), byte[].class));
+  }
+
+  @Test
+  public void testIndexIsSharedThroughCache() throws Exception {
+    Cache<?, ?> cache = Caches.eternal();
+    {
+      // The first side input will download the side input and populate the cache.
+      IndexedMultimapSideInput<byte[], String> multimapSideInput =
+          new IndexedMultimapSideInput<>(
+              cache,
+              fakeStateClient(),
+              "instructionId",
+              keysStateKey(),
+              ByteArrayCoder.of(),
+              StringUtf8Coder.of());
+      assertArrayEquals(
+          new String[] {"A1", "A2", "A3"},
+          Iterables.toArray(multimapSideInput.get(A), String.class));
+    }
+
+    {
+      // The next side input will serve all lookups from the cached index.
+      IndexedMultimapSideInput<byte[], String> multimapSideInput =
+          new IndexedMultimapSideInput<>(
+              cache,
+              requestBuilder -> {
+                throw new IllegalStateException("Unexpected call for test.");
+              },
+              "instructionId",
+              keysStateKey(),
+              ByteArrayCoder.of(),
+              StringUtf8Coder.of());
+      assertArrayEquals(
+          new String[] {"A1", "A2", "A3"},
+          Iterables.toArray(multimapSideInput.get(A), String.class));
+      assertArrayEquals(
+          new String[] {"B1", "B2"}, Iterables.toArray(multimapSideInput.get(B), String.class));
+      assertArrayEquals(
+          new String[] {}, Iterables.toArray(multimapSideInput.get(UNKNOWN), String.class));
+      assertArrayEquals(
+          new byte[][] {A, B}, Iterables.toArray(multimapSideInput.get(), byte[].class));
+    }
+  }
+
+  @Test
+  public void testIndexWeighsItsEntries() {
+    IndexedMultimapSideInput.Index.Builder builder = new IndexedMultimapSideInput.Index.Builder();
+    builder.add(ByteString.copyFrom(A), 1, ByteString.copyFromUtf8("A1"));
+    builder.add(ByteString.copyFrom(B), 2, ByteString.copyFromUtf8("B1B2"));
+    IndexedMultimapSideInput.Index index = builder.build();
+
+    // Each entry has a header of three ints, the hash table has four slots of an address and hash.
+    assertEquals(2 * 3 * Integer.BYTES + 1 + 2 + 1 + 4 + 4 * 12, index.getWeight());
+    assertEquals(2, IndexedMultimapSideInput.Index.valueCount(index.find(ByteString.copyFrom(B))));
+  }
+
+  @Test
+  public void testGetWithManyKeys() throws Exception {
+    List<KV<Integer, Iterable<Integer>>> entries = new ArrayList<>();
+    for (int i = 0; i < 10_000; ++i) {
+      entries.add(KV.of(i, asList(i, -i)));
+    }
+    FakeBeamFnStateClient fakeBeamFnStateClient =
+        new FakeBeamFnStateClient(
+            ImmutableMap.of(
+                keysValuesStateKey(),
+                KV.of(KvCoder.of(VarIntCoder.of(), IterableCoder.of(VarIntCoder.of())), entries)));
+
+    IndexedMultimapSideInput<Integer, Integer> multimapSideInput =
+        new IndexedMultimapSideInput<>(
+            Caches.noop(),
+            fakeBeamFnStateClient,
+            "instructionId",
+            keysStateKey(),
+            VarIntCoder.of(),
+            VarIntCoder.of());
+    for (int i = 0; i < 10_000; ++i) {
+      assertEquals(asList(i, -i), ImmutableList.copyOf(multimapSideInput.get(i)));
+    }
+    assertEquals(0, Iterables.size(multimapSideInput.get(10_000)));
+    assertEquals(10_000, Iterables.size(multimapSideInput.get()));
+  }
+
+  private FakeBeamFnStateClient fakeStateClient() throws IOException {
+    return new FakeBeamFnStateClient(
+        ImmutableMap.of(
+            keysValuesStateKey(),
+            KV.of(
+                KvCoder.of(ByteArrayCoder.of(), IterableCoder.of(StringUtf8Coder.of())),
+                asList(KV.of(A, asList("A1", "A2", "A3")), KV.of(B, asList("B1", "B2"))))));
+  }
+
+  private StateKey keysStateKey() throws IOException {
+    return StateKey.newBuilder()
+        .setMultimapKeysSideInput(
+            StateKey.MultimapKeysSideInput.newBuilder()
+                .setTransformId("ptransformId")
+                .setSideInputId("sideInputId")
+                .setWindow(ByteString.copyFromUtf8("encodedWindow")))
+        .build();
+  }
+
+  private StateKey keysValuesStateKey() throws IOException {
+    return StateKey.newBuilder()
+        .setMultimapKeysValuesSideInput(
+            StateKey.MultimapKeysValuesSideInput.newBuilder()
+                .setTransformId("ptransformId")
+                .setSideInputId("sideInputId")
+                .setWindow(ByteString.copyFromUtf8("encodedWindow")))
+        .build();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.state;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
+import org.apache.beam.runners.core.metrics.DistributionData;
+import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.metrics.MetricName;
+import org.apache.beam.sdk.metrics.MetricsEnvironment;
+import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.vendor.grpc.v1p69p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.ImmutableMap;
+import org.apache.beam.vendor.guava.v32_1_2_jre.com.google.common.collect.Iterables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link StatePrefetcher}. */
+@RunWith(JUnit4.class)
+public class StatePrefetcherTest {
+  @Test
+  public void testPrefetchedReadDoesNotIssueRequest() throws Exception {
+    FakeBeamFnStateClient fakeClient =
+        new FakeBeamFnStateClient(
+            StringUtf8Coder.of(),
+            ImmutableMap.of(key("A"), asList("A1", "A2"), key("B"), asList("B1")));
+    StatePrefetcher prefetcher = new StatePrefetcher(fakeClient, 100);
+    MetricsContainerImpl container = new MetricsContainerImpl("ptransformId");
+    try (Closeable closeable = MetricsEnvironment.scopedMetricsContainer(container)) {
+      prefetcher.prefetch("instructionId", asList(key("A"), key("B")));
+      assertEquals(2, fakeClient.getCallCount());
+
+      assertArrayEquals(new String[] {"A1", "A2"}, read(prefetcher, "A"));
+      assertArrayEquals(new String[] {"B1"}, read(prefetcher, "B"));
+      assertEquals(2, fakeClient.getCallCount());
+    }
+
+    assertEquals(2L, (long) container.getCounter(name("statePrefetchHits")).getCumulative());
+    assertEquals(0L, (long) container.getCounter(name("statePrefetchMisses")).getCumulative());
+    assertEquals(
+        DistributionData.singleton(2),
+        container.getDistribution(name("statePrefetchBatchSize")).getCumulative());
+  }
+
+  @Test
+  public void testPrefetchIsLimited() throws Exception {
+    FakeBeamFnStateClient fakeClient =
+        new FakeBeamFnStateClient(
+            StringUtf8Coder.of(),
+            ImmutableMap.of(key("A"), asList("A1"), key("B"), asList("B1")));
+    StatePrefetcher prefetcher = new StatePrefetcher(fakeClient, 1);
+    MetricsContainerImpl container = new MetricsContainerImpl("ptransformId");
+    try (Closeable closeable = MetricsEnvironment.scopedMetricsContainer(container)) {
+      prefetcher.prefetch("instructionId", asList(key("A"), key("B")));
+      assertEquals(1, fakeClient.getCallCount());
+
+      assertArrayEquals(new String[] {"B1"}, read(prefetcher, "B"));
+      assertArrayEquals(new String[] {"A1"}, read(prefetcher, "A"));
+      assertEquals(2, fakeClient.getCallCount());
+    }
+
+    assertEquals(1L, (long) container.getCounter(name("statePrefetchHits")).getCumulative());
+    assertEquals(1L, (long) container.getCounter(name("statePrefetchMisses")).getCumulative());
+  }
+
+  @Test
+  public void testClearDropsPrefetchedResponses() throws Exception {
+    FakeBeamFnStateClient fakeClient =
+        new FakeBeamFnStateClient(StringUtf8Coder.of(), ImmutableMap.of(key("A"), asList("A1")));
+    StatePrefetcher prefetcher = new StatePrefetcher(fakeClient, 100);
+    prefetcher.prefetch("instructionId", asList(key("A")));
+    prefetcher.clear();
+
+    assertArrayEquals(new String[] {"A1"}, read(prefetcher, "A"));
+    assertEquals(2, fakeClient.getCallCount());
+  }
+
+  private String[] read(BeamFnStateClient client, String key) throws Exception {
+    BagUserState<String> userState =
+        new BagUserState<>(Caches.noop(), client, "instructionId", key(key), StringUtf8Coder.of());
+    String[] values = Iterables.toArray(userState.get(), String.class);
+    userState.asyncClose();
+    return values;
+  }
+
+  private static MetricName name(String name) {
+    return MetricName.named(StatePrefetcher.class, name);
+  }
+
+  private StateKey key(String id) throws IOException {
+    return StateKey.newBuilder()
+        .setBagUserState(
+            StateKey.BagUserState.newBuilder()
+                .setTransformId("ptransformId")
+                .setUserStateId("stateId")
+                .setWindow(ByteString.copyFromUtf8("encodedWindow"))
+                .setKey(encode(id)))
+        .build();
+  }
+
+  private ByteString encode(String... values) throws IOException {
+    ByteStringOutputStream out = new ByteStringOutputStream();
+    for (String value : values) {
+      StringUtf8Coder.of().encode(value, out);
+    }
+    return out.toByteString();
+  }
+}
@@ -337,6 +337,12 @@ class HadoopFileSystem extends FileSystem<HadoopResourceId> {
     return scheme;
   }
 
+  @Override
+  protected boolean allowsConcurrentBulkOperations() {
+    // Resources are processed one at a time and Hadoop file systems are thread safe.
+    return true;
+  }
+
   @Override
   protected void reportLineage(HadoopResourceId resourceId, Lineage lineage, LineageLevel level) {
     URI uri = resourceId.toPath().toUri();